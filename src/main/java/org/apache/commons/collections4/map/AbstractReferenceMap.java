@@ -74,6 +74,14 @@ import org.apache.commons.collections4.keyvalue.DefaultMapEntry;
  * {@code NullPointerException}.
  * </p>
  * <p>
+ * Mappings whose key or value has been reclaimed are purged from the table at the
+ * start of each operation. After a collection that clears many references, this
+ * makes the next operation pay for all of them; {@link #setPurgeBatchSize(int)}
+ * bounds the purging done by each operation instead, and a housekeeping task can
+ * drain the rest with {@link #purgeStaleMappings(int)} while holding the lock that
+ * guards the map. {@link #getPurgeCount()} returns the number of mappings purged.
+ * </p>
+ * <p>
  * All the available iterators can be reset back to the start by casting to
  * {@code ResettableIterator} and calling {@code reset()}.
  * </p>
@@ -675,6 +683,21 @@ public abstract class AbstractReferenceMap<K, V> extends AbstractHashedMap<K, V>
      */
     private transient ReferenceQueue<Object> queue;
 
+    /**
+     * The statistics recorder, null if statistics are disabled.
+     */
+    private transient CacheStatsRecorder statsRecorder;
+
+    /**
+     * The maximum number of references purged before each operation, 0 for no limit.
+     */
+    private transient int purgeBatchSize;
+
+    /**
+     * The number of mappings purged.
+     */
+    private transient long purgeCount;
+
     /**
      * Constructor used during deserialization.
      */
@@ -908,6 +931,9 @@ public abstract class AbstractReferenceMap<K, V> extends AbstractHashedMap<K, V>
     public V get(final Object key) {
         purgeBeforeRead();
         final Entry<K, V> entry = getEntry(key);
+        if (statsRecorder != null) {
+            statsRecorder.recordLookup(entry);
+        }
         if (entry == null) {
             return null;
         }
@@ -928,6 +954,37 @@ public abstract class AbstractReferenceMap<K, V> extends AbstractHashedMap<K, V>
         return super.getEntry(key);
     }
 
+    /**
+     * Gets the maximum number of reclaimed references purged before each operation.
+     *
+     * @return the purge batch size, 0 if each operation purges all of them
+     * @since 4.6.0
+     */
+    public int getPurgeBatchSize() {
+        return purgeBatchSize;
+    }
+
+    /**
+     * Gets the number of mappings purged because the garbage collector reclaimed
+     * their key or value. The count is not serialized.
+     *
+     * @return the number of purged mappings
+     * @since 4.6.0
+     */
+    public long getPurgeCount() {
+        return purgeCount;
+    }
+
+    /**
+     * Gets the recorder of the statistics of this map.
+     *
+     * @return the statistics recorder, null if statistics are disabled
+     * @since 4.6.0
+     */
+    public CacheStatsRecorder getStatsRecorder() {
+        return statsRecorder;
+    }
+
     /**
      * Gets the hash code for a MapEntry.
      * Subclasses can override this, for example to use the identityHashCode.
@@ -1061,7 +1118,11 @@ public abstract class AbstractReferenceMap<K, V> extends AbstractHashedMap<K, V>
                     previous.next = entry.next;
                 }
                 size--;
+                purgeCount++;
                 refEntry.onPurge();
+                if (statsRecorder != null) {
+                    statsRecorder.recordEviction(CacheStats.EvictionCause.COLLECTED);
+                }
                 return;
             }
             previous = entry;
@@ -1077,20 +1138,54 @@ public abstract class AbstractReferenceMap<K, V> extends AbstractHashedMap<K, V>
     /**
      * Purges stale mappings from this map before read operations.
      * <p>
-     * This implementation calls {@link #purge()} to maintain a consistent state.
+     * This implementation calls {@link #purge()} to maintain a consistent state,
+     * or purges at most {@link #getPurgeBatchSize()} references if a batch size is set.
+     * </p>
      */
     protected void purgeBeforeRead() {
-        purge();
+        if (purgeBatchSize > 0) {
+            purgeStaleMappings(purgeBatchSize);
+        } else {
+            purge();
+        }
     }
 
     /**
      * Purges stale mappings from this map before write operations.
      * <p>
-     * This implementation calls {@link #purge()} to maintain a consistent state.
+     * This implementation calls {@link #purge()} to maintain a consistent state,
+     * or purges at most {@link #getPurgeBatchSize()} references if a batch size is set.
      * </p>
      */
     protected void purgeBeforeWrite() {
-        purge();
+        if (purgeBatchSize > 0) {
+            purgeStaleMappings(purgeBatchSize);
+        } else {
+            purge();
+        }
+    }
+
+    /**
+     * Purges the mappings of at most the specified number of reclaimed references.
+     * <p>
+     * This method is not synchronized, a housekeeping thread calling it must hold
+     * the lock that guards the map.
+     * </p>
+     *
+     * @param maxReferences  the maximum number of reclaimed references to process
+     * @return the number of mappings purged
+     * @since 4.6.0
+     */
+    public int purgeStaleMappings(final int maxReferences) {
+        final long before = purgeCount;
+        for (int i = 0; i < maxReferences; i++) {
+            final Reference<?> ref = queue.poll();
+            if (ref == null) {
+                break;
+            }
+            purge(ref);
+        }
+        return (int) (purgeCount - before);
     }
 
     /**
@@ -1125,6 +1220,39 @@ public abstract class AbstractReferenceMap<K, V> extends AbstractHashedMap<K, V>
         return super.remove(key);
     }
 
+    /**
+     * Sets the maximum number of reclaimed references purged before each operation.
+     * <p>
+     * With a batch size, the cost of purging after a collection that clears many
+     * references is spread over the following operations. Until they are purged,
+     * the mappings of reclaimed references still count in {@link #size()} but are
+     * not returned by lookups or iterators. The batch size is not serialized.
+     * </p>
+     *
+     * @param purgeBatchSize  the purge batch size, 0 to purge all reclaimed references before each operation
+     * @throws IllegalArgumentException if the batch size is negative
+     * @since 4.6.0
+     */
+    public void setPurgeBatchSize(final int purgeBatchSize) {
+        if (purgeBatchSize < 0) {
+            throw new IllegalArgumentException("Purge batch size must not be negative");
+        }
+        this.purgeBatchSize = purgeBatchSize;
+    }
+
+    /**
+     * Sets the recorder of the statistics of this map, which records the hits
+     * and misses of {@link #get(Object)} and the mappings purged because the
+     * garbage collector reclaimed their key or value. Statistics are disabled
+     * by default and are not serialized.
+     *
+     * @param statsRecorder  the statistics recorder, null to disable statistics
+     * @since 4.6.0
+     */
+    public void setStatsRecorder(final CacheStatsRecorder statsRecorder) {
+        this.statsRecorder = statsRecorder;
+    }
+
     /**
      * Gets the size of the map.
      *
@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An immutable snapshot of the statistics gathered by a {@link CacheStatsRecorder}.
+ * <p>
+ * Hits and misses count lookups, loads count the values computed by a
+ * {@link LoadingMap}, and evictions count the mappings a map removed on its
+ * own, broken down by {@link EvictionCause}. Mappings removed by the caller
+ * are not evictions.
+ * </p>
+ *
+ * @see CacheStatsRecorder#snapshot()
+ * @since 4.6.0
+ */
+public final class CacheStats {
+
+    /**
+     * The reason a mapping was evicted.
+     */
+    public enum EvictionCause {
+
+        /** The map was full, as in {@link LRUMap}. */
+        SIZE,
+
+        /** The mapping expired, as in {@link PassiveExpiringMap}. */
+        EXPIRED,
+
+        /**
+         * The garbage collector reclaimed the key or value, as in
+         * {@link AbstractReferenceMap} and {@link ConcurrentReferenceHashMap}.
+         */
+        COLLECTED
+    }
+
+    private final long hitCount;
+    private final long missCount;
+    private final long loadSuccessCount;
+    private final long loadFailureCount;
+    private final long totalLoadTime;
+    private final long[] evictionCounts;
+
+    /**
+     * Constructs a new snapshot.
+     *
+     * @param hitCount the number of lookups that found a value.
+     * @param missCount the number of lookups that found no value.
+     * @param loadSuccessCount the number of successful loads.
+     * @param loadFailureCount the number of loads that threw an exception.
+     * @param totalLoadTime the time spent loading, in nanoseconds.
+     * @param evictionCounts the number of evictions, indexed by {@link EvictionCause#ordinal()}.
+     */
+    CacheStats(final long hitCount, final long missCount, final long loadSuccessCount, final long loadFailureCount,
+            final long totalLoadTime, final long[] evictionCounts) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadTime = totalLoadTime;
+        this.evictionCounts = evictionCounts;
+    }
+
+    /**
+     * Gets the average time spent loading a value, in nanoseconds.
+     *
+     * @return the average load time, zero if there was no load.
+     */
+    public double averageLoadPenalty() {
+        final long loadCount = loadCount();
+        return loadCount == 0 ? 0.0 : (double) totalLoadTime / loadCount;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CacheStats)) {
+            return false;
+        }
+        final CacheStats other = (CacheStats) obj;
+        return hitCount == other.hitCount && missCount == other.missCount && loadSuccessCount == other.loadSuccessCount
+                && loadFailureCount == other.loadFailureCount && totalLoadTime == other.totalLoadTime
+                && Arrays.equals(evictionCounts, other.evictionCounts);
+    }
+
+    /**
+     * Gets the total number of evictions.
+     *
+     * @return the number of evictions for any cause.
+     */
+    public long evictionCount() {
+        long total = 0;
+        for (final long count : evictionCounts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Gets the number of evictions for the given cause.
+     *
+     * @param cause the eviction cause, must not be null.
+     * @return the number of evictions for that cause.
+     * @throws NullPointerException if the cause is null.
+     */
+    public long evictionCount(final EvictionCause cause) {
+        return evictionCounts[cause.ordinal()];
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(hitCount, missCount, loadSuccessCount, loadFailureCount, totalLoadTime)
+                ^ Arrays.hashCode(evictionCounts);
+    }
+
+    /**
+     * Gets the number of lookups that found a value.
+     *
+     * @return the hit count.
+     */
+    public long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Gets the ratio of lookups that found a value.
+     *
+     * @return the hit rate, one if there was no lookup.
+     */
+    public double hitRate() {
+        final long requestCount = requestCount();
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    /**
+     * Gets the number of loads, successful or not.
+     *
+     * @return the load count.
+     */
+    public long loadCount() {
+        return loadSuccessCount + loadFailureCount;
+    }
+
+    /**
+     * Gets the number of loads that threw an exception.
+     *
+     * @return the load failure count.
+     */
+    public long loadFailureCount() {
+        return loadFailureCount;
+    }
+
+    /**
+     * Gets the number of loads that completed normally.
+     *
+     * @return the load success count.
+     */
+    public long loadSuccessCount() {
+        return loadSuccessCount;
+    }
+
+    /**
+     * Gets the statistics gathered since the given earlier snapshot.
+     *
+     * @param other the earlier snapshot, must not be null.
+     * @return the difference between this snapshot and {@code other}.
+     * @throws NullPointerException if {@code other} is null.
+     */
+    public CacheStats minus(final CacheStats other) {
+        final long[] counts = new long[evictionCounts.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = evictionCounts[i] - other.evictionCounts[i];
+        }
+        return new CacheStats(hitCount - other.hitCount, missCount - other.missCount,
+                loadSuccessCount - other.loadSuccessCount, loadFailureCount - other.loadFailureCount,
+                totalLoadTime - other.totalLoadTime, counts);
+    }
+
+    /**
+     * Gets the number of lookups that found no value.
+     *
+     * @return the miss count.
+     */
+    public long missCount() {
+        return missCount;
+    }
+
+    /**
+     * Gets the ratio of lookups that found no value.
+     *
+     * @return the miss rate, zero if there was no lookup.
+     */
+    public double missRate() {
+        final long requestCount = requestCount();
+        return requestCount == 0 ? 0.0 : (double) missCount / requestCount;
+    }
+
+    /**
+     * Gets the number of mappings removed because the garbage collector
+     * reclaimed their key or value.
+     *
+     * @return the number of reclaimed references.
+     */
+    public long reclaimedCount() {
+        return evictionCount(EvictionCause.COLLECTED);
+    }
+
+    /**
+     * Gets the number of lookups.
+     *
+     * @return the sum of the hit and miss counts.
+     */
+    public long requestCount() {
+        return hitCount + missCount;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats[hitCount=" + hitCount + ", missCount=" + missCount + ", loadSuccessCount=" + loadSuccessCount
+                + ", loadFailureCount=" + loadFailureCount + ", totalLoadTime=" + totalLoadTime
+                + ", evictionCounts=" + Arrays.toString(evictionCounts) + "]";
+    }
+
+    /**
+     * Gets the time spent loading values, in nanoseconds.
+     *
+     * @return the total load time.
+     */
+    public long totalLoadTime() {
+        return totalLoadTime;
+    }
+}
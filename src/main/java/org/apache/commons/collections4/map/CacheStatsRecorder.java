@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.collections4.map.CacheStats.EvictionCause;
+
+/**
+ * Records cache statistics for {@link LRUMap}, {@link PassiveExpiringMap},
+ * {@link AbstractReferenceMap}, {@link ConcurrentReferenceHashMap} and
+ * {@link LoadingMap}.
+ * <p>
+ * Statistics are disabled by default: a map without a recorder only tests a
+ * field for {@code null} on the instrumented paths. Once a recorder is set,
+ * each event updates a {@link LongAdder}, which spreads contended updates over
+ * several cells, so a recorder can be shared by several maps and updated from
+ * many threads without becoming a point of contention.
+ * </p>
+ * <p>
+ * {@link #snapshot()} returns the current totals as an immutable
+ * {@link CacheStats}. The snapshot is not atomic: events recorded while it is
+ * taken may or may not be included.
+ * </p>
+ *
+ * @since 4.6.0
+ */
+public final class CacheStatsRecorder {
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadSuccessCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+    private final LongAdder[] evictionCounts;
+
+    /**
+     * Constructs a new recorder with all counts at zero.
+     */
+    public CacheStatsRecorder() {
+        evictionCounts = new LongAdder[EvictionCause.values().length];
+        for (int i = 0; i < evictionCounts.length; i++) {
+            evictionCounts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records an eviction.
+     *
+     * @param cause the eviction cause, must not be null.
+     */
+    public void recordEviction(final EvictionCause cause) {
+        evictionCounts[cause.ordinal()].increment();
+    }
+
+    /**
+     * Records several evictions with the same cause.
+     *
+     * @param cause the eviction cause, must not be null.
+     * @param count the number of evictions.
+     */
+    public void recordEvictions(final EvictionCause cause, final long count) {
+        if (count != 0) {
+            evictionCounts[cause.ordinal()].add(count);
+        }
+    }
+
+    /**
+     * Records a lookup that found a value.
+     */
+    public void recordHit() {
+        hitCount.increment();
+    }
+
+    /**
+     * Records a lookup, as a hit if the value is not null and as a miss otherwise.
+     *
+     * @param value the value found by the lookup.
+     */
+    void recordLookup(final Object value) {
+        (value != null ? hitCount : missCount).increment();
+    }
+
+    /**
+     * Records a load that threw an exception.
+     *
+     * @param loadTime the time spent loading, in nanoseconds.
+     */
+    public void recordLoadFailure(final long loadTime) {
+        loadFailureCount.increment();
+        totalLoadTime.add(loadTime);
+    }
+
+    /**
+     * Records a load that completed normally, whether or not it found a value.
+     *
+     * @param loadTime the time spent loading, in nanoseconds.
+     */
+    public void recordLoadSuccess(final long loadTime) {
+        loadSuccessCount.increment();
+        totalLoadTime.add(loadTime);
+    }
+
+    /**
+     * Records a lookup that found no value.
+     */
+    public void recordMiss() {
+        missCount.increment();
+    }
+
+    /**
+     * Resets all counts to zero. Events recorded concurrently may be lost.
+     */
+    public void reset() {
+        hitCount.reset();
+        missCount.reset();
+        loadSuccessCount.reset();
+        loadFailureCount.reset();
+        totalLoadTime.reset();
+        for (final LongAdder count : evictionCounts) {
+            count.reset();
+        }
+    }
+
+    /**
+     * Gets a snapshot of the statistics recorded so far.
+     *
+     * @return a new snapshot.
+     */
+    public CacheStats snapshot() {
+        final long[] counts = new long[evictionCounts.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = evictionCounts[i].sum();
+        }
+        return new CacheStats(hitCount.sum(), missCount.sum(), loadSuccessCount.sum(), loadFailureCount.sum(),
+                totalLoadTime.sum(), counts);
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * A case-insensitive {@code Map} that preserves the case of its keys.
+ * <p>
+ * Keys are compared with the same locale-independent case folding as
+ * {@link CaseInsensitiveMap}, but the folding is applied character by
+ * character while hashing and comparing, so {@code get}, {@code put},
+ * {@code containsKey} and {@code remove} do not allocate a normalized copy of
+ * the key. Keys that are {@link CharSequence}s, such as {@code String} and
+ * {@code StringBuilder}, are read in place; other keys are compared through
+ * their {@code toString()} value.
+ * </p>
+ * <p>
+ * The map stores the keys as they were first put: putting a key that differs
+ * only by case from an existing key replaces the value but keeps the existing
+ * key. The {@code keySet()} method therefore returns the keys with their
+ * original case.
+ * </p>
+ * <p>
+ * Null keys are supported.
+ * </p>
+ * <p>
+ * Example:
+ * </p>
+ * <pre><code>
+ *  Map&lt;String, String&gt; map = new CaseInsensitiveHashedMap&lt;String, String&gt;();
+ *  map.put("Content-Type", "text/plain");
+ *  map.put("content-type", "text/html");
+ * </code></pre>
+ * <p>
+ * The example above creates a map with one entry, whose key is
+ * {@code "Content-Type"} and whose value is {@code "text/html"}.
+ * </p>
+ * <p>
+ * <strong>This map will violate the detail of various Map and map view contracts.</strong>
+ * As a general rule, don't compare this map to other maps. In particular, you can't
+ * use decorators like {@link ListOrderedMap} on it, which silently assume that these
+ * contracts are fulfilled.
+ * </p>
+ * <p>
+ * <strong>Note that CaseInsensitiveHashedMap is not synchronized and is not thread-safe.</strong>
+ * If you wish to use this map from multiple threads concurrently, you must use
+ * appropriate synchronization. The simplest approach is to wrap this map
+ * using {@link java.util.Collections#synchronizedMap(Map)}. This class may throw
+ * exceptions when accessed by concurrent threads without synchronization.
+ * </p>
+ *
+ * @param <K> the type of the keys in this map
+ * @param <V> the type of the values in this map
+ * @since 4.6.0
+ */
+public class CaseInsensitiveHashedMap<K, V> extends AbstractHashedMap<K, V> implements Serializable, Cloneable {
+
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Folds the case of a character as {@link CaseInsensitiveMap} does, with a
+     * fast path for ASCII.
+     *
+     * @param c  the character to fold
+     * @return the folded character
+     */
+    private static char fold(final char c) {
+        if (c < 0x80) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Gets the characters of a key, without copying them if the key is a
+     * {@link CharSequence}.
+     *
+     * @param key  the key, not null
+     * @return the characters of the key
+     */
+    private static CharSequence toCharSequence(final Object key) {
+        return key instanceof CharSequence ? (CharSequence) key : key.toString();
+    }
+
+    /**
+     * Constructs a new empty map with default size and load factor.
+     */
+    public CaseInsensitiveHashedMap() {
+        super(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Constructs a new, empty map with the specified initial capacity.
+     *
+     * @param initialCapacity  the initial capacity
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public CaseInsensitiveHashedMap(final int initialCapacity) {
+        super(initialCapacity);
+    }
+
+    /**
+     * Constructs a new, empty map with the specified initial capacity and
+     * load factor.
+     *
+     * @param initialCapacity  the initial capacity
+     * @param loadFactor  the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     * @throws IllegalArgumentException if the load factor is less than zero
+     */
+    public CaseInsensitiveHashedMap(final int initialCapacity, final float loadFactor) {
+        super(initialCapacity, loadFactor);
+    }
+
+    /**
+     * Constructor copying elements from another map.
+     * <p>
+     * Keys that differ only by character case are merged, keeping the first
+     * key and the last value in the iteration order of the copied map.
+     * </p>
+     *
+     * @param map  the map to copy
+     * @throws NullPointerException if the map is null
+     */
+    public CaseInsensitiveHashedMap(final Map<? extends K, ? extends V> map) {
+        super(map);
+    }
+
+    /**
+     * Clones the map without cloning the keys or values.
+     *
+     * @return a shallow clone
+     */
+    @Override
+    public CaseInsensitiveHashedMap<K, V> clone() {
+        return (CaseInsensitiveHashedMap<K, V>) super.clone();
+    }
+
+    /**
+     * Gets the case-insensitive hash code for the key specified.
+     *
+     * @param key  the key to get a hash code for
+     * @return the hash code
+     */
+    @Override
+    protected int hash(final Object key) {
+        if (key == NULL) {
+            return super.hash(key);
+        }
+        final CharSequence chars = toCharSequence(key);
+        int h = 0;
+        final int length = chars.length();
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + fold(chars.charAt(i));
+        }
+        // same as JDK 1.4
+        h += ~(h << 9);
+        h ^=  h >>> 14;
+        h +=  h << 4;
+        h ^=  h >>> 10;
+        return h;
+    }
+
+    /**
+     * Compares two keys ignoring case.
+     *
+     * @param key1  the first key to compare passed in from outside
+     * @param key2  the second key extracted from the entry via {@code entry.key}
+     * @return true if equal ignoring case
+     */
+    @Override
+    protected boolean isEqualKey(final Object key1, final Object key2) {
+        if (key1 == key2) {
+            return true;
+        }
+        if (key1 == NULL || key2 == NULL) {
+            return false;
+        }
+        final CharSequence chars1 = toCharSequence(key1);
+        final CharSequence chars2 = toCharSequence(key2);
+        final int length = chars1.length();
+        if (length != chars2.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            final char c1 = chars1.charAt(i);
+            final char c2 = chars2.charAt(i);
+            if (c1 != c2 && fold(c1) != fold(c2)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Deserializes the map in using a custom routine.
+     *
+     * @param in the input stream
+     * @throws IOException if an error occurs while reading from the stream
+     * @throws ClassNotFoundException if an object read from the stream cannot be loaded
+     */
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        doReadObject(in);
+    }
+
+    /**
+     * Serializes this object to an ObjectOutputStream.
+     *
+     * @param out the target ObjectOutputStream.
+     * @throws IOException thrown when an I/O errors occur writing to the target stream.
+     */
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        doWriteObject(out);
+    }
+
+}
@@ -0,0 +1,1091 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.commons.collections4.keyvalue.MultiKey;
+
+/**
+ * A {@code Map} implementation that uses two to five keys to map the value,
+ * storing the keys inline in the hash entries.
+ * <p>
+ * This class offers the same additional map-style methods as
+ * {@link MultiKeyMap}, but instead of holding a {@link MultiKey}, and the
+ * array inside it, in each entry, the keys are held in fields of the entry
+ * itself next to the cached hash code. A two key mapping thus takes one
+ * object instead of three, which matters for composite indexes with millions
+ * of entries, and {@code get}, {@code containsKey}, {@code put} and
+ * {@code removeMultiKey} compare the keys without any indirection or object
+ * creation.
+ * </p>
+ * <p>
+ * The normal map methods take in and return a {@link MultiKey} of two to five
+ * keys. The keys returned by {@code keySet()}, {@code entrySet()} and
+ * {@code mapIterator()} are created on demand, so two calls to
+ * {@code getKey()} on the same entry return equal but distinct objects. If you
+ * try to use {@code put()} with a {@code null} key a
+ * {@code NullPointerException} is thrown, and with a {@code MultiKey} of
+ * another size an {@code IllegalArgumentException} is thrown. Null elements
+ * within the keys are supported.
+ * </p>
+ * <p>
+ * Unlike {@link MultiKeyMap}, the hash code of a multi-key depends on the
+ * position of its elements, so the keys {@code (a, b)} and {@code (b, a)} do
+ * not collide.
+ * </p>
+ * <p>
+ * <strong>Note that CompactMultiKeyMap is not synchronized and is not thread-safe.</strong>
+ * If you wish to use this map from multiple threads concurrently, you must use
+ * appropriate synchronization. The simplest approach is to wrap this map
+ * using {@link java.util.Collections#synchronizedMap(Map)}. This class may throw
+ * exceptions when accessed by concurrent threads without synchronization.
+ * </p>
+ *
+ * @param <K> the type of the elements of the keys in this map
+ * @param <V> the type of the values in this map
+ * @see MultiKeyMap
+ * @since 4.6.0
+ */
+public class CompactMultiKeyMap<K, V> extends AbstractHashedMap<MultiKey<? extends K>, V>
+        implements Serializable, Cloneable {
+
+    /**
+     * An entry holding two keys, the first one in the inherited key field.
+     *
+     * @param <K> the type of the elements of the keys
+     * @param <V> the type of the values
+     */
+    private static class Entry2<K, V> extends HashEntry<MultiKey<? extends K>, V> {
+
+        /** The second key */
+        Object key1;
+
+        Entry2(final HashEntry<MultiKey<? extends K>, V> next, final int hashCode, final Object key0,
+                final Object key1, final V value) {
+            super(next, hashCode, key0, value);
+            this.key1 = key1;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public MultiKey<? extends K> getKey() {
+            return new MultiKey<>((K) key, (K) key1);
+        }
+
+        /**
+         * Gets the key at the specified index.
+         *
+         * @param index  the index, less than {@link #size()}
+         * @return the key
+         */
+        Object getKey(final int index) {
+            return index == 0 ? key : key1;
+        }
+
+        /**
+         * Gets the number of keys of this entry.
+         *
+         * @return the number of keys
+         */
+        int size() {
+            return 2;
+        }
+    }
+
+    /**
+     * An entry holding three keys.
+     *
+     * @param <K> the type of the elements of the keys
+     * @param <V> the type of the values
+     */
+    private static class Entry3<K, V> extends Entry2<K, V> {
+
+        /** The third key */
+        Object key2;
+
+        Entry3(final HashEntry<MultiKey<? extends K>, V> next, final int hashCode, final Object key0,
+                final Object key1, final Object key2, final V value) {
+            super(next, hashCode, key0, key1, value);
+            this.key2 = key2;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public MultiKey<? extends K> getKey() {
+            return new MultiKey<>((K) key, (K) key1, (K) key2);
+        }
+
+        @Override
+        Object getKey(final int index) {
+            return index == 2 ? key2 : super.getKey(index);
+        }
+
+        @Override
+        int size() {
+            return 3;
+        }
+    }
+
+    /**
+     * An entry holding four keys.
+     *
+     * @param <K> the type of the elements of the keys
+     * @param <V> the type of the values
+     */
+    private static class Entry4<K, V> extends Entry3<K, V> {
+
+        /** The fourth key */
+        Object key3;
+
+        Entry4(final HashEntry<MultiKey<? extends K>, V> next, final int hashCode, final Object key0,
+                final Object key1, final Object key2, final Object key3, final V value) {
+            super(next, hashCode, key0, key1, key2, value);
+            this.key3 = key3;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public MultiKey<? extends K> getKey() {
+            return new MultiKey<>((K) key, (K) key1, (K) key2, (K) key3);
+        }
+
+        @Override
+        Object getKey(final int index) {
+            return index == 3 ? key3 : super.getKey(index);
+        }
+
+        @Override
+        int size() {
+            return 4;
+        }
+    }
+
+    /**
+     * An entry holding five keys.
+     *
+     * @param <K> the type of the elements of the keys
+     * @param <V> the type of the values
+     */
+    private static final class Entry5<K, V> extends Entry4<K, V> {
+
+        /** The fifth key */
+        Object key4;
+
+        Entry5(final HashEntry<MultiKey<? extends K>, V> next, final int hashCode, final Object key0,
+                final Object key1, final Object key2, final Object key3, final Object key4, final V value) {
+            super(next, hashCode, key0, key1, key2, key3, value);
+            this.key4 = key4;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public MultiKey<? extends K> getKey() {
+            return new MultiKey<>((K) key, (K) key1, (K) key2, (K) key3, (K) key4);
+        }
+
+        @Override
+        Object getKey(final int index) {
+            return index == 4 ? key4 : super.getKey(index);
+        }
+
+        @Override
+        int size() {
+            return 5;
+        }
+    }
+
+    /** The smallest number of keys supported */
+    private static final int MIN_KEYS = 2;
+
+    /** The largest number of keys supported */
+    private static final int MAX_KEYS = 5;
+
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Is the entry key equal to the combined key.
+     *
+     * @param entry  the entry to compare to
+     * @param key1  the first key
+     * @param key2  the second key
+     * @return true if the key matches
+     */
+    private static boolean isEqualKey(final HashEntry<?, ?> entry, final Object key1, final Object key2) {
+        final Entry2<?, ?> multi = (Entry2<?, ?>) entry;
+        return multi.size() == 2
+            && Objects.equals(key1, multi.key)
+            && Objects.equals(key2, multi.key1);
+    }
+
+    /**
+     * Is the entry key equal to the combined key.
+     *
+     * @param entry  the entry to compare to
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @return true if the key matches
+     */
+    private static boolean isEqualKey(final HashEntry<?, ?> entry, final Object key1, final Object key2,
+            final Object key3) {
+        if (((Entry2<?, ?>) entry).size() != 3) {
+            return false;
+        }
+        final Entry3<?, ?> multi = (Entry3<?, ?>) entry;
+        return Objects.equals(key1, multi.key)
+            && Objects.equals(key2, multi.key1)
+            && Objects.equals(key3, multi.key2);
+    }
+
+    /**
+     * Is the entry key equal to the combined key.
+     *
+     * @param entry  the entry to compare to
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @return true if the key matches
+     */
+    private static boolean isEqualKey(final HashEntry<?, ?> entry, final Object key1, final Object key2,
+            final Object key3, final Object key4) {
+        if (((Entry2<?, ?>) entry).size() != 4) {
+            return false;
+        }
+        final Entry4<?, ?> multi = (Entry4<?, ?>) entry;
+        return Objects.equals(key1, multi.key)
+            && Objects.equals(key2, multi.key1)
+            && Objects.equals(key3, multi.key2)
+            && Objects.equals(key4, multi.key3);
+    }
+
+    /**
+     * Is the entry key equal to the combined key.
+     *
+     * @param entry  the entry to compare to
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @param key5  the fifth key
+     * @return true if the key matches
+     */
+    private static boolean isEqualKey(final HashEntry<?, ?> entry, final Object key1, final Object key2,
+            final Object key3, final Object key4, final Object key5) {
+        if (((Entry2<?, ?>) entry).size() != 5) {
+            return false;
+        }
+        final Entry5<?, ?> multi = (Entry5<?, ?>) entry;
+        return Objects.equals(key1, multi.key)
+            && Objects.equals(key2, multi.key1)
+            && Objects.equals(key3, multi.key2)
+            && Objects.equals(key4, multi.key3)
+            && Objects.equals(key5, multi.key4);
+    }
+
+    /**
+     * Mixes the combined hash code of the keys, as JDK 1.4 does.
+     *
+     * @param h  the combined hash code
+     * @return the hash code
+     */
+    private static int mix(int h) {
+        h += ~(h << 9);
+        h ^=  h >>> 14;
+        h +=  h << 4;
+        h ^=  h >>> 10;
+        return h;
+    }
+
+    /**
+     * Does the entry key start with the specified keys.
+     *
+     * @param entry  the entry to test
+     * @param count  the number of keys to compare, from 1 to 4
+     * @param key1  the first key
+     * @param key2  the second key, ignored if count is less than 2
+     * @param key3  the third key, ignored if count is less than 3
+     * @param key4  the fourth key, ignored if count is less than 4
+     * @return true if the entry has at least count keys and they match
+     */
+    private static boolean startsWith(final Entry2<?, ?> entry, final int count, final Object key1,
+            final Object key2, final Object key3, final Object key4) {
+        return entry.size() >= count
+            && Objects.equals(key1, entry.key)
+            && (count < 2 || Objects.equals(key2, entry.key1))
+            && (count < 3 || Objects.equals(key3, entry.getKey(2)))
+            && (count < 4 || Objects.equals(key4, entry.getKey(3)));
+    }
+
+    /**
+     * Constructs a new empty map with default size and load factor.
+     */
+    public CompactMultiKeyMap() {
+        super(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Constructs a new, empty map with the specified initial capacity.
+     *
+     * @param initialCapacity  the initial capacity
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public CompactMultiKeyMap(final int initialCapacity) {
+        super(initialCapacity);
+    }
+
+    /**
+     * Constructs a new, empty map with the specified initial capacity and
+     * load factor.
+     *
+     * @param initialCapacity  the initial capacity
+     * @param loadFactor  the load factor
+     * @throws IllegalArgumentException if the initial capacity is negative
+     * @throws IllegalArgumentException if the load factor is less than zero
+     */
+    public CompactMultiKeyMap(final int initialCapacity, final float loadFactor) {
+        super(initialCapacity, loadFactor);
+    }
+
+    /**
+     * Constructor copying elements from another map.
+     *
+     * @param map  the map to copy
+     * @throws NullPointerException if the map or one of its keys is null
+     * @throws IllegalArgumentException if a key has less than two or more than five keys
+     */
+    public CompactMultiKeyMap(final Map<? extends MultiKey<? extends K>, ? extends V> map) {
+        super(map);
+    }
+
+    /**
+     * Adds a new entry, created by the caller, to the map.
+     *
+     * @param entry  the entry to add
+     * @param hashIndex  the index into the data array to store at
+     */
+    private void addNewEntry(final HashEntry<MultiKey<? extends K>, V> entry, final int hashIndex) {
+        modCount++;
+        addEntry(entry, hashIndex);
+        size++;
+        checkCapacity();
+    }
+
+    /**
+     * Check to ensure that input keys are valid MultiKey objects.
+     *
+     * @param key  the key to check
+     * @throws NullPointerException if the key is null
+     * @throws IllegalArgumentException if the key has less than two or more than five keys
+     */
+    protected void checkKey(final MultiKey<?> key) {
+        Objects.requireNonNull(key, "key");
+        if (key.size() < MIN_KEYS || key.size() > MAX_KEYS) {
+            throw new IllegalArgumentException("MultiKey must have 2 to 5 keys, but has " + key.size());
+        }
+    }
+
+    /**
+     * Clones the map without cloning the keys or values.
+     *
+     * @return a shallow clone
+     */
+    @Override
+    public CompactMultiKeyMap<K, V> clone() {
+        return (CompactMultiKeyMap<K, V>) super.clone();
+    }
+
+    /**
+     * Checks whether the map contains the specified key, which must be a
+     * {@link MultiKey} to be found.
+     *
+     * @param key  the key to search for
+     * @return true if the map contains the key
+     */
+    @Override
+    public boolean containsKey(final Object key) {
+        return getEntry(key) != null;
+    }
+
+    /**
+     * Checks whether the map contains the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @return true if the map contains the key
+     */
+    public boolean containsKey(final Object key1, final Object key2) {
+        return getEntry(key1, key2) != null;
+    }
+
+    /**
+     * Checks whether the map contains the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @return true if the map contains the key
+     */
+    public boolean containsKey(final Object key1, final Object key2, final Object key3) {
+        return getEntry(key1, key2, key3) != null;
+    }
+
+    /**
+     * Checks whether the map contains the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @return true if the map contains the key
+     */
+    public boolean containsKey(final Object key1, final Object key2, final Object key3, final Object key4) {
+        return getEntry(key1, key2, key3, key4) != null;
+    }
+
+    /**
+     * Checks whether the map contains the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @param key5  the fifth key
+     * @return true if the map contains the key
+     */
+    public boolean containsKey(final Object key1, final Object key2, final Object key3, final Object key4,
+            final Object key5) {
+        return getEntry(key1, key2, key3, key4, key5) != null;
+    }
+
+    /**
+     * Creates an entry holding the keys of the specified {@link MultiKey}.
+     *
+     * @param next  the next entry in sequence
+     * @param hashCode  the hash code to use
+     * @param key  the key to store, a MultiKey of two to five keys
+     * @param value  the value to store
+     * @return the newly created entry
+     */
+    @Override
+    protected HashEntry<MultiKey<? extends K>, V> createEntry(final HashEntry<MultiKey<? extends K>, V> next,
+            final int hashCode, final MultiKey<? extends K> key, final V value) {
+        checkKey(key);
+        switch (key.size()) {
+        case 2:
+            return new Entry2<>(next, hashCode, key.getKey(0), key.getKey(1), value);
+        case 3:
+            return new Entry3<>(next, hashCode, key.getKey(0), key.getKey(1), key.getKey(2), value);
+        case 4:
+            return new Entry4<>(next, hashCode, key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3), value);
+        default:
+            return new Entry5<>(next, hashCode, key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3),
+                    key.getKey(4), value);
+        }
+    }
+
+    /**
+     * Gets the value mapped to the specified key, which must be a
+     * {@link MultiKey} to be found.
+     *
+     * @param key  the key
+     * @return the mapped value, null if no match
+     */
+    @Override
+    public V get(final Object key) {
+        final HashEntry<MultiKey<? extends K>, V> entry = getEntry(key);
+        return entry == null ? null : entry.getValue();
+    }
+
+    /**
+     * Gets the value mapped to the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @return the mapped value, null if no match
+     */
+    public V get(final Object key1, final Object key2) {
+        final HashEntry<MultiKey<? extends K>, V> entry = getEntry(key1, key2);
+        return entry == null ? null : entry.getValue();
+    }
+
+    /**
+     * Gets the value mapped to the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @return the mapped value, null if no match
+     */
+    public V get(final Object key1, final Object key2, final Object key3) {
+        final HashEntry<MultiKey<? extends K>, V> entry = getEntry(key1, key2, key3);
+        return entry == null ? null : entry.getValue();
+    }
+
+    /**
+     * Gets the value mapped to the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @return the mapped value, null if no match
+     */
+    public V get(final Object key1, final Object key2, final Object key3, final Object key4) {
+        final HashEntry<MultiKey<? extends K>, V> entry = getEntry(key1, key2, key3, key4);
+        return entry == null ? null : entry.getValue();
+    }
+
+    /**
+     * Gets the value mapped to the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @param key5  the fifth key
+     * @return the mapped value, null if no match
+     */
+    public V get(final Object key1, final Object key2, final Object key3, final Object key4, final Object key5) {
+        final HashEntry<MultiKey<? extends K>, V> entry = getEntry(key1, key2, key3, key4, key5);
+        return entry == null ? null : entry.getValue();
+    }
+
+    /**
+     * Gets the entry mapped to the key specified, which must be a
+     * {@link MultiKey} of two to five keys to be found.
+     *
+     * @param key  the key
+     * @return the entry, null if no match
+     */
+    @Override
+    protected HashEntry<MultiKey<? extends K>, V> getEntry(final Object key) {
+        if (!(key instanceof MultiKey)) {
+            return null;
+        }
+        final MultiKey<?> multi = (MultiKey<?>) key;
+        switch (multi.size()) {
+        case 2:
+            return getEntry(multi.getKey(0), multi.getKey(1));
+        case 3:
+            return getEntry(multi.getKey(0), multi.getKey(1), multi.getKey(2));
+        case 4:
+            return getEntry(multi.getKey(0), multi.getKey(1), multi.getKey(2), multi.getKey(3));
+        case 5:
+            return getEntry(multi.getKey(0), multi.getKey(1), multi.getKey(2), multi.getKey(3), multi.getKey(4));
+        default:
+            return null;
+        }
+    }
+
+    private HashEntry<MultiKey<? extends K>, V> getEntry(final Object key1, final Object key2) {
+        final int hashCode = hash(key1, key2);
+        HashEntry<MultiKey<? extends K>, V> entry = data[hashIndex(hashCode, data.length)];
+        while (entry != null) {
+            if (entry.hashCode == hashCode && isEqualKey(entry, key1, key2)) {
+                return entry;
+            }
+            entry = entry.next;
+        }
+        return null;
+    }
+
+    private HashEntry<MultiKey<? extends K>, V> getEntry(final Object key1, final Object key2, final Object key3) {
+        final int hashCode = hash(key1, key2, key3);
+        HashEntry<MultiKey<? extends K>, V> entry = data[hashIndex(hashCode, data.length)];
+        while (entry != null) {
+            if (entry.hashCode == hashCode && isEqualKey(entry, key1, key2, key3)) {
+                return entry;
+            }
+            entry = entry.next;
+        }
+        return null;
+    }
+
+    private HashEntry<MultiKey<? extends K>, V> getEntry(final Object key1, final Object key2, final Object key3,
+            final Object key4) {
+        final int hashCode = hash(key1, key2, key3, key4);
+        HashEntry<MultiKey<? extends K>, V> entry = data[hashIndex(hashCode, data.length)];
+        while (entry != null) {
+            if (entry.hashCode == hashCode && isEqualKey(entry, key1, key2, key3, key4)) {
+                return entry;
+            }
+            entry = entry.next;
+        }
+        return null;
+    }
+
+    private HashEntry<MultiKey<? extends K>, V> getEntry(final Object key1, final Object key2, final Object key3,
+            final Object key4, final Object key5) {
+        final int hashCode = hash(key1, key2, key3, key4, key5);
+        HashEntry<MultiKey<? extends K>, V> entry = data[hashIndex(hashCode, data.length)];
+        while (entry != null) {
+            if (entry.hashCode == hashCode && isEqualKey(entry, key1, key2, key3, key4, key5)) {
+                return entry;
+            }
+            entry = entry.next;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the hash code for the specified multi-key.
+     * <p>
+     * The hash code combines the keys in order, as {@link java.util.List#hashCode()} does.
+     * </p>
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @return the hash code
+     */
+    protected int hash(final Object key1, final Object key2) {
+        return mix(31 * Objects.hashCode(key1) + Objects.hashCode(key2));
+    }
+
+    /**
+     * Gets the hash code for the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @return the hash code
+     */
+    protected int hash(final Object key1, final Object key2, final Object key3) {
+        int h = Objects.hashCode(key1);
+        h = 31 * h + Objects.hashCode(key2);
+        h = 31 * h + Objects.hashCode(key3);
+        return mix(h);
+    }
+
+    /**
+     * Gets the hash code for the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @return the hash code
+     */
+    protected int hash(final Object key1, final Object key2, final Object key3, final Object key4) {
+        int h = Objects.hashCode(key1);
+        h = 31 * h + Objects.hashCode(key2);
+        h = 31 * h + Objects.hashCode(key3);
+        h = 31 * h + Objects.hashCode(key4);
+        return mix(h);
+    }
+
+    /**
+     * Gets the hash code for the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @param key5  the fifth key
+     * @return the hash code
+     */
+    protected int hash(final Object key1, final Object key2, final Object key3, final Object key4,
+            final Object key5) {
+        int h = Objects.hashCode(key1);
+        h = 31 * h + Objects.hashCode(key2);
+        h = 31 * h + Objects.hashCode(key3);
+        h = 31 * h + Objects.hashCode(key4);
+        h = 31 * h + Objects.hashCode(key5);
+        return mix(h);
+    }
+
+    /**
+     * Puts the key and value into the map, where the key must be a non-null
+     * {@link MultiKey} of two to five keys.
+     *
+     * @param key  the key to store
+     * @param value  the value to store
+     * @return the value previously mapped to this key, null if none
+     * @throws NullPointerException if the key is null
+     * @throws IllegalArgumentException if the key has less than two or more than five keys
+     */
+    @Override
+    public V put(final MultiKey<? extends K> key, final V value) {
+        checkKey(key);
+        switch (key.size()) {
+        case 2:
+            return put(key.getKey(0), key.getKey(1), value);
+        case 3:
+            return put(key.getKey(0), key.getKey(1), key.getKey(2), value);
+        case 4:
+            return put(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3), value);
+        default:
+            return put(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3), key.getKey(4), value);
+        }
+    }
+
+    /**
+     * Stores the value against the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @param key5  the fifth key
+     * @param value  the value to store
+     * @return the value previously mapped to this combined key, null if none
+     */
+    public V put(final K key1, final K key2, final K key3, final K key4, final K key5, final V value) {
+        final int hashCode = hash(key1, key2, key3, key4, key5);
+        final int index = hashIndex(hashCode, data.length);
+        HashEntry<MultiKey<? extends K>, V> entry = data[index];
+        while (entry != null) {
+            if (entry.hashCode == hashCode && isEqualKey(entry, key1, key2, key3, key4, key5)) {
+                final V oldValue = entry.getValue();
+                updateEntry(entry, value);
+                return oldValue;
+            }
+            entry = entry.next;
+        }
+        addNewEntry(new Entry5<>(data[index], hashCode, key1, key2, key3, key4, key5, value), index);
+        return null;
+    }
+
+    /**
+     * Stores the value against the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @param value  the value to store
+     * @return the value previously mapped to this combined key, null if none
+     */
+    public V put(final K key1, final K key2, final K key3, final K key4, final V value) {
+        final int hashCode = hash(key1, key2, key3, key4);
+        final int index = hashIndex(hashCode, data.length);
+        HashEntry<MultiKey<? extends K>, V> entry = data[index];
+        while (entry != null) {
+            if (entry.hashCode == hashCode && isEqualKey(entry, key1, key2, key3, key4)) {
+                final V oldValue = entry.getValue();
+                updateEntry(entry, value);
+                return oldValue;
+            }
+            entry = entry.next;
+        }
+        addNewEntry(new Entry4<>(data[index], hashCode, key1, key2, key3, key4, value), index);
+        return null;
+    }
+
+    /**
+     * Stores the value against the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param value  the value to store
+     * @return the value previously mapped to this combined key, null if none
+     */
+    public V put(final K key1, final K key2, final K key3, final V value) {
+        final int hashCode = hash(key1, key2, key3);
+        final int index = hashIndex(hashCode, data.length);
+        HashEntry<MultiKey<? extends K>, V> entry = data[index];
+        while (entry != null) {
+            if (entry.hashCode == hashCode && isEqualKey(entry, key1, key2, key3)) {
+                final V oldValue = entry.getValue();
+                updateEntry(entry, value);
+                return oldValue;
+            }
+            entry = entry.next;
+        }
+        addNewEntry(new Entry3<>(data[index], hashCode, key1, key2, key3, value), index);
+        return null;
+    }
+
+    /**
+     * Stores the value against the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param value  the value to store
+     * @return the value previously mapped to this combined key, null if none
+     */
+    public V put(final K key1, final K key2, final V value) {
+        final int hashCode = hash(key1, key2);
+        final int index = hashIndex(hashCode, data.length);
+        HashEntry<MultiKey<? extends K>, V> entry = data[index];
+        while (entry != null) {
+            if (entry.hashCode == hashCode && isEqualKey(entry, key1, key2)) {
+                final V oldValue = entry.getValue();
+                updateEntry(entry, value);
+                return oldValue;
+            }
+            entry = entry.next;
+        }
+        addNewEntry(new Entry2<>(data[index], hashCode, key1, key2, value), index);
+        return null;
+    }
+
+    /**
+     * Deserializes the map in using a custom routine.
+     *
+     * @param in the input stream
+     * @throws IOException if an error occurs while reading from the stream
+     * @throws ClassNotFoundException if an object read from the stream cannot be loaded
+     */
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        doReadObject(in);
+    }
+
+    /**
+     * Removes the specified key, which must be a {@link MultiKey} to be found.
+     *
+     * @param key  the mapping to remove
+     * @return the value mapped to the removed key, null if key not in map
+     */
+    @Override
+    public V remove(final Object key) {
+        if (!(key instanceof MultiKey)) {
+            return null;
+        }
+        final MultiKey<?> multi = (MultiKey<?>) key;
+        switch (multi.size()) {
+        case 2:
+            return removeMultiKey(multi.getKey(0), multi.getKey(1));
+        case 3:
+            return removeMultiKey(multi.getKey(0), multi.getKey(1), multi.getKey(2));
+        case 4:
+            return removeMultiKey(multi.getKey(0), multi.getKey(1), multi.getKey(2), multi.getKey(3));
+        case 5:
+            return removeMultiKey(multi.getKey(0), multi.getKey(1), multi.getKey(2), multi.getKey(3),
+                    multi.getKey(4));
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Removes all mappings where the first key is that specified.
+     *
+     * @param key1  the first key
+     * @return true if any elements were removed
+     */
+    public boolean removeAll(final Object key1) {
+        return removeAll(1, key1, null, null, null);
+    }
+
+    /**
+     * Removes all mappings where the first keys match those specified.
+     * <p>
+     * Unlike {@link MultiKeyMap}, which removes through its map iterator, this
+     * method walks the buckets directly and creates no {@code MultiKey}.
+     * </p>
+     *
+     * @param count  the number of keys to compare, from 1 to 4
+     * @param key1  the first key
+     * @param key2  the second key, ignored if count is less than 2
+     * @param key3  the third key, ignored if count is less than 3
+     * @param key4  the fourth key, ignored if count is less than 4
+     * @return true if any elements were removed
+     */
+    private boolean removeAll(final int count, final Object key1, final Object key2, final Object key3,
+            final Object key4) {
+        boolean modified = false;
+        final HashEntry<MultiKey<? extends K>, V>[] data = this.data;
+        for (int index = 0; index < data.length; index++) {
+            HashEntry<MultiKey<? extends K>, V> previous = null;
+            HashEntry<MultiKey<? extends K>, V> entry = data[index];
+            while (entry != null) {
+                final HashEntry<MultiKey<? extends K>, V> next = entry.next;
+                if (startsWith((Entry2<?, ?>) entry, count, key1, key2, key3, key4)) {
+                    removeMapping(entry, index, previous);
+                    modified = true;
+                } else {
+                    previous = entry;
+                }
+                entry = next;
+            }
+        }
+        return modified;
+    }
+
+    /**
+     * Removes all mappings where the first two keys are those specified.
+     * <p>
+     * This method removes all the mappings where the key has two or more
+     * keys, and the first two match those specified.
+     * </p>
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @return true if any elements were removed
+     */
+    public boolean removeAll(final Object key1, final Object key2) {
+        return removeAll(2, key1, key2, null, null);
+    }
+
+    /**
+     * Removes all mappings where the first three keys are those specified.
+     * <p>
+     * This method removes all the mappings where the key has three or more
+     * keys, and the first three match those specified.
+     * </p>
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @return true if any elements were removed
+     */
+    public boolean removeAll(final Object key1, final Object key2, final Object key3) {
+        return removeAll(3, key1, key2, key3, null);
+    }
+
+    /**
+     * Removes all mappings where the first four keys are those specified.
+     * <p>
+     * This method removes all the mappings where the key has four or more
+     * keys, and the first four match those specified.
+     * </p>
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @return true if any elements were removed
+     */
+    public boolean removeAll(final Object key1, final Object key2, final Object key3, final Object key4) {
+        return removeAll(4, key1, key2, key3, key4);
+    }
+
+    /**
+     * Removes the specified multi-key from this map.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @return the value mapped to the removed key, null if key not in map
+     */
+    public V removeMultiKey(final Object key1, final Object key2) {
+        final int hashCode = hash(key1, key2);
+        final int index = hashIndex(hashCode, data.length);
+        HashEntry<MultiKey<? extends K>, V> entry = data[index];
+        HashEntry<MultiKey<? extends K>, V> previous = null;
+        while (entry != null) {
+            if (entry.hashCode == hashCode && isEqualKey(entry, key1, key2)) {
+                final V oldValue = entry.getValue();
+                removeMapping(entry, index, previous);
+                return oldValue;
+            }
+            previous = entry;
+            entry = entry.next;
+        }
+        return null;
+    }
+
+    /**
+     * Removes the specified multi-key from this map.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @return the value mapped to the removed key, null if key not in map
+     */
+    public V removeMultiKey(final Object key1, final Object key2, final Object key3) {
+        final int hashCode = hash(key1, key2, key3);
+        final int index = hashIndex(hashCode, data.length);
+        HashEntry<MultiKey<? extends K>, V> entry = data[index];
+        HashEntry<MultiKey<? extends K>, V> previous = null;
+        while (entry != null) {
+            if (entry.hashCode == hashCode && isEqualKey(entry, key1, key2, key3)) {
+                final V oldValue = entry.getValue();
+                removeMapping(entry, index, previous);
+                return oldValue;
+            }
+            previous = entry;
+            entry = entry.next;
+        }
+        return null;
+    }
+
+    /**
+     * Removes the specified multi-key from this map.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @return the value mapped to the removed key, null if key not in map
+     */
+    public V removeMultiKey(final Object key1, final Object key2, final Object key3, final Object key4) {
+        final int hashCode = hash(key1, key2, key3, key4);
+        final int index = hashIndex(hashCode, data.length);
+        HashEntry<MultiKey<? extends K>, V> entry = data[index];
+        HashEntry<MultiKey<? extends K>, V> previous = null;
+        while (entry != null) {
+            if (entry.hashCode == hashCode && isEqualKey(entry, key1, key2, key3, key4)) {
+                final V oldValue = entry.getValue();
+                removeMapping(entry, index, previous);
+                return oldValue;
+            }
+            previous = entry;
+            entry = entry.next;
+        }
+        return null;
+    }
+
+    /**
+     * Removes the specified multi-key from this map.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @param key5  the fifth key
+     * @return the value mapped to the removed key, null if key not in map
+     */
+    public V removeMultiKey(final Object key1, final Object key2, final Object key3, final Object key4,
+            final Object key5) {
+        final int hashCode = hash(key1, key2, key3, key4, key5);
+        final int index = hashIndex(hashCode, data.length);
+        HashEntry<MultiKey<? extends K>, V> entry = data[index];
+        HashEntry<MultiKey<? extends K>, V> previous = null;
+        while (entry != null) {
+            if (entry.hashCode == hashCode && isEqualKey(entry, key1, key2, key3, key4, key5)) {
+                final V oldValue = entry.getValue();
+                removeMapping(entry, index, previous);
+                return oldValue;
+            }
+            previous = entry;
+            entry = entry.next;
+        }
+        return null;
+    }
+
+    /**
+     * Serializes this object to an ObjectOutputStream.
+     *
+     * @param out the target ObjectOutputStream.
+     * @throws IOException thrown when an I/O errors occur writing to the target stream.
+     */
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        doWriteObject(out);
+    }
+
+}
@@ -0,0 +1,1443 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.collections4.keyvalue.MultiKey;
+
+/**
+ * A thread-safe {@link ConcurrentMap} that uses two to five keys to map the value.
+ * <p>
+ * This is the concurrent counterpart of {@link MultiKeyMap} and offers the
+ * same additional map-style methods: {@code get}, {@code containsKey},
+ * {@code put} and {@code removeMultiKey} for two to five individual keys, which
+ * operate without extra object creation, and {@code removeAll} for the
+ * mappings whose first keys match.
+ * </p>
+ * <p>
+ * The map is divided into segments, as {@link ConcurrentReferenceHashMap} is.
+ * Retrieval operations, including iteration, take no lock: the entries of a
+ * bucket are immutable apart from their volatile value, so a reader always
+ * sees a consistent chain. Updates lock only the segment of the key, and
+ * {@code removeAll} locks one segment at a time while it unlinks the matching
+ * entries, so it never blocks readers and blocks writers only briefly. The
+ * keys are stored in fields of each entry, next to the cached hash code,
+ * rather than in a {@link MultiKey}.
+ * </p>
+ * <p>
+ * The normal map methods take in and return a {@link MultiKey} of two to five
+ * keys, created on demand by the views. Null elements within the keys are
+ * supported, but like {@link java.util.concurrent.ConcurrentHashMap}, this
+ * class does <em>not</em> allow a {@code null} key or value. Iterators are
+ * weakly consistent and never throw
+ * {@link java.util.ConcurrentModificationException}. The {@code size()} method
+ * is exact only when the map is not being modified concurrently.
+ * </p>
+ *
+ * @param <K> the type of the elements of the keys in this map
+ * @param <V> the type of the values in this map
+ * @see MultiKeyMap
+ * @see CompactMultiKeyMap
+ * @since 4.6.0
+ */
+public class ConcurrentMultiKeyMap<K, V> extends AbstractMap<MultiKey<? extends K>, V>
+        implements ConcurrentMap<MultiKey<? extends K>, V>, Serializable {
+
+    /**
+     * Weakly consistent iterator over the mappings of all segments.
+     */
+    private final class EntryIterator implements Iterator<Entry<MultiKey<? extends K>, V>> {
+
+        private int nextSegmentIndex = segments.length - 1;
+        private int nextTableIndex = -1;
+        private Node2<K, V>[] currentTable;
+        private Node2<K, V> nextNode;
+        private Node2<K, V> lastReturned;
+
+        EntryIterator() {
+            advance();
+        }
+
+        private void advance() {
+            if (nextNode != null && (nextNode = nextNode.next) != null) {
+                return;
+            }
+            while (nextTableIndex >= 0) {
+                if ((nextNode = currentTable[nextTableIndex--]) != null) {
+                    return;
+                }
+            }
+            while (nextSegmentIndex >= 0) {
+                final Segment<K, V> segment = segments[nextSegmentIndex--];
+                if (segment.count != 0) {
+                    currentTable = segment.table;
+                    for (int j = currentTable.length - 1; j >= 0; --j) {
+                        if ((nextNode = currentTable[j]) != null) {
+                            nextTableIndex = j - 1;
+                            return;
+                        }
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextNode != null;
+        }
+
+        @Override
+        public Entry<MultiKey<? extends K>, V> next() {
+            if (nextNode == null) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = nextNode;
+            advance();
+            return new WriteThroughEntry(lastReturned.getKey(), lastReturned.value);
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            final Node2<K, V> node = lastReturned;
+            removeInternal(node.size(), node.getKey(0), node.getKey(1), node.getKey(2), node.getKey(3), node.getKey(4),
+                    null);
+            lastReturned = null;
+        }
+    }
+
+    /**
+     * EntrySet implementation.
+     */
+    private final class EntrySet extends AbstractSet<Entry<MultiKey<? extends K>, V>> {
+
+        @Override
+        public void clear() {
+            ConcurrentMultiKeyMap.this.clear();
+        }
+
+        @Override
+        public boolean contains(final Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            final Entry<?, ?> entry = (Entry<?, ?>) obj;
+            final V value = get(entry.getKey());
+            return value != null && value.equals(entry.getValue());
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return ConcurrentMultiKeyMap.this.isEmpty();
+        }
+
+        @Override
+        public Iterator<Entry<MultiKey<? extends K>, V>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public boolean remove(final Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            final Entry<?, ?> entry = (Entry<?, ?>) obj;
+            return ConcurrentMultiKeyMap.this.remove(entry.getKey(), entry.getValue());
+        }
+
+        @Override
+        public int size() {
+            return ConcurrentMultiKeyMap.this.size();
+        }
+    }
+
+    /**
+     * An entry holding two keys.
+     * <p>
+     * Entries are immutable apart from the value, so that a bucket can be
+     * traversed without locking. Removing an entry copies the entries that
+     * precede it in its bucket.
+     * </p>
+     *
+     * @param <K> the type of the elements of the keys
+     * @param <V> the type of the values
+     */
+    private static class Node2<K, V> {
+
+        final int hash;
+        final Node2<K, V> next;
+        volatile V value;
+        final Object key0;
+        final Object key1;
+
+        Node2(final int hash, final Node2<K, V> next, final V value, final Object key0, final Object key1) {
+            this.hash = hash;
+            this.next = next;
+            this.value = value;
+            this.key0 = key0;
+            this.key1 = key1;
+        }
+
+        /**
+         * Copies this entry with another next entry.
+         *
+         * @param newNext  the next entry of the copy
+         * @return the copy
+         */
+        Node2<K, V> copy(final Node2<K, V> newNext) {
+            return new Node2<>(hash, newNext, value, key0, key1);
+        }
+
+        @SuppressWarnings("unchecked")
+        MultiKey<? extends K> getKey() {
+            return new MultiKey<>((K) key0, (K) key1);
+        }
+
+        /**
+         * Gets the key at the specified index.
+         *
+         * @param index  the index
+         * @return the key, null if the index is not less than {@link #size()}
+         */
+        Object getKey(final int index) {
+            if (index == 0) {
+                return key0;
+            }
+            return index == 1 ? key1 : null;
+        }
+
+        boolean matches(final int size, final Object k0, final Object k1, final Object k2, final Object k3,
+                final Object k4) {
+            return size == 2 && Objects.equals(k0, key0) && Objects.equals(k1, key1);
+        }
+
+        int size() {
+            return 2;
+        }
+
+        /**
+         * Does the key of this entry start with the specified keys.
+         *
+         * @param count  the number of keys to compare, from 1 to 4
+         * @param k0  the first key
+         * @param k1  the second key, ignored if count is less than 2
+         * @param k2  the third key, ignored if count is less than 3
+         * @param k3  the fourth key, ignored if count is less than 4
+         * @return true if this entry has at least count keys and they match
+         */
+        boolean startsWith(final int count, final Object k0, final Object k1, final Object k2, final Object k3) {
+            return size() >= count
+                && Objects.equals(k0, key0)
+                && (count < 2 || Objects.equals(k1, key1))
+                && (count < 3 || Objects.equals(k2, getKey(2)))
+                && (count < 4 || Objects.equals(k3, getKey(3)));
+        }
+    }
+
+    /**
+     * An entry holding three keys.
+     *
+     * @param <K> the type of the elements of the keys
+     * @param <V> the type of the values
+     */
+    private static class Node3<K, V> extends Node2<K, V> {
+
+        final Object key2;
+
+        Node3(final int hash, final Node2<K, V> next, final V value, final Object key0, final Object key1,
+                final Object key2) {
+            super(hash, next, value, key0, key1);
+            this.key2 = key2;
+        }
+
+        @Override
+        Node2<K, V> copy(final Node2<K, V> newNext) {
+            return new Node3<>(hash, newNext, value, key0, key1, key2);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        MultiKey<? extends K> getKey() {
+            return new MultiKey<>((K) key0, (K) key1, (K) key2);
+        }
+
+        @Override
+        Object getKey(final int index) {
+            return index == 2 ? key2 : super.getKey(index);
+        }
+
+        @Override
+        boolean matches(final int size, final Object k0, final Object k1, final Object k2, final Object k3,
+                final Object k4) {
+            return size == 3 && Objects.equals(k0, key0) && Objects.equals(k1, key1) && Objects.equals(k2, key2);
+        }
+
+        @Override
+        int size() {
+            return 3;
+        }
+    }
+
+    /**
+     * An entry holding four keys.
+     *
+     * @param <K> the type of the elements of the keys
+     * @param <V> the type of the values
+     */
+    private static class Node4<K, V> extends Node3<K, V> {
+
+        final Object key3;
+
+        Node4(final int hash, final Node2<K, V> next, final V value, final Object key0, final Object key1,
+                final Object key2, final Object key3) {
+            super(hash, next, value, key0, key1, key2);
+            this.key3 = key3;
+        }
+
+        @Override
+        Node2<K, V> copy(final Node2<K, V> newNext) {
+            return new Node4<>(hash, newNext, value, key0, key1, key2, key3);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        MultiKey<? extends K> getKey() {
+            return new MultiKey<>((K) key0, (K) key1, (K) key2, (K) key3);
+        }
+
+        @Override
+        Object getKey(final int index) {
+            return index == 3 ? key3 : super.getKey(index);
+        }
+
+        @Override
+        boolean matches(final int size, final Object k0, final Object k1, final Object k2, final Object k3,
+                final Object k4) {
+            return size == 4 && Objects.equals(k0, key0) && Objects.equals(k1, key1) && Objects.equals(k2, key2)
+                && Objects.equals(k3, key3);
+        }
+
+        @Override
+        int size() {
+            return 4;
+        }
+    }
+
+    /**
+     * An entry holding five keys.
+     *
+     * @param <K> the type of the elements of the keys
+     * @param <V> the type of the values
+     */
+    private static final class Node5<K, V> extends Node4<K, V> {
+
+        final Object key4;
+
+        Node5(final int hash, final Node2<K, V> next, final V value, final Object key0, final Object key1,
+                final Object key2, final Object key3, final Object key4) {
+            super(hash, next, value, key0, key1, key2, key3);
+            this.key4 = key4;
+        }
+
+        @Override
+        Node2<K, V> copy(final Node2<K, V> newNext) {
+            return new Node5<>(hash, newNext, value, key0, key1, key2, key3, key4);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        MultiKey<? extends K> getKey() {
+            return new MultiKey<>((K) key0, (K) key1, (K) key2, (K) key3, (K) key4);
+        }
+
+        @Override
+        Object getKey(final int index) {
+            return index == 4 ? key4 : super.getKey(index);
+        }
+
+        @Override
+        boolean matches(final int size, final Object k0, final Object k1, final Object k2, final Object k3,
+                final Object k4) {
+            return size == 5 && Objects.equals(k0, key0) && Objects.equals(k1, key1) && Objects.equals(k2, key2)
+                && Objects.equals(k3, key3) && Objects.equals(k4, key4);
+        }
+
+        @Override
+        int size() {
+            return 5;
+        }
+    }
+
+    /**
+     * A segment of the map: a hash table whose updates are guarded by the
+     * segment lock, and whose reads are not.
+     *
+     * @param <K> the type of the elements of the keys
+     * @param <V> the type of the values
+     */
+    private static final class Segment<K, V> extends ReentrantLock {
+
+        private static final long serialVersionUID = 1L;
+
+        @SuppressWarnings("unchecked")
+        static <K, V> Segment<K, V>[] newArray(final int i) {
+            return new Segment[i];
+        }
+
+        @SuppressWarnings("unchecked")
+        static <K, V> Node2<K, V>[] newTable(final int i) {
+            return new Node2[i];
+        }
+
+        /**
+         * The load factor for the hash table, replicated in each segment.
+         */
+        private final float loadFactor;
+
+        /**
+         * The number of elements in this segment, written last by every
+         * update so that readers see the entries it published.
+         */
+        private transient volatile int count;
+
+        /**
+         * The table is rehashed when its size exceeds this threshold.
+         */
+        private transient int threshold;
+
+        /**
+         * The per-segment table.
+         */
+        private transient volatile Node2<K, V>[] table;
+
+        Segment(final int initialCapacity, final float loadFactor) {
+            this.loadFactor = loadFactor;
+            setTable(newTable(initialCapacity));
+        }
+
+        void clear() {
+            if (count != 0) {
+                lock();
+                try {
+                    Arrays.fill(table, null);
+                    // write-volatile
+                    count = 0;
+                } finally {
+                    unlock();
+                }
+            }
+        }
+
+        boolean containsValue(final Object value) {
+            // read-volatile
+            if (count != 0) {
+                for (final Node2<K, V> first : table) {
+                    for (Node2<K, V> e = first; e != null; e = e.next) {
+                        V v = e.value;
+                        if (v == null) {
+                            // recheck
+                            v = readValueUnderLock(e);
+                        }
+                        if (value.equals(v)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        V get(final int hash, final int size, final Object k0, final Object k1, final Object k2, final Object k3,
+                final Object k4) {
+            // read-volatile
+            if (count != 0) {
+                final Node2<K, V>[] tab = table;
+                for (Node2<K, V> e = tab[hash & tab.length - 1]; e != null; e = e.next) {
+                    if (e.hash == hash && e.matches(size, k0, k1, k2, k3, k4)) {
+                        final V v = e.value;
+                        if (v != null) {
+                            return v;
+                        }
+                        // recheck
+                        return readValueUnderLock(e);
+                    }
+                }
+            }
+            return null;
+        }
+
+        V put(final int hash, final int size, final Object k0, final Object k1, final Object k2, final Object k3,
+                final Object k4, final V value, final boolean onlyIfAbsent) {
+            lock();
+            try {
+                int c = count;
+                // ensure capacity
+                if (c++ > threshold) {
+                    rehash();
+                }
+                final Node2<K, V>[] tab = table;
+                final int index = hash & tab.length - 1;
+                final Node2<K, V> first = tab[index];
+                for (Node2<K, V> e = first; e != null; e = e.next) {
+                    if (e.hash == hash && e.matches(size, k0, k1, k2, k3, k4)) {
+                        final V oldValue = e.value;
+                        if (!onlyIfAbsent) {
+                            e.value = value;
+                        }
+                        return oldValue;
+                    }
+                }
+                tab[index] = newNode(hash, first, value, size, k0, k1, k2, k3, k4);
+                // write-volatile
+                count = c;
+                return null;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Reads the value of an entry under lock. Called if the value ever
+         * appears to be null, which is possible only if a compiler reorders
+         * the initialization of an entry with its assignment to the table.
+         */
+        V readValueUnderLock(final Node2<K, V> e) {
+            lock();
+            try {
+                return e.value;
+            } finally {
+                unlock();
+            }
+        }
+
+        void rehash() {
+            final Node2<K, V>[] oldTable = table;
+            final int oldCapacity = oldTable.length;
+            if (oldCapacity >= MAXIMUM_CAPACITY) {
+                return;
+            }
+            // As in ConcurrentReferenceHashMap, the trailing run of entries that stay
+            // together is reused and only the entries before it are copied, so that
+            // readers of the old table are not disturbed.
+            final Node2<K, V>[] newTable = newTable(oldCapacity << 1);
+            final int sizeMask = newTable.length - 1;
+            for (final Node2<K, V> e : oldTable) {
+                if (e != null) {
+                    final Node2<K, V> next = e.next;
+                    final int idx = e.hash & sizeMask;
+                    if (next == null) {
+                        newTable[idx] = e;
+                    } else {
+                        Node2<K, V> lastRun = e;
+                        int lastIdx = idx;
+                        for (Node2<K, V> last = next; last != null; last = last.next) {
+                            final int k = last.hash & sizeMask;
+                            if (k != lastIdx) {
+                                lastIdx = k;
+                                lastRun = last;
+                            }
+                        }
+                        newTable[lastIdx] = lastRun;
+                        for (Node2<K, V> p = e; p != lastRun; p = p.next) {
+                            final int k = p.hash & sizeMask;
+                            newTable[k] = p.copy(newTable[k]);
+                        }
+                    }
+                }
+            }
+            setTable(newTable);
+        }
+
+        /**
+         * Removes the entry with the specified key, if its value equals the
+         * specified value or if the specified value is null.
+         */
+        V remove(final int hash, final int size, final Object k0, final Object k1, final Object k2, final Object k3,
+                final Object k4, final Object value) {
+            lock();
+            try {
+                final Node2<K, V>[] tab = table;
+                final int index = hash & tab.length - 1;
+                final Node2<K, V> first = tab[index];
+                Node2<K, V> e = first;
+                while (e != null && (e.hash != hash || !e.matches(size, k0, k1, k2, k3, k4))) {
+                    e = e.next;
+                }
+                if (e == null) {
+                    return null;
+                }
+                final V oldValue = e.value;
+                if (value != null && !value.equals(oldValue)) {
+                    return null;
+                }
+                // All entries following the removed one can stay in the list,
+                // but all preceding ones need to be copied.
+                Node2<K, V> newFirst = e.next;
+                for (Node2<K, V> p = first; p != e; p = p.next) {
+                    newFirst = p.copy(newFirst);
+                }
+                tab[index] = newFirst;
+                // write-volatile
+                count = count - 1;
+                return oldValue;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Removes the entries whose first keys match the specified keys.
+         */
+        boolean removeAll(final int keyCount, final Object k0, final Object k1, final Object k2, final Object k3) {
+            // read-volatile
+            if (count == 0) {
+                return false;
+            }
+            lock();
+            try {
+                final Node2<K, V>[] tab = table;
+                int c = count;
+                for (int i = 0; i < tab.length; i++) {
+                    final Node2<K, V> first = tab[i];
+                    Node2<K, V> lastMatch = null;
+                    for (Node2<K, V> e = first; e != null; e = e.next) {
+                        if (e.startsWith(keyCount, k0, k1, k2, k3)) {
+                            lastMatch = e;
+                        }
+                    }
+                    if (lastMatch != null) {
+                        // The entries following the last match can stay in the list
+                        c--;
+                        Node2<K, V> newFirst = lastMatch.next;
+                        for (Node2<K, V> p = first; p != lastMatch; p = p.next) {
+                            if (p.startsWith(keyCount, k0, k1, k2, k3)) {
+                                c--;
+                            } else {
+                                newFirst = p.copy(newFirst);
+                            }
+                        }
+                        tab[i] = newFirst;
+                    }
+                }
+                final boolean modified = c != count;
+                // write-volatile
+                count = c;
+                return modified;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Replaces the value of the entry with the specified key, if its value
+         * equals the specified old value or if the old value is null.
+         *
+         * @return the replaced value, null if nothing was replaced
+         */
+        V replace(final int hash, final int size, final Object k0, final Object k1, final Object k2, final Object k3,
+                final Object k4, final V oldValue, final V newValue) {
+            lock();
+            try {
+                final Node2<K, V>[] tab = table;
+                for (Node2<K, V> e = tab[hash & tab.length - 1]; e != null; e = e.next) {
+                    if (e.hash == hash && e.matches(size, k0, k1, k2, k3, k4)) {
+                        final V v = e.value;
+                        if (oldValue == null || oldValue.equals(v)) {
+                            e.value = newValue;
+                            return v;
+                        }
+                        return null;
+                    }
+                }
+                return null;
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Sets the table. Call only while holding the lock or in the constructor.
+         */
+        void setTable(final Node2<K, V>[] newTable) {
+            threshold = (int) (newTable.length * loadFactor);
+            table = newTable;
+        }
+    }
+
+    /**
+     * Entry returned by the entry set iterator, that relays setValue changes to the map.
+     */
+    private final class WriteThroughEntry extends SimpleEntry<MultiKey<? extends K>, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        WriteThroughEntry(final MultiKey<? extends K> key, final V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(final V value) {
+            Objects.requireNonNull(value, "value");
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
+
+    /** The default initial capacity */
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    /** The default load factor */
+    static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    /** The default concurrency level */
+    static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    /** The maximum capacity of a segment */
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /** The maximum number of segments */
+    private static final int MAX_SEGMENTS = 1 << 16;
+
+    /** The smallest number of keys supported */
+    private static final int MIN_KEYS = 2;
+
+    /** The largest number of keys supported */
+    private static final int MAX_KEYS = 5;
+
+    /**
+     * Gets the hash code for the specified multi-key.
+     * <p>
+     * The keys are combined in order, as {@link java.util.List#hashCode()}
+     * does, then the bits are spread with a variant of the single-word
+     * Wang/Jenkins hash, to regularize both segment and index locations.
+     * </p>
+     */
+    private static int hash(final int size, final Object k0, final Object k1, final Object k2, final Object k3,
+            final Object k4) {
+        int h = Objects.hashCode(k0);
+        h = 31 * h + Objects.hashCode(k1);
+        if (size > 2) {
+            h = 31 * h + Objects.hashCode(k2);
+            if (size > 3) {
+                h = 31 * h + Objects.hashCode(k3);
+                if (size > 4) {
+                    h = 31 * h + Objects.hashCode(k4);
+                }
+            }
+        }
+        h += h << 15 ^ 0xffffcd7d;
+        h ^= h >>> 10;
+        h += h << 3;
+        h ^= h >>> 6;
+        h += (h << 2) + (h << 14);
+        return h ^ h >>> 16;
+    }
+
+    /**
+     * Gets the number of keys of a supported multi-key.
+     *
+     * @param key  the key
+     * @return the number of keys, or zero if the key is not a MultiKey of two to five keys
+     */
+    private static int keyCount(final Object key) {
+        if (key instanceof MultiKey) {
+            final int size = ((MultiKey<?>) key).size();
+            if (size >= MIN_KEYS && size <= MAX_KEYS) {
+                return size;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the key at the specified index, or null if the multi-key is shorter.
+     */
+    private static Object keyAt(final MultiKey<?> key, final int index) {
+        return index < key.size() ? key.getKey(index) : null;
+    }
+
+    private static <K, V> Node2<K, V> newNode(final int hash, final Node2<K, V> next, final V value, final int size,
+            final Object k0, final Object k1, final Object k2, final Object k3, final Object k4) {
+        switch (size) {
+        case 2:
+            return new Node2<>(hash, next, value, k0, k1);
+        case 3:
+            return new Node3<>(hash, next, value, k0, k1, k2);
+        case 4:
+            return new Node4<>(hash, next, value, k0, k1, k2, k3);
+        default:
+            return new Node5<>(hash, next, value, k0, k1, k2, k3, k4);
+        }
+    }
+
+    /**
+     * The load factor of each segment.
+     */
+    private final float loadFactor;
+
+    /**
+     * The number of segments, a power of two.
+     */
+    private final int segmentCount;
+
+    /**
+     * Shift value for indexing within segments.
+     */
+    private transient int segmentShift;
+
+    /**
+     * The segments, each of which is a specialized hash table.
+     */
+    private transient Segment<K, V>[] segments;
+
+    /**
+     * Constructs a new, empty map with the default initial capacity (16), load
+     * factor (0.75) and concurrency level (16).
+     */
+    public ConcurrentMultiKeyMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_LOAD_FACTOR, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Constructs a new, empty map with the specified initial capacity, and the
+     * default load factor (0.75) and concurrency level (16).
+     *
+     * @param initialCapacity  the initial capacity
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public ConcurrentMultiKeyMap(final int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Constructs a new, empty map with the specified initial capacity, load
+     * factor and concurrency level.
+     *
+     * @param initialCapacity  the initial capacity, the map performs internal sizing to accommodate this many elements
+     * @param loadFactor  the load factor threshold, used to control resizing
+     * @param concurrencyLevel  the estimated number of concurrently updating threads, which sets the number of segments
+     * @throws IllegalArgumentException if the initial capacity is negative or the load factor or concurrency level are
+     *         nonpositive
+     */
+    public ConcurrentMultiKeyMap(final int initialCapacity, final float loadFactor, final int concurrencyLevel) {
+        if (!(loadFactor > 0) || initialCapacity < 0 || concurrencyLevel <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.loadFactor = loadFactor;
+        int ssize = 1;
+        while (ssize < Math.min(concurrencyLevel, MAX_SEGMENTS)) {
+            ssize <<= 1;
+        }
+        this.segmentCount = ssize;
+        initSegments(initialCapacity);
+    }
+
+    /**
+     * Constructs a new map with the same mappings as the specified map.
+     *
+     * @param map  the map to copy
+     * @throws NullPointerException if the map, one of its keys or one of its values is null
+     * @throws IllegalArgumentException if a key has less than two or more than five keys
+     */
+    public ConcurrentMultiKeyMap(final Map<? extends MultiKey<? extends K>, ? extends V> map) {
+        this(Math.max((int) (map.size() / DEFAULT_LOAD_FACTOR) + 1, DEFAULT_INITIAL_CAPACITY), DEFAULT_LOAD_FACTOR,
+                DEFAULT_CONCURRENCY_LEVEL);
+        putAll(map);
+    }
+
+    /**
+     * Check to ensure that input keys are valid MultiKey objects.
+     *
+     * @param key  the key to check
+     * @throws NullPointerException if the key is null
+     * @throws IllegalArgumentException if the key has less than two or more than five keys
+     */
+    protected void checkKey(final MultiKey<?> key) {
+        Objects.requireNonNull(key, "key");
+        if (keyCount(key) == 0) {
+            throw new IllegalArgumentException("MultiKey must have 2 to 5 keys, but has " + key.size());
+        }
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    @Override
+    public void clear() {
+        for (final Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Checks whether the map contains the specified key, which must be a
+     * {@link MultiKey} to be found.
+     *
+     * @param key  the key to search for
+     * @return true if the map contains the key
+     */
+    @Override
+    public boolean containsKey(final Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Checks whether the map contains the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @return true if the map contains the key
+     */
+    public boolean containsKey(final Object key1, final Object key2) {
+        return getInternal(2, key1, key2, null, null, null) != null;
+    }
+
+    /**
+     * Checks whether the map contains the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @return true if the map contains the key
+     */
+    public boolean containsKey(final Object key1, final Object key2, final Object key3) {
+        return getInternal(3, key1, key2, key3, null, null) != null;
+    }
+
+    /**
+     * Checks whether the map contains the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @return true if the map contains the key
+     */
+    public boolean containsKey(final Object key1, final Object key2, final Object key3, final Object key4) {
+        return getInternal(4, key1, key2, key3, key4, null) != null;
+    }
+
+    /**
+     * Checks whether the map contains the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @param key5  the fifth key
+     * @return true if the map contains the key
+     */
+    public boolean containsKey(final Object key1, final Object key2, final Object key3, final Object key4,
+            final Object key5) {
+        return getInternal(5, key1, key2, key3, key4, key5) != null;
+    }
+
+    /**
+     * Checks whether the map maps one or more keys to the specified value,
+     * traversing the whole map without locking.
+     *
+     * @param value  the value whose presence in this map is to be tested
+     * @return true if this map maps one or more keys to the specified value
+     * @throws NullPointerException if the value is null
+     */
+    @Override
+    public boolean containsValue(final Object value) {
+        Objects.requireNonNull(value, "value");
+        for (final Segment<K, V> segment : segments) {
+            if (segment.containsValue(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a weakly consistent view of the mappings, whose keys are created
+     * on demand.
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Entry<MultiKey<? extends K>, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    /**
+     * Gets the value mapped to the specified key, which must be a
+     * {@link MultiKey} to be found.
+     *
+     * @param key  the key
+     * @return the mapped value, null if no match
+     */
+    @Override
+    public V get(final Object key) {
+        final int size = keyCount(key);
+        if (size == 0) {
+            return null;
+        }
+        final MultiKey<?> multi = (MultiKey<?>) key;
+        return getInternal(size, multi.getKey(0), multi.getKey(1), keyAt(multi, 2), keyAt(multi, 3), keyAt(multi, 4));
+    }
+
+    /**
+     * Gets the value mapped to the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @return the mapped value, null if no match
+     */
+    public V get(final Object key1, final Object key2) {
+        return getInternal(2, key1, key2, null, null, null);
+    }
+
+    /**
+     * Gets the value mapped to the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @return the mapped value, null if no match
+     */
+    public V get(final Object key1, final Object key2, final Object key3) {
+        return getInternal(3, key1, key2, key3, null, null);
+    }
+
+    /**
+     * Gets the value mapped to the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @return the mapped value, null if no match
+     */
+    public V get(final Object key1, final Object key2, final Object key3, final Object key4) {
+        return getInternal(4, key1, key2, key3, key4, null);
+    }
+
+    /**
+     * Gets the value mapped to the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @param key5  the fifth key
+     * @return the mapped value, null if no match
+     */
+    public V get(final Object key1, final Object key2, final Object key3, final Object key4, final Object key5) {
+        return getInternal(5, key1, key2, key3, key4, key5);
+    }
+
+    private V getInternal(final int size, final Object k0, final Object k1, final Object k2, final Object k3,
+            final Object k4) {
+        final int hash = hash(size, k0, k1, k2, k3, k4);
+        return segmentFor(hash).get(hash, size, k0, k1, k2, k3, k4);
+    }
+
+    /**
+     * Creates the segments, sized to accommodate the specified capacity.
+     */
+    private void initSegments(final int initialCapacity) {
+        int sshift = 0;
+        while (1 << sshift < segmentCount) {
+            ++sshift;
+        }
+        segmentShift = 32 - sshift;
+        segments = Segment.newArray(segmentCount);
+        final int capacity = Math.min(initialCapacity, MAXIMUM_CAPACITY);
+        int c = capacity / segmentCount;
+        if (c * segmentCount < capacity) {
+            ++c;
+        }
+        int cap = 1;
+        while (cap < c) {
+            cap <<= 1;
+        }
+        for (int i = 0; i < segments.length; ++i) {
+            segments[i] = new Segment<>(cap, loadFactor);
+        }
+    }
+
+    /**
+     * Returns {@code true} if this map contains no key-value mappings.
+     *
+     * @return {@code true} if this map contains no key-value mappings
+     */
+    @Override
+    public boolean isEmpty() {
+        for (final Segment<K, V> segment : segments) {
+            if (segment.count != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Puts the key and value into the map, where the key must be a non-null
+     * {@link MultiKey} of two to five keys.
+     *
+     * @param key  the key to store
+     * @param value  the value to store
+     * @return the value previously mapped to this key, null if none
+     * @throws NullPointerException if the key or value is null
+     * @throws IllegalArgumentException if the key has less than two or more than five keys
+     */
+    @Override
+    public V put(final MultiKey<? extends K> key, final V value) {
+        checkKey(key);
+        return putInternal(key.size(), key.getKey(0), key.getKey(1), keyAt(key, 2), keyAt(key, 3), keyAt(key, 4), value,
+                false);
+    }
+
+    /**
+     * Stores the value against the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @param key5  the fifth key
+     * @param value  the value to store
+     * @return the value previously mapped to this combined key, null if none
+     * @throws NullPointerException if the value is null
+     */
+    public V put(final K key1, final K key2, final K key3, final K key4, final K key5, final V value) {
+        return putInternal(5, key1, key2, key3, key4, key5, value, false);
+    }
+
+    /**
+     * Stores the value against the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @param value  the value to store
+     * @return the value previously mapped to this combined key, null if none
+     * @throws NullPointerException if the value is null
+     */
+    public V put(final K key1, final K key2, final K key3, final K key4, final V value) {
+        return putInternal(4, key1, key2, key3, key4, null, value, false);
+    }
+
+    /**
+     * Stores the value against the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param value  the value to store
+     * @return the value previously mapped to this combined key, null if none
+     * @throws NullPointerException if the value is null
+     */
+    public V put(final K key1, final K key2, final K key3, final V value) {
+        return putInternal(3, key1, key2, key3, null, null, value, false);
+    }
+
+    /**
+     * Stores the value against the specified multi-key.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param value  the value to store
+     * @return the value previously mapped to this combined key, null if none
+     * @throws NullPointerException if the value is null
+     */
+    public V put(final K key1, final K key2, final V value) {
+        return putInternal(2, key1, key2, null, null, null, value, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the key or value is null
+     * @throws IllegalArgumentException if the key has less than two or more than five keys
+     */
+    @Override
+    public V putIfAbsent(final MultiKey<? extends K> key, final V value) {
+        checkKey(key);
+        return putInternal(key.size(), key.getKey(0), key.getKey(1), keyAt(key, 2), keyAt(key, 3), keyAt(key, 4), value,
+                true);
+    }
+
+    private V putInternal(final int size, final Object k0, final Object k1, final Object k2, final Object k3,
+            final Object k4, final V value, final boolean onlyIfAbsent) {
+        Objects.requireNonNull(value, "value");
+        final int hash = hash(size, k0, k1, k2, k3, k4);
+        return segmentFor(hash).put(hash, size, k0, k1, k2, k3, k4, value, onlyIfAbsent);
+    }
+
+    /**
+     * Deserializes the map in using a custom routine.
+     *
+     * @param in the input stream
+     * @throws IOException if an error occurs while reading from the stream
+     * @throws ClassNotFoundException if an object read from the stream cannot be loaded
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        initSegments(in.readInt());
+        for (;;) {
+            final MultiKey<? extends K> key = (MultiKey<? extends K>) in.readObject();
+            if (key == null) {
+                break;
+            }
+            put(key, (V) in.readObject());
+        }
+    }
+
+    /**
+     * Removes the specified key, which must be a {@link MultiKey} to be found.
+     *
+     * @param key  the mapping to remove
+     * @return the value mapped to the removed key, null if key not in map
+     */
+    @Override
+    public V remove(final Object key) {
+        return remove(key, null, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove(final Object key, final Object value) {
+        return value != null && remove(key, value, false) != null;
+    }
+
+    private V remove(final Object key, final Object value, final boolean unconditional) {
+        final int size = keyCount(key);
+        if (size == 0) {
+            return null;
+        }
+        final MultiKey<?> multi = (MultiKey<?>) key;
+        return removeInternal(size, multi.getKey(0), multi.getKey(1), keyAt(multi, 2), keyAt(multi, 3),
+                keyAt(multi, 4), unconditional ? null : value);
+    }
+
+    /**
+     * Removes all mappings where the first key is that specified.
+     * <p>
+     * The segments are processed one at a time, so mappings added concurrently
+     * may or may not be removed, but readers are never blocked.
+     * </p>
+     *
+     * @param key1  the first key
+     * @return true if any elements were removed
+     */
+    public boolean removeAll(final Object key1) {
+        return removeAll(1, key1, null, null, null);
+    }
+
+    private boolean removeAll(final int keyCount, final Object k0, final Object k1, final Object k2,
+            final Object k3) {
+        boolean modified = false;
+        for (final Segment<K, V> segment : segments) {
+            modified |= segment.removeAll(keyCount, k0, k1, k2, k3);
+        }
+        return modified;
+    }
+
+    /**
+     * Removes all mappings where the first two keys are those specified.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @return true if any elements were removed
+     */
+    public boolean removeAll(final Object key1, final Object key2) {
+        return removeAll(2, key1, key2, null, null);
+    }
+
+    /**
+     * Removes all mappings where the first three keys are those specified.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @return true if any elements were removed
+     */
+    public boolean removeAll(final Object key1, final Object key2, final Object key3) {
+        return removeAll(3, key1, key2, key3, null);
+    }
+
+    /**
+     * Removes all mappings where the first four keys are those specified.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @return true if any elements were removed
+     */
+    public boolean removeAll(final Object key1, final Object key2, final Object key3, final Object key4) {
+        return removeAll(4, key1, key2, key3, key4);
+    }
+
+    private V removeInternal(final int size, final Object k0, final Object k1, final Object k2, final Object k3,
+            final Object k4, final Object value) {
+        final int hash = hash(size, k0, k1, k2, k3, k4);
+        return segmentFor(hash).remove(hash, size, k0, k1, k2, k3, k4, value);
+    }
+
+    /**
+     * Removes the specified multi-key from this map.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @return the value mapped to the removed key, null if key not in map
+     */
+    public V removeMultiKey(final Object key1, final Object key2) {
+        return removeInternal(2, key1, key2, null, null, null, null);
+    }
+
+    /**
+     * Removes the specified multi-key from this map.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @return the value mapped to the removed key, null if key not in map
+     */
+    public V removeMultiKey(final Object key1, final Object key2, final Object key3) {
+        return removeInternal(3, key1, key2, key3, null, null, null);
+    }
+
+    /**
+     * Removes the specified multi-key from this map.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @return the value mapped to the removed key, null if key not in map
+     */
+    public V removeMultiKey(final Object key1, final Object key2, final Object key3, final Object key4) {
+        return removeInternal(4, key1, key2, key3, key4, null, null);
+    }
+
+    /**
+     * Removes the specified multi-key from this map.
+     *
+     * @param key1  the first key
+     * @param key2  the second key
+     * @param key3  the third key
+     * @param key4  the fourth key
+     * @param key5  the fifth key
+     * @return the value mapped to the removed key, null if key not in map
+     */
+    public V removeMultiKey(final Object key1, final Object key2, final Object key3, final Object key4,
+            final Object key5) {
+        return removeInternal(5, key1, key2, key3, key4, key5, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the key or value is null
+     * @throws IllegalArgumentException if the key has less than two or more than five keys
+     */
+    @Override
+    public V replace(final MultiKey<? extends K> key, final V value) {
+        checkKey(key);
+        Objects.requireNonNull(value, "value");
+        final int size = key.size();
+        final int hash = hash(size, key.getKey(0), key.getKey(1), keyAt(key, 2), keyAt(key, 3), keyAt(key, 4));
+        return segmentFor(hash).replace(hash, size, key.getKey(0), key.getKey(1), keyAt(key, 2), keyAt(key, 3),
+                keyAt(key, 4), null, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the key or one of the values is null
+     * @throws IllegalArgumentException if the key has less than two or more than five keys
+     */
+    @Override
+    public boolean replace(final MultiKey<? extends K> key, final V oldValue, final V newValue) {
+        checkKey(key);
+        Objects.requireNonNull(oldValue, "oldValue");
+        Objects.requireNonNull(newValue, "newValue");
+        final int size = key.size();
+        final int hash = hash(size, key.getKey(0), key.getKey(1), keyAt(key, 2), keyAt(key, 3), keyAt(key, 4));
+        return segmentFor(hash).replace(hash, size, key.getKey(0), key.getKey(1), keyAt(key, 2), keyAt(key, 3),
+                keyAt(key, 4), oldValue, newValue) != null;
+    }
+
+    /**
+     * Returns the segment that should be used for key with given hash.
+     *
+     * @param hash the hash code for the key
+     * @return the segment
+     */
+    private Segment<K, V> segmentFor(final int hash) {
+        return segments[hash >>> segmentShift & segmentCount - 1];
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map, summed over the
+     * segments without locking.
+     *
+     * @return the number of key-value mappings in this map
+     */
+    @Override
+    public int size() {
+        long sum = 0;
+        for (final Segment<K, V> segment : segments) {
+            sum += segment.count;
+        }
+        return sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+    }
+
+    /**
+     * Serializes this object to an ObjectOutputStream.
+     *
+     * @param out the target ObjectOutputStream.
+     * @throws IOException thrown when an I/O errors occur writing to the target stream.
+     */
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size());
+        for (final Entry<MultiKey<? extends K>, V> entry : entrySet()) {
+            out.writeObject(entry.getKey());
+            out.writeObject(entry.getValue());
+        }
+        out.writeObject(null);
+    }
+
+}
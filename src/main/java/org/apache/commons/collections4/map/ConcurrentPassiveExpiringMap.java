@@ -0,0 +1,597 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.apache.commons.collections4.map.PassiveExpiringMap.ConstantTimeToLiveExpirationPolicy;
+import org.apache.commons.collections4.map.PassiveExpiringMap.ExpirationPolicy;
+
+/**
+ * A thread-safe {@link ConcurrentMap} that evicts entries once their expiration
+ * time has been reached.
+ * <p>
+ * This is the concurrent counterpart of {@link PassiveExpiringMap}. When a
+ * mapping is added, the {@link ExpirationPolicy} determines its expiration time,
+ * which is stored as a primitive {@code long} next to the value, so a single
+ * lookup serves both the value and the expiry check.
+ * </p>
+ * <p>
+ * Expiration is passive: an expired mapping is treated as absent by every
+ * operation and is removed by the thread that observes it, using an atomic
+ * conditional remove. No lock is taken for expiry bookkeeping, so retrieval
+ * operations never block one another. Methods that involve the entire map
+ * contents (i.e. {@link #size()}, {@link #containsValue(Object)}, etc.) first
+ * sweep all expired mappings in the same non-blocking fashion.
+ * </p>
+ * <p>
+ * The atomic operations of {@link ConcurrentMap}, such as
+ * {@link #putIfAbsent(Object, Object)} and
+ * {@link #computeIfAbsent(Object, Function)}, treat an expired mapping exactly
+ * like a missing one and apply the expiration policy to the newly stored value.
+ * </p>
+ * <p>
+ * Like {@link ConcurrentHashMap}, this class does <em>not</em> allow
+ * {@code null} to be used as a key or value. Iterators are weakly consistent
+ * and never throw {@link java.util.ConcurrentModificationException}.
+ * </p>
+ *
+ * @param <K> the type of the keys in this map
+ * @param <V> the type of the values in this map
+ * @see PassiveExpiringMap
+ * @since 4.6.0
+ */
+public class ConcurrentPassiveExpiringMap<K, V> extends AbstractMap<K, V>
+    implements ConcurrentMap<K, V>, Serializable {
+
+    /**
+     * EntrySet implementation that skips, and removes, expired mappings.
+     */
+    private final class EntrySet extends AbstractSet<Entry<K, V>> {
+
+        @Override
+        public void clear() {
+            ConcurrentPassiveExpiringMap.this.clear();
+        }
+
+        @Override
+        public boolean contains(final Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            final Entry<?, ?> entry = (Entry<?, ?>) obj;
+            final Object key = entry.getKey();
+            final V value = key == null ? null : get(key);
+            return value != null && value.equals(entry.getValue());
+        }
+
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            return new EntrySetIterator();
+        }
+
+        @Override
+        public boolean remove(final Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            final Entry<?, ?> entry = (Entry<?, ?>) obj;
+            final Object key = entry.getKey();
+            final Object value = entry.getValue();
+            return key != null && value != null && ConcurrentPassiveExpiringMap.this.remove(key, value);
+        }
+
+        @Override
+        public int size() {
+            return ConcurrentPassiveExpiringMap.this.size();
+        }
+    }
+
+    /**
+     * Weakly consistent iterator over the live mappings.
+     */
+    private final class EntrySetIterator implements Iterator<Entry<K, V>> {
+
+        private final Iterator<Entry<K, ExpiringValue<V>>> iterator = map.entrySet().iterator();
+        private final long nowMillis = now();
+        private WriteThroughEntry next;
+        private WriteThroughEntry last;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && iterator.hasNext()) {
+                final Entry<K, ExpiringValue<V>> entry = iterator.next();
+                final ExpiringValue<V> holder = entry.getValue();
+                if (holder.isExpired(nowMillis)) {
+                    map.remove(entry.getKey(), holder);
+                } else {
+                    next = new WriteThroughEntry(entry.getKey(), holder);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = null;
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            // only the iterated mapping, not one put by another thread since
+            map.remove(last.getKey(), last.holder);
+            last = null;
+        }
+    }
+
+    /**
+     * A value stored together with its primitive expiration time.
+     *
+     * @param <V> the type of the value
+     */
+    private static final class ExpiringValue<V> implements Serializable {
+
+        /** Serialization version */
+        private static final long serialVersionUID = 1L;
+
+        /** The mapped value, never null. */
+        final V value;
+
+        /** The expiration time in milliseconds, negative if the value never expires. */
+        final long expirationTime;
+
+        ExpiringValue(final V value, final long expirationTime) {
+            this.value = value;
+            this.expirationTime = expirationTime;
+        }
+
+        /**
+         * Determines if this value has expired at the given time.
+         *
+         * @param nowMillis the time in milliseconds used to compare against the expiration time.
+         * @return {@code true} if the expiration time is &ge; 0 and &le; {@code nowMillis}.
+         */
+        boolean isExpired(final long nowMillis) {
+            return expirationTime >= 0 && nowMillis >= expirationTime;
+        }
+    }
+
+    /**
+     * Entry returned by the entry set iterator, that relays setValue changes to the map.
+     */
+    private final class WriteThroughEntry extends SimpleEntry<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        /** The holder of the mapping this entry was read from or last set. */
+        private transient ExpiringValue<V> holder;
+
+        WriteThroughEntry(final K key, final ExpiringValue<V> holder) {
+            super(key, holder.value);
+            this.holder = holder;
+        }
+
+        @Override
+        public V setValue(final V value) {
+            Objects.requireNonNull(value, "value");
+            holder = newExpiringValue(getKey(), value);
+            map.put(getKey(), holder);
+            return super.setValue(value);
+        }
+    }
+
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
+
+    /** The underlying map holding values together with their expiration times. */
+    private final ConcurrentHashMap<K, ExpiringValue<V>> map;
+
+    /** The policy used to determine time-to-live values for map entries. */
+    private final ExpirationPolicy<K, V> expiringPolicy;
+
+    /**
+     * Default constructor. Constructs a map that results in entries NEVER
+     * expiring.
+     */
+    public ConcurrentPassiveExpiringMap() {
+        this(-1L);
+    }
+
+    /**
+     * Constructs a map using the given expiration policy to determine
+     * expiration times.
+     *
+     * @param expiringPolicy the policy used to determine expiration times of
+     *        entries as they are added.
+     * @throws NullPointerException if expiringPolicy is null
+     */
+    public ConcurrentPassiveExpiringMap(final ExpirationPolicy<K, V> expiringPolicy) {
+        this.expiringPolicy = Objects.requireNonNull(expiringPolicy, "expiringPolicy");
+        this.map = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Constructs a map using the given expiration policy to determine
+     * expiration times, and copies all mappings of the given map into it.
+     * The copied mappings are subject to the expiration policy.
+     *
+     * @param expiringPolicy the policy used to determine expiration times of
+     *        entries as they are added.
+     * @param map the map whose mappings are copied, must not be null.
+     * @throws NullPointerException if the map, expiringPolicy, or any of the
+     *         keys or values of the map is null.
+     */
+    public ConcurrentPassiveExpiringMap(final ExpirationPolicy<K, V> expiringPolicy,
+                                        final Map<? extends K, ? extends V> map) {
+        this(expiringPolicy);
+        putAll(Objects.requireNonNull(map, "map"));
+    }
+
+    /**
+     * Constructs a map using the given time-to-live value measured in
+     * milliseconds to create and use a
+     * {@link ConstantTimeToLiveExpirationPolicy} expiration policy.
+     *
+     * @param timeToLiveMillis the constant amount of time (in milliseconds) an
+     *        entry is available before it expires. A negative value results in
+     *        entries that NEVER expire. A zero value results in entries that
+     *        ALWAYS expire.
+     */
+    public ConcurrentPassiveExpiringMap(final long timeToLiveMillis) {
+        this(new ConstantTimeToLiveExpirationPolicy<>(timeToLiveMillis));
+    }
+
+    /**
+     * Constructs a map using the given time-to-live value measured in the
+     * given time units of measure to create and use a
+     * {@link ConstantTimeToLiveExpirationPolicy} expiration policy.
+     *
+     * @param timeToLive the constant amount of time an entry is available
+     *        before it expires. A negative value results in entries that NEVER
+     *        expire. A zero value results in entries that ALWAYS expire.
+     * @param timeUnit the unit of time for the {@code timeToLive}
+     *        parameter, must not be null.
+     * @throws NullPointerException if the time unit is null.
+     */
+    public ConcurrentPassiveExpiringMap(final long timeToLive, final TimeUnit timeUnit) {
+        this(new ConstantTimeToLiveExpirationPolicy<>(timeToLive, timeUnit));
+    }
+
+    /**
+     * Normal {@link Map#clear()} behavior.
+     */
+    @Override
+    public void clear() {
+        map.clear();
+    }
+
+    /**
+     * Computes a new mapping, treating an expired mapping as absent. The new
+     * value, if any, is subject to the expiration policy.
+     * {@inheritDoc}
+     */
+    @Override
+    public V compute(final K key, final BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction, "remappingFunction");
+        final long nowMillis = now();
+        return valueOf(map.compute(key, (k, holder) -> {
+            final V oldValue = holder == null || holder.isExpired(nowMillis) ? null : holder.value;
+            return newExpiringValue(k, remappingFunction.apply(k, oldValue));
+        }));
+    }
+
+    /**
+     * Computes a new mapping if there is none or if the current one has
+     * expired. The new value, if any, is subject to the expiration policy.
+     * The mapping function is applied at most once per key while other
+     * threads wait, as in {@link ConcurrentHashMap#computeIfAbsent(Object, Function)}.
+     * {@inheritDoc}
+     */
+    @Override
+    public V computeIfAbsent(final K key, final Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction, "mappingFunction");
+        final long nowMillis = now();
+        final ExpiringValue<V> current = map.get(key);
+        if (current != null && !current.isExpired(nowMillis)) {
+            return current.value;
+        }
+        return valueOf(map.compute(key, (k, holder) -> {
+            if (holder != null && !holder.isExpired(nowMillis)) {
+                return holder;
+            }
+            return newExpiringValue(k, mappingFunction.apply(k));
+        }));
+    }
+
+    /**
+     * Computes a new mapping if there is a live one. An expired mapping is
+     * removed and not passed to the remapping function.
+     * {@inheritDoc}
+     */
+    @Override
+    public V computeIfPresent(final K key, final BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction, "remappingFunction");
+        final long nowMillis = now();
+        return valueOf(map.computeIfPresent(key, (k, holder) -> {
+            if (holder.isExpired(nowMillis)) {
+                return null;
+            }
+            return newExpiringValue(k, remappingFunction.apply(k, holder.value));
+        }));
+    }
+
+    /**
+     * Expired mappings are treated as absent.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsKey(final Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * All expired entries are removed from the map prior to determining the
+     * contains result.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsValue(final Object value) {
+        Objects.requireNonNull(value, "value");
+        final long nowMillis = now();
+        for (final Entry<K, ExpiringValue<V>> entry : map.entrySet()) {
+            final ExpiringValue<V> holder = entry.getValue();
+            if (holder.isExpired(nowMillis)) {
+                map.remove(entry.getKey(), holder);
+            } else if (value.equals(holder.value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a weakly consistent view of the live mappings. Expired
+     * mappings are skipped, and removed, during iteration.
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    /**
+     * Returns the value mapped to the given key, or {@code null} if there is
+     * no such mapping or it has expired. An expired mapping is removed with an
+     * atomic conditional remove, so this method never blocks.
+     * {@inheritDoc}
+     */
+    @Override
+    public V get(final Object key) {
+        final ExpiringValue<V> holder = map.get(key);
+        if (holder == null) {
+            return null;
+        }
+        if (holder.isExpired(now())) {
+            map.remove(key, holder);
+            return null;
+        }
+        return holder.value;
+    }
+
+    /**
+     * All expired entries are removed from the map prior to determining if it is empty.
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty() {
+        removeAllExpired(now());
+        return map.isEmpty();
+    }
+
+    /**
+     * Creates the holder for a new value, or returns {@code null} for a null value.
+     */
+    private ExpiringValue<V> newExpiringValue(final K key, final V value) {
+        if (value == null) {
+            return null;
+        }
+        return new ExpiringValue<>(value, expiringPolicy.expirationTime(key, value));
+    }
+
+    /**
+     * The current time in milliseconds.
+     */
+    private long now() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Adds the given key-value pair to this map, recording the entry's
+     * expiration time based on this map's expiration policy.
+     * {@inheritDoc}
+     */
+    @Override
+    public V put(final K key, final V value) {
+        Objects.requireNonNull(value, "value");
+        final ExpiringValue<V> previous = map.put(key, newExpiringValue(key, value));
+        return liveValueOf(previous, now());
+    }
+
+    @Override
+    public void putAll(final Map<? extends K, ? extends V> mapToCopy) {
+        for (final Map.Entry<? extends K, ? extends V> entry : mapToCopy.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Adds the given key-value pair if there is no mapping for the key or if
+     * the current mapping has expired.
+     * {@inheritDoc}
+     */
+    @Override
+    public V putIfAbsent(final K key, final V value) {
+        Objects.requireNonNull(value, "value");
+        final ExpiringValue<V> holder = newExpiringValue(key, value);
+        for (;;) {
+            final ExpiringValue<V> current = map.putIfAbsent(key, holder);
+            if (current == null) {
+                return null;
+            }
+            if (!current.isExpired(now())) {
+                return current.value;
+            }
+            if (map.replace(key, current, holder)) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Normal {@link Map#remove(Object)} behavior, except that an expired
+     * mapping is reported as absent.
+     * {@inheritDoc}
+     */
+    @Override
+    public V remove(final Object key) {
+        return liveValueOf(map.remove(key), now());
+    }
+
+    @Override
+    public boolean remove(final Object key, final Object value) {
+        Objects.requireNonNull(key, "key");
+        if (value == null) {
+            return false;
+        }
+        for (;;) {
+            final ExpiringValue<V> current = map.get(key);
+            if (current == null) {
+                return false;
+            }
+            if (current.isExpired(now())) {
+                map.remove(key, current);
+                return false;
+            }
+            if (!value.equals(current.value)) {
+                return false;
+            }
+            if (map.remove(key, current)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes all entries in the map whose expiration time is less than
+     * {@code nowMillis}. The exceptions are entries with negative expiration
+     * times; those entries are never removed.
+     */
+    private void removeAllExpired(final long nowMillis) {
+        for (final Entry<K, ExpiringValue<V>> entry : map.entrySet()) {
+            final ExpiringValue<V> holder = entry.getValue();
+            if (holder.isExpired(nowMillis)) {
+                map.remove(entry.getKey(), holder);
+            }
+        }
+    }
+
+    @Override
+    public V replace(final K key, final V value) {
+        Objects.requireNonNull(value, "value");
+        final ExpiringValue<V> holder = newExpiringValue(key, value);
+        for (;;) {
+            final ExpiringValue<V> current = map.get(key);
+            if (current == null) {
+                return null;
+            }
+            if (current.isExpired(now())) {
+                map.remove(key, current);
+                return null;
+            }
+            if (map.replace(key, current, holder)) {
+                return current.value;
+            }
+        }
+    }
+
+    @Override
+    public boolean replace(final K key, final V oldValue, final V newValue) {
+        Objects.requireNonNull(oldValue, "oldValue");
+        Objects.requireNonNull(newValue, "newValue");
+        final ExpiringValue<V> holder = newExpiringValue(key, newValue);
+        for (;;) {
+            final ExpiringValue<V> current = map.get(key);
+            if (current == null) {
+                return false;
+            }
+            if (current.isExpired(now())) {
+                map.remove(key, current);
+                return false;
+            }
+            if (!oldValue.equals(current.value)) {
+                return false;
+            }
+            if (map.replace(key, current, holder)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * All expired entries are removed from the map prior to returning the size.
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        removeAllExpired(now());
+        return map.size();
+    }
+
+    /**
+     * Returns the value of the given holder if it has not expired.
+     */
+    private V liveValueOf(final ExpiringValue<V> holder, final long nowMillis) {
+        return holder == null || holder.isExpired(nowMillis) ? null : holder.value;
+    }
+
+    /**
+     * Returns the value of the given holder, which may be null.
+     */
+    private V valueOf(final ExpiringValue<V> holder) {
+        return holder == null ? null : holder.value;
+    }
+}
@@ -48,11 +48,14 @@ import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
+import org.apache.commons.collections4.map.CacheStats.EvictionCause;
+
 /**
  * An advanced hash map supporting configurable garbage collection semantics of keys and values, optional referential-equality, full concurrency of retrievals,
  * and adjustable expected concurrency for updates.
@@ -154,6 +157,7 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
         private EnumSet<Option> options = DEFAULT_OPTIONS;
         @SuppressWarnings("unchecked")
         private Map<? extends K, ? extends V> sourceMap = (Map<? extends K, ? extends V>) DEFAULT_SOURCE_MAP;
+        private CacheStatsRecorder statsRecorder;
 
         /**
          * Constructs a new instances of {@link ConcurrentReferenceHashMap}.
@@ -177,13 +181,14 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
          * <li>load factor: {@value #DEFAULT_LOAD_FACTOR}</li>
          * <li>options: {@code null}</li>
          * <li>source map: {@code null}</li>
+         * <li>statistics recorder: {@code null}</li>
          * <li>value reference type: {@link ReferenceType#STRONG}</li>
          * </ul>
          */
         @Override
         public ConcurrentReferenceHashMap<K, V> get() {
             final ConcurrentReferenceHashMap<K, V> map = new ConcurrentReferenceHashMap<>(initialCapacity, loadFactor, concurrencyLevel, keyReferenceType,
-                    valueReferenceType, options);
+                    valueReferenceType, options, statsRecorder);
             if (sourceMap != null) {
                 map.putAll(sourceMap);
             }
@@ -256,6 +261,19 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
             return this;
         }
 
+        /**
+         * Sets the recorder of the statistics of the map, which records the hits and misses of {@link ConcurrentReferenceHashMap#get(Object)} and the
+         * mappings removed because the garbage collector reclaimed their key or value.
+         *
+         * @param statsRecorder the statistics recorder, null to disable statistics.
+         * @return {@code this} instance.
+         * @since 4.6.0
+         */
+        public Builder<K, V> setStatsRecorder(final CacheStatsRecorder statsRecorder) {
+            this.statsRecorder = statsRecorder;
+            return this;
+        }
+
         /**
          * Sets the reference type to use for values.
          *
@@ -430,9 +448,16 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
             if (value instanceof KeyReference) {
                 return ((Reference<V>) value).get();
             }
+            if (value instanceof Loading) {
+                return null;
+            }
             return (V) value;
         }
 
+        boolean isLoading() {
+            return valueRef instanceof Loading;
+        }
+
         @SuppressWarnings("unchecked")
         K key() {
             if (keyRef instanceof KeyReference) {
@@ -516,7 +541,7 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 
         public boolean hasNext() {
             while (nextEntry != null) {
-                if (nextEntry.key() != null) {
+                if (nextEntry.key() != null && !nextEntry.isLoading()) {
                     return true;
                 }
                 advance();
@@ -532,7 +557,7 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
                 lastReturned = nextEntry;
                 currentKey = lastReturned.key();
                 advance();
-            } while /* Skip GC'd keys */ (currentKey == null);
+            } while /* Skip GC'd keys and values being loaded */ (currentKey == null || lastReturned.isLoading());
             return lastReturned;
         }
 
@@ -621,6 +646,44 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
         }
     }
 
+    /**
+     * The value of an entry while {@code computeIfAbsent} runs its mapping function outside the segment lock. The entry is invisible to the other operations
+     * of the map, and other threads computing the same key wait for the load to complete.
+     */
+    private static final class Loading {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private final Thread owner = Thread.currentThread();
+
+        /**
+         * Waits uninterruptibly until the load completes, preserving the interrupt status of the calling thread.
+         *
+         * @throws IllegalStateException if the calling thread is the one running the mapping function.
+         */
+        void await() {
+            if (owner == Thread.currentThread()) {
+                throw new IllegalStateException("Recursive update");
+            }
+            boolean interrupted = false;
+            for (;;) {
+                try {
+                    done.await();
+                    break;
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void complete() {
+            done.countDown();
+        }
+    }
+
     /**
      * Enumerates eehavior-changing configuration options for the map.
      */
@@ -734,12 +797,18 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 
         private final boolean identityComparisons;
 
+        /**
+         * The statistics recorder shared by all segments, null if statistics are disabled.
+         */
+        private final transient CacheStatsRecorder statsRecorder;
+
         Segment(final int initialCapacity, final float loadFactor, final ReferenceType keyType, final ReferenceType valueType,
-                final boolean identityComparisons) {
+                final boolean identityComparisons, final CacheStatsRecorder statsRecorder) {
             this.loadFactor = loadFactor;
             this.keyType = keyType;
             this.valueType = valueType;
             this.identityComparisons = identityComparisons;
+            this.statsRecorder = statsRecorder;
             setTable(HashEntry.<K, V>newArray(initialCapacity));
         }
 
@@ -758,7 +827,7 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
                     return null;
                 }
                 // add or replace old mapping
-                putInternal(key, hash, newValue, null, false);
+                putInternal(key, hash, newValue, false);
                 return newValue;
             } finally {
                 unlock();
@@ -779,7 +848,7 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
                     removeInternal(key, hash, oldValue, false);
                     return null;
                 }
-                putInternal(key, hash, newValue, null, false);
+                putInternal(key, hash, newValue, false);
                 return newValue;
             } finally {
                 unlock();
@@ -803,13 +872,100 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
             }
         }
 
+        /**
+         * Publishes the result of a load, or removes the entry of a load which produced no value. Called with the lock held.
+         *
+         * @return the value now mapped to the key.
+         */
+        private V completeLoad(final K key, final int hash, final Loading loading, final V value) {
+            final HashEntry<K, V>[] tab = table;
+            final int index = hash & tab.length - 1;
+            HashEntry<K, V> e = tab[index];
+            while (e != null && (e.hash != hash || !keyEq(key, e.key()))) {
+                e = e.next;
+            }
+            if (e == null || e.valueRef != loading) {
+                // the entry has been replaced by a put, or removed by clear, while loading
+                if (value == null) {
+                    return e != null ? e.value() : null;
+                }
+                final V current = putInternal(key, hash, value, true);
+                return current != null ? current : value;
+            }
+            ++modCount;
+            if (value != null) {
+                e.setValue(value, valueType, refQueue);
+                // write-volatile
+                count = count + 1;
+                return value;
+            }
+            final int dropped = unlink(tab, index, e);
+            if (dropped > 0 && statsRecorder != null) {
+                statsRecorder.recordEvictions(EvictionCause.COLLECTED, dropped);
+            }
+            // write-volatile
+            count = count - dropped;
+            return null;
+        }
+
+        /**
+         * Returns the value of the key, computing it with the given function if it is absent. The function runs without the segment lock: this thread
+         * claims the key with a {@link Loading} entry, and other threads computing the same key wait for that entry rather than for the lock.
+         */
+        V computeIfAbsent(final K key, final int hash, final Function<? super K, ? extends V> function) {
+            for (;;) {
+                final V v = get(key, hash);
+                if (v != null) {
+                    return v;
+                }
+                Loading claimed = null;
+                Loading pending = null;
+                lock();
+                try {
+                    removeStale();
+                    final HashEntry<K, V>[] tab = table;
+                    final int index = hash & tab.length - 1;
+                    final HashEntry<K, V> first = tab[index];
+                    HashEntry<K, V> e = first;
+                    while (e != null && (e.hash != hash || !keyEq(key, e.key()))) {
+                        e = e.next;
+                    }
+                    if (e == null) {
+                        claimed = new Loading();
+                        ++modCount;
+                        // a loading entry is not counted, and invisible to readers
+                        tab[index] = newLoadingEntry(key, hash, first, claimed);
+                    } else if (e.isLoading()) {
+                        pending = (Loading) e.valueRef;
+                    } else {
+                        final V current = e.value();
+                        if (current != null) {
+                            return current;
+                        }
+                        // the value has been reclaimed, load a new one into the entry
+                        claimed = new Loading();
+                        ++modCount;
+                        e.valueRef = claimed;
+                        // write-volatile
+                        count = count - 1;
+                    }
+                } finally {
+                    unlock();
+                }
+                if (claimed != null) {
+                    return load(key, hash, function, claimed);
+                }
+                pending.await();
+            }
+        }
+
         boolean containsKey(final Object key, final int hash) {
             // read-volatile
             if (count != 0) {
                 HashEntry<K, V> e = getFirst(hash);
                 while (e != null) {
                     if (e.hash == hash && keyEq(key, e.key())) {
-                        return true;
+                        return !e.isLoading();
                     }
                     e = e.next;
                 }
@@ -869,31 +1025,69 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
             return tab[hash & tab.length - 1];
         }
 
-        V getValue(final K key, final V value, final Function<? super K, ? extends V> function) {
-            return value != null ? value : function.apply(key);
-        }
-
         private boolean keyEq(final Object src, final Object dest) {
             return identityComparisons ? src == dest : Objects.equals(src, dest);
         }
 
+        /**
+         * Runs the mapping function of a claimed key without the lock, then publishes its result and releases the threads waiting for it.
+         */
+        private V load(final K key, final int hash, final Function<? super K, ? extends V> function, final Loading loading) {
+            final long start = statsRecorder != null ? System.nanoTime() : 0L;
+            V value = null;
+            try {
+                value = function.apply(key);
+                if (statsRecorder != null) {
+                    statsRecorder.recordLoadSuccess(System.nanoTime() - start);
+                }
+            } catch (final RuntimeException | Error e) {
+                if (statsRecorder != null) {
+                    statsRecorder.recordLoadFailure(System.nanoTime() - start);
+                }
+                throw e;
+            } finally {
+                lock();
+                try {
+                    value = completeLoad(key, hash, loading, value);
+                } finally {
+                    unlock();
+                    loading.complete();
+                }
+            }
+            return value;
+        }
+
+        /**
+         * Copies an entry into a new chain, keeping the value of an entry being loaded.
+         */
+        private HashEntry<K, V> copyHashEntry(final K key, final HashEntry<K, V> p, final HashEntry<K, V> next) {
+            final Object opaque = p.valueRef;
+            if (opaque instanceof Loading) {
+                return newLoadingEntry(key, p.hash, next, (Loading) opaque);
+            }
+            return newHashEntry(key, p.hash, next, p.value());
+        }
+
         HashEntry<K, V> newHashEntry(final K key, final int hash, final HashEntry<K, V> next, final V value) {
             return new HashEntry<>(key, hash, next, value, keyType, valueType, refQueue);
         }
 
-        /**
-         * This method must be called with exactly one of {@code value} and {@code function} non-null.
-         **/
-        V put(final K key, final int hash, final V value, final Function<? super K, ? extends V> function, final boolean onlyIfAbsent) {
+        private HashEntry<K, V> newLoadingEntry(final K key, final int hash, final HashEntry<K, V> next, final Loading loading) {
+            final HashEntry<K, V> e = new HashEntry<>(key, hash, next, null, keyType, ReferenceType.STRONG, refQueue);
+            e.valueRef = loading;
+            return e;
+        }
+
+        V put(final K key, final int hash, final V value, final boolean onlyIfAbsent) {
             lock();
             try {
-                return putInternal(key, hash, value, function, onlyIfAbsent);
+                return putInternal(key, hash, value, onlyIfAbsent);
             } finally {
                 unlock();
             }
         }
 
-        private V putInternal(final K key, final int hash, final V value, final Function<? super K, ? extends V> function, final boolean onlyIfAbsent) {
+        private V putInternal(final K key, final int hash, final V value, final boolean onlyIfAbsent) {
             removeStale();
             int c = count;
             // ensure capacity
@@ -901,6 +1095,9 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
                 final int reduced = rehash();
                 // adjust from possible weak cleanups
                 if (reduced > 0) {
+                    if (statsRecorder != null) {
+                        statsRecorder.recordEvictions(EvictionCause.COLLECTED, reduced);
+                    }
                     // write-volatile
                     count = (c -= reduced) - 1;
                 }
@@ -913,21 +1110,24 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
                 e = e.next;
             }
             final V resultValue;
-            if (e != null) {
+            if (e != null && e.isLoading()) {
+                // the key is absent while it is loaded, the loader will return this value
+                resultValue = null;
+                ++modCount;
+                e.setValue(value, valueType, refQueue);
+                // write-volatile
+                count = c;
+            } else if (e != null) {
                 resultValue = e.value();
                 if (!onlyIfAbsent) {
-                    e.setValue(getValue(key, value, function), valueType, refQueue);
+                    e.setValue(value, valueType, refQueue);
                 }
             } else {
-                final V v = getValue(key, value, function);
-                resultValue = function != null ? v : null;
-
-                if (v != null) {
-                    ++modCount;
-                    tab[index] = newHashEntry(key, hash, first, v);
-                    // write-volatile
-                    count = c;
-                }
+                resultValue = null;
+                ++modCount;
+                tab[index] = newHashEntry(key, hash, first, value);
+                // write-volatile
+                count = c;
             }
             return resultValue;
         }
@@ -995,7 +1195,7 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
                             }
                             final int k = p.hash & sizeMask;
                             final HashEntry<K, V> n = newTable[k];
-                            newTable[k] = newHashEntry(key, p.hash, n, p.value());
+                            newTable[k] = copyHashEntry(key, p, n);
                         }
                     }
                 }
@@ -1031,25 +1231,17 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
             }
 
             V oldValue = null;
-            if (e != null) {
+            // an entry being loaded is absent
+            if (e != null && !e.isLoading()) {
                 final V v = e.value();
                 if (value == null || value.equals(v)) {
                     oldValue = v;
-                    // All entries following removed node can stay
-                    // in list, but all preceding ones need to be
-                    // cloned.
                     ++modCount;
-                    HashEntry<K, V> newFirst = e.next;
-                    for (HashEntry<K, V> p = first; p != e; p = p.next) {
-                        final K pKey = p.key();
-                        // Skip GC'd keys
-                        if (pKey == null) {
-                            c--;
-                            continue;
-                        }
-                        newFirst = newHashEntry(pKey, p.hash, newFirst, p.value());
+                    c -= unlink(tab, index, e);
+                    if (statsRecorder != null) {
+                        // the removed entry itself if it was stale, and the skipped GC'd entries
+                        statsRecorder.recordEvictions(EvictionCause.COLLECTED, refRemove ? count - c : count - c - 1);
                     }
-                    tab[index] = newFirst;
                     // write-volatile
                     count = c;
                 }
@@ -1089,7 +1281,7 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
                 e = e.next;
             }
             V oldValue = null;
-            if (e != null) {
+            if (e != null && !e.isLoading()) {
                 oldValue = e.value();
                 e.setValue(newValue, valueType, refQueue);
             }
@@ -1118,6 +1310,28 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
             table = newTable;
             refQueue = new ReferenceQueue<>();
         }
+
+        /**
+         * Unlinks an entry. All entries following it can stay in the list, but all preceding ones need to be cloned, and the ones whose key has been
+         * reclaimed are dropped.
+         *
+         * @return the number of entries dropped.
+         */
+        private int unlink(final HashEntry<K, V>[] tab, final int index, final HashEntry<K, V> e) {
+            int dropped = 0;
+            HashEntry<K, V> newFirst = e.next;
+            for (HashEntry<K, V> p = tab[index]; p != e; p = p.next) {
+                final K pKey = p.key();
+                // Skip GC'd keys
+                if (pKey == null) {
+                    dropped++;
+                    continue;
+                }
+                newFirst = copyHashEntry(pKey, p, newFirst);
+            }
+            tab[index] = newFirst;
+            return dropped;
+        }
     }
 
     private static class SimpleEntry<K, V> implements Entry<K, V> {
@@ -1418,6 +1632,11 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
 
     private final boolean identityComparisons;
 
+    /**
+     * The statistics recorder, null if statistics are disabled.
+     */
+    private final CacheStatsRecorder statsRecorder;
+
     private transient Set<K> keySet;
 
     private transient Set<Entry<K, V>> entrySet;
@@ -1438,10 +1657,11 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
      * @param keyType          the reference type to use for keys.
      * @param valueType        the reference type to use for values.
      * @param options          the behavioral options.
+     * @param statsRecorder    the statistics recorder, null to disable statistics.
      * @throws IllegalArgumentException if the initial capacity is negative or the load factor or concurrencyLevel are nonpositive.
      */
     private ConcurrentReferenceHashMap(int initialCapacity, final float loadFactor, int concurrencyLevel, final ReferenceType keyType,
-            final ReferenceType valueType, final EnumSet<Option> options) {
+            final ReferenceType valueType, final EnumSet<Option> options, final CacheStatsRecorder statsRecorder) {
         if (!(loadFactor > 0) || initialCapacity < 0 || concurrencyLevel <= 0) {
             throw new IllegalArgumentException();
         }
@@ -1470,8 +1690,9 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
             cap <<= 1;
         }
         identityComparisons = options != null && options.contains(Option.IDENTITY_COMPARISONS);
+        this.statsRecorder = statsRecorder;
         for (int i = 0; i < this.segments.length; ++i) {
-            this.segments[i] = new Segment<>(cap, loadFactor, keyType, valueType, identityComparisons);
+            this.segments[i] = new Segment<>(cap, loadFactor, keyType, valueType, identityComparisons, statsRecorder);
         }
     }
 
@@ -1496,22 +1717,19 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
     }
 
     /**
-     * The default implementation is equivalent to the following steps for this {@code map}, then returning the current value or {@code null} if now absent:
-     *
-     * <pre>{@code
-     * if (map.get(key) == null) {
-     *     V newValue = mappingFunction.apply(key);
-     *     if (newValue != null)
-     *         return map.putIfAbsent(key, newValue);
-     * }
-     * }</pre>
+     * {@inheritDoc}
      * <p>
-     * The default implementation may retry these steps when multiple threads attempt updates including potentially calling the mapping function multiple times.
+     * The mapping function runs without holding the segment lock, so a slow function only delays the threads computing the same key: they wait for its
+     * result instead of calling the function again, while other keys of the segment remain available. The function is called at most once per absent key
+     * at a time, and must not compute a mapping of this map for the same key. If the function returns {@code null} or throws an exception, no mapping is
+     * recorded, and a waiting thread computes the value itself. If the key is mapped by another operation while the function runs, that mapping is kept and
+     * returned.
      * </p>
      * <p>
-     * This implementation assumes that the ConcurrentMap cannot contain null values and {@code get()} returning null unambiguously means the key is absent.
-     * Implementations which support null values <strong>must</strong> override this default implementation.
+     * If a statistics recorder is set, the time spent in the function is recorded as a load.
      * </p>
+     *
+     * @throws IllegalStateException if the function computes a mapping of this map for the same key.
      */
     @Override
     public V computeIfAbsent(final K key, final Function<? super K, ? extends V> mappingFunction) {
@@ -1519,9 +1737,7 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
         Objects.requireNonNull(mappingFunction);
 
         final int hash = hashOf(key);
-        final Segment<K, V> segment = segmentFor(hash);
-        final V v = segment.get(key, hash);
-        return v == null ? segment.put(key, hash, null, mappingFunction, true) : v;
+        return segmentFor(hash).computeIfAbsent(key, hash, mappingFunction);
     }
 
     @Override
@@ -1639,7 +1855,21 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
     @Override
     public V get(final Object key) {
         final int hash = hashOf(key);
-        return segmentFor(hash).get(key, hash);
+        final V value = segmentFor(hash).get(key, hash);
+        if (statsRecorder != null) {
+            statsRecorder.recordLookup(value);
+        }
+        return value;
+    }
+
+    /**
+     * Gets the recorder of the statistics of this map.
+     *
+     * @return the statistics recorder, null if statistics are disabled.
+     * @since 4.6.0
+     */
+    public CacheStatsRecorder getStatsRecorder() {
+        return statsRecorder;
     }
 
     private int hashOf(final Object key) {
@@ -1725,7 +1955,7 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
         Objects.requireNonNull(key, "key");
         Objects.requireNonNull(value, "value");
         final int hash = hashOf(key);
-        return segmentFor(hash).put(key, hash, value, null, false);
+        return segmentFor(hash).put(key, hash, value, false);
     }
 
     /**
@@ -1751,7 +1981,7 @@ public class ConcurrentReferenceHashMap<K, V> extends AbstractMap<K, V> implemen
     public V putIfAbsent(final K key, final V value) {
         Objects.requireNonNull(value, "value");
         final int hash = hashOf(key);
-        return segmentFor(hash).put(key, hash, value, null, true);
+        return segmentFor(hash).put(key, hash, value, true);
     }
 
     /**
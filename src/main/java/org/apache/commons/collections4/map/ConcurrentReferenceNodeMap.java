@@ -0,0 +1,1480 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+/*
+ * The table, resize and traversal algorithms follow java.util.concurrent.ConcurrentHashMap,
+ * written by Doug Lea with assistance from members of JCP JSR-166 Expert Group and released
+ * to the public domain, as explained at http://creativecommons.org/publicdomain/zero/1.0/
+ */
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.apache.commons.collections4.map.CacheStats.EvictionCause;
+import org.apache.commons.collections4.map.ConcurrentReferenceHashMap.Option;
+import org.apache.commons.collections4.map.ConcurrentReferenceHashMap.ReferenceType;
+
+/**
+ * A concurrent hash map supporting strong, weak and soft keys and values, built as a single table of nodes in the manner of
+ * {@link java.util.concurrent.ConcurrentHashMap} rather than from the lock-striped segments of {@link ConcurrentReferenceHashMap}.
+ * <p>
+ * Retrieval operations never lock: they read the bin from the table and follow its chain of nodes. An insertion into an empty bin is a compare-and-set of
+ * the bin, and every other update locks the first node of its bin only, so updates of different bins never contend. The number of mappings is kept in a
+ * {@link LongAdder}, so counting does not contend either.
+ * </p>
+ * <p>
+ * The table is resized incrementally and cooperatively. The thread that crosses the resize threshold allocates the next table and starts moving bins into it,
+ * and any thread that meanwhile updates a moved bin, or crosses the threshold again, claims a stride of the remaining bins and helps to move them rather than
+ * waiting. A moved bin is replaced by a forwarding node which leads to the next table, so readers are never blocked by a resize.
+ * </p>
+ * <p>
+ * Reference handling follows {@link ConcurrentReferenceHashMap}: keys are weak and values strong by default, a mapping whose key or value has been reclaimed
+ * is no longer visible, and it is removed from the table by a later update operation or by {@link #purgeStaleEntries()}. Until then {@code size} and
+ * {@code isEmpty} may count it. Keys are compared with {@code equals}, or by identity when {@link Option#IDENTITY_COMPARISONS} is set.
+ * </p>
+ * <p>
+ * Iterators are weakly consistent: they never throw {@link ConcurrentModificationException}, and they reflect the state of the map at some point at or since
+ * their creation. Like {@link java.util.Hashtable}, this map does <em>not</em> allow {@code null} keys or values.
+ * </p>
+ *
+ * @param <K> the type of keys maintained by this map.
+ * @param <V> the type of mapped values.
+ * @since 4.6.0
+ */
+public class ConcurrentReferenceNodeMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+    /**
+     * Builds new ConcurrentReferenceNodeMap instances.
+     * <p>
+     * The default values are:
+     * </p>
+     * <ul>
+     * <li>concurrency level: {@value #DEFAULT_CONCURRENCY_LEVEL}</li>
+     * <li>initial capacity: {@value #DEFAULT_INITIAL_CAPACITY}</li>
+     * <li>key reference type: {@link ReferenceType#WEAK}</li>
+     * <li>load factor: {@value #DEFAULT_LOAD_FACTOR}</li>
+     * <li>options: {@code null}</li>
+     * <li>source map: {@code null}</li>
+     * <li>statistics recorder: {@code null}</li>
+     * <li>value reference type: {@link ReferenceType#STRONG}</li>
+     * </ul>
+     *
+     * @param <K> the type of keys.
+     * @param <V> the type of values.
+     */
+    public static class Builder<K, V> implements Supplier<ConcurrentReferenceNodeMap<K, V>> {
+
+        private int concurrencyLevel = DEFAULT_CONCURRENCY_LEVEL;
+        private int initialCapacity = DEFAULT_INITIAL_CAPACITY;
+        private ReferenceType keyReferenceType = ReferenceType.WEAK;
+        private float loadFactor = DEFAULT_LOAD_FACTOR;
+        private EnumSet<Option> options;
+        private Map<? extends K, ? extends V> sourceMap;
+        private CacheStatsRecorder statsRecorder;
+        private ReferenceType valueReferenceType = ReferenceType.STRONG;
+
+        /**
+         * Constructs a new builder of {@link ConcurrentReferenceNodeMap}.
+         */
+        public Builder() {
+            // empty
+        }
+
+        /**
+         * Builds a new {@link ConcurrentReferenceNodeMap}.
+         *
+         * @return a new map.
+         * @throws IllegalArgumentException if the initial capacity is negative or the load factor or concurrency level are nonpositive.
+         */
+        @Override
+        public ConcurrentReferenceNodeMap<K, V> get() {
+            final ConcurrentReferenceNodeMap<K, V> map = new ConcurrentReferenceNodeMap<>(initialCapacity, loadFactor, concurrencyLevel, keyReferenceType,
+                    valueReferenceType, options, statsRecorder);
+            if (sourceMap != null) {
+                map.putAll(sourceMap);
+            }
+            return map;
+        }
+
+        /**
+         * Sets the estimated number of concurrently updating threads. Unlike for {@link ConcurrentReferenceHashMap}, this is only a hint for the initial
+         * table size, since every bin is locked separately.
+         *
+         * @param concurrencyLevel estimated number of concurrently updating threads.
+         * @return {@code this} instance.
+         */
+        public Builder<K, V> setConcurrencyLevel(final int concurrencyLevel) {
+            this.concurrencyLevel = concurrencyLevel;
+            return this;
+        }
+
+        /**
+         * Sets the initial capacity. The table is sized to hold this many mappings without resizing.
+         *
+         * @param initialCapacity the initial capacity.
+         * @return {@code this} instance.
+         */
+        public Builder<K, V> setInitialCapacity(final int initialCapacity) {
+            this.initialCapacity = initialCapacity;
+            return this;
+        }
+
+        /**
+         * Sets the reference type to use for keys.
+         *
+         * @param keyReferenceType the reference type to use for keys.
+         * @return {@code this} instance.
+         */
+        public Builder<K, V> setKeyReferenceType(final ReferenceType keyReferenceType) {
+            this.keyReferenceType = Objects.requireNonNull(keyReferenceType, "keyReferenceType");
+            return this;
+        }
+
+        /**
+         * Sets the load factor used to size the initial table. As for {@link java.util.concurrent.ConcurrentHashMap}, later resizes keep a load factor of
+         * 0.75.
+         *
+         * @param loadFactor the load factor.
+         * @return {@code this} instance.
+         */
+        public Builder<K, V> setLoadFactor(final float loadFactor) {
+            this.loadFactor = loadFactor;
+            return this;
+        }
+
+        /**
+         * Sets the behavioral options.
+         *
+         * @param options the behavioral options.
+         * @return {@code this} instance.
+         */
+        public Builder<K, V> setOptions(final EnumSet<Option> options) {
+            this.options = options;
+            return this;
+        }
+
+        /**
+         * Sets the map whose mappings are copied into the new map.
+         *
+         * @param sourceMap the source map, null for none.
+         * @return {@code this} instance.
+         */
+        public Builder<K, V> setSourceMap(final Map<? extends K, ? extends V> sourceMap) {
+            this.sourceMap = sourceMap;
+            return this;
+        }
+
+        /**
+         * Sets the recorder of lookup and reclamation statistics.
+         *
+         * @param statsRecorder the statistics recorder, null to disable statistics.
+         * @return {@code this} instance.
+         */
+        public Builder<K, V> setStatsRecorder(final CacheStatsRecorder statsRecorder) {
+            this.statsRecorder = statsRecorder;
+            return this;
+        }
+
+        /**
+         * Sets the reference type to use for values.
+         *
+         * @param valueReferenceType the reference type to use for values.
+         * @return {@code this} instance.
+         */
+        public Builder<K, V> setValueReferenceType(final ReferenceType valueReferenceType) {
+            this.valueReferenceType = Objects.requireNonNull(valueReferenceType, "valueReferenceType");
+            return this;
+        }
+
+        /**
+         * Sets key reference type to {@link ReferenceType#SOFT}.
+         *
+         * @return {@code this} instance.
+         */
+        public Builder<K, V> softKeys() {
+            return setKeyReferenceType(ReferenceType.SOFT);
+        }
+
+        /**
+         * Sets value reference type to {@link ReferenceType#SOFT}.
+         *
+         * @return {@code this} instance.
+         */
+        public Builder<K, V> softValues() {
+            return setValueReferenceType(ReferenceType.SOFT);
+        }
+
+        /**
+         * Sets key reference type to {@link ReferenceType#STRONG}.
+         *
+         * @return {@code this} instance.
+         */
+        public Builder<K, V> strongKeys() {
+            return setKeyReferenceType(ReferenceType.STRONG);
+        }
+
+        /**
+         * Sets value reference type to {@link ReferenceType#STRONG}.
+         *
+         * @return {@code this} instance.
+         */
+        public Builder<K, V> strongValues() {
+            return setValueReferenceType(ReferenceType.STRONG);
+        }
+
+        /**
+         * Sets key reference type to {@link ReferenceType#WEAK}.
+         *
+         * @return {@code this} instance.
+         */
+        public Builder<K, V> weakKeys() {
+            return setKeyReferenceType(ReferenceType.WEAK);
+        }
+
+        /**
+         * Sets value reference type to {@link ReferenceType#WEAK}.
+         *
+         * @return {@code this} instance.
+         */
+        public Builder<K, V> weakValues() {
+            return setValueReferenceType(ReferenceType.WEAK);
+        }
+    }
+
+    private final class EntryIterator extends NodeIterator implements Iterator<Entry<K, V>> {
+
+        @Override
+        public Entry<K, V> next() {
+            nextMapping();
+            return new WriteThroughEntry(lastKey, lastValue);
+        }
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<K, V>> {
+
+        @Override
+        public void clear() {
+            ConcurrentReferenceNodeMap.this.clear();
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            final Entry<?, ?> e = (Entry<?, ?>) o;
+            final Object key = e.getKey();
+            final V v = key == null ? null : ConcurrentReferenceNodeMap.this.get(key);
+            return v != null && v.equals(e.getValue());
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return ConcurrentReferenceNodeMap.this.isEmpty();
+        }
+
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public boolean remove(final Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            final Entry<?, ?> e = (Entry<?, ?>) o;
+            return e.getKey() != null && ConcurrentReferenceNodeMap.this.remove(e.getKey(), e.getValue());
+        }
+
+        @Override
+        public int size() {
+            return ConcurrentReferenceNodeMap.this.size();
+        }
+    }
+
+    /**
+     * Replaces the first node of a bin which has been moved to the next table.
+     */
+    private static final class ForwardingNode<K, V> extends Node<K, V> {
+
+        private final AtomicReferenceArray<Node<K, V>> nextTable;
+
+        ForwardingNode(final AtomicReferenceArray<Node<K, V>> nextTable) {
+            super(MOVED, null, null, null);
+            this.nextTable = nextTable;
+        }
+    }
+
+    private final class KeyIterator extends NodeIterator implements Iterator<K> {
+
+        @Override
+        public K next() {
+            nextMapping();
+            return lastKey;
+        }
+    }
+
+    private final class KeySet extends AbstractSet<K> {
+
+        @Override
+        public void clear() {
+            ConcurrentReferenceNodeMap.this.clear();
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            return ConcurrentReferenceNodeMap.this.containsKey(o);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return ConcurrentReferenceNodeMap.this.isEmpty();
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            return new KeyIterator();
+        }
+
+        @Override
+        public boolean remove(final Object o) {
+            return ConcurrentReferenceNodeMap.this.remove(o) != null;
+        }
+
+        @Override
+        public int size() {
+            return ConcurrentReferenceNodeMap.this.size();
+        }
+    }
+
+    /**
+     * A node of a bin chain. The key reference is fixed, the value reference is replaced under the bin lock, and the chain is unlinked under the bin lock,
+     * so readers always see a consistent chain.
+     */
+    private static class Node<K, V> {
+
+        private final int hash;
+        private final Object keyRef;
+        private volatile Object valueRef;
+        private volatile Node<K, V> next;
+
+        Node(final int hash, final Object keyRef, final Object valueRef, final Node<K, V> next) {
+            this.hash = hash;
+            this.keyRef = keyRef;
+            this.valueRef = valueRef;
+            this.next = next;
+        }
+
+        K key() {
+            return dereference(keyRef);
+        }
+
+        V value() {
+            return dereference(valueRef);
+        }
+    }
+
+    /**
+     * Iterates over the live mappings, holding strong references to the next key and value so that a mapping reported by {@code hasNext} is the one
+     * returned by {@code next}.
+     */
+    private abstract class NodeIterator extends Traverser<K, V> {
+
+        private K nextKey;
+        private V nextValue;
+        K lastKey;
+        V lastValue;
+
+        NodeIterator() {
+            super(table);
+            findNext();
+        }
+
+        private void findNext() {
+            Node<K, V> e;
+            while ((e = advance()) != null) {
+                final K k = e.key();
+                final V v = e.value();
+                if (k != null && v != null) {
+                    nextKey = k;
+                    nextValue = v;
+                    return;
+                }
+            }
+            nextKey = null;
+            nextValue = null;
+        }
+
+        public final boolean hasNext() {
+            return nextKey != null;
+        }
+
+        final void nextMapping() {
+            if (nextKey == null) {
+                throw new NoSuchElementException();
+            }
+            lastKey = nextKey;
+            lastValue = nextValue;
+            findNext();
+        }
+
+        public final void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentReferenceNodeMap.this.remove(lastKey);
+            lastKey = null;
+            lastValue = null;
+        }
+    }
+
+    /**
+     * A reference to a key or a value which stores the hash of its node, to find the node again once the reference is enqueued.
+     */
+    private interface NodeReference {
+
+        int hash();
+    }
+
+    private static final class SoftNodeReference<T> extends SoftReference<T> implements NodeReference {
+
+        private final int hash;
+
+        SoftNodeReference(final T referent, final int hash, final ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = hash;
+        }
+
+        @Override
+        public int hash() {
+            return hash;
+        }
+    }
+
+    /**
+     * Saves the table of a forwarding node's bin while the traversal visits the bins of the next table.
+     */
+    private static final class TableStack<K, V> {
+
+        private int index;
+        private int length;
+        private TableStack<K, V> next;
+        private AtomicReferenceArray<Node<K, V>> tab;
+    }
+
+    /**
+     * Visits every bin of the table once, even while it is being resized: the two bins of the next table which receive a forwarded bin are visited in its
+     * place.
+     */
+    private static class Traverser<K, V> {
+
+        private AtomicReferenceArray<Node<K, V>> tab;
+        private Node<K, V> next;
+        private TableStack<K, V> stack;
+        private TableStack<K, V> spare;
+        private int index;
+        private int baseIndex;
+        private final int baseLimit;
+        private final int baseSize;
+
+        Traverser(final AtomicReferenceArray<Node<K, V>> tab) {
+            this.tab = tab;
+            this.baseSize = tab == null ? 0 : tab.length();
+            this.baseLimit = baseSize;
+        }
+
+        /**
+         * Advances to the next node.
+         *
+         * @return the next node, or null if the traversal is complete.
+         */
+        final Node<K, V> advance() {
+            Node<K, V> e = next;
+            if (e != null) {
+                e = e.next;
+            }
+            for (;;) {
+                if (e != null) {
+                    return next = e;
+                }
+                final AtomicReferenceArray<Node<K, V>> t = tab;
+                final int i = index;
+                final int n;
+                if (baseIndex >= baseLimit || t == null || (n = t.length()) <= i || i < 0) {
+                    return next = null;
+                }
+                e = t.get(i);
+                if (e instanceof ForwardingNode) {
+                    tab = ((ForwardingNode<K, V>) e).nextTable;
+                    e = null;
+                    pushState(t, i, n);
+                    continue;
+                }
+                if (stack != null) {
+                    recoverState(n);
+                } else if ((index = i + baseSize) >= n) {
+                    // visit the upper bin of the next table before the next base bin
+                    index = ++baseIndex;
+                }
+            }
+        }
+
+        private void pushState(final AtomicReferenceArray<Node<K, V>> t, final int i, final int n) {
+            TableStack<K, V> s = spare;
+            if (s != null) {
+                spare = s.next;
+            } else {
+                s = new TableStack<>();
+            }
+            s.tab = t;
+            s.length = n;
+            s.index = i;
+            s.next = stack;
+            stack = s;
+        }
+
+        private void recoverState(int n) {
+            TableStack<K, V> s;
+            int len;
+            while ((s = stack) != null && (index += len = s.length) >= n) {
+                n = len;
+                index = s.index;
+                tab = s.tab;
+                s.tab = null;
+                final TableStack<K, V> following = s.next;
+                s.next = spare;
+                stack = following;
+                spare = s;
+            }
+            if (s == null && (index += baseSize) >= n) {
+                index = ++baseIndex;
+            }
+        }
+    }
+
+    private final class ValueIterator extends NodeIterator implements Iterator<V> {
+
+        @Override
+        public V next() {
+            nextMapping();
+            return lastValue;
+        }
+    }
+
+    private final class Values extends AbstractCollection<V> {
+
+        @Override
+        public void clear() {
+            ConcurrentReferenceNodeMap.this.clear();
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            return o != null && ConcurrentReferenceNodeMap.this.containsValue(o);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return ConcurrentReferenceNodeMap.this.isEmpty();
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return new ValueIterator();
+        }
+
+        @Override
+        public int size() {
+            return ConcurrentReferenceNodeMap.this.size();
+        }
+    }
+
+    private static final class WeakNodeReference<T> extends WeakReference<T> implements NodeReference {
+
+        private final int hash;
+
+        WeakNodeReference(final T referent, final int hash, final ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = hash;
+        }
+
+        @Override
+        public int hash() {
+            return hash;
+        }
+    }
+
+    /**
+     * An entry returned by the entry set iterator, which writes value changes through to the map.
+     */
+    private final class WriteThroughEntry extends SimpleEntry<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        WriteThroughEntry(final K key, final V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(final V value) {
+            Objects.requireNonNull(value, "value");
+            final V v = super.setValue(value);
+            ConcurrentReferenceNodeMap.this.put(getKey(), value);
+            return v;
+        }
+    }
+
+    /**
+     * The default concurrency level, only used as a hint for the initial table size.
+     */
+    static final int DEFAULT_CONCURRENCY_LEVEL = 1;
+
+    /**
+     * The default initial capacity, used when not otherwise specified.
+     */
+    static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    /**
+     * The default load factor, used when not otherwise specified.
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    /**
+     * Usable bits of the hash of a node; the negative hashes mark special nodes.
+     */
+    private static final int HASH_BITS = 0x7fffffff;
+
+    /**
+     * The maximum table capacity, a power of two.
+     */
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /**
+     * The minimum number of bins a resizing thread claims at once, so that helpers do not contend on the transfer index.
+     */
+    private static final int MIN_TRANSFER_STRIDE = 16;
+
+    /**
+     * The hash of forwarding nodes.
+     */
+    private static final int MOVED = -1;
+
+    /**
+     * The number of processors, to size the transfer strides.
+     */
+    private static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The number of bits of {@code sizeCtl} used for the resize stamp.
+     */
+    private static final int RESIZE_STAMP_BITS = 16;
+
+    /**
+     * The shift of the resize stamp in {@code sizeCtl}.
+     */
+    private static final int RESIZE_STAMP_SHIFT = 32 - RESIZE_STAMP_BITS;
+
+    /**
+     * The maximum number of threads which can help to resize the table.
+     */
+    private static final int MAX_RESIZERS = (1 << 32 - RESIZE_STAMP_BITS) - 1;
+
+    /**
+     * Creates a new builder.
+     *
+     * @param <K> the type of keys.
+     * @param <V> the type of values.
+     * @return a new builder.
+     */
+    public static <K, V> Builder<K, V> builder() {
+        return new Builder<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T dereference(final Object ref) {
+        if (ref instanceof NodeReference) {
+            return ((Reference<T>) ref).get();
+        }
+        return (T) ref;
+    }
+
+    /**
+     * Applies a supplemental hash function to a given hashCode, which defends against poor quality hash functions, and clears the sign bit used to mark
+     * special nodes.
+     */
+    private static int hash(int h) {
+        // variant of single-word Wang/Jenkins hash, as in ConcurrentReferenceHashMap
+        h += h << 15 ^ 0xffffcd7d;
+        h ^= h >>> 10;
+        h += h << 3;
+        h ^= h >>> 6;
+        h += (h << 2) + (h << 14);
+        return (h ^ h >>> 16) & HASH_BITS;
+    }
+
+    /**
+     * Returns the stamp of a resize of a table of the given length. Shifted left by {@link #RESIZE_STAMP_SHIFT}, it is negative.
+     */
+    private static int resizeStamp(final int n) {
+        return Integer.numberOfLeadingZeros(n) | 1 << RESIZE_STAMP_BITS - 1;
+    }
+
+    /**
+     * Returns the smallest power of two greater than or equal to the given capacity.
+     */
+    private static int tableSizeFor(final int c) {
+        final int n = -1 >>> Integer.numberOfLeadingZeros(c - 1);
+        return n < 0 ? 1 : n >= MAXIMUM_CAPACITY ? MAXIMUM_CAPACITY : n + 1;
+    }
+
+    /**
+     * The number of mappings, including stale ones not yet purged.
+     */
+    private final LongAdder count = new LongAdder();
+
+    private transient Set<Entry<K, V>> entrySet;
+
+    private final boolean identityComparisons;
+
+    private transient Set<K> keySet;
+
+    private final ReferenceType keyType;
+
+    /**
+     * The next table, only non-null while the table is being resized.
+     */
+    private volatile AtomicReferenceArray<Node<K, V>> nextTable;
+
+    /**
+     * The queue of reclaimed keys and values, null if both are strong.
+     */
+    private final ReferenceQueue<Object> queue;
+
+    /**
+     * Table initialization and resizing control. Before the table is created, the initial capacity. While the table is created, -1. While the table is
+     * resized, the shifted resize stamp plus one plus the number of resizing threads. Otherwise, the size at which to resize the table next.
+     */
+    private final AtomicInteger sizeCtl;
+
+    /**
+     * The statistics recorder, null if statistics are disabled.
+     */
+    private final CacheStatsRecorder statsRecorder;
+
+    /**
+     * The table, created by the first insertion. Its length is always a power of two.
+     */
+    private volatile AtomicReferenceArray<Node<K, V>> table;
+
+    /**
+     * One past the highest bin of the table still to be claimed by a resizing thread; bins are claimed downwards.
+     */
+    private final AtomicInteger transferIndex = new AtomicInteger();
+
+    private transient Collection<V> values;
+
+    private final ReferenceType valueType;
+
+    private ConcurrentReferenceNodeMap(int initialCapacity, final float loadFactor, final int concurrencyLevel, final ReferenceType keyType,
+            final ReferenceType valueType, final EnumSet<Option> options, final CacheStatsRecorder statsRecorder) {
+        if (!(loadFactor > 0) || initialCapacity < 0 || concurrencyLevel <= 0) {
+            throw new IllegalArgumentException();
+        }
+        if (initialCapacity < concurrencyLevel) {
+            initialCapacity = concurrencyLevel;
+        }
+        final long size = (long) (1.0 + initialCapacity / loadFactor);
+        this.sizeCtl = new AtomicInteger(size >= MAXIMUM_CAPACITY ? MAXIMUM_CAPACITY : tableSizeFor((int) size));
+        this.keyType = keyType;
+        this.valueType = valueType;
+        this.identityComparisons = options != null && options.contains(Option.IDENTITY_COMPARISONS);
+        this.queue = keyType == ReferenceType.STRONG && valueType == ReferenceType.STRONG ? null : new ReferenceQueue<>();
+        this.statsRecorder = statsRecorder;
+    }
+
+    /**
+     * Adds to the count and, if the count has reached the resize threshold, starts or helps the resize of the table.
+     *
+     * @param x     the count to add.
+     * @param check if negative, do not check for resizing.
+     */
+    private void addCount(final long x, final int check) {
+        count.add(x);
+        if (check < 0) {
+            return;
+        }
+        long s = count.sum();
+        AtomicReferenceArray<Node<K, V>> tab;
+        int n;
+        int sc;
+        while (s >= (sc = sizeCtl.get()) && (tab = table) != null && (n = tab.length()) < MAXIMUM_CAPACITY) {
+            final int rs = resizeStamp(n) << RESIZE_STAMP_SHIFT;
+            if (sc < 0) {
+                final AtomicReferenceArray<Node<K, V>> nt = nextTable;
+                if (sc == rs + MAX_RESIZERS || sc == rs + 1 || nt == null || transferIndex.get() <= 0) {
+                    break;
+                }
+                if (sizeCtl.compareAndSet(sc, sc + 1)) {
+                    transfer(tab, nt);
+                }
+            } else if (sizeCtl.compareAndSet(sc, rs + 2)) {
+                transfer(tab, null);
+            }
+            s = count.sum();
+        }
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     */
+    @Override
+    public void clear() {
+        purgeStaleEntries();
+        long delta = 0L;
+        int i = 0;
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        while (tab != null && i < tab.length()) {
+            final Node<K, V> f = tab.get(i);
+            if (f == null) {
+                ++i;
+            } else if (f.hash == MOVED) {
+                tab = helpTransfer(tab, f);
+                i = 0;
+            } else {
+                synchronized (f) {
+                    if (tab.get(i) == f) {
+                        for (Node<K, V> p = f; p != null; p = p.next) {
+                            --delta;
+                        }
+                        tab.set(i++, null);
+                    }
+                }
+            }
+        }
+        if (delta != 0L) {
+            addCount(delta, -1);
+        }
+    }
+
+    /**
+     * Tests whether the specified object is a key in this map.
+     *
+     * @param key possible key.
+     * @return {@code true} if the key is mapped in this map.
+     * @throws NullPointerException if the specified key is null.
+     */
+    @Override
+    public boolean containsKey(final Object key) {
+        final Node<K, V> e = findNode(key, hashOf(key));
+        return e != null && e.value() != null;
+    }
+
+    /**
+     * Tests whether this map maps one or more keys to the specified value. Note: This method requires a full traversal of the map.
+     *
+     * @param value value whose presence in this map is to be tested.
+     * @return {@code true} if this map maps one or more keys to the specified value.
+     * @throws NullPointerException if the specified value is null.
+     */
+    @Override
+    public boolean containsValue(final Object value) {
+        Objects.requireNonNull(value, "value");
+        final Traverser<K, V> it = new Traverser<>(table);
+        Node<K, V> e;
+        while ((e = it.advance()) != null) {
+            final V v = e.value();
+            if (v != null && (v == value || value.equals(v)) && e.key() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a {@link Set} view of the mappings contained in this map. Its iterator is weakly consistent, and its entries write value changes through to
+     * the map.
+     *
+     * @return a set view of the mappings contained in this map.
+     */
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        final Set<Entry<K, V>> es = entrySet;
+        return es != null ? es : (entrySet = new EntrySet());
+    }
+
+    private Node<K, V> findNode(final Object key, final int h) {
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        while (tab != null) {
+            Node<K, V> e = tab.get(tab.length() - 1 & h);
+            if (e instanceof ForwardingNode) {
+                tab = ((ForwardingNode<K, V>) e).nextTable;
+                continue;
+            }
+            for (; e != null; e = e.next) {
+                if (e.hash == h && matches(key, e)) {
+                    return e;
+                }
+            }
+            return null;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the value to which the specified key is mapped, or {@code null} if this map contains no mapping for the key. This method never locks.
+     *
+     * @throws NullPointerException if the specified key is null.
+     */
+    @Override
+    public V get(final Object key) {
+        final Node<K, V> e = findNode(key, hashOf(key));
+        final V value = e == null ? null : e.value();
+        if (statsRecorder != null) {
+            statsRecorder.recordLookup(value);
+        }
+        return value;
+    }
+
+    /**
+     * Gets the recorder of the statistics of this map.
+     *
+     * @return the statistics recorder, null if statistics are disabled.
+     */
+    public CacheStatsRecorder getStatsRecorder() {
+        return statsRecorder;
+    }
+
+    private int hashOf(final Object key) {
+        return hash(identityComparisons ? System.identityHashCode(key) : key.hashCode());
+    }
+
+    /**
+     * Helps to resize the table if a resize is still in progress.
+     *
+     * @param tab the table in which the forwarding node was found.
+     * @param f   the forwarding node.
+     * @return the table to retry the operation in.
+     */
+    private AtomicReferenceArray<Node<K, V>> helpTransfer(final AtomicReferenceArray<Node<K, V>> tab, final Node<K, V> f) {
+        final AtomicReferenceArray<Node<K, V>> nextTab = ((ForwardingNode<K, V>) f).nextTable;
+        final int rs = resizeStamp(tab.length()) << RESIZE_STAMP_SHIFT;
+        int sc;
+        while (nextTab == nextTable && table == tab && (sc = sizeCtl.get()) < 0) {
+            if (sc == rs + MAX_RESIZERS || sc == rs + 1 || transferIndex.get() <= 0) {
+                break;
+            }
+            if (sizeCtl.compareAndSet(sc, sc + 1)) {
+                transfer(tab, nextTab);
+                break;
+            }
+        }
+        return nextTab;
+    }
+
+    private AtomicReferenceArray<Node<K, V>> initTable() {
+        AtomicReferenceArray<Node<K, V>> tab;
+        while ((tab = table) == null) {
+            final int sc = sizeCtl.get();
+            if (sc < 0) {
+                // another thread is creating the table
+                Thread.yield();
+            } else if (sizeCtl.compareAndSet(sc, -1)) {
+                int next = sc;
+                try {
+                    if ((tab = table) == null) {
+                        final int n = sc > 0 ? sc : DEFAULT_INITIAL_CAPACITY;
+                        table = tab = new AtomicReferenceArray<>(n);
+                        next = n - (n >>> 2);
+                    }
+                } finally {
+                    sizeCtl.set(next);
+                }
+                break;
+            }
+        }
+        return tab;
+    }
+
+    /**
+     * Tests whether this map contains no key-value mappings. Mappings whose key or value has been reclaimed may be counted until they are purged.
+     *
+     * @return {@code true} if this map contains no key-value mappings.
+     */
+    @Override
+    public boolean isEmpty() {
+        return count.sum() <= 0L;
+    }
+
+    private boolean isStale(final Node<K, V> e) {
+        return e.key() == null || e.value() == null;
+    }
+
+    /**
+     * Returns a {@link Set} view of the keys contained in this map. Its iterator is weakly consistent.
+     *
+     * @return a set view of the keys contained in this map.
+     */
+    @Override
+    public Set<K> keySet() {
+        final Set<K> ks = keySet;
+        return ks != null ? ks : (keySet = new KeySet());
+    }
+
+    private boolean matches(final Object key, final Node<K, V> e) {
+        final Object k = e.key();
+        return k != null && (k == key || !identityComparisons && key.equals(k));
+    }
+
+    private Node<K, V> newNode(final int h, final K key, final V value) {
+        return new Node<>(h, reference(key, keyType, h), reference(value, valueType, h), null);
+    }
+
+    /**
+     * Removes the node holding the given reclaimed reference, if it is still in the table.
+     */
+    private void purge(final Reference<?> ref) {
+        final int h = ((NodeReference) ref).hash();
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        while (tab != null) {
+            final int i = tab.length() - 1 & h;
+            final Node<K, V> f = tab.get(i);
+            if (f == null) {
+                return;
+            }
+            if (f.hash == MOVED) {
+                tab = helpTransfer(tab, f);
+                continue;
+            }
+            boolean validated = false;
+            boolean removed = false;
+            synchronized (f) {
+                if (tab.get(i) == f) {
+                    validated = true;
+                    for (Node<K, V> e = f, pred = null; e != null; pred = e, e = e.next) {
+                        if (e.keyRef == ref || e.valueRef == ref) {
+                            unlink(tab, i, pred, e);
+                            removed = true;
+                            break;
+                        }
+                    }
+                }
+            }
+            if (validated) {
+                if (removed) {
+                    addCount(-1L, -1);
+                    if (statsRecorder != null) {
+                        statsRecorder.recordEviction(EvictionCause.COLLECTED);
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes the mappings whose key or value has been reclaimed by the garbage collector. Update operations do this as they go, so calling this method is
+     * only needed to release the memory of stale mappings of a map which is no longer updated.
+     */
+    public void purgeStaleEntries() {
+        if (queue != null) {
+            Reference<?> ref;
+            while ((ref = queue.poll()) != null) {
+                purge(ref);
+            }
+        }
+    }
+
+    /**
+     * Maps the specified key to the specified value in this map. Neither the key nor the value can be null.
+     *
+     * @param key   key with which the specified value is to be associated.
+     * @param value value to be associated with the specified key.
+     * @return the previous value associated with {@code key}, or {@code null} if there was no mapping for {@code key}.
+     * @throws NullPointerException if the specified key or value is null.
+     */
+    @Override
+    public V put(final K key, final V value) {
+        return putVal(key, value, false);
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this one.
+     *
+     * @param m mappings to be stored in this map.
+     */
+    @Override
+    public void putAll(final Map<? extends K, ? extends V> m) {
+        for (final Entry<? extends K, ? extends V> e : m.entrySet()) {
+            putVal(e.getKey(), e.getValue(), false);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key, or {@code null} if there was no mapping for the key.
+     * @throws NullPointerException if the specified key or value is null.
+     */
+    @Override
+    public V putIfAbsent(final K key, final V value) {
+        return putVal(key, value, true);
+    }
+
+    private V putVal(final K key, final V value, final boolean onlyIfAbsent) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        purgeStaleEntries();
+        final int h = hashOf(key);
+        int binCount = 0;
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        for (;;) {
+            if (tab == null) {
+                tab = initTable();
+                continue;
+            }
+            final int i = tab.length() - 1 & h;
+            final Node<K, V> f = tab.get(i);
+            if (f == null) {
+                if (tab.compareAndSet(i, null, newNode(h, key, value))) {
+                    break;
+                }
+            } else if (f.hash == MOVED) {
+                tab = helpTransfer(tab, f);
+            } else {
+                V oldValue = null;
+                boolean found = false;
+                synchronized (f) {
+                    if (tab.get(i) == f) {
+                        binCount = 1;
+                        for (Node<K, V> e = f;; ++binCount) {
+                            if (e.hash == h && matches(key, e)) {
+                                found = true;
+                                oldValue = e.value();
+                                // a reclaimed value counts as absent
+                                if (oldValue == null || !onlyIfAbsent) {
+                                    e.valueRef = reference(value, valueType, h);
+                                }
+                                break;
+                            }
+                            if (e.next == null) {
+                                e.next = newNode(h, key, value);
+                                break;
+                            }
+                            e = e.next;
+                        }
+                    }
+                }
+                if (binCount != 0) {
+                    if (found) {
+                        return oldValue;
+                    }
+                    break;
+                }
+            }
+        }
+        addCount(1L, binCount);
+        return null;
+    }
+
+    private Object reference(final Object referent, final ReferenceType type, final int h) {
+        switch (type) {
+        case WEAK:
+            return new WeakNodeReference<>(referent, h, queue);
+        case SOFT:
+            return new SoftNodeReference<>(referent, h, queue);
+        default:
+            return referent;
+        }
+    }
+
+    /**
+     * Removes the key (and its corresponding value) from this map. This method does nothing if the key is not in the map.
+     *
+     * @param key the key that needs to be removed.
+     * @return the previous value associated with {@code key}, or {@code null} if there was no mapping for {@code key}.
+     * @throws NullPointerException if the specified key is null.
+     */
+    @Override
+    public V remove(final Object key) {
+        return replaceNode(key, null, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the specified key is null.
+     */
+    @Override
+    public boolean remove(final Object key, final Object value) {
+        Objects.requireNonNull(key, "key");
+        return value != null && replaceNode(key, null, value) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the previous value associated with the specified key, or {@code null} if there was no mapping for the key.
+     * @throws NullPointerException if the specified key or value is null.
+     */
+    @Override
+    public V replace(final K key, final V value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        return replaceNode(key, value, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if any of the arguments are null.
+     */
+    @Override
+    public boolean replace(final K key, final V oldValue, final V newValue) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(oldValue, "oldValue");
+        Objects.requireNonNull(newValue, "newValue");
+        return replaceNode(key, newValue, oldValue) != null;
+    }
+
+    /**
+     * Replaces the value of a node, or removes the node, if its current value matches the expected one.
+     *
+     * @param key      the key.
+     * @param value    the new value, null to remove the node.
+     * @param expected the expected value, null to accept any value.
+     * @return the previous value, or null if the node was not found or did not match.
+     */
+    private V replaceNode(final Object key, final V value, final Object expected) {
+        final int h = hashOf(key);
+        purgeStaleEntries();
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        while (tab != null) {
+            final int i = tab.length() - 1 & h;
+            final Node<K, V> f = tab.get(i);
+            if (f == null) {
+                break;
+            }
+            if (f.hash == MOVED) {
+                tab = helpTransfer(tab, f);
+                continue;
+            }
+            V oldValue = null;
+            boolean validated = false;
+            boolean removed = false;
+            synchronized (f) {
+                if (tab.get(i) == f) {
+                    validated = true;
+                    for (Node<K, V> e = f, pred = null; e != null; pred = e, e = e.next) {
+                        if (e.hash == h && matches(key, e)) {
+                            final V ev = e.value();
+                            // a node whose value has been reclaimed is removed but never replaced
+                            if (ev == null ? value == null : expected == null || expected == ev || expected.equals(ev)) {
+                                if (value != null) {
+                                    e.valueRef = reference(value, valueType, h);
+                                } else {
+                                    unlink(tab, i, pred, e);
+                                    removed = true;
+                                }
+                                oldValue = ev;
+                            }
+                            break;
+                        }
+                    }
+                }
+            }
+            if (validated) {
+                if (removed) {
+                    addCount(-1L, -1);
+                }
+                return oldValue;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of key-value mappings in this map. Mappings whose key or value has been reclaimed may be counted until they are purged.
+     *
+     * @return the number of key-value mappings in this map.
+     */
+    @Override
+    public int size() {
+        final long n = count.sum();
+        return n < 0L ? 0 : n > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) n;
+    }
+
+    /**
+     * Moves the bins of the table to the next table, claiming strides of bins from {@link #transferIndex} until none are left. The thread which finishes
+     * last rechecks the table and publishes the next table.
+     *
+     * @param tab     the table.
+     * @param nextTab the next table, or null to create it.
+     */
+    private void transfer(final AtomicReferenceArray<Node<K, V>> tab, AtomicReferenceArray<Node<K, V>> nextTab) {
+        final int n = tab.length();
+        int stride = NCPU > 1 ? (n >>> 3) / NCPU : n;
+        if (stride < MIN_TRANSFER_STRIDE) {
+            stride = MIN_TRANSFER_STRIDE;
+        }
+        if (nextTab == null) {
+            try {
+                nextTab = new AtomicReferenceArray<>(n << 1);
+            } catch (final OutOfMemoryError ex) {
+                sizeCtl.set(Integer.MAX_VALUE);
+                return;
+            }
+            nextTable = nextTab;
+            transferIndex.set(n);
+        }
+        final int nextn = nextTab.length();
+        final ForwardingNode<K, V> fwd = new ForwardingNode<>(nextTab);
+        boolean advance = true;
+        boolean finishing = false;
+        for (int i = 0, bound = 0;;) {
+            while (advance) {
+                final int nextIndex;
+                if (--i >= bound || finishing) {
+                    advance = false;
+                } else if ((nextIndex = transferIndex.get()) <= 0) {
+                    i = -1;
+                    advance = false;
+                } else {
+                    final int nextBound = nextIndex > stride ? nextIndex - stride : 0;
+                    if (transferIndex.compareAndSet(nextIndex, nextBound)) {
+                        bound = nextBound;
+                        i = nextIndex - 1;
+                        advance = false;
+                    }
+                }
+            }
+            if (i < 0 || i >= n || i + n >= nextn) {
+                if (finishing) {
+                    nextTable = null;
+                    table = nextTab;
+                    sizeCtl.set((n << 1) - (n >>> 1));
+                    return;
+                }
+                final int sc = sizeCtl.get();
+                if (sizeCtl.compareAndSet(sc, sc - 1)) {
+                    if (sc - 2 != resizeStamp(n) << RESIZE_STAMP_SHIFT) {
+                        return;
+                    }
+                    // last resizer: recheck every bin before publishing
+                    finishing = advance = true;
+                    i = n;
+                }
+                continue;
+            }
+            final Node<K, V> f = tab.get(i);
+            if (f == null) {
+                advance = tab.compareAndSet(i, null, fwd);
+            } else if (f.hash == MOVED) {
+                advance = true;
+            } else {
+                int stale = 0;
+                synchronized (f) {
+                    if (tab.get(i) == f) {
+                        stale = transferBin(tab, nextTab, fwd, i, f);
+                        advance = true;
+                    }
+                }
+                if (stale != 0) {
+                    count.add(-stale);
+                    if (statsRecorder != null) {
+                        statsRecorder.recordEvictions(EvictionCause.COLLECTED, stale);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits a locked bin into the lower and upper bins of the next table and forwards it. The trailing run of nodes which go to the same bin is reused, the
+     * nodes before it are copied so that concurrent readers of the bin are undisturbed, and stale nodes are dropped from the copy.
+     *
+     * @return the number of stale nodes dropped.
+     */
+    private int transferBin(final AtomicReferenceArray<Node<K, V>> tab, final AtomicReferenceArray<Node<K, V>> nextTab, final ForwardingNode<K, V> fwd,
+            final int i, final Node<K, V> f) {
+        final int n = tab.length();
+        int runBit = f.hash & n;
+        Node<K, V> lastRun = f;
+        for (Node<K, V> p = f.next; p != null; p = p.next) {
+            final int b = p.hash & n;
+            if (b != runBit) {
+                runBit = b;
+                lastRun = p;
+            }
+        }
+        Node<K, V> ln = runBit == 0 ? lastRun : null;
+        Node<K, V> hn = runBit == 0 ? null : lastRun;
+        int stale = 0;
+        for (Node<K, V> p = f; p != lastRun; p = p.next) {
+            if (isStale(p)) {
+                stale++;
+            } else if ((p.hash & n) == 0) {
+                ln = new Node<>(p.hash, p.keyRef, p.valueRef, ln);
+            } else {
+                hn = new Node<>(p.hash, p.keyRef, p.valueRef, hn);
+            }
+        }
+        nextTab.set(i, ln);
+        nextTab.set(i + n, hn);
+        tab.set(i, fwd);
+        return stale;
+    }
+
+    private void unlink(final AtomicReferenceArray<Node<K, V>> tab, final int i, final Node<K, V> pred, final Node<K, V> e) {
+        if (pred == null) {
+            tab.set(i, e.next);
+        } else {
+            pred.next = e.next;
+        }
+    }
+
+    /**
+     * Returns a {@link Collection} view of the values contained in this map. Its iterator is weakly consistent.
+     *
+     * @return a collection view of the values contained in this map.
+     */
+    @Override
+    public Collection<V> values() {
+        final Collection<V> vs = values;
+        return vs != null ? vs : (values = new Values());
+    }
+
+}
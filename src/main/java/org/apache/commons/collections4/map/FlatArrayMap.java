@@ -0,0 +1,1017 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.IterableMap;
+import org.apache.commons.collections4.MapIterator;
+import org.apache.commons.collections4.ResettableIterator;
+import org.apache.commons.collections4.iterators.EmptyIterator;
+import org.apache.commons.collections4.iterators.EmptyMapIterator;
+
+/**
+ * A {@code Map} implementation that stores data in parallel arrays until
+ * the size is greater than a configurable inline capacity.
+ * <p>
+ * This map generalizes {@link Flat3Map} to small maps of more than three entries,
+ * such as per-request attribute maps. The hash codes, keys and values are held in
+ * three arrays of the inline capacity and looked up by a linear scan that compares
+ * the cached hash codes before calling {@code equals}.
+ * </p>
+ * <ul>
+ * <li>Optimized for operation at the inline capacity or less, 8 by default and 16 at most.</li>
+ * <li>Puts create no entry objects, so filling the map allocates only the three arrays.</li>
+ * <li>Still works well once the inline capacity is exceeded.</li>
+ * </ul>
+ * <p>
+ * The design uses two distinct modes of operation - flat and delegate.
+ * While the size is at most the inline capacity, operations scan the arrays.
+ * Once the size exceeds it, the map switches to delegate mode and only switches back
+ * when cleared. In delegate mode, all operations are forwarded straight to a
+ * {@link HashedMap}.
+ * </p>
+ * <p>
+ * Removing a mapping in flat mode moves the last mapping into its slot, so the iteration
+ * order is the insertion order only until the first removal.
+ * </p>
+ * <p>
+ * <strong>Note that FlatArrayMap is not synchronized and is not thread-safe.</strong>
+ * If you wish to use this map from multiple threads concurrently, you must use
+ * appropriate synchronization. The simplest approach is to wrap this map
+ * using {@link java.util.Collections#synchronizedMap(Map)}. This class may throw
+ * exceptions when accessed by concurrent threads without synchronization.
+ * </p>
+ *
+ * @param <K> the type of the keys in this map
+ * @param <V> the type of the values in this map
+ * @since 4.6.0
+ */
+public class FlatArrayMap<K, V> implements IterableMap<K, V>, Serializable, Cloneable {
+
+    /**
+     * Base iterator over the flat mode entries.
+     */
+    abstract static class EntryIterator<K, V> {
+        private final FlatArrayMap<K, V> parent;
+        private int nextIndex;
+        private FlatMapEntry<K, V> currentEntry;
+        private int expectedModCount;
+
+        /**
+         * Create a new FlatArrayMap.EntryIterator.
+         */
+        EntryIterator(final FlatArrayMap<K, V> parent) {
+            this.parent = parent;
+            this.expectedModCount = parent.modCount;
+        }
+
+        public boolean hasNext() {
+            return nextIndex < parent.size;
+        }
+
+        public Map.Entry<K, V> nextEntry() {
+            if (parent.modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException(AbstractHashedMap.NO_NEXT_ENTRY);
+            }
+            currentEntry = new FlatMapEntry<>(parent, nextIndex++);
+            return currentEntry;
+        }
+
+        public void remove() {
+            if (currentEntry == null) {
+                throw new IllegalStateException(AbstractHashedMap.REMOVE_INVALID);
+            }
+            if (parent.modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            parent.remove(currentEntry.getKey());
+            currentEntry.setRemoved(true);
+            // the last mapping has been moved into the removed slot
+            nextIndex--;
+            currentEntry = null;
+            expectedModCount = parent.modCount;
+        }
+
+    }
+
+    /**
+     * EntrySet
+     */
+    static class EntrySet<K, V> extends AbstractSet<Map.Entry<K, V>> {
+        private final FlatArrayMap<K, V> parent;
+
+        EntrySet(final FlatArrayMap<K, V> parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public void clear() {
+            parent.clear();
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            if (parent.delegateMap != null) {
+                return parent.delegateMap.entrySet().iterator();
+            }
+            if (parent.isEmpty()) {
+                return EmptyIterator.<Map.Entry<K, V>>emptyIterator();
+            }
+            return new EntrySetIterator<>(parent);
+        }
+
+        @Override
+        public boolean remove(final Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            if (parent.delegateMap != null) {
+                return parent.delegateMap.entrySet().remove(obj);
+            }
+            final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) obj;
+            final int index = parent.indexOf(entry.getKey());
+            if (index < 0 || !Objects.equals(parent.values[index], entry.getValue())) {
+                return false;
+            }
+            parent.removeIndex(index);
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return parent.size();
+        }
+    }
+
+    /**
+     * EntrySetIterator and MapEntry
+     */
+    static class EntrySetIterator<K, V> extends EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        EntrySetIterator(final FlatArrayMap<K, V> parent) {
+            super(parent);
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            return nextEntry();
+        }
+    }
+
+    /**
+     * Map entry bound to a slot of the flat mode arrays, found again by key if
+     * a removal moved the mapping to another slot.
+     */
+    static class FlatMapEntry<K, V> implements Map.Entry<K, V> {
+        private final FlatArrayMap<K, V> parent;
+        private final K key;
+        private int index;
+        private boolean removed;
+
+        @SuppressWarnings("unchecked")
+        FlatMapEntry(final FlatArrayMap<K, V> parent, final int index) {
+            this.parent = parent;
+            this.index = index;
+            this.key = (K) parent.keys[index];
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (removed) {
+                return false;
+            }
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+            return Objects.equals(getKey(), other.getKey()) &&
+                   Objects.equals(getValue(), other.getValue());
+        }
+
+        @Override
+        public K getKey() {
+            if (removed) {
+                throw new IllegalStateException(AbstractHashedMap.GETKEY_INVALID);
+            }
+            return key;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            if (removed || !locate()) {
+                throw new IllegalStateException(AbstractHashedMap.GETVALUE_INVALID);
+            }
+            return (V) parent.values[index];
+        }
+
+        @Override
+        public int hashCode() {
+            if (removed) {
+                return 0;
+            }
+            final Object value = getValue();
+            return (key == null ? 0 : key.hashCode()) ^
+                   (value == null ? 0 : value.hashCode());
+        }
+
+        /**
+         * Checks that the slot still holds the key, looking the key up again otherwise.
+         *
+         * @return true if the key is still mapped in flat mode
+         */
+        private boolean locate() {
+            if (parent.keys == null) {
+                return false;
+            }
+            if (index < parent.size && parent.keys[index] == key) {
+                return true;
+            }
+            index = parent.indexOf(key);
+            return index >= 0;
+        }
+
+        /**
+         * Used by the iterator that created this entry to indicate that
+         * {@link java.util.Iterator#remove()} has been called.
+         * <p>
+         * As a consequence, all subsequent call to {@link #getKey()},
+         * {@link #setValue(Object)} and {@link #getValue()} will fail.
+         *
+         * @param removed the new value of the removed flag
+         */
+        void setRemoved(final boolean removed) {
+            this.removed = removed;
+        }
+
+        @Override
+        public V setValue(final V value) {
+            if (removed || !locate()) {
+                throw new IllegalStateException(AbstractHashedMap.SETVALUE_INVALID);
+            }
+            final V old = getValue();
+            parent.values[index] = value;
+            return old;
+        }
+
+        @Override
+        public String toString() {
+            if (!removed) {
+                return getKey() + "=" + getValue();
+            }
+            return "";
+        }
+
+    }
+
+    /**
+     * FlatMapIterator
+     */
+    static class FlatMapIterator<K, V> implements MapIterator<K, V>, ResettableIterator<K> {
+        private final FlatArrayMap<K, V> parent;
+        private int nextIndex;
+        private boolean canRemove;
+        private int expectedModCount;
+
+        FlatMapIterator(final FlatArrayMap<K, V> parent) {
+            this.parent = parent;
+            this.expectedModCount = parent.modCount;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K getKey() {
+            if (!canRemove) {
+                throw new IllegalStateException(AbstractHashedMap.GETKEY_INVALID);
+            }
+            return (K) parent.keys[nextIndex - 1];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            if (!canRemove) {
+                throw new IllegalStateException(AbstractHashedMap.GETVALUE_INVALID);
+            }
+            return (V) parent.values[nextIndex - 1];
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < parent.size;
+        }
+
+        @Override
+        public K next() {
+            if (parent.modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException(AbstractHashedMap.NO_NEXT_ENTRY);
+            }
+            canRemove = true;
+            nextIndex++;
+            return getKey();
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException(AbstractHashedMap.REMOVE_INVALID);
+            }
+            if (parent.modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            parent.removeIndex(--nextIndex);
+            canRemove = false;
+            expectedModCount = parent.modCount;
+        }
+
+        @Override
+        public void reset() {
+            nextIndex = 0;
+            canRemove = false;
+            expectedModCount = parent.modCount;
+        }
+
+        @Override
+        public V setValue(final V value) {
+            if (!canRemove) {
+                throw new IllegalStateException(AbstractHashedMap.SETVALUE_INVALID);
+            }
+            final V old = getValue();
+            parent.values[nextIndex - 1] = value;
+            return old;
+        }
+
+        @Override
+        public String toString() {
+            if (canRemove) {
+                return "Iterator[" + getKey() + "=" + getValue() + "]";
+            }
+            return "Iterator[]";
+        }
+    }
+
+    /**
+     * KeySet
+     */
+    static class KeySet<K> extends AbstractSet<K> {
+
+        private final FlatArrayMap<K, ?> parent;
+
+        KeySet(final FlatArrayMap<K, ?> parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public void clear() {
+            parent.clear();
+        }
+
+        @Override
+        public boolean contains(final Object key) {
+            return parent.containsKey(key);
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            if (parent.delegateMap != null) {
+                return parent.delegateMap.keySet().iterator();
+            }
+            if (parent.isEmpty()) {
+                return EmptyIterator.<K>emptyIterator();
+            }
+            return new KeySetIterator<>(parent);
+        }
+
+        @Override
+        public boolean remove(final Object key) {
+            final boolean result = parent.containsKey(key);
+            parent.remove(key);
+            return result;
+        }
+
+        @Override
+        public int size() {
+            return parent.size();
+        }
+    }
+
+    /**
+     * KeySetIterator
+     */
+    static class KeySetIterator<K> extends EntryIterator<K, Object> implements Iterator<K> {
+
+        @SuppressWarnings("unchecked")
+        KeySetIterator(final FlatArrayMap<K, ?> parent) {
+            super((FlatArrayMap<K, Object>) parent);
+        }
+
+        @Override
+        public K next() {
+            return nextEntry().getKey();
+        }
+    }
+
+    /**
+     * Values
+     */
+    static class Values<V> extends AbstractCollection<V> {
+
+        private final FlatArrayMap<?, V> parent;
+
+        Values(final FlatArrayMap<?, V> parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public void clear() {
+            parent.clear();
+        }
+
+        @Override
+        public boolean contains(final Object value) {
+            return parent.containsValue(value);
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            if (parent.delegateMap != null) {
+                return parent.delegateMap.values().iterator();
+            }
+            if (parent.isEmpty()) {
+                return EmptyIterator.<V>emptyIterator();
+            }
+            return new ValuesIterator<>(parent);
+        }
+
+        @Override
+        public int size() {
+            return parent.size();
+        }
+    }
+
+    /**
+     * ValuesIterator
+     */
+    static class ValuesIterator<V> extends EntryIterator<Object, V> implements Iterator<V> {
+
+        @SuppressWarnings("unchecked")
+        ValuesIterator(final FlatArrayMap<?, V> parent) {
+            super((FlatArrayMap<Object, V>) parent);
+        }
+
+        @Override
+        public V next() {
+            return nextEntry().getValue();
+        }
+    }
+
+    /** The default inline capacity */
+    protected static final int DEFAULT_INLINE_CAPACITY = 8;
+
+    /** The maximum inline capacity, beyond which a linear scan loses to hashing */
+    protected static final int MAX_INLINE_CAPACITY = 16;
+
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
+
+    /** The number of mappings held in flat mode */
+    private final int inlineCapacity;
+
+    /** The size of the map, used while in flat mode */
+    private transient int size;
+
+    /** The modification count, used while in flat mode */
+    private transient int modCount;
+
+    /** Key hash codes, used while in flat mode, allocated on the first put */
+    private transient int[] hashes;
+
+    /** Keys, used while in flat mode, allocated on the first put */
+    private transient Object[] keys;
+
+    /** Values, used while in flat mode, allocated on the first put */
+    private transient Object[] values;
+
+    /** Map, used while in delegate mode */
+    private transient AbstractHashedMap<K, V> delegateMap;
+
+    /**
+     * Constructs a new instance with the default inline capacity of 8.
+     */
+    public FlatArrayMap() {
+        this(DEFAULT_INLINE_CAPACITY);
+    }
+
+    /**
+     * Constructs a new instance with the specified inline capacity.
+     *
+     * @param inlineCapacity  the number of mappings held before switching to delegate mode
+     * @throws IllegalArgumentException if the inline capacity is less than one or greater than 16
+     */
+    public FlatArrayMap(final int inlineCapacity) {
+        if (inlineCapacity < 1 || inlineCapacity > MAX_INLINE_CAPACITY) {
+            throw new IllegalArgumentException("Inline capacity must be between 1 and " + MAX_INLINE_CAPACITY);
+        }
+        this.inlineCapacity = inlineCapacity;
+    }
+
+    /**
+     * Constructor copying elements from another map, with the default inline capacity of 8.
+     *
+     * @param map  the map to copy
+     * @throws NullPointerException if the map is null
+     */
+    public FlatArrayMap(final Map<? extends K, ? extends V> map) {
+        this(DEFAULT_INLINE_CAPACITY);
+        putAll(map);
+    }
+
+    /**
+     * Clears the map, resetting the size to zero and nullifying references
+     * to avoid garbage collection issues.
+     */
+    @Override
+    public void clear() {
+        if (delegateMap != null) {
+            delegateMap.clear();  // should aid gc
+            delegateMap = null;  // switch back to flat mode
+        } else if (size > 0) {
+            for (int i = 0; i < size; i++) {
+                keys[i] = null;
+                values[i] = null;
+            }
+            size = 0;
+            modCount++;
+        }
+    }
+
+    /**
+     * Clones the map without cloning the keys or values.
+     *
+     * @return a shallow clone
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public FlatArrayMap<K, V> clone() {
+        try {
+            final FlatArrayMap<K, V> cloned = (FlatArrayMap<K, V>) super.clone();
+            if (cloned.delegateMap != null) {
+                cloned.delegateMap = cloned.delegateMap.clone();
+            } else if (cloned.keys != null) {
+                cloned.hashes = cloned.hashes.clone();
+                cloned.keys = cloned.keys.clone();
+                cloned.values = cloned.values.clone();
+            }
+            return cloned;
+        } catch (final CloneNotSupportedException ex) {
+            throw new UnsupportedOperationException(ex);
+        }
+    }
+
+    /**
+     * Checks whether the map contains the specified key.
+     *
+     * @param key  the key to search for
+     * @return true if the map contains the key
+     */
+    @Override
+    public boolean containsKey(final Object key) {
+        if (delegateMap != null) {
+            return delegateMap.containsKey(key);
+        }
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Checks whether the map contains the specified value.
+     *
+     * @param value  the value to search for
+     * @return true if the map contains the key
+     */
+    @Override
+    public boolean containsValue(final Object value) {
+        if (delegateMap != null) {
+            return delegateMap.containsValue(value);
+        }
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(value, values[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Converts the flat map data to a map.
+     */
+    @SuppressWarnings("unchecked")
+    private void convertToMap() {
+        delegateMap = createDelegateMap();
+        for (int i = 0; i < size; i++) {
+            delegateMap.put((K) keys[i], (V) values[i]);
+        }
+        size = 0;
+        hashes = null;
+        keys = null;
+        values = null;
+    }
+
+    /**
+     * Create an instance of the map used for storage when in delegation mode.
+     * <p>
+     * This can be overridden by subclasses to provide a different map implementation.
+     * Not every AbstractHashedMap is suitable, identity and reference based maps
+     * would be poor choices.
+     * </p>
+     *
+     * @return a new AbstractHashedMap or subclass
+     */
+    protected AbstractHashedMap<K, V> createDelegateMap() {
+        return new HashedMap<>();
+    }
+
+    /**
+     * Gets the entrySet view of the map.
+     * Changes made to the view affect this map.
+     * <p>
+     * The returned Map Entry is an independent object. To avoid this additional object
+     * creation and simply iterate through the entries, use {@link #mapIterator()}.
+     * </p>
+     *
+     * @return the entrySet view
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (delegateMap != null) {
+            return delegateMap.entrySet();
+        }
+        return new EntrySet<>(this);
+    }
+
+    /**
+     * Compares this map with another.
+     *
+     * @param obj  the object to compare to
+     * @return true if equal
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (delegateMap != null) {
+            return delegateMap.equals(obj);
+        }
+        if (!(obj instanceof Map)) {
+            return false;
+        }
+        final Map<?, ?> other = (Map<?, ?>) obj;
+        if (size != other.size()) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!other.containsKey(keys[i]) || !Objects.equals(values[i], other.get(keys[i]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the value mapped to the key specified.
+     *
+     * @param key  the key
+     * @return the mapped value, null if no match
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(final Object key) {
+        if (delegateMap != null) {
+            return delegateMap.get(key);
+        }
+        final int index = indexOf(key);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    /**
+     * Gets the number of mappings held before switching to delegate mode.
+     *
+     * @return the inline capacity
+     */
+    public int getInlineCapacity() {
+        return inlineCapacity;
+    }
+
+    /**
+     * Gets the standard Map hashCode.
+     *
+     * @return the hash code defined in the Map interface
+     */
+    @Override
+    public int hashCode() {
+        if (delegateMap != null) {
+            return delegateMap.hashCode();
+        }
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            total += hashes[i] ^ (values[i] == null ? 0 : values[i].hashCode());
+        }
+        return total;
+    }
+
+    /**
+     * Finds the flat mode slot of a key by a linear scan, comparing the hash codes first.
+     *
+     * @param key  the key to find
+     * @return the slot index, or -1 if the key is not in the flat mode arrays
+     */
+    int indexOf(final Object key) {
+        if (key == null) {
+            for (int i = 0; i < size; i++) {
+                if (keys[i] == null) {
+                    return i;
+                }
+            }
+        } else {
+            final int hashCode = key.hashCode();
+            for (int i = 0; i < size; i++) {
+                if (hashes[i] == hashCode && key.equals(keys[i])) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether the map is currently empty.
+     *
+     * @return true if the map is currently size zero
+     */
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Gets the keySet view of the map.
+     * Changes made to the view affect this map.
+     * To simply iterate through the keys, use {@link #mapIterator()}.
+     *
+     * @return the keySet view
+     */
+    @Override
+    public Set<K> keySet() {
+        if (delegateMap != null) {
+            return delegateMap.keySet();
+        }
+        return new KeySet<>(this);
+    }
+
+    /**
+     * Gets an iterator over the map.
+     * Changes made to the iterator affect this map.
+     * <p>
+     * A MapIterator returns the keys in the map. It also provides convenient
+     * methods to get the key and value, and set the value.
+     * It avoids the need to create an entrySet/keySet/values object.
+     * It also avoids creating the Map Entry object.
+     * </p>
+     *
+     * @return the map iterator
+     */
+    @Override
+    public MapIterator<K, V> mapIterator() {
+        if (delegateMap != null) {
+            return delegateMap.mapIterator();
+        }
+        if (size == 0) {
+            return EmptyMapIterator.<K, V>emptyMapIterator();
+        }
+        return new FlatMapIterator<>(this);
+    }
+
+    /**
+     * Puts a key-value mapping into this map.
+     *
+     * @param key  the key to add
+     * @param value  the value to add
+     * @return the value previously mapped to this key, null if none
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(final K key, final V value) {
+        if (delegateMap != null) {
+            return delegateMap.put(key, value);
+        }
+        // change existing mapping
+        final int index = indexOf(key);
+        if (index >= 0) {
+            final V old = (V) values[index];
+            values[index] = value;
+            return old;
+        }
+
+        // add new mapping
+        if (size == inlineCapacity) {
+            convertToMap();
+            delegateMap.put(key, value);
+            return null;
+        }
+        if (keys == null) {
+            hashes = new int[inlineCapacity];
+            keys = new Object[inlineCapacity];
+            values = new Object[inlineCapacity];
+        }
+        hashes[size] = key == null ? 0 : key.hashCode();
+        keys[size] = key;
+        values[size] = value;
+        size++;
+        modCount++;
+        return null;
+    }
+
+    /**
+     * Puts all the values from the specified map into this map.
+     *
+     * @param map  the map to add
+     * @throws NullPointerException if the map is null
+     */
+    @Override
+    public void putAll(final Map<? extends K, ? extends V> map) {
+        final int size = map.size();
+        if (size == 0) {
+            return;
+        }
+        if (delegateMap != null) {
+            delegateMap.putAll(map);
+            return;
+        }
+        if (size <= inlineCapacity) {
+            for (final Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
+        } else {
+            convertToMap();
+            delegateMap.putAll(map);
+        }
+    }
+
+    /**
+     * Deserializes the map in using a custom routine.
+     *
+     * @param in the input stream
+     * @throws IOException if an error occurs while reading from the stream
+     * @throws ClassNotFoundException if an object read from the stream cannot be loaded
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        final int count = in.readInt();
+        if (count > inlineCapacity) {
+            delegateMap = createDelegateMap();
+        }
+        for (int i = count; i > 0; i--) {
+            put((K) in.readObject(), (V) in.readObject());
+        }
+    }
+
+    /**
+     * Removes the specified mapping from this map.
+     *
+     * @param key  the mapping to remove
+     * @return the value mapped to the removed key, null if key not in map
+     */
+    @Override
+    public V remove(final Object key) {
+        if (delegateMap != null) {
+            return delegateMap.remove(key);
+        }
+        final int index = indexOf(key);
+        return index < 0 ? null : removeIndex(index);
+    }
+
+    /**
+     * Removes the mapping in the specified flat mode slot, moving the last mapping into it.
+     *
+     * @param index  the slot to remove
+     * @return the value of the removed mapping
+     */
+    @SuppressWarnings("unchecked")
+    V removeIndex(final int index) {
+        final V old = (V) values[index];
+        final int last = --size;
+        hashes[index] = hashes[last];
+        keys[index] = keys[last];
+        values[index] = values[last];
+        hashes[last] = 0;
+        keys[last] = null;
+        values[last] = null;
+        modCount++;
+        return old;
+    }
+
+    /**
+     * Gets the size of the map.
+     *
+     * @return the size
+     */
+    @Override
+    public int size() {
+        if (delegateMap != null) {
+            return delegateMap.size();
+        }
+        return size;
+    }
+
+    /**
+     * Gets the map as a String.
+     *
+     * @return a string version of the map
+     */
+    @Override
+    public String toString() {
+        if (delegateMap != null) {
+            return delegateMap.toString();
+        }
+        if (size == 0) {
+            return "{}";
+        }
+        final StringBuilder buf = new StringBuilder(32 * size);
+        buf.append('{');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                buf.append(CollectionUtils.COMMA);
+            }
+            buf.append(keys[i] == this ? "(this Map)" : keys[i]);
+            buf.append('=');
+            buf.append(values[i] == this ? "(this Map)" : values[i]);
+        }
+        buf.append('}');
+        return buf.toString();
+    }
+
+    /**
+     * Gets the values view of the map.
+     * Changes made to the view affect this map.
+     * To simply iterate through the values, use {@link #mapIterator()}.
+     *
+     * @return the values view
+     */
+    @Override
+    public Collection<V> values() {
+        if (delegateMap != null) {
+            return delegateMap.values();
+        }
+        return new Values<>(this);
+    }
+
+    /**
+     * Serializes this object to an ObjectOutputStream.
+     *
+     * @param out the target ObjectOutputStream.
+     * @throws IOException thrown when an I/O errors occur writing to the target stream.
+     */
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size());
+        for (final MapIterator<?, ?> it = mapIterator(); it.hasNext();) {
+            out.writeObject(it.next());  // key
+            out.writeObject(it.getValue());  // value
+        }
+    }
+
+}
@@ -21,6 +21,7 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Map;
+import java.util.Objects;
 
 import org.apache.commons.collections4.BoundedMap;
 
@@ -42,6 +43,14 @@ import org.apache.commons.collections4.BoundedMap;
  * {@link org.apache.commons.collections4.MapIterator MapIterator} or {@link #entrySet()} iterator.
  * </p>
  * <p>
+ * Instead of a maximum number of entries, the map can be bounded by a maximum
+ * total weight, where a {@link Weigher} gives the weight of each mapping, for
+ * example the size in bytes of the value. When a put makes the total weight
+ * exceed the maximum, least recently used entries are removed until it fits
+ * again. Weights are computed when a value is put or set, so they must not
+ * change while a mapping is in the map.
+ * </p>
+ * <p>
  * The map implements {@code OrderedMap} and entries may be queried using
  * the bidirectional {@code OrderedMapIterator}. The order returned is
  * least recently used to most recently used. Iterators from map views can
@@ -66,6 +75,49 @@ import org.apache.commons.collections4.BoundedMap;
 public class LRUMap<K, V>
         extends AbstractLinkedMap<K, V> implements BoundedMap<K, V>, Serializable, Cloneable {
 
+    /**
+     * Computes the weight of a mapping in a weight bounded LRUMap.
+     *
+     * @param <K> the type of the keys in the map
+     * @param <V> the type of the values in the map
+     * @since 4.6.0
+     */
+    @FunctionalInterface
+    public interface Weigher<K, V> extends Serializable {
+
+        /**
+         * Gets the weight of a mapping.
+         *
+         * @param key  the key of the mapping
+         * @param value  the value of the mapping
+         * @return the weight of the mapping, not negative
+         */
+        long weigh(K key, V value);
+    }
+
+    /**
+     * An entry that remembers its weight, so that the total weight stays
+     * consistent even if the weigher would weigh a value differently later.
+     */
+    private final class WeightedEntry extends LinkEntry<K, V> {
+
+        /** The weight, set when the entry is added to the map */
+        long weight;
+
+        WeightedEntry(final HashEntry<K, V> next, final int hashCode, final Object key, final V value) {
+            super(next, hashCode, key, value);
+        }
+
+        @Override
+        public V setValue(final V value) {
+            final V oldValue = super.setValue(value);
+            final long newWeight = weigh(getKey(), value);
+            totalWeight += newWeight - weight;
+            weight = newWeight;
+            return oldValue;
+        }
+    }
+
     /** Serialization version */
     private static final long serialVersionUID = -612114643488955218L;
 
@@ -78,6 +130,18 @@ public class LRUMap<K, V>
     /** Scan behavior */
     private final boolean scanUntilRemovable;
 
+    /** The weigher, null if the map is bounded by its number of entries */
+    private final Weigher<? super K, ? super V> weigher;
+
+    /** The maximum total weight, unused if the map is bounded by its number of entries */
+    private final long maxWeight;
+
+    /** The total weight of the entries, unused if the map is bounded by its number of entries */
+    private transient long totalWeight;
+
+    /** The statistics recorder, null if statistics are disabled */
+    private transient CacheStatsRecorder statsRecorder;
+
     /**
      * Constructs a new empty map with a maximum size of 100.
      */
@@ -189,6 +253,42 @@ public class LRUMap<K, V>
         }
         this.maxSize = maxSize;
         this.scanUntilRemovable = scanUntilRemovable;
+        this.weigher = null;
+        this.maxWeight = 0;
+    }
+
+    /**
+     * Constructs a new, empty map bounded by the total weight of its mappings.
+     *
+     * @param maxWeight  the maximum total weight of the map
+     * @param weigher  the weigher computing the weight of each mapping
+     * @throws IllegalArgumentException if the maximum weight is less than one
+     * @throws NullPointerException if the weigher is null
+     * @since 4.6.0
+     */
+    public LRUMap(final long maxWeight, final Weigher<? super K, ? super V> weigher) {
+        this(maxWeight, weigher, false);
+    }
+
+    /**
+     * Constructs a new, empty map bounded by the total weight of its mappings.
+     *
+     * @param maxWeight  the maximum total weight of the map
+     * @param weigher  the weigher computing the weight of each mapping
+     * @param scanUntilRemovable  scan until a removable entry is found, default false
+     * @throws IllegalArgumentException if the maximum weight is less than one
+     * @throws NullPointerException if the weigher is null
+     * @since 4.6.0
+     */
+    public LRUMap(final long maxWeight, final Weigher<? super K, ? super V> weigher, final boolean scanUntilRemovable) {
+        super(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+        if (maxWeight < 1) {
+            throw new IllegalArgumentException("LRUMap max weight must be greater than 0");
+        }
+        this.maxSize = Integer.MAX_VALUE;
+        this.scanUntilRemovable = scanUntilRemovable;
+        this.weigher = Objects.requireNonNull(weigher, "weigher");
+        this.maxWeight = maxWeight;
     }
 
     /**
@@ -221,6 +321,23 @@ public class LRUMap<K, V>
         putAll(map);
     }
 
+    /**
+     * Adds an entry into this map, adding its weight to the total weight if
+     * the map is weight bounded.
+     *
+     * @param entry  the entry to add
+     * @param hashIndex  the index into the data array to store at
+     */
+    @Override
+    protected void addEntry(final HashEntry<K, V> entry, final int hashIndex) {
+        super.addEntry(entry, hashIndex);
+        if (weigher != null) {
+            final WeightedEntry weightedEntry = (WeightedEntry) entry;
+            weightedEntry.weight = weigh(weightedEntry.getKey(), weightedEntry.getValue());
+            totalWeight += weightedEntry.weight;
+        }
+    }
+
     /**
      * Adds a new key-value mapping into this map.
      * <p>
@@ -232,6 +349,11 @@ public class LRUMap<K, V>
      * than accessing {@code size} and {@code maxSize} directly.
      * It also handles the scanUntilRemovable functionality.
      * </p>
+     * <p>
+     * If the map is weight bounded, the mapping is added first, and then
+     * {@link #removeLRU(AbstractLinkedMap.LinkEntry)} is consulted for the
+     * least recently used entries until the total weight fits again.
+     * </p>
      *
      * @param hashIndex  the index into the data array to store at
      * @param hashCode  the hash code of the key to add
@@ -240,7 +362,10 @@ public class LRUMap<K, V>
      */
     @Override
     protected void addMapping(final int hashIndex, final int hashCode, final K key, final V value) {
-        if (isFull()) {
+        if (weigher != null) {
+            super.addMapping(hashIndex, hashCode, key, value);
+            evictToMaxWeight();
+        } else if (isFull()) {
             LinkEntry<K, V> reuse = header.after;
             boolean removeLRUEntry = false;
             if (scanUntilRemovable) {
@@ -269,6 +394,9 @@ public class LRUMap<K, V>
                         " This should not occur if your keys are immutable and you used synchronization properly.");
                 }
                 reuseMapping(reuse, hashIndex, hashCode, key, value);
+                if (statsRecorder != null) {
+                    statsRecorder.recordEviction(CacheStats.EvictionCause.SIZE);
+                }
             } else {
                 super.addMapping(hashIndex, hashCode, key, value);
             }
@@ -277,6 +405,15 @@ public class LRUMap<K, V>
         }
     }
 
+    /**
+     * Clears the map, resetting its total weight.
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        totalWeight = 0;
+    }
+
     /**
      * Clones the map without cloning the keys or values.
      *
@@ -287,6 +424,24 @@ public class LRUMap<K, V>
         return (LRUMap<K, V>) super.clone();
     }
 
+    /**
+     * Creates an entry to store the key-value data, which also stores the
+     * weight of the mapping if the map is weight bounded.
+     *
+     * @param next  the next entry in sequence
+     * @param hashCode  the hash code to use
+     * @param key  the key to store
+     * @param value  the value to store
+     * @return the newly created entry
+     */
+    @Override
+    protected LinkEntry<K, V> createEntry(final HashEntry<K, V> next, final int hashCode, final K key, final V value) {
+        if (weigher == null) {
+            return super.createEntry(next, hashCode, key, value);
+        }
+        return new WeightedEntry(next, hashCode, convertKey(key), value);
+    }
+
     /**
      * Reads the data necessary for {@code put()} to work in the superclass.
      *
@@ -312,6 +467,47 @@ public class LRUMap<K, V>
         super.doWriteObject(out);
     }
 
+    /**
+     * Removes an evicted entry, finding its predecessor in the hash table.
+     *
+     * @param entry  the entry to remove
+     */
+    private void evict(final LinkEntry<K, V> entry) {
+        final int removeIndex = hashIndex(entry.hashCode, data.length);
+        HashEntry<K, V> loop = data[removeIndex];
+        HashEntry<K, V> previous = null;
+        while (loop != entry && loop != null) {
+            previous = loop;
+            loop = loop.next;
+        }
+        if (loop == null) {
+            throw new IllegalStateException(
+                "Entry.next=null, data[removeIndex]=" + data[removeIndex] + " previous=" + previous +
+                " key=" + entry.getKey() + " size=" + size + " maxWeight=" + maxWeight +
+                " This should not occur if your keys are immutable, and you have used synchronization properly.");
+        }
+        removeMapping(entry, removeIndex, previous);
+    }
+
+    /**
+     * Removes least recently used entries until the total weight fits.
+     */
+    private void evictToMaxWeight() {
+        LinkEntry<K, V> entry = header.after;
+        while (totalWeight > maxWeight && entry != header) {
+            final LinkEntry<K, V> next = entry.after;
+            if (removeLRU(entry)) {
+                evict(entry);
+                if (statsRecorder != null) {
+                    statsRecorder.recordEviction(CacheStats.EvictionCause.SIZE);
+                }
+            } else if (!scanUntilRemovable) {
+                break;
+            }
+            entry = next;
+        }
+    }
+
     /**
      * Gets the value mapped to the key specified.
      * <p>
@@ -342,6 +538,9 @@ public class LRUMap<K, V>
      */
     public V get(final Object key, final boolean updateToMRU) {
         final LinkEntry<K, V> entry = getEntry(key);
+        if (statsRecorder != null) {
+            statsRecorder.recordLookup(entry);
+        }
         if (entry == null) {
             return null;
         }
@@ -352,12 +551,35 @@ public class LRUMap<K, V>
     }
 
     /**
-     * Returns true if this map is full and no new mappings can be added.
+     * Gets the recorder of the statistics of this map.
+     *
+     * @return the statistics recorder, null if statistics are disabled
+     * @since 4.6.0
+     */
+    public CacheStatsRecorder getStatsRecorder() {
+        return statsRecorder;
+    }
+
+    /**
+     * Initialize this subclass during construction, cloning or deserialization.
+     */
+    @Override
+    protected void init() {
+        super.init();
+        totalWeight = 0;
+    }
+
+    /**
+     * Returns true if this map is full and no new mappings can be added
+     * without evicting entries.
      *
      * @return {@code true} if the map is full
      */
     @Override
     public boolean isFull() {
+        if (weigher != null) {
+            return totalWeight >= maxWeight;
+        }
         return size >= maxSize;
     }
 
@@ -382,6 +604,20 @@ public class LRUMap<K, V>
         return maxSize;
     }
 
+    /**
+     * Gets the maximum total weight of the map.
+     * <p>
+     * If the map is bounded by its number of entries, every entry weighs one
+     * and this is the maximum size.
+     * </p>
+     *
+     * @return the maximum total weight of the mappings the map can hold
+     * @since 4.6.0
+     */
+    public long maxWeight() {
+        return weigher != null ? maxWeight : maxSize;
+    }
+
     /**
      * Moves an entry to the MRU position at the end of the list.
      * <p>
@@ -423,6 +659,22 @@ public class LRUMap<K, V>
         doReadObject(in);
     }
 
+    /**
+     * Removes an entry from this map, subtracting its weight from the total
+     * weight if the map is weight bounded.
+     *
+     * @param entry  the entry to remove
+     * @param hashIndex  the index into the data structure
+     * @param previous  the previous entry in the chain
+     */
+    @Override
+    protected void removeEntry(final HashEntry<K, V> entry, final int hashIndex, final HashEntry<K, V> previous) {
+        if (weigher != null) {
+            totalWeight -= ((WeightedEntry) entry).weight;
+        }
+        super.removeEntry(entry, hashIndex, previous);
+    }
+
     /**
      * Subclass method to control removal of the least recently used entry from the map.
      * <p>
@@ -453,6 +705,7 @@ public class LRUMap<K, V>
      * If the flag is true, the next LRU entry will be passed to this method and so on
      * until one returns false and is removed, or every entry in the map has been passed.
      * If the scanUntilRemovable flag is false, the map will exceed the maximum size.
+     * A weight bounded map likewise stops evicting and exceeds its maximum weight.
      * </p>
      * <p>
      * Note: Commons Collections 3.0 passed the wrong entry to this method.
@@ -509,11 +762,40 @@ public class LRUMap<K, V>
         }
     }
 
+    /**
+     * Sets the recorder of the statistics of this map, which records the hits
+     * and misses of {@link #get(Object, boolean)} and the entries evicted
+     * because the map is full. Statistics are disabled by default and are not
+     * serialized.
+     *
+     * @param statsRecorder  the statistics recorder, null to disable statistics
+     * @since 4.6.0
+     */
+    public void setStatsRecorder(final CacheStatsRecorder statsRecorder) {
+        this.statsRecorder = statsRecorder;
+    }
+
+    /**
+     * Gets the total weight of the mappings in the map.
+     * <p>
+     * If the map is bounded by its number of entries, every entry weighs one
+     * and this is the size.
+     * </p>
+     *
+     * @return the total weight
+     * @since 4.6.0
+     */
+    public long totalWeight() {
+        return weigher != null ? totalWeight : size;
+    }
+
     /**
      * Updates an existing key-value mapping.
      * <p>
      * This implementation moves the updated entry to the end of the list
-     * using {@link #moveToMRU(AbstractLinkedMap.LinkEntry)}.
+     * using {@link #moveToMRU(AbstractLinkedMap.LinkEntry)}. If the map is
+     * weight bounded and the new value makes it exceed its maximum weight,
+     * least recently used entries are removed until it fits again.
      * </p>
      *
      * @param entry  the entry to update
@@ -523,6 +805,20 @@ public class LRUMap<K, V>
     protected void updateEntry(final HashEntry<K, V> entry, final V newValue) {
         moveToMRU((LinkEntry<K, V>) entry);  // handles modCount
         entry.setValue(newValue);
+        if (weigher != null) {
+            evictToMaxWeight();
+        }
+    }
+
+    /**
+     * Gets the weight of a mapping from the weigher.
+     */
+    private long weigh(final K key, final V value) {
+        final long weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Negative weight " + weight + " for key " + key);
+        }
+        return weight;
     }
 
     /**
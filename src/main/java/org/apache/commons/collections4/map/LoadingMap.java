@@ -0,0 +1,683 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.commons.collections4.FunctorException;
+import org.apache.commons.collections4.Transformer;
+
+/**
+ * Decorates another {@code Map} to load values on demand, turning a bounded or
+ * expiring map such as {@link LRUMap} or {@link PassiveExpiringMap} into a
+ * thread-safe loading cache.
+ * <p>
+ * When {@link #get(Object)} misses, the loader is called to compute the value,
+ * which is then stored in the decorated map. Loading is <em>single-flight</em>:
+ * while a value is being loaded for a key, other threads asking for the same
+ * key wait for that load instead of calling the loader themselves. The loader
+ * runs outside of any lock, so loads of different keys proceed in parallel.
+ * A value loaded while its key is put or removed is returned to the threads
+ * waiting for it, but not stored over that write. A loader must not get the key
+ * it is loading: that fails with an {@link IllegalStateException}.
+ * </p>
+ * <p>
+ * {@link #getAll(Collection)} looks up several keys at once and passes all the
+ * misses to the bulk loader in a single call, falling back to the per-key
+ * loader if no bulk loader is configured.
+ * </p>
+ * <p>
+ * If a refresh interval is configured, a hit on a value that was loaded longer
+ * ago than that interval returns the current value and asynchronously reloads
+ * it on the refresh executor. With a refresh interval shorter than the time to
+ * live of a {@link PassiveExpiringMap}, frequently used values are refreshed
+ * before they expire and callers never wait for them.
+ * </p>
+ * <p>
+ * The loader signals the absence of a value by returning {@code null}; in that
+ * case nothing is stored. Values are never loaded for a {@code null} key.
+ * </p>
+ * <p>
+ * If a {@link CacheStatsRecorder} is configured, the hits and misses of
+ * {@link #get(Object)} and {@link #getAll(Collection)} and the loads are
+ * recorded. To also gather the evictions of the decorated map, give that map
+ * a recorder of its own: sharing this one would count each lookup twice.
+ * </p>
+ * <p>
+ * All methods of this class synchronize on the map itself, and the loaders are
+ * called without holding that lock. As with
+ * {@link java.util.Collections#synchronizedMap(Map)}, it is imperative that the
+ * user manually synchronizes on this map when iterating over any of its
+ * collection views.
+ * </p>
+ *
+ * @param <K> the type of the keys in this map
+ * @param <V> the type of the values in this map
+ * @since 4.6.0
+ */
+public class LoadingMap<K, V> extends AbstractMapDecorator<K, V> {
+
+    /**
+     * Builds new LoadingMap instances.
+     * <p>
+     * The map to decorate and the loader are required. By default there is no
+     * bulk loader and values are never refreshed.
+     * </p>
+     *
+     * @param <K> the type of keys.
+     * @param <V> the type of values.
+     */
+    public static class Builder<K, V> implements Supplier<LoadingMap<K, V>> {
+
+        private Map<K, V> map;
+        private Transformer<? super K, ? extends V> loader;
+        private Transformer<? super Collection<K>, ? extends Map<? extends K, ? extends V>> bulkLoader;
+        private long refreshAfterMillis = -1L;
+        private Executor refreshExecutor;
+        private CacheStatsRecorder statsRecorder;
+
+        /**
+         * Constructs a new instance.
+         */
+        public Builder() {
+            // empty
+        }
+
+        /**
+         * Builds a new {@link LoadingMap}.
+         *
+         * @throws NullPointerException if the map or loader is not set.
+         */
+        @Override
+        public LoadingMap<K, V> get() {
+            return new LoadingMap<>(this);
+        }
+
+        /**
+         * Sets the loader used by {@link LoadingMap#getAll(Collection)} to load
+         * all missing values in a single call. The returned map may omit keys
+         * that have no value, and may contain additional entries, which are
+         * stored as well.
+         *
+         * @param bulkLoader the bulk loader, null to load missing values one by one.
+         * @return {@code this} instance.
+         */
+        public Builder<K, V> setBulkLoader(final Transformer<? super Collection<K>, ? extends Map<? extends K, ? extends V>> bulkLoader) {
+            this.bulkLoader = bulkLoader;
+            return this;
+        }
+
+        /**
+         * Sets the loader used to compute missing values.
+         *
+         * @param loader the loader, must not be null.
+         * @return {@code this} instance.
+         */
+        public Builder<K, V> setLoader(final Transformer<? super K, ? extends V> loader) {
+            this.loader = loader;
+            return this;
+        }
+
+        /**
+         * Sets the map to decorate.
+         *
+         * @param map the map to decorate, must not be null.
+         * @return {@code this} instance.
+         */
+        public Builder<K, V> setMap(final Map<K, V> map) {
+            this.map = map;
+            return this;
+        }
+
+        /**
+         * Sets the time after which a value is reloaded asynchronously on its
+         * next access. A negative value disables refreshing.
+         *
+         * @param refreshAfter the amount of time after which a value is refreshed.
+         * @param timeUnit the unit of time for the {@code refreshAfter} parameter, must not be null.
+         * @return {@code this} instance.
+         * @throws NullPointerException if the time unit is null.
+         */
+        public Builder<K, V> setRefreshAfter(final long refreshAfter, final TimeUnit timeUnit) {
+            Objects.requireNonNull(timeUnit, "timeUnit");
+            this.refreshAfterMillis = refreshAfter < 0 ? -1L : TimeUnit.MILLISECONDS.convert(refreshAfter, timeUnit);
+            return this;
+        }
+
+        /**
+         * Sets the executor used to refresh values, defaults to
+         * {@link ForkJoinPool#commonPool()}.
+         *
+         * @param refreshExecutor the executor, null for the default.
+         * @return {@code this} instance.
+         */
+        public Builder<K, V> setRefreshExecutor(final Executor refreshExecutor) {
+            this.refreshExecutor = refreshExecutor;
+            return this;
+        }
+
+        /**
+         * Sets the recorder of the hits, misses and loads of the map.
+         *
+         * @param statsRecorder the statistics recorder, null to disable statistics.
+         * @return {@code this} instance.
+         */
+        public Builder<K, V> setStatsRecorder(final CacheStatsRecorder statsRecorder) {
+            this.statsRecorder = statsRecorder;
+            return this;
+        }
+    }
+
+    /**
+     * A load or refresh in progress, which is discarded if its key is written meanwhile.
+     *
+     * @param <V> the type of the value.
+     */
+    private static final class Load<V> extends CompletableFuture<V> {
+
+        /** The thread calling the loader, null until it starts. */
+        volatile Thread loader;
+
+        /** Whether the key was put or removed since the load started. Guarded by the map. */
+        boolean stale;
+
+        Load(final Thread loader) {
+            this.loader = loader;
+        }
+    }
+
+    /**
+     * Creates a new builder.
+     *
+     * @param <K> the type of keys.
+     * @param <V> the type of values.
+     * @return a new Builder.
+     */
+    public static <K, V> Builder<K, V> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Factory method to create a loading map without bulk loading or refreshing.
+     *
+     * @param <K>  the key type
+     * @param <V>  the value type
+     * @param map  the map to decorate, must not be null
+     * @param loader  the loader used to compute missing values, must not be null
+     * @return a new loading map
+     * @throws NullPointerException if map or loader is null
+     */
+    public static <K, V> LoadingMap<K, V> loadingMap(final Map<K, V> map, final Transformer<? super K, ? extends V> loader) {
+        return LoadingMap.<K, V>builder().setMap(map).setLoader(loader).get();
+    }
+
+    /**
+     * Waits for a load started by another thread.
+     *
+     * @throws IllegalStateException if the load was started by the current thread, whose loader asks for its own key.
+     */
+    private static <V> V await(final Load<V> future) {
+        if (future.loader == Thread.currentThread()) {
+            throw new IllegalStateException("Recursive load of the same key");
+        }
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FunctorException("Interrupted while waiting for a value to load", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new FunctorException(cause);
+        }
+    }
+
+    /** The loader used to compute missing values. */
+    private final Transformer<? super K, ? extends V> loader;
+
+    /** The loader used to compute several missing values at once, may be null. */
+    private final Transformer<? super Collection<K>, ? extends Map<? extends K, ? extends V>> bulkLoader;
+
+    /** The time in milliseconds after which a value is refreshed, negative if never. */
+    private final long refreshAfterMillis;
+
+    /** The executor running refreshes. */
+    private final Executor refreshExecutor;
+
+    /** The loads and refreshes in progress. */
+    private final ConcurrentMap<K, Load<V>> inFlight = new ConcurrentHashMap<>();
+
+    /** The time each value was loaded, null if values are never refreshed. Guarded by this. */
+    private final Map<K, Long> loadTimes;
+
+    /** The statistics recorder, null if statistics are disabled. */
+    private final CacheStatsRecorder statsRecorder;
+
+    /**
+     * Constructs a new instance from a builder.
+     *
+     * @param builder the builder.
+     * @throws NullPointerException if the map or loader is null.
+     */
+    protected LoadingMap(final Builder<K, V> builder) {
+        super(builder.map);
+        this.loader = Objects.requireNonNull(builder.loader, "loader");
+        this.bulkLoader = builder.bulkLoader;
+        this.refreshAfterMillis = builder.refreshAfterMillis;
+        this.refreshExecutor = builder.refreshExecutor != null ? builder.refreshExecutor : ForkJoinPool.commonPool();
+        this.loadTimes = refreshAfterMillis >= 0 ? new HashMap<>() : null;
+        this.statsRecorder = builder.statsRecorder;
+    }
+
+    @Override
+    public synchronized void clear() {
+        inFlight.values().forEach(load -> load.stale = true);
+        map.clear();
+        if (loadTimes != null) {
+            loadTimes.clear();
+        }
+    }
+
+    @Override
+    public synchronized boolean containsKey(final Object key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public synchronized boolean containsValue(final Object value) {
+        return map.containsValue(value);
+    }
+
+    @Override
+    public synchronized Set<Entry<K, V>> entrySet() {
+        return map.entrySet();
+    }
+
+    @Override
+    public synchronized boolean equals(final Object object) {
+        return object == this || map.equals(object);
+    }
+
+    /**
+     * Gets the value mapped to the key, loading it if it is missing. Concurrent
+     * calls for the same missing key share a single load.
+     *
+     * @param key the key.
+     * @return the mapped or loaded value, null if the loader returned null or
+     *         if the key is null and not mapped.
+     * @throws ClassCastException if the key is of an inappropriate type.
+     */
+    @Override
+    public V get(final Object key) {
+        @SuppressWarnings("unchecked")
+        final K castKey = (K) key;
+        final V value;
+        final boolean refresh;
+        synchronized (this) {
+            value = map.get(castKey);
+            refresh = value != null && isRefreshDue(castKey);
+        }
+        if (statsRecorder != null) {
+            statsRecorder.recordLookup(value);
+        }
+        if (value == null) {
+            return castKey == null ? null : load(castKey);
+        }
+        if (refresh) {
+            refresh(castKey);
+        }
+        return value;
+    }
+
+    /**
+     * Gets the values mapped to the given keys, loading all missing values
+     * with a single call to the bulk loader. Keys that are already being loaded
+     * by other threads are not loaded again.
+     *
+     * @param keys the keys to look up, must not be null and must not contain null.
+     * @return a map of the keys that have a value to their values, in the
+     *         iteration order of {@code keys}.
+     * @throws NullPointerException if {@code keys} is null or contains null.
+     */
+    public Map<K, V> getAll(final Collection<? extends K> keys) {
+        Objects.requireNonNull(keys, "keys");
+        final Map<K, V> found = new HashMap<>();
+        final List<K> misses = new ArrayList<>();
+        final List<K> refreshes = new ArrayList<>();
+        synchronized (this) {
+            for (final K key : keys) {
+                Objects.requireNonNull(key, "key");
+                final V value = map.get(key);
+                if (statsRecorder != null) {
+                    statsRecorder.recordLookup(value);
+                }
+                if (value == null) {
+                    misses.add(key);
+                } else {
+                    found.put(key, value);
+                    if (isRefreshDue(key)) {
+                        refreshes.add(key);
+                    }
+                }
+            }
+        }
+        refreshes.forEach(this::refresh);
+        if (!misses.isEmpty()) {
+            final Map<K, Load<V>> owned = new LinkedHashMap<>();
+            final Map<K, Load<V>> waiting = new HashMap<>();
+            for (final K key : misses) {
+                if (!owned.containsKey(key) && !waiting.containsKey(key)) {
+                    final Load<V> future = new Load<>(Thread.currentThread());
+                    final Load<V> existing = inFlight.putIfAbsent(key, future);
+                    if (existing == null) {
+                        owned.put(key, future);
+                    } else {
+                        waiting.put(key, existing);
+                    }
+                }
+            }
+            if (!owned.isEmpty()) {
+                found.putAll(loadAll(owned));
+            }
+            for (final Entry<K, Load<V>> entry : waiting.entrySet()) {
+                final V value = await(entry.getValue());
+                if (value != null) {
+                    found.put(entry.getKey(), value);
+                }
+            }
+        }
+        final Map<K, V> result = new LinkedHashMap<>();
+        for (final K key : keys) {
+            final V value = found.get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized int hashCode() {
+        return map.hashCode();
+    }
+
+    /**
+     * Marks the load in progress for the given key, if any, as stale, so that its value does not overwrite a
+     * write made meanwhile. The caller must hold the lock.
+     */
+    private void invalidateLoad(final Object key) {
+        final Load<V> load = key != null ? inFlight.get(key) : null;
+        if (load != null) {
+            load.stale = true;
+        }
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    /**
+     * Tests whether the value for the given key is due for a refresh. The
+     * caller must hold the lock.
+     */
+    private boolean isRefreshDue(final K key) {
+        if (loadTimes == null) {
+            return false;
+        }
+        final Long loadTime = loadTimes.get(key);
+        return loadTime == null || now() - loadTime.longValue() >= refreshAfterMillis;
+    }
+
+    @Override
+    public synchronized Set<K> keySet() {
+        return map.keySet();
+    }
+
+    /**
+     * Loads a missing value, or waits for the load in progress.
+     */
+    private V load(final K key) {
+        final Load<V> future = new Load<>(Thread.currentThread());
+        final Load<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            V value;
+            synchronized (this) {
+                // another load may have completed since the miss
+                value = map.get(key);
+            }
+            if (value == null) {
+                value = load(loader, key);
+                synchronized (this) {
+                    store(key, value, future);
+                }
+            }
+            future.complete(value);
+            return value;
+        } catch (final RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Calls a loader, recording the load time if statistics are enabled.
+     */
+    private <I, O> O load(final Transformer<? super I, ? extends O> transformer, final I input) {
+        if (statsRecorder == null) {
+            return transformer.apply(input);
+        }
+        final long start = System.nanoTime();
+        final O output;
+        try {
+            output = transformer.apply(input);
+        } catch (final RuntimeException | Error e) {
+            statsRecorder.recordLoadFailure(System.nanoTime() - start);
+            throw e;
+        }
+        statsRecorder.recordLoadSuccess(System.nanoTime() - start);
+        return output;
+    }
+
+    /**
+     * Loads the values for the keys whose futures this thread owns.
+     */
+    private Map<K, V> loadAll(final Map<K, Load<V>> owned) {
+        try {
+            final Map<K, V> loaded = new HashMap<>();
+            final List<K> missing = new ArrayList<>();
+            synchronized (this) {
+                for (final K key : owned.keySet()) {
+                    final V value = map.get(key);
+                    if (value == null) {
+                        missing.add(key);
+                    } else {
+                        loaded.put(key, value);
+                    }
+                }
+            }
+            if (!missing.isEmpty()) {
+                if (bulkLoader == null) {
+                    for (final K key : missing) {
+                        final V value = load(loader, key);
+                        if (value != null) {
+                            loaded.put(key, value);
+                        }
+                    }
+                } else {
+                    final Map<? extends K, ? extends V> values = load(bulkLoader, Collections.unmodifiableList(missing));
+                    if (values != null) {
+                        loaded.putAll(values);
+                    }
+                }
+                synchronized (this) {
+                    for (final K key : missing) {
+                        store(key, loaded.get(key), owned.get(key));
+                    }
+                    for (final Entry<K, V> entry : loaded.entrySet()) {
+                        // extra values of the bulk loader, unless another thread is loading them
+                        if (!owned.containsKey(entry.getKey()) && !inFlight.containsKey(entry.getKey()) && entry.getValue() != null) {
+                            map.put(entry.getKey(), entry.getValue());
+                            recordLoadTime(entry.getKey());
+                        }
+                    }
+                }
+            }
+            owned.forEach((key, future) -> future.complete(loaded.get(key)));
+            return loaded;
+        } catch (final RuntimeException | Error e) {
+            owned.values().forEach(future -> future.completeExceptionally(e));
+            throw e;
+        } finally {
+            owned.forEach(inFlight::remove);
+        }
+    }
+
+    /**
+     * The current time in milliseconds.
+     */
+    private long now() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized V put(final K key, final V value) {
+        invalidateLoad(key);
+        final V previous = map.put(key, value);
+        recordLoadTime(key);
+        return previous;
+    }
+
+    @Override
+    public synchronized void putAll(final Map<? extends K, ? extends V> mapToCopy) {
+        for (final Entry<? extends K, ? extends V> entry : mapToCopy.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Records the load time of the given key. The caller must hold the lock.
+     */
+    private void recordLoadTime(final K key) {
+        if (loadTimes != null) {
+            loadTimes.put(key, Long.valueOf(now()));
+            // forget keys that the decorated map has evicted or expired
+            if (loadTimes.size() > 2 * map.size() + 16) {
+                loadTimes.keySet().retainAll(map.keySet());
+            }
+        }
+    }
+
+    /**
+     * Reloads the value of the given key on the refresh executor, unless a
+     * load is already in progress. Failures keep the current value.
+     */
+    private void refresh(final K key) {
+        final Load<V> future = new Load<>(null);
+        if (inFlight.putIfAbsent(key, future) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    future.loader = Thread.currentThread();
+                    final V value = load(loader, key);
+                    synchronized (this) {
+                        if (value == null) {
+                            if (!future.stale) {
+                                map.remove(key);
+                                loadTimes.remove(key);
+                            }
+                        } else {
+                            store(key, value, future);
+                        }
+                    }
+                    future.complete(value);
+                } catch (final RuntimeException | Error e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, future);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+        }
+    }
+
+    @Override
+    public synchronized V remove(final Object key) {
+        invalidateLoad(key);
+        if (loadTimes != null) {
+            loadTimes.remove(key);
+        }
+        return map.remove(key);
+    }
+
+    @Override
+    public synchronized int size() {
+        return map.size();
+    }
+
+    /**
+     * Stores a loaded value, ignoring null and the values of loads made stale by a write of their key. The
+     * caller must hold the lock.
+     */
+    private void store(final K key, final V value, final Load<V> load) {
+        if (value != null && !load.stale) {
+            map.put(key, value);
+            recordLoadTime(key);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return map.toString();
+    }
+
+    @Override
+    public synchronized Collection<V> values() {
+        return map.values();
+    }
+}
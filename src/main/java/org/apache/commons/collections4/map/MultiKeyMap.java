@@ -20,8 +20,15 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Set;
 
 import org.apache.commons.collections4.MapIterator;
 import org.apache.commons.collections4.keyvalue.MultiKey;
@@ -75,6 +82,12 @@ import org.apache.commons.collections4.map.AbstractHashedMap.HashEntry;
  * }
  * </pre>
  * <p>
+ * The partial-key operations {@code removeAll(key1, ...)} and {@link #mapIterator(Object)}
+ * scan the whole map. A map created by {@link #indexedMultiKeyMap(AbstractHashedMap)}
+ * additionally groups the keys by their first key, so that these operations only visit
+ * the mappings sharing that first key, at the cost of one index entry per mapping.
+ * </p>
+ * <p>
  * <strong>Note that MultiKeyMap is not synchronized and is not thread-safe.</strong>
  * If you wish to use this map from multiple threads concurrently, you must use
  * appropriate synchronization. This class may throw exceptions when accessed
@@ -88,9 +101,114 @@ import org.apache.commons.collections4.map.AbstractHashedMap.HashEntry;
 public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K>, V>
         implements Serializable, Cloneable {
 
+    /**
+     * MapIterator over a list of keys, looking each one up in the decorated map.
+     */
+    private final class FirstKeyMapIterator implements MapIterator<MultiKey<? extends K>, V> {
+
+        /** The keys to return if still mapped. */
+        private final Iterator<MultiKey<? extends K>> keys;
+
+        /** The next entry to return. */
+        private HashEntry<MultiKey<? extends K>, V> next;
+
+        /** The entry last returned by next(). */
+        private HashEntry<MultiKey<? extends K>, V> current;
+
+        FirstKeyMapIterator(final List<MultiKey<? extends K>> keys) {
+            this.keys = keys.iterator();
+        }
+
+        @Override
+        public MultiKey<? extends K> getKey() {
+            if (current == null) {
+                throw new IllegalStateException(AbstractHashedMap.GETKEY_INVALID);
+            }
+            return current.getKey();
+        }
+
+        @Override
+        public V getValue() {
+            if (current == null) {
+                throw new IllegalStateException(AbstractHashedMap.GETVALUE_INVALID);
+            }
+            return current.getValue();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && keys.hasNext()) {
+                next = decorated().getEntry(keys.next());
+            }
+            return next != null;
+        }
+
+        @Override
+        public MultiKey<? extends K> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException(AbstractHashedMap.NO_NEXT_ENTRY);
+            }
+            current = next;
+            next = null;
+            return current.getKey();
+        }
+
+        @Override
+        public void remove() {
+            if (current == null) {
+                throw new IllegalStateException(AbstractHashedMap.REMOVE_INVALID);
+            }
+            MultiKeyMap.this.remove(current.getKey());
+            current = null;
+        }
+
+        @Override
+        public V setValue(final V value) {
+            if (current == null) {
+                throw new IllegalStateException(AbstractHashedMap.SETVALUE_INVALID);
+            }
+            return current.setValue(value);
+        }
+    }
+
     /** Serialization version */
     private static final long serialVersionUID = -1788199231038721040L;
 
+    /**
+     * The number of stale keys tolerated in the first key index before it is rebuilt,
+     * on top of the number of mappings.
+     */
+    private static final int MIN_STALE_KEYS = 16;
+
+    /**
+     * Decorates the specified map to add the MultiKeyMap API, fast query and an index
+     * of the keys by their first key.
+     * <p>
+     * The index makes {@code removeAll(key1, ...)} and {@link #mapIterator(Object)} cost
+     * proportional to the number of mappings sharing the first key rather than to the size
+     * of the map. Mappings removed by the decorated map itself, such as {@link LRUMap}
+     * evictions, or through the views are dropped from the index lazily.
+     * </p>
+     * <p>
+     * The map must not be null and must be empty.
+     * </p>
+     *
+     * @param <K>  the key type
+     * @param <V>  the value type
+     * @param map  the map to decorate, not null
+     * @return a new multi key map
+     * @throws NullPointerException if map is null
+     * @throws IllegalArgumentException if the map is not empty
+     * @since 4.6.0
+     */
+    public static <K, V> MultiKeyMap<K, V> indexedMultiKeyMap(final AbstractHashedMap<MultiKey<? extends K>, V> map) {
+        Objects.requireNonNull(map, "map");
+        if (map.isEmpty()) {
+            return new MultiKeyMap<>(map, true);
+        }
+        throw new IllegalArgumentException("Map must be empty");
+    }
+
     /**
      * Decorates the specified map to add the MultiKeyMap API and fast query.
      * The map must not be null and must be empty.
@@ -111,6 +229,15 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
         throw new IllegalArgumentException("Map must be empty");
     }
 
+    /** Whether the keys are indexed by their first key. */
+    private final boolean firstKeyIndexed;
+
+    /** The keys grouped by their first key, null unless indexed. */
+    private transient Map<Object, Set<MultiKey<? extends K>>> firstKeyIndex;
+
+    /** The number of keys in the first key index, including keys no longer in the map. */
+    private transient int indexedKeyCount;
+
     /**
      * Constructs a new MultiKeyMap that decorates a {@code HashedMap}.
      */
@@ -127,8 +254,40 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
      * @param map  the map to decorate
      */
     protected MultiKeyMap(final AbstractHashedMap<MultiKey<? extends K>, V> map) {
+        this(map, false);
+    }
+
+    /**
+     * Constructor that decorates the specified map and is called from
+     * {@link #indexedMultiKeyMap(AbstractHashedMap)}.
+     * The map must not be null and should be empty or only contain valid keys.
+     * This constructor performs no validation.
+     *
+     * @param map  the map to decorate
+     * @param firstKeyIndexed  whether to maintain an index of the keys by their first key
+     * @since 4.6.0
+     */
+    protected MultiKeyMap(final AbstractHashedMap<MultiKey<? extends K>, V> map, final boolean firstKeyIndexed) {
         super(map);
         this.map = map;
+        this.firstKeyIndexed = firstKeyIndexed;
+        if (firstKeyIndexed) {
+            rebuildFirstKeyIndex();
+        }
+    }
+
+    /**
+     * Adds a key to the first key index, rebuilding the index once stale keys dominate it.
+     *
+     * @param key  the key to add
+     */
+    private void addToFirstKeyIndex(final MultiKey<? extends K> key) {
+        if (key.size() > 0 && firstKeyIndex.computeIfAbsent(key.getKey(0), k -> new HashSet<>()).add(key)) {
+            indexedKeyCount++;
+            if (indexedKeyCount > MIN_STALE_KEYS + 2 * decorated().size()) {
+                rebuildFirstKeyIndex();
+            }
+        }
     }
 
     /**
@@ -140,8 +299,24 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
         Objects.requireNonNull(key, "key");
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        if (firstKeyIndex != null) {
+            firstKeyIndex.clear();
+            indexedKeyCount = 0;
+        }
+    }
+
     /**
      * Clones the map without cloning the keys or values.
+     * <p>
+     * A map indexed by the first key clones the decorated map and rebuilds its own index
+     * from it, as an index can only follow the mappings of a single map.
+     * </p>
      *
      * @return a shallow clone
      */
@@ -149,7 +324,12 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
     @Override
     public MultiKeyMap<K, V> clone() {
         try {
-            return (MultiKeyMap<K, V>) super.clone();
+            final MultiKeyMap<K, V> cloned = (MultiKeyMap<K, V>) super.clone();
+            if (firstKeyIndexed) {
+                cloned.map = decorated().clone();
+                cloned.rebuildFirstKeyIndex();
+            }
+            return cloned;
         } catch (final CloneNotSupportedException e) {
             throw new UnsupportedOperationException(e);
         }
@@ -532,6 +712,36 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
         return decorated().mapIterator();
     }
 
+    /**
+     * Gets a map iterator over the mappings whose first key is that specified.
+     * <p>
+     * The iterator works on the matching keys found when it is created: mappings added
+     * afterwards are not returned and mappings removed afterwards are skipped.
+     * It supports {@code remove()} and {@code setValue()}.
+     * Without a first key index the whole map is scanned to find the matching keys.
+     * </p>
+     *
+     * @param key1  the first key
+     * @return a map iterator over the matching mappings
+     * @since 4.6.0
+     */
+    public MapIterator<MultiKey<? extends K>, V> mapIterator(final Object key1) {
+        final List<MultiKey<? extends K>> keys = new ArrayList<>();
+        if (firstKeyIndex != null) {
+            final Set<MultiKey<? extends K>> group = firstKeyIndex.get(key1);
+            if (group != null) {
+                keys.addAll(group);
+            }
+        } else {
+            for (final MultiKey<? extends K> multi : decorated().keySet()) {
+                if (multi.size() >= 1 && Objects.equals(key1, multi.getKey(0))) {
+                    keys.add(multi);
+                }
+            }
+        }
+        return new FirstKeyMapIterator(keys);
+    }
+
     /**
      * Associates the specified value with the specified keys in this map.
      *
@@ -555,7 +765,11 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
             }
             entry = entry.next;
         }
-        decorated().addMapping(index, hashCode, new MultiKey<>(key1, key2, key3, key4, key5), value);
+        final MultiKey<K> multi = new MultiKey<>(key1, key2, key3, key4, key5);
+        decorated().addMapping(index, hashCode, multi, value);
+        if (firstKeyIndex != null) {
+            addToFirstKeyIndex(multi);
+        }
         return null;
     }
 
@@ -581,7 +795,11 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
             }
             entry = entry.next;
         }
-        decorated().addMapping(index, hashCode, new MultiKey<>(key1, key2, key3, key4), value);
+        final MultiKey<K> multi = new MultiKey<>(key1, key2, key3, key4);
+        decorated().addMapping(index, hashCode, multi, value);
+        if (firstKeyIndex != null) {
+            addToFirstKeyIndex(multi);
+        }
         return null;
     }
 
@@ -606,7 +824,11 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
             }
             entry = entry.next;
         }
-        decorated().addMapping(index, hashCode, new MultiKey<>(key1, key2, key3), value);
+        final MultiKey<K> multi = new MultiKey<>(key1, key2, key3);
+        decorated().addMapping(index, hashCode, multi, value);
+        if (firstKeyIndex != null) {
+            addToFirstKeyIndex(multi);
+        }
         return null;
     }
 
@@ -630,7 +852,11 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
             }
             entry = entry.next;
         }
-        decorated().addMapping(index, hashCode, new MultiKey<>(key1, key2), value);
+        final MultiKey<K> multi = new MultiKey<>(key1, key2);
+        decorated().addMapping(index, hashCode, multi, value);
+        if (firstKeyIndex != null) {
+            addToFirstKeyIndex(multi);
+        }
         return null;
     }
 
@@ -647,7 +873,11 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
     @Override
     public V put(final MultiKey<? extends K> key, final V value) {
         checkKey(key);
-        return super.put(key, value);
+        final V oldValue = super.put(key, value);
+        if (firstKeyIndex != null) {
+            addToFirstKeyIndex(key);
+        }
+        return oldValue;
     }
 
     /**
@@ -664,6 +894,11 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
             checkKey(key);
         }
         super.putAll(mapToCopy);
+        if (firstKeyIndex != null) {
+            for (final MultiKey<? extends K> key : mapToCopy.keySet()) {
+                addToFirstKeyIndex(key);
+            }
+        }
     }
 
     /**
@@ -677,6 +912,33 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
     private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
         map = (Map<MultiKey<? extends K>, V>) in.readObject();
+        if (firstKeyIndexed) {
+            rebuildFirstKeyIndex();
+        }
+    }
+
+    /**
+     * Rebuilds the first key index from the keys of the decorated map, dropping stale keys.
+     */
+    private void rebuildFirstKeyIndex() {
+        firstKeyIndex = new HashMap<>();
+        indexedKeyCount = 0;
+        for (final MultiKey<? extends K> key : decorated().keySet()) {
+            if (key.size() > 0 && firstKeyIndex.computeIfAbsent(key.getKey(0), k -> new HashSet<>()).add(key)) {
+                indexedKeyCount++;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public V remove(final Object key) {
+        if (firstKeyIndex != null) {
+            removeFromFirstKeyIndex(key);
+        }
+        return super.remove(key);
     }
 
     /**
@@ -690,6 +952,9 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
      * @return true if any elements were removed
      */
     public boolean removeAll(final Object key1) {
+        if (firstKeyIndex != null) {
+            return removeAllIndexed(1, key1, null, null, null);
+        }
         boolean modified = false;
         final MapIterator<MultiKey<? extends K>, V> it = mapIterator();
         while (it.hasNext()) {
@@ -715,6 +980,9 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
      * @return true if any elements were removed
      */
     public boolean removeAll(final Object key1, final Object key2) {
+        if (firstKeyIndex != null) {
+            return removeAllIndexed(2, key1, key2, null, null);
+        }
         boolean modified = false;
         final MapIterator<MultiKey<? extends K>, V> it = mapIterator();
         while (it.hasNext()) {
@@ -742,6 +1010,9 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
      * @return true if any elements were removed
      */
     public boolean removeAll(final Object key1, final Object key2, final Object key3) {
+        if (firstKeyIndex != null) {
+            return removeAllIndexed(3, key1, key2, key3, null);
+        }
         boolean modified = false;
         final MapIterator<MultiKey<? extends K>, V> it = mapIterator();
         while (it.hasNext()) {
@@ -771,6 +1042,9 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
      * @return true if any elements were removed
      */
     public boolean removeAll(final Object key1, final Object key2, final Object key3, final Object key4) {
+        if (firstKeyIndex != null) {
+            return removeAllIndexed(4, key1, key2, key3, key4);
+        }
         boolean modified = false;
         final MapIterator<MultiKey<? extends K>, V> it = mapIterator();
         while (it.hasNext()) {
@@ -787,6 +1061,82 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
         return modified;
     }
 
+    /**
+     * Removes the mappings whose leading keys are those specified using the first key index.
+     *
+     * @param count  the number of leading keys to match
+     * @param key1  the first key
+     * @param key2  the second key, ignored if count is less than two
+     * @param key3  the third key, ignored if count is less than three
+     * @param key4  the fourth key, ignored if count is less than four
+     * @return true if any elements were removed
+     */
+    private boolean removeAllIndexed(final int count, final Object key1, final Object key2, final Object key3,
+            final Object key4) {
+        final Set<MultiKey<? extends K>> group = firstKeyIndex.get(key1);
+        if (group == null) {
+            return false;
+        }
+        boolean modified = false;
+        final Iterator<MultiKey<? extends K>> it = group.iterator();
+        while (it.hasNext()) {
+            final MultiKey<? extends K> multi = it.next();
+            if (multi.size() >= count &&
+                (count < 2 || Objects.equals(key2, multi.getKey(1))) &&
+                (count < 3 || Objects.equals(key3, multi.getKey(2))) &&
+                (count < 4 || Objects.equals(key4, multi.getKey(3)))) {
+                it.remove();
+                indexedKeyCount--;
+                modified |= removeDecoratedMapping(multi);
+            }
+        }
+        if (group.isEmpty()) {
+            firstKeyIndex.remove(key1);
+        }
+        return modified;
+    }
+
+    /**
+     * Removes a key from the decorated map without going through the index.
+     *
+     * @param key  the key to remove
+     * @return true if the key was in the map
+     */
+    private boolean removeDecoratedMapping(final MultiKey<? extends K> key) {
+        final AbstractHashedMap<MultiKey<? extends K>, V> decorated = decorated();
+        final int hashCode = decorated.hash(key);
+        final int index = decoratedHashIndex(hashCode);
+        AbstractHashedMap.HashEntry<MultiKey<? extends K>, V> entry = decorated.data[index];
+        AbstractHashedMap.HashEntry<MultiKey<? extends K>, V> previous = null;
+        while (entry != null) {
+            if (entry.hashCode == hashCode && decorated.isEqualKey(key, entry.key)) {
+                decorated.removeMapping(entry, index, previous);
+                return true;
+            }
+            previous = entry;
+            entry = entry.next;
+        }
+        return false;
+    }
+
+    /**
+     * Removes a key from the first key index.
+     *
+     * @param key  the key to remove, may be any object
+     */
+    private void removeFromFirstKeyIndex(final Object key) {
+        if (key instanceof MultiKey && ((MultiKey<?>) key).size() > 0) {
+            final Object key1 = ((MultiKey<?>) key).getKey(0);
+            final Set<MultiKey<? extends K>> group = firstKeyIndex.get(key1);
+            if (group != null && group.remove(key)) {
+                indexedKeyCount--;
+                if (group.isEmpty()) {
+                    firstKeyIndex.remove(key1);
+                }
+            }
+        }
+    }
+
     /**
      * Removes the specified multi-key from this map.
      *
@@ -803,6 +1153,9 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
         while (entry != null) {
             if (entry.hashCode == hashCode && isEqualKey(entry, key1, key2)) {
                 final V oldValue = entry.getValue();
+                if (firstKeyIndex != null) {
+                    removeFromFirstKeyIndex(entry.getKey());
+                }
                 decorated().removeMapping(entry, index, previous);
                 return oldValue;
             }
@@ -829,6 +1182,9 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
         while (entry != null) {
             if (entry.hashCode == hashCode && isEqualKey(entry, key1, key2, key3)) {
                 final V oldValue = entry.getValue();
+                if (firstKeyIndex != null) {
+                    removeFromFirstKeyIndex(entry.getKey());
+                }
                 decorated().removeMapping(entry, index, previous);
                 return oldValue;
             }
@@ -856,6 +1212,9 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
         while (entry != null) {
             if (entry.hashCode == hashCode && isEqualKey(entry, key1, key2, key3, key4)) {
                 final V oldValue = entry.getValue();
+                if (firstKeyIndex != null) {
+                    removeFromFirstKeyIndex(entry.getKey());
+                }
                 decorated().removeMapping(entry, index, previous);
                 return oldValue;
             }
@@ -885,6 +1244,9 @@ public class MultiKeyMap<K, V> extends AbstractMapDecorator<MultiKey<? extends K
         while (entry != null) {
             if (entry.hashCode == hashCode && isEqualKey(entry, key1, key2, key3, key4, key5)) {
                 final V oldValue = entry.getValue();
+                if (firstKeyIndex != null) {
+                    removeFromFirstKeyIndex(entry.getKey());
+                }
                 decorated().removeMapping(entry, index, previous);
                 return oldValue;
             }
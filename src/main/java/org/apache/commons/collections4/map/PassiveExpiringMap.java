@@ -43,6 +43,13 @@ import java.util.concurrent.TimeUnit;
  * map, and {@code null} is returned.
  * </p>
  * <p>
+ * When this map is not given a map to decorate, it stores each expiration time
+ * as a primitive {@code long} inline with the map entry, so a single hash
+ * lookup serves both the value and the expiration check, and no additional
+ * entry or boxed {@link Long} is allocated per mapping. When decorating a
+ * caller-supplied map, the expiration times are tracked in a separate map.
+ * </p>
+ * <p>
  * When invoking methods that involve accessing the entire map contents (i.e
  * {@link #containsValue(Object)}, {@link #entrySet()}, etc.) this decorator
  * removes all expired entries prior to actually completing the invocation.
@@ -174,6 +181,209 @@ public class PassiveExpiringMap<K, V>
         long expirationTime(K key, V value);
     }
 
+    /**
+     * The map used when no map to decorate is supplied. Each entry carries its
+     * expiration time as a primitive {@code long}.
+     *
+     * @param <K> the type of the keys in the map
+     * @param <V> the type of the values in the map
+     */
+    private static final class ExpiringHashedMap<K, V> extends AbstractHashedMap<K, V> implements Serializable {
+
+        /**
+         * An entry with an inline expiration time.
+         *
+         * @param <K> the type of the keys in the map
+         * @param <V> the type of the values in the map
+         */
+        private static final class ExpiringEntry<K, V> extends HashEntry<K, V> {
+
+            /** The expiration time in milliseconds, negative if the entry never expires. */
+            long expirationTime;
+
+            ExpiringEntry(final HashEntry<K, V> next, final int hashCode, final Object key, final V value,
+                    final long expirationTime) {
+                super(next, hashCode, key, value);
+                this.expirationTime = expirationTime;
+            }
+
+            boolean isExpired(final long nowMillis) {
+                return expirationTime >= 0 && nowMillis >= expirationTime;
+            }
+        }
+
+        /** Serialization version */
+        private static final long serialVersionUID = 1L;
+
+        /** The statistics recorder of the owning map, null if statistics are disabled. */
+        transient CacheStatsRecorder statsRecorder;
+
+        ExpiringHashedMap() {
+            super(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR, DEFAULT_THRESHOLD);
+        }
+
+        /**
+         * Creates an entry that never expires, used by the plain {@link #put(Object, Object)}.
+         */
+        @Override
+        protected HashEntry<K, V> createEntry(final HashEntry<K, V> next, final int hashCode, final K key, final V value) {
+            return new ExpiringEntry<>(next, hashCode, convertKey(key), value, -1L);
+        }
+
+        /**
+         * Reads the map data and expiration times from the stream.
+         *
+         * @param in the input stream
+         * @throws IOException if an error occurs while reading from the stream
+         * @throws ClassNotFoundException if an object read from the stream cannot be loaded
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void doReadObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+            loadFactor = in.readFloat();
+            final int capacity = in.readInt();
+            final int size = in.readInt();
+            init();
+            threshold = calculateThreshold(capacity, loadFactor);
+            data = new HashEntry[capacity];
+            for (int i = 0; i < size; i++) {
+                final K key = (K) in.readObject();
+                final V value = (V) in.readObject();
+                put(key, value, in.readLong(), Long.MIN_VALUE);
+            }
+        }
+
+        /**
+         * Writes the map data and expiration times to the stream.
+         *
+         * @param out the output stream
+         * @throws IOException if an error occurs while writing to the stream
+         */
+        @Override
+        protected void doWriteObject(final ObjectOutputStream out) throws IOException {
+            out.writeFloat(loadFactor);
+            out.writeInt(data.length);
+            out.writeInt(size);
+            for (final HashEntry<K, V> head : data) {
+                for (HashEntry<K, V> entry = head; entry != null; entry = entry.next) {
+                    out.writeObject(entry.getKey());
+                    out.writeObject(entry.getValue());
+                    out.writeLong(((ExpiringEntry<K, V>) entry).expirationTime);
+                }
+            }
+        }
+
+        /**
+         * Gets the entry mapped to the key, removing it if it has expired.
+         *
+         * @param key the key.
+         * @param nowMillis the current time in milliseconds.
+         * @return the live entry, null if none.
+         */
+        HashEntry<K, V> getLiveEntry(final Object key, final long nowMillis) {
+            final Object convertedKey = convertKey(key);
+            final int hashCode = hash(convertedKey);
+            final int index = hashIndex(hashCode, data.length);
+            HashEntry<K, V> entry = data[index];
+            HashEntry<K, V> previous = null;
+            while (entry != null) {
+                if (entry.hashCode == hashCode && isEqualKey(convertedKey, entry.key)) {
+                    if (((ExpiringEntry<K, V>) entry).isExpired(nowMillis)) {
+                        removeMapping(entry, index, previous);
+                        if (statsRecorder != null) {
+                            statsRecorder.recordEviction(CacheStats.EvictionCause.EXPIRED);
+                        }
+                        return null;
+                    }
+                    return entry;
+                }
+                previous = entry;
+                entry = entry.next;
+            }
+            return null;
+        }
+
+        /**
+         * Puts a key-value mapping with the given expiration time into this map.
+         *
+         * @param key the key to add.
+         * @param value the value to add.
+         * @param expirationTime the expiration time of the mapping.
+         * @param nowMillis the current time in milliseconds.
+         * @return the value previously mapped to this key, null if none or expired.
+         */
+        V put(final K key, final V value, final long expirationTime, final long nowMillis) {
+            final Object convertedKey = convertKey(key);
+            final int hashCode = hash(convertedKey);
+            final int index = hashIndex(hashCode, data.length);
+            HashEntry<K, V> entry = data[index];
+            while (entry != null) {
+                if (entry.hashCode == hashCode && isEqualKey(convertedKey, entry.key)) {
+                    final ExpiringEntry<K, V> expiringEntry = (ExpiringEntry<K, V>) entry;
+                    final V oldValue = expiringEntry.isExpired(nowMillis) ? null : entry.getValue();
+                    updateEntry(entry, value);
+                    expiringEntry.expirationTime = expirationTime;
+                    return oldValue;
+                }
+                entry = entry.next;
+            }
+            modCount++;
+            addEntry(new ExpiringEntry<>(data[index], hashCode, convertedKey, value, expirationTime), index);
+            size++;
+            checkCapacity();
+            return null;
+        }
+
+        /**
+         * Deserializes the map in using a custom routine.
+         *
+         * @param in the input stream
+         * @throws IOException if an error occurs while reading from the stream
+         * @throws ClassNotFoundException if an object read from the stream cannot be loaded
+         */
+        private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            doReadObject(in);
+        }
+
+        /**
+         * Removes all entries whose expiration time is less than {@code nowMillis}.
+         *
+         * @param nowMillis the current time in milliseconds.
+         */
+        void removeAllExpired(final long nowMillis) {
+            int removed = 0;
+            for (int index = 0; index < data.length; index++) {
+                HashEntry<K, V> entry = data[index];
+                HashEntry<K, V> previous = null;
+                while (entry != null) {
+                    final HashEntry<K, V> next = entry.next;
+                    if (((ExpiringEntry<K, V>) entry).isExpired(nowMillis)) {
+                        removeMapping(entry, index, previous);
+                        removed++;
+                    } else {
+                        previous = entry;
+                    }
+                    entry = next;
+                }
+            }
+            if (statsRecorder != null) {
+                statsRecorder.recordEvictions(CacheStats.EvictionCause.EXPIRED, removed);
+            }
+        }
+
+        /**
+         * Serializes this object to an ObjectOutputStream.
+         *
+         * @param out the target ObjectOutputStream.
+         * @throws IOException thrown when an I/O errors occur writing to the target stream.
+         */
+        private void writeObject(final ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+            doWriteObject(out);
+        }
+    }
+
     /** Serialization version */
     private static final long serialVersionUID = 1L;
 
@@ -195,12 +405,21 @@ public class PassiveExpiringMap<K, V>
         return TimeUnit.MILLISECONDS.convert(timeToLive, timeUnit);
     }
 
-    /** Map used to manage expiration times for the actual map entries. */
-    private final Map<Object, Long> expirationMap = new HashMap<>();
+    /**
+     * Map used to manage expiration times for the actual map entries when
+     * decorating a caller-supplied map, null when they are stored inline.
+     */
+    private final Map<Object, Long> expirationMap;
+
+    /** The decorated map if it stores expiration times inline, null otherwise. */
+    private transient ExpiringHashedMap<K, V> expiringMap;
 
     /** The policy used to determine time-to-live values for map entries. */
     private final ExpirationPolicy<K, V> expiringPolicy;
 
+    /** The statistics recorder, null if statistics are disabled. */
+    private transient CacheStatsRecorder statsRecorder;
+
     /**
      * Default constructor. Constructs a map decorator that results in entries
      * NEVER expiring.
@@ -218,7 +437,23 @@ public class PassiveExpiringMap<K, V>
      * @throws NullPointerException if expiringPolicy is null
      */
     public PassiveExpiringMap(final ExpirationPolicy<K, V> expiringPolicy) {
-        this(expiringPolicy, new HashMap<>());
+        this(expiringPolicy, new ExpiringHashedMap<>());
+    }
+
+    /**
+     * Constructs a map that stores expiration times inline.
+     *
+     * @param expiringPolicy the policy used to determine expiration times of
+     *        entries as they are added.
+     * @param map the empty map storing the entries.
+     * @throws NullPointerException if expiringPolicy is null
+     */
+    private PassiveExpiringMap(final ExpirationPolicy<K, V> expiringPolicy,
+                               final ExpiringHashedMap<K, V> map) {
+        super(map);
+        this.expiringPolicy = Objects.requireNonNull(expiringPolicy, "expiringPolicy");
+        this.expirationMap = null;
+        this.expiringMap = map;
     }
 
     /**
@@ -236,6 +471,7 @@ public class PassiveExpiringMap<K, V>
                               final Map<K, V> map) {
         super(map);
         this.expiringPolicy = Objects.requireNonNull(expiringPolicy, "expiringPolicy");
+        this.expirationMap = new HashMap<>();
     }
 
     /**
@@ -249,8 +485,7 @@ public class PassiveExpiringMap<K, V>
      *        ALWAYS expire.
      */
     public PassiveExpiringMap(final long timeToLiveMillis) {
-        this(new ConstantTimeToLiveExpirationPolicy<>(timeToLiveMillis),
-                new HashMap<>());
+        this(new ConstantTimeToLiveExpirationPolicy<>(timeToLiveMillis));
     }
 
     /**
@@ -327,7 +562,9 @@ public class PassiveExpiringMap<K, V>
     @Override
     public void clear() {
         super.clear();
-        expirationMap.clear();
+        if (expirationMap != null) {
+            expirationMap.clear();
+        }
     }
 
     /**
@@ -337,6 +574,9 @@ public class PassiveExpiringMap<K, V>
      */
     @Override
     public boolean containsKey(final Object key) {
+        if (expiringMap != null) {
+            return expiringMap.getLiveEntry(key, now()) != null;
+        }
         removeIfExpired(key, now());
         return super.containsKey(key);
     }
@@ -368,8 +608,29 @@ public class PassiveExpiringMap<K, V>
      */
     @Override
     public V get(final Object key) {
+        if (expiringMap != null) {
+            final Entry<K, V> entry = expiringMap.getLiveEntry(key, now());
+            if (statsRecorder != null) {
+                statsRecorder.recordLookup(entry);
+            }
+            return entry == null ? null : entry.getValue();
+        }
         removeIfExpired(key, now());
-        return super.get(key);
+        final V value = super.get(key);
+        if (statsRecorder != null) {
+            statsRecorder.recordLookup(value);
+        }
+        return value;
+    }
+
+    /**
+     * Gets the recorder of the statistics of this map.
+     *
+     * @return the statistics recorder, null if statistics are disabled.
+     * @since 4.6.0
+     */
+    public CacheStatsRecorder getStatsRecorder() {
+        return statsRecorder;
     }
 
     /**
@@ -427,6 +688,9 @@ public class PassiveExpiringMap<K, V>
      */
     @Override
     public V put(final K key, final V value) {
+        if (expiringMap != null) {
+            return expiringMap.put(key, value, expiringPolicy.expirationTime(key, value), now());
+        }
         // remove the previous record
         removeIfExpired(key, now());
 
@@ -457,6 +721,9 @@ public class PassiveExpiringMap<K, V>
         throws IOException, ClassNotFoundException {
         in.defaultReadObject();
         map = (Map<K, V>) in.readObject(); // (1)
+        if (map instanceof ExpiringHashedMap) {
+            expiringMap = (ExpiringHashedMap<K, V>) map;
+        }
     }
 
     /**
@@ -466,7 +733,9 @@ public class PassiveExpiringMap<K, V>
      */
     @Override
     public V remove(final Object key) {
-        expirationMap.remove(key);
+        if (expirationMap != null) {
+            expirationMap.remove(key);
+        }
         return super.remove(key);
     }
 
@@ -478,6 +747,10 @@ public class PassiveExpiringMap<K, V>
      * @see #isExpired(long, Long)
      */
     private void removeAllExpired(final long nowMillis) {
+        if (expiringMap != null) {
+            expiringMap.removeAllExpired(nowMillis);
+            return;
+        }
         final Iterator<Map.Entry<Object, Long>> iter = expirationMap.entrySet().iterator();
         while (iter.hasNext()) {
             final Map.Entry<Object, Long> expirationEntry = iter.next();
@@ -486,6 +759,9 @@ public class PassiveExpiringMap<K, V>
                 super.remove(expirationEntry.getKey());
                 // remove entry from expiration map
                 iter.remove();
+                if (statsRecorder != null) {
+                    statsRecorder.recordEviction(CacheStats.EvictionCause.EXPIRED);
+                }
             }
         }
     }
@@ -499,6 +775,24 @@ public class PassiveExpiringMap<K, V>
         final Long expirationTimeObject = expirationMap.get(key);
         if (isExpired(nowMillis, expirationTimeObject)) {
             remove(key);
+            if (statsRecorder != null) {
+                statsRecorder.recordEviction(CacheStats.EvictionCause.EXPIRED);
+            }
+        }
+    }
+
+    /**
+     * Sets the recorder of the statistics of this map, which records the hits
+     * and misses of {@link #get(Object)} and the entries removed because they
+     * expired. Statistics are disabled by default and are not serialized.
+     *
+     * @param statsRecorder the statistics recorder, null to disable statistics.
+     * @since 4.6.0
+     */
+    public void setStatsRecorder(final CacheStatsRecorder statsRecorder) {
+        this.statsRecorder = statsRecorder;
+        if (expiringMap != null) {
+            expiringMap.statsRecorder = statsRecorder;
         }
     }
 
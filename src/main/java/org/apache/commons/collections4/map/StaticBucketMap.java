@@ -25,6 +25,10 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import org.apache.commons.collections4.KeyValue;
 
@@ -83,6 +87,10 @@ import org.apache.commons.collections4.KeyValue;
  * added to the map after the iterator is created do not necessarily appear
  * during iteration.  Similarly, the iterator does not necessarily fail to
  * return keys and values that were removed after the iterator was created.
+ * A map created with {@link #StaticBucketMap(int, boolean) weakly consistent}
+ * views iterates without entering the monitors of the buckets at all.  The
+ * spliterators of the views split the buckets into ranges, so that
+ * {@code parallelStream()} scans the map in parallel.
  * </p>
  * <p>
  * Finally, unlike {@link java.util.HashMap}-style implementations, this
@@ -112,14 +120,22 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
         private final ArrayList<Map.Entry<K, V>> current = new ArrayList<>();
         private int bucket;
         private Map.Entry<K, V> last;
+        /** The next node of a weakly consistent traversal */
+        private Node<K, V> next;
 
         public boolean hasNext() {
+            if (weaklyConsistent) {
+                while (next == null && bucket < buckets.length()) {
+                    next = buckets.get(bucket++);
+                }
+                return next != null;
+            }
             if (!current.isEmpty()) {
                 return true;
             }
-            while (bucket < buckets.length) {
+            while (bucket < buckets.length()) {
                 synchronized (locks[bucket]) {
-                    Node<K, V> n = buckets[bucket];
+                    Node<K, V> n = buckets.get(bucket);
                     while (n != null) {
                         current.add(n);
                         n = n.next;
@@ -137,6 +153,12 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
             if (!hasNext()) {
                 throw new NoSuchElementException();
             }
+            if (weaklyConsistent) {
+                // a removed node keeps its next link, so the traversal carries on past it
+                last = next;
+                next = next.next;
+                return last;
+            }
             last = current.remove(current.size() - 1);
             return last;
         }
@@ -150,6 +172,102 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
         }
     }
 
+    /**
+     * Splits the traversal of the buckets into ranges of buckets, for parallel bulk scans.
+     *
+     * @param <T> the type of the elements, extracted from the nodes
+     */
+    private final class BucketSpliterator<T> implements Spliterator<T> {
+        private final Function<Node<K, V>, T> extractor;
+        private final int characteristics;
+        private int index;
+        private int fence;
+        private long estimate;
+        /** The next node of the current bucket */
+        private Node<K, V> next;
+        /** The nodes of the current bucket, copied under its lock */
+        private ArrayList<Node<K, V>> copy;
+        private int copyIndex;
+
+        BucketSpliterator(final Function<Node<K, V>, T> extractor, final int characteristics, final int index, final int fence, final long estimate) {
+            this.extractor = extractor;
+            this.characteristics = characteristics;
+            this.index = index;
+            this.fence = fence;
+            this.estimate = estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public void forEachRemaining(final Consumer<? super T> action) {
+            Objects.requireNonNull(action, "action");
+            while (tryAdvance(action)) {
+                // keep going
+            }
+        }
+
+        private Node<K, V> nextNode() {
+            if (weaklyConsistent) {
+                while (next == null && index < fence) {
+                    next = buckets.get(index++);
+                }
+                final Node<K, V> n = next;
+                if (n != null) {
+                    next = n.next;
+                }
+                return n;
+            }
+            while ((copy == null || copyIndex == copy.size()) && index < fence) {
+                if (copy == null) {
+                    copy = new ArrayList<>();
+                }
+                copy.clear();
+                copyIndex = 0;
+                synchronized (locks[index]) {
+                    for (Node<K, V> n = buckets.get(index); n != null; n = n.next) {
+                        copy.add(n);
+                    }
+                }
+                index++;
+            }
+            return copy == null || copyIndex == copy.size() ? null : copy.get(copyIndex++);
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super T> action) {
+            Objects.requireNonNull(action, "action");
+            final Node<K, V> n = nextNode();
+            if (n == null) {
+                return false;
+            }
+            // the action runs outside the bucket's monitor, as with the iterators
+            action.accept(extractor.apply(n));
+            return true;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            final int mid = index + fence >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+            // the current bucket, if any, stays with this spliterator
+            estimate >>>= 1;
+            final BucketSpliterator<T> suffix = new BucketSpliterator<>(extractor, characteristics, mid, fence, estimate);
+            fence = mid;
+            return suffix;
+        }
+    }
+
     private final class EntryIterator extends BaseIterator implements Iterator<Map.Entry<K, V>> {
 
         @Override
@@ -171,7 +289,7 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
             final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) obj;
             final int hash = getHash(entry.getKey());
             synchronized (locks[hash]) {
-                for (Node<K, V> n = buckets[hash]; n != null; n = n.next) {
+                for (Node<K, V> n = buckets.get(hash); n != null; n = n.next) {
                     if (n.equals(entry)) {
                         return true;
                     }
@@ -193,7 +311,7 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
             final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) obj;
             final int hash = getHash(entry.getKey());
             synchronized (locks[hash]) {
-                for (Node<K, V> n = buckets[hash]; n != null; n = n.next) {
+                for (Node<K, V> n = buckets.get(hash); n != null; n = n.next) {
                     if (n.equals(entry)) {
                         StaticBucketMap.this.remove(n.getKey());
                         return true;
@@ -208,6 +326,11 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
             return StaticBucketMap.this.size();
         }
 
+        @Override
+        public Spliterator<Map.Entry<K, V>> spliterator() {
+            return newSpliterator(n -> n, Spliterator.CONCURRENT | Spliterator.DISTINCT | Spliterator.NONNULL);
+        }
+
     }
 
     private final class KeyIterator extends BaseIterator implements Iterator<K> {
@@ -240,7 +363,7 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
         public boolean remove(final Object obj) {
             final int hash = getHash(obj);
             synchronized (locks[hash]) {
-                for (Node<K, V> n = buckets[hash]; n != null; n = n.next) {
+                for (Node<K, V> n = buckets.get(hash); n != null; n = n.next) {
                     final Object k = n.getKey();
                     if (Objects.equals(k, obj)) {
                         StaticBucketMap.this.remove(k);
@@ -256,6 +379,11 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
             return StaticBucketMap.this.size();
         }
 
+        @Override
+        public Spliterator<K> spliterator() {
+            return newSpliterator(n -> n.key, Spliterator.CONCURRENT | Spliterator.DISTINCT);
+        }
+
     }
 
     /**
@@ -269,9 +397,14 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
      * The Map.Entry for the StaticBucketMap.
      */
     private static final class Node<K, V> implements Map.Entry<K, V>, KeyValue<K, V> {
-        protected K key;
-        protected V value;
-        protected Node<K, V> next;
+        protected final K key;
+        protected volatile V value;
+        protected volatile Node<K, V> next;
+
+        Node(final K key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
 
         @Override
         public boolean equals(final Object obj) {
@@ -337,17 +470,25 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
             return StaticBucketMap.this.size();
         }
 
+        @Override
+        public Spliterator<V> spliterator() {
+            return newSpliterator(n -> n.value, Spliterator.CONCURRENT);
+        }
+
     }
 
     /** The default number of buckets to use */
     private static final int DEFAULT_BUCKETS = 255;
 
     /** The array of buckets, where the actual data is held */
-    private final Node<K, V>[] buckets;
+    private final AtomicReferenceArray<Node<K, V>> buckets;
 
     /** The matching array of locks */
     private final Lock[] locks;
 
+    /** Whether the views traverse the buckets without locking */
+    private final boolean weaklyConsistent;
+
     /**
      * Initializes the map with the default number of buckets (255).
      */
@@ -365,8 +506,28 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
      *
      * @param numBuckets  the number of buckets for this map
      */
-    @SuppressWarnings("unchecked")
     public StaticBucketMap(final int numBuckets) {
+        this(numBuckets, false);
+    }
+
+    /**
+     * Initializes the map with a specified number of buckets and iteration mode.
+     * <p>
+     * By default, the iterators and spliterators of the collection views enter
+     * the monitor of each bucket in turn and copy its entries.  When
+     * {@code weaklyConsistent} is true, they instead follow the bucket chains
+     * without locking or copying: they never block writers and do not allocate
+     * per bucket, return each mapping present for the whole traversal exactly
+     * once, and may or may not return the mappings added or removed meanwhile.
+     * Use {@link #atomic(Runnable)} when a reliable iteration is needed in
+     * either mode.
+     * </p>
+     *
+     * @param numBuckets  the number of buckets for this map
+     * @param weaklyConsistent  whether the views traverse the buckets without locking
+     * @since 4.6.0
+     */
+    public StaticBucketMap(final int numBuckets, final boolean weaklyConsistent) {
         int size = Math.max(17, numBuckets);
 
         // Ensure that bucketSize is never a power of 2 (to ensure maximal distribution)
@@ -374,12 +535,13 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
             size--;
         }
 
-        buckets = new Node[size];
+        buckets = new AtomicReferenceArray<>(size);
         locks = new Lock[size];
 
         for (int i = 0; i < size; i++) {
             locks[i] = new Lock();
         }
+        this.weaklyConsistent = weaklyConsistent;
     }
 
     /**
@@ -418,7 +580,7 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
     }
 
     private void atomic(final Runnable r, final int bucket) {
-        if (bucket >= buckets.length) {
+        if (bucket >= buckets.length()) {
             r.run();
             return;
         }
@@ -432,10 +594,10 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
      */
     @Override
     public void clear() {
-        for (int i = 0; i < buckets.length; i++) {
+        for (int i = 0; i < buckets.length(); i++) {
             final Lock lock = locks[i];
             synchronized (lock) {
-                buckets[i] = null;
+                buckets.set(i, null);
                 lock.size = 0;
             }
         }
@@ -452,7 +614,7 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
         final int hash = getHash(key);
 
         synchronized (locks[hash]) {
-            Node<K, V> n = buckets[hash];
+            Node<K, V> n = buckets.get(hash);
 
             while (n != null) {
                 if (Objects.equals(n.key, key)) {
@@ -473,9 +635,9 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
      */
     @Override
     public boolean containsValue(final Object value) {
-        for (int i = 0; i < buckets.length; i++) {
+        for (int i = 0; i < buckets.length(); i++) {
             synchronized (locks[i]) {
-                Node<K, V> n = buckets[i];
+                Node<K, V> n = buckets.get(i);
 
                 while (n != null) {
                     if (Objects.equals(n.value, value)) {
@@ -528,7 +690,7 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
         final int hash = getHash(key);
 
         synchronized (locks[hash]) {
-            Node<K, V> n = buckets[hash];
+            Node<K, V> n = buckets.get(hash);
 
             while (n != null) {
                 if (Objects.equals(n.key, key)) {
@@ -565,7 +727,7 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
         hash ^= hash >>> 6;
         hash += ~(hash << 11);
         hash ^= hash >>> 16;
-        hash %= buckets.length;
+        hash %= buckets.length();
         return hash < 0 ? hash * -1 : hash;
     }
 
@@ -578,9 +740,9 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
     public int hashCode() {
         int hashCode = 0;
 
-        for (int i = 0; i < buckets.length; i++) {
+        for (int i = 0; i < buckets.length(); i++) {
             synchronized (locks[i]) {
-                Node<K, V> n = buckets[i];
+                Node<K, V> n = buckets.get(i);
 
                 while (n != null) {
                     hashCode += n.hashCode();
@@ -611,6 +773,10 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
         return new KeySet();
     }
 
+    private <T> Spliterator<T> newSpliterator(final Function<Node<K, V>, T> extractor, final int characteristics) {
+        return new BucketSpliterator<>(extractor, characteristics, 0, buckets.length(), size());
+    }
+
     /**
      * Puts a new key value mapping into the map.
      *
@@ -623,13 +789,10 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
         final int hash = getHash(key);
 
         synchronized (locks[hash]) {
-            Node<K, V> n = buckets[hash];
+            Node<K, V> n = buckets.get(hash);
 
             if (n == null) {
-                n = new Node<>();
-                n.key = key;
-                n.value = value;
-                buckets[hash] = n;
+                buckets.set(hash, new Node<>(key, value));
                 locks[hash].size++;
                 return null;
             }
@@ -649,10 +812,7 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
 
             // The key was not found in the current list of nodes, add it to the end
             //  in a new node.
-            final Node<K, V> newNode = new Node<>();
-            newNode.key = key;
-            newNode.value = value;
-            n.next = newNode;
+            n.next = new Node<>(key, value);
             locks[hash].size++;
         }
         return null;
@@ -682,7 +842,7 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
         final int hash = getHash(key);
 
         synchronized (locks[hash]) {
-            Node<K, V> n = buckets[hash];
+            Node<K, V> n = buckets.get(hash);
             Node<K, V> prev = null;
 
             while (n != null) {
@@ -690,7 +850,7 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
                     // Remove this node from the linked list of nodes.
                     if (null == prev) {
                         // This node was the head, set the next node to be the new head.
-                        buckets[hash] = n.next;
+                        buckets.set(hash, n.next);
                     } else {
                         // Set the next node of the previous node to be the node after this one.
                         prev.next = n.next;
@@ -716,7 +876,7 @@ public final class StaticBucketMap<K, V> extends AbstractIterableMap<K, V> {
     public int size() {
         int cnt = 0;
 
-        for (int i = 0; i < buckets.length; i++) {
+        for (int i = 0; i < buckets.length(); i++) {
             synchronized (locks[i]) {
                 cnt += locks[i].size;
             }
@@ -0,0 +1,808 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.collections4.KeyValue;
+
+/**
+ * A thread-safe {@link java.util.Map} which keeps the locking model of {@link StaticBucketMap}, but grows its table of buckets as mappings are added.
+ * <p>
+ * The buckets are guarded by a fixed number of lock stripes: bucket {@code i} is guarded by stripe {@code i % stripes}. As the number of buckets is always a
+ * multiple of the number of stripes, a key keeps its stripe when the table grows, so {@link #get(Object) get}, {@link #put(Object,Object) put},
+ * {@link #remove(Object) remove} and {@link #containsKey(Object) containsKey} lock a single stripe, and two threads rarely contend for the same one.
+ * </p>
+ * <p>
+ * When the number of mappings exceeds three quarters of the number of buckets, the table doubles incrementally: its stripes are moved one at a time,
+ * each while holding the lock of that stripe only, so other threads keep working on the other stripes, and on the moved stripes in the new table. The
+ * thread which starts growing the table and the other threads which add mappings meanwhile share the work, each claiming the next stripe to move. The
+ * number of mappings is kept in a {@link LongAdder}, so {@link #size()} does not lock; as summing it takes time, it is only compared with the threshold
+ * when a mapping is added to a bucket which already holds one.
+ * </p>
+ * <p>
+ * As with {@link StaticBucketMap}, bulk operations such as {@link #putAll(Map) putAll} are <em>not</em> atomic, the results of {@link #size()} and
+ * {@link #isEmpty()} are out-of-date as soon as they are produced, and the iterators of the collection views are not fail-fast: they never throw
+ * {@link java.util.ConcurrentModificationException}, and may or may not reflect the changes made after their creation. Use {@link #atomic(Runnable)} to
+ * perform bulk operations and iterations atomically.
+ * </p>
+ * <p>
+ * This map allows a {@code null} key and {@code null} values.
+ * </p>
+ *
+ * @param <K> the type of the keys in this map
+ * @param <V> the type of the values in this map
+ * @since 4.6.0
+ */
+public final class StripedBucketMap<K, V> extends AbstractIterableMap<K, V> {
+
+    /**
+     * Iterates over the buckets one stripe at a time, copying the nodes of a stripe under its lock.
+     */
+    class BaseIterator {
+        private final ArrayList<Map.Entry<K, V>> current = new ArrayList<>();
+        private int stripe;
+        private Map.Entry<K, V> last;
+
+        public boolean hasNext() {
+            while (current.isEmpty() && stripe < locks.length) {
+                final Lock lock = locks[stripe];
+                synchronized (lock) {
+                    final Node<K, V>[] tab = lock.table();
+                    for (int i = stripe; i < tab.length; i += locks.length) {
+                        for (Node<K, V> n = tab[i]; n != null; n = n.next) {
+                            current.add(n);
+                        }
+                    }
+                }
+                stripe++;
+            }
+            return !current.isEmpty();
+        }
+
+        protected Map.Entry<K, V> nextEntry() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = current.remove(current.size() - 1);
+            return last;
+        }
+
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            StripedBucketMap.this.remove(last.getKey());
+            last = null;
+        }
+    }
+
+    private final class EntryIterator extends BaseIterator implements Iterator<Map.Entry<K, V>> {
+
+        @Override
+        public Map.Entry<K, V> next() {
+            return nextEntry();
+        }
+
+    }
+
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+        @Override
+        public void clear() {
+            StripedBucketMap.this.clear();
+        }
+
+        @Override
+        public boolean contains(final Object obj) {
+            if (!(obj instanceof Map.Entry<?, ?>)) {
+                return false;
+            }
+            final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) obj;
+            final int hash = getHash(entry.getKey());
+            final Lock lock = lockFor(hash);
+            synchronized (lock) {
+                final Node<K, V> n = findNode(lock.table(), hash, entry.getKey());
+                return n != null && n.equals(entry);
+            }
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+
+        @Override
+        public boolean remove(final Object obj) {
+            if (!(obj instanceof Map.Entry<?, ?>)) {
+                return false;
+            }
+            final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) obj;
+            final int hash = getHash(entry.getKey());
+            final Lock lock = lockFor(hash);
+            synchronized (lock) {
+                final Node<K, V> n = findNode(lock.table(), hash, entry.getKey());
+                if (n != null && n.equals(entry)) {
+                    StripedBucketMap.this.remove(n.getKey());
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int size() {
+            return StripedBucketMap.this.size();
+        }
+
+    }
+
+    private final class KeyIterator extends BaseIterator implements Iterator<K> {
+
+        @Override
+        public K next() {
+            return nextEntry().getKey();
+        }
+
+    }
+
+    private final class KeySet extends AbstractSet<K> {
+
+        @Override
+        public void clear() {
+            StripedBucketMap.this.clear();
+        }
+
+        @Override
+        public boolean contains(final Object obj) {
+            return StripedBucketMap.this.containsKey(obj);
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            return new KeyIterator();
+        }
+
+        @Override
+        public boolean remove(final Object obj) {
+            final int hash = getHash(obj);
+            final Lock lock = lockFor(hash);
+            synchronized (lock) {
+                final Node<K, V> n = findNode(lock.table(), hash, obj);
+                if (n != null) {
+                    StripedBucketMap.this.remove(n.getKey());
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int size() {
+            return StripedBucketMap.this.size();
+        }
+
+    }
+
+    /**
+     * The lock of a stripe, which also holds the table of buckets the stripe currently lives in. During a resize, the stripes already moved refer to the new
+     * table and the others to the old one.
+     */
+    private static final class Lock {
+        Node<?, ?>[] tableRef;
+
+        @SuppressWarnings("unchecked")
+        <K, V> Node<K, V>[] table() {
+            return (Node<K, V>[]) tableRef;
+        }
+    }
+
+    /**
+     * The Map.Entry for the StripedBucketMap.
+     */
+    private static final class Node<K, V> implements Map.Entry<K, V>, KeyValue<K, V> {
+        protected final int hash;
+        protected final K key;
+        protected volatile V value;
+        protected Node<K, V> next;
+
+        Node(final int hash, final K key, final V value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Map.Entry<?, ?>)) {
+                return false;
+            }
+
+            final Map.Entry<?, ?> e2 = (Map.Entry<?, ?>) obj;
+            return Objects.equals(key, e2.getKey()) &&
+                   Objects.equals(value, e2.getValue());
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public int hashCode() {
+            return (key == null ? 0 : key.hashCode()) ^
+                    (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public V setValue(final V value) {
+            final V old = this.value;
+            this.value = value;
+            return old;
+        }
+    }
+
+    /**
+     * A doubling of the table in progress, whose stripes are claimed one at a time by the threads moving them.
+     */
+    private static final class Transfer<K, V> {
+        final Node<K, V>[] oldTable;
+        final Node<K, V>[] newTable;
+
+        /** The next stripe to claim. */
+        final AtomicInteger nextStripe = new AtomicInteger();
+
+        /** The number of stripes not moved yet. */
+        final AtomicInteger remaining;
+
+        @SuppressWarnings("unchecked")
+        Transfer(final Node<K, V>[] oldTable, final int stripes) {
+            this.oldTable = oldTable;
+            this.newTable = new Node[oldTable.length << 1];
+            this.remaining = new AtomicInteger(stripes);
+        }
+    }
+
+    private final class ValueIterator extends BaseIterator implements Iterator<V> {
+
+        @Override
+        public V next() {
+            return nextEntry().getValue();
+        }
+
+    }
+
+    private final class Values extends AbstractCollection<V> {
+
+        @Override
+        public void clear() {
+            StripedBucketMap.this.clear();
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return new ValueIterator();
+        }
+
+        @Override
+        public int size() {
+            return StripedBucketMap.this.size();
+        }
+
+    }
+
+    /** The default initial number of buckets */
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    /** The default number of lock stripes */
+    private static final int DEFAULT_STRIPES = 16;
+
+    /** The ratio of mappings to buckets above which the table grows */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /** The maximum number of buckets */
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /** The maximum number of lock stripes */
+    private static final int MAXIMUM_STRIPES = 1 << 16;
+
+    private static int powerOfTwoAtLeast(final int n, final int max) {
+        int result = 1;
+        while (result < n && result < max) {
+            result <<= 1;
+        }
+        return result;
+    }
+
+    /** The number of mappings */
+    private final LongAdder count = new LongAdder();
+
+    /** The lock stripes */
+    private final Lock[] locks;
+
+    /** The table of buckets, replaced once every stripe has been moved to the next table */
+    private volatile Node<K, V>[] table;
+
+    /** The number of mappings above which the table grows */
+    private volatile int threshold;
+
+    /** The doubling of the table in progress, null if none */
+    private final AtomicReference<Transfer<K, V>> transfer = new AtomicReference<>();
+
+    /**
+     * Constructs an empty map with the default initial capacity (16) and number of lock stripes (16).
+     */
+    public StripedBucketMap() {
+        this(DEFAULT_INITIAL_CAPACITY, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructs an empty map with the default number of lock stripes (16) and the specified initial capacity.
+     *
+     * @param initialCapacity  the number of mappings the map holds before it grows
+     * @throws IllegalArgumentException if the initial capacity is negative
+     */
+    public StripedBucketMap(final int initialCapacity) {
+        this(initialCapacity, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructs an empty map with the specified initial capacity and number of lock stripes. The number of stripes is rounded up to a power of two, and
+     * bounds the number of threads which can update the map without contention.
+     *
+     * @param initialCapacity  the number of mappings the map holds before it grows
+     * @param stripes  the number of lock stripes
+     * @throws IllegalArgumentException if the initial capacity is negative or the number of stripes is not positive
+     */
+    @SuppressWarnings("unchecked")
+    public StripedBucketMap(final int initialCapacity, final int stripes) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Initial capacity must not be negative: " + initialCapacity);
+        }
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripes must be positive: " + stripes);
+        }
+        locks = new Lock[powerOfTwoAtLeast(stripes, MAXIMUM_STRIPES)];
+        final int buckets = Math.max(locks.length, powerOfTwoAtLeast((int) Math.min(MAXIMUM_CAPACITY, (long) (initialCapacity / LOAD_FACTOR) + 1),
+                MAXIMUM_CAPACITY));
+        table = new Node[buckets];
+        threshold = (int) (buckets * LOAD_FACTOR);
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Lock();
+            locks[i].tableRef = table;
+        }
+    }
+
+    /**
+     * Prevents any operations from occurring on this map while the given {@link Runnable} executes, by entering the monitor of every lock stripe. This
+     * method can be used to execute a bulk operation or an iteration atomically, as with {@link StaticBucketMap#atomic(Runnable)}.
+     * <p>
+     * The table may grow while the runnable executes, if the runnable adds mappings.
+     * </p>
+     *
+     * @param runnable the code to execute atomically
+     */
+    public void atomic(final Runnable runnable) {
+        atomic(Objects.requireNonNull(runnable, "runnable"), 0);
+    }
+
+    private void atomic(final Runnable r, final int stripe) {
+        if (stripe >= locks.length) {
+            r.run();
+            return;
+        }
+        synchronized (locks[stripe]) {
+            atomic(r, stripe + 1);
+        }
+    }
+
+    /**
+     * Gets the number of buckets of the table.
+     *
+     * @return the number of buckets
+     */
+    int capacity() {
+        return table.length;
+    }
+
+    /**
+     * Clears the map of all entries.
+     */
+    @Override
+    public void clear() {
+        for (int s = 0; s < locks.length; s++) {
+            final Lock lock = locks[s];
+            synchronized (lock) {
+                final Node<K, V>[] tab = lock.table();
+                int removed = 0;
+                for (int i = s; i < tab.length; i += locks.length) {
+                    for (Node<K, V> n = tab[i]; n != null; n = n.next) {
+                        removed++;
+                    }
+                    tab[i] = null;
+                }
+                count.add(-removed);
+            }
+        }
+    }
+
+    /**
+     * Checks if the map contains the specified key.
+     *
+     * @param key  the key to check
+     * @return true if found
+     */
+    @Override
+    public boolean containsKey(final Object key) {
+        final int hash = getHash(key);
+        final Lock lock = lockFor(hash);
+        synchronized (lock) {
+            return findNode(lock.table(), hash, key) != null;
+        }
+    }
+
+    /**
+     * Checks if the map contains the specified value.
+     *
+     * @param value  the value to check
+     * @return true if found
+     */
+    @Override
+    public boolean containsValue(final Object value) {
+        for (int s = 0; s < locks.length; s++) {
+            final Lock lock = locks[s];
+            synchronized (lock) {
+                final Node<K, V>[] tab = lock.table();
+                for (int i = s; i < tab.length; i += locks.length) {
+                    for (Node<K, V> n = tab[i]; n != null; n = n.next) {
+                        if (Objects.equals(n.value, value)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the entry set.
+     *
+     * @return the entry set
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySet();
+    }
+
+    /**
+     * Compares this map to another, as per the Map specification.
+     *
+     * @param obj  the object to compare to
+     * @return true if equal
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof Map<?, ?>)) {
+            return false;
+        }
+        final Map<?, ?> other = (Map<?, ?>) obj;
+        return entrySet().equals(other.entrySet());
+    }
+
+    /**
+     * Finds the node of a key in a table. Call only while holding the lock of the key's stripe.
+     */
+    private Node<K, V> findNode(final Node<K, V>[] tab, final int hash, final Object key) {
+        for (Node<K, V> n = tab[hash & tab.length - 1]; n != null; n = n.next) {
+            if (n.hash == hash && Objects.equals(n.key, key)) {
+                return n;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the value associated with the key.
+     *
+     * @param key  the key to retrieve
+     * @return the associated value
+     */
+    @Override
+    public V get(final Object key) {
+        final int hash = getHash(key);
+        final Lock lock = lockFor(hash);
+        synchronized (lock) {
+            final Node<K, V> n = findNode(lock.table(), hash, key);
+            return n == null ? null : n.value;
+        }
+    }
+
+    /**
+     * Spreads the hash code of the key with the same mixing steps as {@link StaticBucketMap}, so that both the stripe, taken from the low bits, and the
+     * bucket depend on all the bits of the hash code.
+     */
+    private int getHash(final Object key) {
+        if (key == null) {
+            return 0;
+        }
+        int hash = key.hashCode();
+        hash += ~(hash << 15);
+        hash ^= hash >>> 10;
+        hash += hash << 3;
+        hash ^= hash >>> 6;
+        hash += ~(hash << 11);
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * Gets the hash code, as per the Map specification.
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        int hashCode = 0;
+        for (int s = 0; s < locks.length; s++) {
+            final Lock lock = locks[s];
+            synchronized (lock) {
+                final Node<K, V>[] tab = lock.table();
+                for (int i = s; i < tab.length; i += locks.length) {
+                    for (Node<K, V> n = tab[i]; n != null; n = n.next) {
+                        hashCode += n.hashCode();
+                    }
+                }
+            }
+        }
+        return hashCode;
+    }
+
+    /**
+     * Checks if the size is currently zero.
+     *
+     * @return true if empty
+     */
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Gets the key set.
+     *
+     * @return the key set
+     */
+    @Override
+    public Set<K> keySet() {
+        return new KeySet();
+    }
+
+    private Lock lockFor(final int hash) {
+        return locks[hash & locks.length - 1];
+    }
+
+    /**
+     * Puts a new key value mapping into the map, growing the table if the map exceeds its load factor.
+     *
+     * @param key  the key to use
+     * @param value  the value to use
+     * @return the previous mapping for the key
+     */
+    @Override
+    public V put(final K key, final V value) {
+        final int hash = getHash(key);
+        final Lock lock = lockFor(hash);
+        final boolean grown;
+        synchronized (lock) {
+            final Node<K, V>[] tab = lock.table();
+            final int index = hash & tab.length - 1;
+            Node<K, V> n = tab[index];
+            grown = n != null;
+            if (n == null) {
+                tab[index] = new Node<>(hash, key, value);
+            } else {
+                // Set n to the last node in the linked list.  Check each key along the way
+                //  If the key is found, then change the value of that node and return
+                //  the old value.
+                for (Node<K, V> next = n; next != null; next = next.next) {
+                    n = next;
+                    if (n.hash == hash && Objects.equals(n.key, key)) {
+                        final V returnVal = n.value;
+                        n.value = value;
+                        return returnVal;
+                    }
+                }
+                n.next = new Node<>(hash, key, value);
+            }
+        }
+        count.increment();
+        // the sum is only worth its cost when a chain grows, which happens for about half the insertions once the table is three quarters full
+        if (grown && count.sum() > threshold || transfer.get() != null) {
+            resize();
+        }
+        return null;
+    }
+
+    /**
+     * Puts all the entries from the specified map into this map.
+     * This operation is <strong>not atomic</strong> and may have undesired effects.
+     *
+     * @param map  the map of entries to add
+     */
+    @Override
+    public void putAll(final Map<? extends K, ? extends V> map) {
+        for (final Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Removes the specified key from the map.
+     *
+     * @param key  the key to remove
+     * @return the previous value at this key
+     */
+    @Override
+    public V remove(final Object key) {
+        final int hash = getHash(key);
+        final Lock lock = lockFor(hash);
+        synchronized (lock) {
+            final Node<K, V>[] tab = lock.table();
+            final int index = hash & tab.length - 1;
+            Node<K, V> prev = null;
+            for (Node<K, V> n = tab[index]; n != null; prev = n, n = n.next) {
+                if (n.hash == hash && Objects.equals(n.key, key)) {
+                    if (prev == null) {
+                        tab[index] = n.next;
+                    } else {
+                        prev.next = n.next;
+                    }
+                    count.decrement();
+                    return n.value;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Grows the table while the map exceeds its load factor, or helps the doubling in progress. The thread which moves the last stripe of a doubling
+     * checks the size again, so the mappings added meanwhile are accounted for.
+     */
+    private void resize() {
+        Transfer<K, V> t;
+        while ((t = transfer.get()) != null || count.sum() > threshold && table.length < MAXIMUM_CAPACITY) {
+            if (t == null) {
+                final Node<K, V>[] oldTable = table;
+                t = new Transfer<>(oldTable, locks.length);
+                if (!transfer.compareAndSet(null, t)) {
+                    continue;
+                }
+                if (table != oldTable) {
+                    // another doubling ended since the table was read
+                    transfer.set(null);
+                    continue;
+                }
+            }
+            if (!moveStripes(t)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the current size of the map.
+     *
+     * @return the current size
+     */
+    @Override
+    public int size() {
+        final long sum = count.sum();
+        return sum < 0 ? 0 : sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) sum;
+    }
+
+    /**
+     * Moves the stripes of a doubling to the new table while some are left to claim, holding the lock of a single stripe at once, and returns whether
+     * this thread moved the last one and thus ended the doubling. Call only from {@link #resize()}.
+     */
+    private boolean moveStripes(final Transfer<K, V> t) {
+        final Node<K, V>[] oldTable = t.oldTable;
+        final Node<K, V>[] newTable = t.newTable;
+        final int n = oldTable.length;
+        boolean ended = false;
+        for (int s = t.nextStripe.getAndIncrement(); s < locks.length; s = t.nextStripe.getAndIncrement()) {
+            final Lock lock = locks[s];
+            synchronized (lock) {
+                for (int i = s; i < n; i += locks.length) {
+                    // split the bucket in order into the lower and upper buckets of the new table
+                    Node<K, V> loHead = null;
+                    Node<K, V> loTail = null;
+                    Node<K, V> hiHead = null;
+                    Node<K, V> hiTail = null;
+                    for (Node<K, V> e = oldTable[i]; e != null; e = e.next) {
+                        if ((e.hash & n) == 0) {
+                            if (loTail == null) {
+                                loHead = e;
+                            } else {
+                                loTail.next = e;
+                            }
+                            loTail = e;
+                        } else {
+                            if (hiTail == null) {
+                                hiHead = e;
+                            } else {
+                                hiTail.next = e;
+                            }
+                            hiTail = e;
+                        }
+                    }
+                    if (loTail != null) {
+                        loTail.next = null;
+                    }
+                    if (hiTail != null) {
+                        hiTail.next = null;
+                    }
+                    newTable[i] = loHead;
+                    newTable[i + n] = hiHead;
+                    oldTable[i] = null;
+                }
+                lock.tableRef = newTable;
+            }
+            if (t.remaining.decrementAndGet() == 0) {
+                table = newTable;
+                threshold = (int) Math.min(Integer.MAX_VALUE, (long) (newTable.length * (double) LOAD_FACTOR));
+                transfer.set(null);
+                ended = true;
+            }
+        }
+        return ended;
+    }
+
+    /**
+     * Gets the values.
+     *
+     * @return the values
+     */
+    @Override
+    public Collection<V> values() {
+        return new Values();
+    }
+
+}
@@ -0,0 +1,425 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+
+import org.apache.commons.collections4.OrderedMapIterator;
+import org.apache.commons.collections4.Trie;
+import org.apache.commons.collections4.Unmodifiable;
+import org.apache.commons.collections4.keyvalue.UnmodifiableMapEntry;
+import org.apache.commons.collections4.trie.analyzer.StringKeyAnalyzer;
+
+/**
+ * An immutable {@link Trie} of {@link String} keys which can be looked up by their index in key order, such as the arrays of a
+ * {@link CompactPatriciaTrie} or the file of a {@link MappedPatriciaTrie}.
+ * <p>
+ * This class implements the views, which are ranges of indices, and the navigation of a {@link SortedMap} on top of the lookups of its subclasses.
+ * All methods which would modify the trie or its views throw {@link UnsupportedOperationException}.
+ * </p>
+ *
+ * @param <V> the type of the values in this map
+ * @since 4.6.0
+ */
+abstract class AbstractIndexedTrie<V> extends AbstractMap<String, V> implements Trie<String, V>, Unmodifiable {
+
+    /**
+     * Iterates over the entries of a range of keys.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<String, V>> {
+
+        private final Iterator<String> keys;
+
+        private int next;
+
+        private final int to;
+
+        EntryIterator(final int from, final int to) {
+            this.keys = keys(from, to);
+            this.next = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < to;
+        }
+
+        @Override
+        public Map.Entry<String, V> next() {
+            if (next >= to) {
+                throw new NoSuchElementException();
+            }
+            return new UnmodifiableMapEntry<>(keys.next(), value(next++));
+        }
+    }
+
+    /**
+     * The entries of a range of keys.
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<String, V>> {
+
+        private final int from;
+
+        private final int to;
+
+        EntrySet(final int from, final int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            final int index = indexOf(entry.getKey(), from, to);
+            return index >= 0 && Objects.equals(value(index), entry.getValue());
+        }
+
+        @Override
+        public Iterator<Map.Entry<String, V>> iterator() {
+            return new EntryIterator(from, to);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    /**
+     * An {@link OrderedMapIterator} over all the keys, which does not support {@link #setValue(Object)} or {@link #remove()}.
+     */
+    private final class KeyMapIterator implements OrderedMapIterator<String, V> {
+
+        private int current = -1;
+
+        /** The key at the current index, read once as the iterator moves to it. */
+        private String currentKey;
+
+        private int next;
+
+        @Override
+        public String getKey() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            return currentKey;
+        }
+
+        @Override
+        public V getValue() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+            return value(current);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < size();
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return next > 0;
+        }
+
+        @Override
+        public String next() {
+            if (next >= size()) {
+                throw new NoSuchElementException();
+            }
+            current = next++;
+            currentKey = key(current);
+            return currentKey;
+        }
+
+        @Override
+        public String previous() {
+            if (next <= 0) {
+                throw new NoSuchElementException();
+            }
+            current = --next;
+            currentKey = key(current);
+            return currentKey;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public V setValue(final V value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * A {@link SortedMap} view of a range of keys, as returned by {@link #prefixMap(String)} and the sub map methods.
+     */
+    private final class RangeMap extends AbstractMap<String, V> implements SortedMap<String, V> {
+
+        private final int from;
+
+        private final int to;
+
+        RangeMap(final int from, final int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Comparator<? super String> comparator() {
+            return AbstractIndexedTrie.this.comparator();
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return indexOf(key, from, to) >= 0;
+        }
+
+        @Override
+        public Set<Map.Entry<String, V>> entrySet() {
+            return new EntrySet(from, to);
+        }
+
+        @Override
+        public String firstKey() {
+            return AbstractIndexedTrie.this.firstKey(from, to);
+        }
+
+        @Override
+        public V get(final Object key) {
+            final int index = indexOf(key, from, to);
+            return index >= 0 ? value(index) : null;
+        }
+
+        @Override
+        public SortedMap<String, V> headMap(final String toKey) {
+            return AbstractIndexedTrie.this.subMap(from, to, null, Objects.requireNonNull(toKey, "toKey"));
+        }
+
+        @Override
+        public String lastKey() {
+            return AbstractIndexedTrie.this.lastKey(from, to);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public SortedMap<String, V> subMap(final String fromKey, final String toKey) {
+            return AbstractIndexedTrie.this.subMap(from, to, Objects.requireNonNull(fromKey, "fromKey"), toKey);
+        }
+
+        @Override
+        public SortedMap<String, V> tailMap(final String fromKey) {
+            return AbstractIndexedTrie.this.subMap(from, to, Objects.requireNonNull(fromKey, "fromKey"), null);
+        }
+    }
+
+    /**
+     * Throws {@link UnsupportedOperationException}.
+     */
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Comparator<? super String> comparator() {
+        return StringKeyAnalyzer.INSTANCE;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return indexOf(key, 0, size()) >= 0;
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        return new EntrySet(0, size());
+    }
+
+    @Override
+    public String firstKey() {
+        return firstKey(0, size());
+    }
+
+    private String firstKey(final int from, final int to) {
+        if (from >= to) {
+            throw new NoSuchElementException();
+        }
+        return key(from);
+    }
+
+    @Override
+    public V get(final Object key) {
+        final int index = indexOf(key, 0, size());
+        return index >= 0 ? value(index) : null;
+    }
+
+    @Override
+    public SortedMap<String, V> headMap(final String toKey) {
+        return subMap(0, size(), null, Objects.requireNonNull(toKey, "toKey"));
+    }
+
+    private int indexOf(final Object key, final int from, final int to) {
+        if (from >= to || !(key instanceof String)) {
+            return -1;
+        }
+        final int index = indexOf((String) key);
+        return index >= from && index < to ? index : -1;
+    }
+
+    /**
+     * Returns the index of a key.
+     *
+     * @param key  the key, not null
+     * @return the index of the key, or -1 if it is not a key of this trie
+     */
+    abstract int indexOf(String key);
+
+    /**
+     * Returns the key at an index.
+     *
+     * @param index  the index, between 0 and {@link #size()} exclusive
+     * @return the key at the index
+     */
+    abstract String key(int index);
+
+    /**
+     * Returns the keys of a range in order, reading each with {@link #key(int)} unless a subclass reads them one after the other.
+     *
+     * @param from  the index of the first key of the range
+     * @param to  the index after the last key of the range
+     * @return an iterator over the keys of the range
+     */
+    Iterator<String> keys(final int from, final int to) {
+        return new Iterator<String>() {
+
+            private int next = from;
+
+            @Override
+            public boolean hasNext() {
+                return next < to;
+            }
+
+            @Override
+            public String next() {
+                if (next >= to) {
+                    throw new NoSuchElementException();
+                }
+                return key(next++);
+            }
+        };
+    }
+
+    @Override
+    public String lastKey() {
+        return lastKey(0, size());
+    }
+
+    private String lastKey(final int from, final int to) {
+        if (from >= to) {
+            throw new NoSuchElementException();
+        }
+        return key(to - 1);
+    }
+
+    /**
+     * Returns the index of the first key which is not less than the given key, in the order of {@link String#compareTo(String)}.
+     *
+     * @param key  the key, not null
+     * @return the index of the first key not less than the given key, or {@link #size()} if there is none
+     */
+    abstract int lowerBound(String key);
+
+    @Override
+    public OrderedMapIterator<String, V> mapIterator() {
+        return new KeyMapIterator();
+    }
+
+    @Override
+    public String nextKey(final String key) {
+        final int index = indexOf(Objects.requireNonNull(key, "key"));
+        return index >= 0 && index + 1 < size() ? key(index + 1) : null;
+    }
+
+    @Override
+    public String previousKey(final String key) {
+        final int index = indexOf(Objects.requireNonNull(key, "key"));
+        return index > 0 ? key(index - 1) : null;
+    }
+
+    /**
+     * Returns a view of a range of keys.
+     *
+     * @param from  the index of the first key of the range
+     * @param to  the index after the last key of the range
+     * @return a {@link SortedMap} view of the range
+     */
+    SortedMap<String, V> rangeMap(final int from, final int to) {
+        return new RangeMap(from, to);
+    }
+
+    /**
+     * Returns the keys of a range from a key inclusive, if not null, to a key exclusive, if not null.
+     */
+    private SortedMap<String, V> subMap(final int from, final int to, final String fromKey, final String toKey) {
+        final int start = fromKey == null ? from : Math.min(to, Math.max(from, lowerBound(fromKey)));
+        if (toKey == null) {
+            return new RangeMap(start, to);
+        }
+        if (fromKey != null && fromKey.compareTo(toKey) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        return new RangeMap(start, Math.min(to, Math.max(start, lowerBound(toKey))));
+    }
+
+    @Override
+    public SortedMap<String, V> subMap(final String fromKey, final String toKey) {
+        return subMap(0, size(), Objects.requireNonNull(fromKey, "fromKey"), toKey);
+    }
+
+    @Override
+    public SortedMap<String, V> tailMap(final String fromKey) {
+        return subMap(0, size(), Objects.requireNonNull(fromKey, "fromKey"), null);
+    }
+
+    /**
+     * Returns the value at an index.
+     *
+     * @param index  the index, between 0 and {@link #size()} exclusive
+     * @return the value at the index
+     */
+    abstract V value(int index);
+}
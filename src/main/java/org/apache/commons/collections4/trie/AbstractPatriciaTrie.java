@@ -22,14 +22,17 @@ import java.io.ObjectOutputStream;
 import java.util.AbstractCollection;
 import java.util.AbstractMap;
 import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.SortedMap;
 
@@ -386,6 +389,27 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
         }
     }
 
+    /**
+     * What {@link #topPrefixMatches(Object, int)} queues: the subtree of an entry, or the key of an entry alone, ordered by its greatest value.
+     */
+    private final class MatchCandidate {
+
+        /** The entry. */
+        final TrieEntry<K, V> entry;
+
+        /** Whether this stands for the subtree of the entry, rather than its key alone. */
+        final boolean subtree;
+
+        /** The entry with the greatest value this stands for. */
+        final TrieEntry<K, V> best;
+
+        MatchCandidate(final TrieEntry<K, V> entry, final boolean subtree) {
+            this.entry = entry;
+            this.subtree = subtree;
+            this.best = subtree ? ((WeightedEntry) entry).topMatches[0] : entry;
+        }
+    }
+
     /**
      * A prefix {@link RangeEntrySet} view of the {@link org.apache.commons.collections4.Trie}.
      */
@@ -499,10 +523,6 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
 
         private final PrefixRangeMap delegate;
 
-        private TrieEntry<K, V> prefixStart;
-
-        private int expectedModCount;
-
         /**
          * Creates a {@link PrefixRangeEntrySet}.
          */
@@ -512,17 +532,18 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
         }
 
         @Override
-        public Iterator<Map.Entry<K, V>> iterator() {
-            if (AbstractPatriciaTrie.this.modCount != expectedModCount) {
-                prefixStart = subtree(delegate.prefix, delegate.offsetInBits, delegate.lengthInBits);
-                expectedModCount = AbstractPatriciaTrie.this.modCount;
-            }
+        public boolean isEmpty() {
+            return delegate.subtree() == null;
+        }
 
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            final TrieEntry<K, V> prefixStart = delegate.subtree();
             if (prefixStart == null) {
                 final Set<Map.Entry<K, V>> empty = Collections.emptySet();
                 return empty.iterator();
             }
-            if (delegate.lengthInBits > prefixStart.bitIndex) {
+            if (delegate.isSingleton(prefixStart)) {
                 return new SingletonIterator(prefixStart);
             }
             return new EntryIterator(prefixStart, delegate.prefix, delegate.offsetInBits, delegate.lengthInBits);
@@ -530,12 +551,21 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
 
         @Override
         public int size() {
-            return delegate.fixup();
+            final TrieEntry<K, V> prefixStart = delegate.subtree();
+            if (prefixStart == null) {
+                return 0;
+            }
+            return delegate.isSingleton(prefixStart) ? 1 : prefixStart.subtreeSize;
         }
     }
 
     /**
      * A submap used for prefix views over the {@link org.apache.commons.collections4.Trie}.
+     * <p>
+     * The view looks up the entry whose subtree holds its keys in O(K) time, K being the length of the prefix,
+     * and only looks it up again once the {@link org.apache.commons.collections4.Trie} has changed. Its size is
+     * the number of keys that entry keeps for its subtree.
+     * </p>
      */
     private final class PrefixRangeMap extends AbstractRangeMap {
 
@@ -545,13 +575,26 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
 
         private final int lengthInBits;
 
+        /** The key before the first key of the view, or null, once {@link #fixup()} has found it. */
         private K fromKey;
 
+        /** The key after the last key of the view, or null, once {@link #fixup()} has found it. */
         private K toKey;
 
+        /** The modification count for which {@link #fromKey} and {@link #toKey} were found. */
         private transient int expectedModCount;
 
-        private int size = -1;
+        /** Whether {@link #fromKey} and {@link #toKey} were ever found. */
+        private boolean fixed;
+
+        /** The entry whose subtree holds the keys of the view, or null if it has none. */
+        private TrieEntry<K, V> subtree;
+
+        /** The modification count for which {@link #subtree} was found. */
+        private transient int subtreeModCount;
+
+        /** Whether {@link #subtree} was ever found. */
+        private boolean subtreeFound;
 
         /**
          * Creates a {@link PrefixRangeMap}.
@@ -584,76 +627,54 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
             return new RangeEntryMap(fromKey, fromInclusive, toKey, toInclusive);
         }
 
-        @Override
-        public K firstKey() {
-            fixup();
-
-            Map.Entry<K, V> e = null;
-            if (fromKey == null) {
-                e = firstEntry();
-            } else {
-                e = higherEntry(fromKey);
+        /**
+         * Returns the first entry of the view, or null if it is empty.
+         */
+        private TrieEntry<K, V> firstEntry() {
+            final TrieEntry<K, V> start = subtree();
+            if (start == null || isSingleton(start)) {
+                return start;
             }
+            return followLeft(start);
+        }
 
-            final K first = e != null ? e.getKey() : null;
-            if (e == null || !getKeyAnalyzer().isPrefix(prefix, offsetInBits, lengthInBits, first)) {
+        @Override
+        public K firstKey() {
+            final TrieEntry<K, V> first = firstEntry();
+            if (first == null) {
                 throw new NoSuchElementException();
             }
-
-            return first;
+            return first.getKey();
         }
 
         /**
-         * This method does two things. It determines the FROM
-         * and TO range of the {@link PrefixRangeMap} and the number
-         * of elements in the range. This method must be called every
-         * time the {@link org.apache.commons.collections4.Trie} has changed.
+         * Finds the FROM and TO keys of the {@link PrefixRangeMap}, the keys just outside the range,
+         * from its first and last entries. This method must be called every time the
+         * {@link org.apache.commons.collections4.Trie} has changed.
          */
-        private int fixup() {
+        private void fixup() {
             // The trie has changed since we last found our toKey / fromKey
-            if (size == - 1 || AbstractPatriciaTrie.this.modCount != expectedModCount) {
-                final Iterator<Map.Entry<K, V>> it = super.entrySet().iterator();
-                size = 0;
-
-                Map.Entry<K, V> entry = null;
-                if (it.hasNext()) {
-                    entry = it.next();
-                    size = 1;
-                }
-
-                fromKey = entry == null ? null : entry.getKey();
-                if (fromKey != null) {
-                    final TrieEntry<K, V> prior = previousEntry((TrieEntry<K, V>) entry);
-                    fromKey = prior == null ? null : prior.getKey();
-                }
-
-                toKey = fromKey;
-
-                while (it.hasNext()) {
-                    ++size;
-                    entry = it.next();
-                }
-
-                toKey = entry == null ? null : entry.getKey();
-
-                if (toKey != null) {
-                    entry = nextEntry((TrieEntry<K, V>) entry);
-                    toKey = entry == null ? null : entry.getKey();
-                }
-
+            if (!fixed || AbstractPatriciaTrie.this.modCount != expectedModCount) {
+                final TrieEntry<K, V> first = firstEntry();
+                final TrieEntry<K, V> last = lastEntry();
+                final TrieEntry<K, V> prior = first == null ? null : previousEntry(first);
+                final TrieEntry<K, V> after = last == null ? null : nextEntry(last);
+                fromKey = prior == null ? null : prior.getKey();
+                toKey = after == null ? null : after.getKey();
                 expectedModCount = AbstractPatriciaTrie.this.modCount;
+                fixed = true;
             }
-
-            return size;
         }
 
         @Override
         public K getFromKey() {
+            fixup();
             return fromKey;
         }
 
         @Override
         public K getToKey() {
+            fixup();
             return toKey;
         }
 
@@ -694,28 +715,49 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
             return false;
         }
 
+        /**
+         * Tests whether the entry found by {@link #subtree()} holds the only key of the view, rather than heading a subtree of keys.
+         */
+        boolean isSingleton(final TrieEntry<K, V> start) {
+            return lengthInBits > start.bitIndex;
+        }
+
         @Override
         public boolean isToInclusive() {
             return false;
         }
 
-        @Override
-        public K lastKey() {
-            fixup();
-
-            Map.Entry<K, V> e = null;
-            if (toKey == null) {
-                e = lastEntry();
-            } else {
-                e = lowerEntry(toKey);
+        /**
+         * Returns the last entry of the view, or null if it is empty.
+         */
+        private TrieEntry<K, V> lastEntry() {
+            final TrieEntry<K, V> start = subtree();
+            if (start == null || isSingleton(start)) {
+                return start;
             }
+            return followRight(start);
+        }
 
-            final K last = e != null ? e.getKey() : null;
-            if (e == null || !getKeyAnalyzer().isPrefix(prefix, offsetInBits, lengthInBits, last)) {
+        @Override
+        public K lastKey() {
+            final TrieEntry<K, V> last = lastEntry();
+            if (last == null) {
                 throw new NoSuchElementException();
             }
+            return last.getKey();
+        }
 
-            return last;
+        /**
+         * Returns the entry whose subtree holds the keys of the view, or the entry of its only key, or null if it has none,
+         * only looking it up again once the {@link org.apache.commons.collections4.Trie} has changed.
+         */
+        TrieEntry<K, V> subtree() {
+            if (!subtreeFound || AbstractPatriciaTrie.this.modCount != subtreeModCount) {
+                subtree = AbstractPatriciaTrie.this.subtree(prefix, offsetInBits, lengthInBits);
+                subtreeModCount = AbstractPatriciaTrie.this.modCount;
+                subtreeFound = true;
+            }
+            return subtree;
         }
     }
 
@@ -1002,6 +1044,12 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
         /** The entry who uplinks to this entry. */
         protected TrieEntry<K, V> predecessor;
 
+        /** The number of keys in the subtree of this entry, which the prefix views take as their size. */
+        int subtreeSize;
+
+        /** The entry holding the smallest key of the subtree of this entry, which may be the empty root; this entry while it is not in a trie. */
+        TrieEntry<K, V> smallest;
+
         /**
          * Constructs a new instance.
          *
@@ -1016,6 +1064,7 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
             this.left = this;
             this.right = null;
             this.predecessor = this;
+            this.smallest = this;
         }
 
         /**
@@ -1225,6 +1274,34 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
         }
     }
 
+    /**
+     * An entry of a weighted trie, which keeps the mappings with the greatest values of its subtree, and has those of the subtrees holding its key
+     * found again when its value changes.
+     */
+    private final class WeightedEntry extends TrieEntry<K, V> {
+
+        private static final long serialVersionUID = -1858357124932164396L;
+
+        /** The entries with the greatest values in the subtree of this entry, greatest first, as many as the trie caches. */
+        TrieEntry<K, V>[] topMatches;
+
+        WeightedEntry(final K key, final V value, final int bitIndex) {
+            super(key, value, bitIndex);
+        }
+
+        @Override
+        public V setValue(final V value) {
+            final V previous = super.setValue(value);
+            // an entry loses its key before its value as it leaves the trie
+            if (key != null) {
+                for (TrieEntry<K, V> e = predecessor; e != root; e = e.parent) {
+                    updateTopMatches(e);
+                }
+            }
+            return previous;
+        }
+    }
+
     private static final long serialVersionUID = 5155253417231339498L;
 
     /**
@@ -1234,6 +1311,23 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
         return next != null && next.bitIndex <= from.bitIndex && !next.isEmpty();
     }
 
+    /**
+     * Returns the entry holding the smallest key a child of 'from' leads to: that of its subtree, or the entry it uplinks to.
+     */
+    static <K, V> TrieEntry<K, V> smallestEntry(final TrieEntry<K, V> child, final TrieEntry<K, V> from) {
+        return child.bitIndex > from.bitIndex ? child.smallest : child;
+    }
+
+    /**
+     * Returns the number of keys a child of 'from' leads to: those of its subtree, or the key of the entry it uplinks to.
+     */
+    static int subtreeSize(final TrieEntry<?, ?> child, final TrieEntry<?, ?> from) {
+        if (child.bitIndex > from.bitIndex) {
+            return child.subtreeSize;
+        }
+        return child.isEmpty() ? 0 : 1;
+    }
+
     /** The root node of the {@link org.apache.commons.collections4.Trie}. */
     private transient TrieEntry<K, V> root = new TrieEntry<>(null, null, -1);
 
@@ -1257,6 +1351,12 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
      */
     protected transient int modCount;
 
+    /** The order of the values which {@link #topPrefixMatches(Object, int)} finds the greatest of, or null if the trie is not weighted. */
+    private final Comparator<? super V> valueComparator;
+
+    /** The number of greatest values each entry of a weighted trie keeps for its subtree. */
+    private final int cachedMatches;
+
     /**
      * Constructs a new {@link Trie} using the given {@link KeyAnalyzer}.
      *
@@ -1264,6 +1364,29 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
      */
     protected AbstractPatriciaTrie(final KeyAnalyzer<? super K> keyAnalyzer) {
         super(keyAnalyzer);
+        this.valueComparator = null;
+        this.cachedMatches = 0;
+    }
+
+    /**
+     * Constructs a new weighted {@link Trie} using the given {@link KeyAnalyzer}, each entry of which keeps the mappings with the greatest
+     * values of its subtree for {@link #topPrefixMatches(Object, int)}.
+     *
+     * @param keyAnalyzer  the {@link KeyAnalyzer}.
+     * @param valueComparator  the order of the values, such as their scores, must not be null, and must be serializable for the trie to be
+     * @param cachedMatches  the number of greatest values each entry keeps
+     * @throws NullPointerException if the value comparator is null
+     * @throws IllegalArgumentException if the number of cached matches is not positive
+     * @since 4.6.0
+     */
+    protected AbstractPatriciaTrie(final KeyAnalyzer<? super K> keyAnalyzer, final Comparator<? super V> valueComparator, final int cachedMatches) {
+        super(keyAnalyzer);
+        if (cachedMatches <= 0) {
+            throw new IllegalArgumentException("cachedMatches must be positive: " + cachedMatches);
+        }
+        this.valueComparator = Objects.requireNonNull(valueComparator, "valueComparator");
+        this.cachedMatches = cachedMatches;
+        this.root = newEntry(null, null, -1);
     }
 
     /**
@@ -1275,6 +1398,8 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
      */
     protected AbstractPatriciaTrie(final KeyAnalyzer<? super K> keyAnalyzer, final Map<? extends K, ? extends V> map) {
         super(keyAnalyzer);
+        this.valueComparator = null;
+        this.cachedMatches = 0;
         putAll(map);
     }
 
@@ -1313,6 +1438,12 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
                     path.right = entry;
                 }
 
+                entry.subtreeSize = subtreeSize(entry.left, entry) + subtreeSize(entry.right, entry);
+                entry.smallest = smallestEntry(entry.left, entry);
+                if (valueComparator != null) {
+                    updateTopMatches(entry);
+                }
+                addToSubtreeSizes(path, 1);
                 return entry;
             }
 
@@ -1326,6 +1457,20 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
         }
     }
 
+    /**
+     * Adds to the number of keys in the subtrees of an entry and of its parents, and finds their smallest entries and top matches again, after a
+     * key was added or removed below the entry.
+     */
+    private void addToSubtreeSizes(final TrieEntry<K, V> entry, final int delta) {
+        for (TrieEntry<K, V> e = entry; e != root; e = e.parent) {
+            e.subtreeSize += delta;
+            e.smallest = smallestEntry(e.left, e);
+            if (valueComparator != null) {
+                updateTopMatches(e);
+            }
+        }
+    }
+
     /**
      * Returns a key-value mapping associated with the least key greater
      * than or equal to the given key, or null if there is no such key.
@@ -1401,6 +1546,14 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
         return getKeyAnalyzer();
     }
 
+    /**
+     * Compares two entries as {@link #topPrefixMatches(Object, int)} orders them: the greatest value first, then in key order.
+     */
+    private int compareMatches(final TrieEntry<K, V> a, final TrieEntry<K, V> b) {
+        final int c = valueComparator.compare(b.value, a.value);
+        return c != 0 ? c : getKeyAnalyzer().compare(a.key, b.key);
+    }
+
     @Override
     public boolean containsKey(final Object k) {
         if (k == null) {
@@ -1598,9 +1751,10 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
      * <p>
      * The view that this returns is optimized to have a very efficient
      * {@link Iterator}. The {@link SortedMap#firstKey()},
-     * {@link SortedMap#lastKey()} &amp; {@link Map#size()} methods must
-     * iterate over all possible values in order to determine the results.
-     * This information is cached until the PATRICIA {@link org.apache.commons.collections4.Trie} changes.
+     * {@link SortedMap#lastKey()} &amp; {@link Map#size()} methods find
+     * the entry whose subtree holds the prefixed keys in O(K) time, and
+     * take the size from the number of keys each entry keeps for its subtree.
+     * The entry is cached until the PATRICIA {@link org.apache.commons.collections4.Trie} changes.
      * All other methods (except {@link Iterator}) must compare the given
      * key to the prefix to ensure that it is within the range of the view.
      * The {@link Iterator}'s remove method must also relocate the subtree
@@ -1731,6 +1885,45 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
         throw new NoSuchElementException();
     }
 
+    /**
+     * Returns the {@link java.util.Map.Entry} whose key is the longest
+     * prefix of the given key, as defined by
+     * {@link KeyAnalyzer#isPrefix(Object, int, int, Object)}. For example,
+     * given the keys "/", "/usr" and "/usr/local", the longest prefix of
+     * "/usr/lib" is "/usr". A key is a prefix of itself.
+     * <p>
+     * This walks the bits of the given key down the
+     * {@link org.apache.commons.collections4.Trie} once, as
+     * {@link #get(Object)} does, rather than looking up every
+     * truncation of the key. Wherever the walk turns right, it takes the
+     * smallest entry of the subtree it leaves, which each entry keeps, so
+     * that this takes O(K) steps, where K is the number of bits of the key,
+     * and compares the key with up to 2h + 1 candidate entries, where h is
+     * the height of the {@link org.apache.commons.collections4.Trie}.
+     * </p>
+     *
+     * @param key  the key to find the longest prefix of, must not be null
+     * @return the {@link java.util.Map.Entry} whose key is the longest prefix
+     *   of the given key, or null if no key is a prefix of it
+     * @throws NullPointerException if the key is null
+     * @since 4.6.0
+     */
+    public Map.Entry<K, V> longestPrefixOf(final K key) {
+        Objects.requireNonNull(key, "key");
+        final int lengthInBits = lengthInBits(key);
+        TrieEntry<K, V> longest = null;
+        int longestLength = -1;
+        for (final TrieEntry<K, V> entry : prefixCandidates(key, lengthInBits)) {
+            final int length = lengthInBits(entry.key);
+            if (length > longestLength && length <= lengthInBits
+                    && getKeyAnalyzer().isPrefix(entry.key, 0, length, key)) {
+                longest = entry;
+                longestLength = length;
+            }
+        }
+        return longest;
+    }
+
     /**
      * Returns a key-value mapping associated with the greatest key
      * strictly less than the given key, or null if there is no such key.
@@ -1784,6 +1977,13 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
         return new TrieMapIterator();
     }
 
+    /**
+     * Creates an entry, which keeps the top matches of its subtree if the trie is weighted.
+     */
+    private TrieEntry<K, V> newEntry(final K key, final V value, final int bitIndex) {
+        return valueComparator == null ? new TrieEntry<>(key, value, bitIndex) : new WeightedEntry(key, value, bitIndex);
+    }
+
     /**
      * Returns the entry lexicographically after the given entry.
      * If the given entry is null, returns the first node.
@@ -1943,6 +2143,85 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
         return null;
     }
 
+    /**
+     * Returns the entries which may hold a prefix of the given key: the
+     * entries on the path of the key, and, wherever the path turns right at
+     * a bit, the first entry of the subtree it leaves on the left.
+     * <p>
+     * A prefix of the key which is off its path was left on the left at a
+     * bit past the end of the prefix, where the key has a one and the prefix
+     * is padded with zeros. All the keys of that subtree share their bits up
+     * to that bit, so the prefix is the only one of them that short, and the
+     * smallest of them.
+     * </p>
+     * <p>
+     * Each entry keeps the smallest entry of its subtree, so that this is a
+     * single walk down the key, which returns up to 2h + 1 candidates for
+     * the caller to compare with the key, where h is the height of the
+     * {@link org.apache.commons.collections4.Trie}.
+     * </p>
+     */
+    private List<TrieEntry<K, V>> prefixCandidates(final K key, final int lengthInBits) {
+        final List<TrieEntry<K, V>> candidates = new ArrayList<>();
+        if (!root.isEmpty()) {
+            candidates.add(root);
+        }
+        TrieEntry<K, V> current = root.left;
+        TrieEntry<K, V> path = root;
+        while (current.bitIndex > path.bitIndex) {
+            candidates.add(current);
+            path = current;
+            if (!isBitSet(key, current.bitIndex, lengthInBits)) {
+                current = current.left;
+            } else {
+                if (!current.smallest.isEmpty()) {
+                    candidates.add(current.smallest);
+                }
+                current = current.right;
+            }
+        }
+        if (!current.isEmpty()) {
+            candidates.add(current);
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns the entries whose keys are prefixes of the given key, as
+     * defined by {@link KeyAnalyzer#isPrefix(Object, int, int, Object)},
+     * from the shortest to the longest. For example, given the keys "/",
+     * "/usr" and "/usr/local", the prefixes of "/usr/lib" are "/" and
+     * "/usr". A key is a prefix of itself.
+     * <p>
+     * As {@link #longestPrefixOf(Object)}, this walks the bits of the given
+     * key down the {@link org.apache.commons.collections4.Trie} once, in
+     * O(K) steps. The returned list is a snapshot, but setting the value of one of its
+     * entries sets the value in the {@link org.apache.commons.collections4.Trie}.
+     * </p>
+     *
+     * @param key  the key to find the prefixes of, must not be null
+     * @return the entries whose keys are prefixes of the given key, in key order
+     * @throws NullPointerException if the key is null
+     * @since 4.6.0
+     */
+    public List<Map.Entry<K, V>> prefixesOf(final K key) {
+        Objects.requireNonNull(key, "key");
+        final int lengthInBits = lengthInBits(key);
+        final List<TrieEntry<K, V>> candidates = prefixCandidates(key, lengthInBits);
+        candidates.sort(Comparator.comparingInt(entry -> lengthInBits(entry.key)));
+        final List<Map.Entry<K, V>> prefixes = new ArrayList<>();
+        TrieEntry<K, V> previous = null;
+        for (final TrieEntry<K, V> entry : candidates) {
+            final int length = lengthInBits(entry.key);
+            // prefixes of the same length are equal, so an entry found twice is adjacent to itself
+            if (entry != previous && length <= lengthInBits && getKeyAnalyzer().isPrefix(entry.key, 0, length, key)) {
+                prefixes.add(entry);
+                previous = entry;
+            }
+        }
+        return prefixes;
+    }
+
     @Override
     public SortedMap<K, V> prefixMap(final K key) {
         return getPrefixMapByBits(key, 0, lengthInBits(key));
@@ -2011,6 +2290,16 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
         return null;
     }
 
+    /**
+     * Queues what a child of 'from' leads to for {@link #topPrefixMatches(Object, int)}: its subtree, or the entry it uplinks to unless it is the
+     * empty root.
+     */
+    private void queueMatchCandidate(final PriorityQueue<MatchCandidate> queue, final TrieEntry<K, V> child, final TrieEntry<K, V> from) {
+        if (topMatchCount(child, from) > 0) {
+            queue.add(new MatchCandidate(child, child.bitIndex > from.bitIndex));
+        }
+    }
+
     @Override
     public V put(final K key, final V value) {
         Objects.requireNonNull(key, "key");
@@ -2020,21 +2309,15 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
         // The only place to store a key with a length
         // of zero bits is the root node
         if (lengthInBits == 0) {
-            if (root.isEmpty()) {
-                incrementSize();
-            } else {
-                incrementModCount();
-            }
-            return root.setKeyValue(key, value);
+            return putRoot(key, value);
         }
 
         final TrieEntry<K, V> found = getNearestEntryForKey(key, lengthInBits);
         if (keysAreEqual(key, found.key)) {
             if (found.isEmpty()) { // <- must be the root
-                incrementSize();
-            } else {
-                incrementModCount();
+                return putRoot(key, value);
             }
+            incrementModCount();
             return found.setKeyValue(key, value);
         }
 
@@ -2042,7 +2325,7 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
         if (!KeyAnalyzer.isOutOfBoundsIndex(bitIndex)) {
             if (KeyAnalyzer.isValidBitIndex(bitIndex)) { // in 99.999...9% the case
                 /* NEW KEY+VALUE TUPLE */
-                final TrieEntry<K, V> t = new TrieEntry<>(key, value, bitIndex);
+                final TrieEntry<K, V> t = newEntry(key, value, bitIndex);
                 addEntry(t, lengthInBits);
                 incrementSize();
                 return null;
@@ -2052,12 +2335,7 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
                 // store such a Key is the root Node!
 
                 /* NULL BIT KEY */
-                if (root.isEmpty()) {
-                    incrementSize();
-                } else {
-                    incrementModCount();
-                }
-                return root.setKeyValue(key, value);
+                return putRoot(key, value);
 
             }
             if (KeyAnalyzer.isEqualBitKey(bitIndex) && found != root) { // NOPMD
@@ -2069,6 +2347,20 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
         throw new IllegalArgumentException("Failed to put: " + key + " -> " + value + ", " + bitIndex);
     }
 
+    /**
+     * Stores a key whose bits are all zero, which only the root can hold.
+     */
+    private V putRoot(final K key, final V value) {
+        if (!root.isEmpty()) {
+            incrementModCount();
+            return root.setKeyValue(key, value);
+        }
+        incrementSize();
+        final V oldValue = root.setKeyValue(key, value);
+        updateRootSubtreeSizes();
+        return oldValue;
+    }
+
     /**
      * Deserializes an instance from an ObjectInputStream.
      *
@@ -2079,7 +2371,7 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
     @SuppressWarnings("unchecked") // This will fail at runtime if the stream is incorrect
     private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
-        root = new TrieEntry<>(null, null, -1);
+        root = newEntry(null, null, -1);
         final int size = in.readInt();
         for (int i = 0; i < size; i++) {
             final K k = (K) in.readObject();
@@ -2138,7 +2430,11 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
         }
 
         decrementSize();
-        return h.setKeyValue(null, null);
+        final V oldValue = h.setKeyValue(null, null);
+        if (h == root) {
+            updateRootSubtreeSizes();
+        }
+        return oldValue;
     }
 
     /**
@@ -2171,6 +2467,7 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
             child.predecessor = parent;
         }
 
+        addToSubtreeSizes(parent, -1);
     }
 
     /**
@@ -2189,6 +2486,8 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
         }
 
         final TrieEntry<K, V> p = h.predecessor;
+        // the lowest entry whose subtree loses a key, once P has taken H's place
+        final TrieEntry<K, V> changed = p.parent == h ? p : p.parent;
 
         // Set P's bitIndex
         p.bitIndex = h.bitIndex;
@@ -2246,14 +2545,17 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
         p.right = h.right;
 
         // Make sure that if h was pointing to any uplinks,
-        // p now points to them.
-        if (isValidUplink(p.left, p)) {
+        // p now points to them, including the uplink to an
+        // empty root, which may later get a key.
+        if (p.left.bitIndex <= p.bitIndex) {
             p.left.predecessor = p;
         }
 
-        if (isValidUplink(p.right, p)) {
+        if (p.right.bitIndex <= p.bitIndex) {
             p.right.predecessor = p;
         }
+
+        updateSubtreeSizes(changed);
     }
 
     /**
@@ -2437,6 +2739,142 @@ public abstract class AbstractPatriciaTrie<K, V> extends AbstractBitwiseTrie<K,
         return new RangeEntryMap(fromKey, null);
     }
 
+    /**
+     * Returns the i-th top match a child of 'from' leads to: from the top matches of its subtree, or the entry it uplinks to.
+     */
+    private TrieEntry<K, V> topMatch(final TrieEntry<K, V> child, final TrieEntry<K, V> from, final int i) {
+        return child.bitIndex > from.bitIndex ? ((WeightedEntry) child).topMatches[i] : child;
+    }
+
+    /**
+     * Returns the number of top matches a child of 'from' leads to.
+     */
+    private int topMatchCount(final TrieEntry<K, V> child, final TrieEntry<K, V> from) {
+        if (child.bitIndex > from.bitIndex) {
+            return ((WeightedEntry) child).topMatches.length;
+        }
+        return child.isEmpty() ? 0 : 1;
+    }
+
+    /**
+     * Returns the mappings with the greatest values among the keys which start with a prefix, greatest first, in the order of the value comparator
+     * the trie was constructed with, and of the keys on ties.
+     * <p>
+     * Each entry of a weighted trie keeps the mappings with the greatest values of its subtree, as many as the trie was constructed to cache, and
+     * updates them as it updates the size of the subtree. Up to that many mappings, this method goes down the prefix and copies them, in O(K +
+     * count) time, where K is the number of bits of the prefix. Beyond it, it goes on from the greatest values to the smaller ones, best first,
+     * queueing the branches on the path of each result, in O(K + count h log(count h)) time, where h is the height of the subtree of the keys
+     * which start with the prefix. The returned list is a snapshot, but setting the value of one of its entries sets the value in the
+     * {@link org.apache.commons.collections4.Trie}.
+     * </p>
+     *
+     * @param prefix  the prefix of the keys, must not be null
+     * @param count  the maximum number of mappings to return
+     * @return up to {@code count} mappings, the greatest value first
+     * @throws NullPointerException if the prefix is null
+     * @throws IllegalArgumentException if the count is negative
+     * @throws IllegalStateException if the trie was not constructed with a value comparator
+     * @since 4.6.0
+     */
+    public List<Map.Entry<K, V>> topPrefixMatches(final K prefix, final int count) {
+        Objects.requireNonNull(prefix, "prefix");
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative: " + count);
+        }
+        if (valueComparator == null) {
+            throw new IllegalStateException("The trie has no value comparator");
+        }
+        final List<Map.Entry<K, V>> top = new ArrayList<>(Math.min(count, cachedMatches));
+        final int lengthInBits = lengthInBits(prefix);
+        TrieEntry<K, V> start = null;
+        if (count > 0 && lengthInBits > 0) {
+            start = subtree(prefix, 0, lengthInBits);
+        } else if (count > 0 && root.left != root) {
+            // every key starts with the empty prefix: the subtree left of the root holds them all, as it uplinks to the root
+            start = root.left;
+        } else if (count > 0 && !root.isEmpty()) {
+            start = root;
+        }
+        if (start == null) {
+            return top;
+        }
+        // as in the prefix views, the entry holds the only key which starts with the prefix, or heads the subtree of all of them
+        if (lengthInBits > start.bitIndex) {
+            top.add(start);
+            return top;
+        }
+        final TrieEntry<K, V>[] cached = ((WeightedEntry) start).topMatches;
+        if (count <= cached.length || cached.length == start.subtreeSize) {
+            for (int i = 0; i < Math.min(count, cached.length); i++) {
+                top.add(cached[i]);
+            }
+            return top;
+        }
+        final PriorityQueue<MatchCandidate> queue = new PriorityQueue<>((a, b) -> compareMatches(a.best, b.best));
+        queue.add(new MatchCandidate(start, true));
+        while (top.size() < count && !queue.isEmpty()) {
+            final MatchCandidate candidate = queue.poll();
+            if (candidate.subtree) {
+                queueMatchCandidate(queue, candidate.entry.left, candidate.entry);
+                queueMatchCandidate(queue, candidate.entry.right, candidate.entry);
+            } else {
+                top.add(candidate.entry);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Recounts the keys of the entries on the path to the uplink to the root, whose key has just been added or removed.
+     */
+    private void updateRootSubtreeSizes() {
+        TrieEntry<K, V> path = root;
+        TrieEntry<K, V> current = root.left;
+        // a key whose bits are all zero goes left all the way
+        while (current.bitIndex > path.bitIndex) {
+            path = current;
+            current = current.left;
+        }
+        updateSubtreeSizes(path);
+    }
+
+    /**
+     * Recounts the keys in the subtrees of an entry and of its parents, and finds their smallest entries and top matches again, after a change
+     * below the entry.
+     */
+    private void updateSubtreeSizes(final TrieEntry<K, V> entry) {
+        for (TrieEntry<K, V> e = entry; e != root; e = e.parent) {
+            e.subtreeSize = subtreeSize(e.left, e) + subtreeSize(e.right, e);
+            e.smallest = smallestEntry(e.left, e);
+            if (valueComparator != null) {
+                updateTopMatches(e);
+            }
+        }
+    }
+
+    /**
+     * Merges the top matches both children of an entry lead to into those of its subtree.
+     */
+    @SuppressWarnings("unchecked")
+    private void updateTopMatches(final TrieEntry<K, V> entry) {
+        final WeightedEntry weighted = (WeightedEntry) entry;
+        final int leftCount = topMatchCount(entry.left, entry);
+        final int rightCount = topMatchCount(entry.right, entry);
+        final int count = Math.min(cachedMatches, leftCount + rightCount);
+        if (weighted.topMatches == null || weighted.topMatches.length != count) {
+            weighted.topMatches = new TrieEntry[count];
+        }
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < count; k++) {
+            if (j == rightCount || i < leftCount && compareMatches(topMatch(entry.left, entry, i), topMatch(entry.right, entry, j)) <= 0) {
+                weighted.topMatches[k] = topMatch(entry.left, entry, i++);
+            } else {
+                weighted.topMatches[k] = topMatch(entry.right, entry, j++);
+            }
+        }
+    }
+
     @Override
     public Collection<V> values() {
         if (values == null) {
@@ -0,0 +1,1447 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+
+import org.apache.commons.collections4.OrderedMapIterator;
+import org.apache.commons.collections4.Trie;
+
+/**
+ * A {@link Trie} implemented as an adaptive radix tree, which branches on a whole byte of the keys at each node rather than on a single bit as
+ * {@link PatriciaTrie} does.
+ * <p>
+ * The keys are read a byte at a time with {@link KeyAnalyzer#byteAt(Object, int, int)}: two bytes per character for {@link String} keys, in
+ * the order of {@link String#compareTo(String)}, and their own bytes for {@code byte[]} keys. Each inner node is one of four types, as in the
+ * adaptive radix tree of Leis, Kemper and Neumann: up to 4 or up to 16 children with their bytes in ascending order, up to 48 children behind an
+ * index of all the bytes, or an array of 256 children. Nodes grow and shrink between these types as children come and go. The bytes which all the
+ * keys under a node share are stored once in the node (path compression), and a key whose bytes end at a node is held by the node itself. A leaf
+ * hangs as high in the tree as the other keys allow, so that a lookup visits about log<sub>256</sub>(n) nodes, then compares the rest of the key
+ * with the key of the leaf.
+ * </p>
+ * <p>
+ * Keys are ordered by their bytes, with a key before the keys it is a prefix of, which is how {@link String#compareTo(String)} orders strings and
+ * how {@link org.apache.commons.collections4.trie.analyzer.ByteArrayKeyAnalyzer} orders byte arrays. Unlike {@link PatriciaTrie}, this trie tells
+ * apart keys which only differ by trailing zeros, such as {@code "a"} and {@code "a\0"}. Keys may not be null; values may.
+ * </p>
+ * <p>
+ * This class is not thread-safe, and its iterators are fail-fast, as those of {@link PatriciaTrie}. The views returned by
+ * {@link #prefixMap(Object)} and the sub map methods are live, and count their keys by going through them.
+ * </p>
+ *
+ * @param <K> the type of the keys in this map
+ * @param <V> the type of the values in this map
+ * @since 4.6.0
+ */
+public class AdaptiveRadixTrie<K, V> extends AbstractMap<K, V> implements Trie<K, V>, Serializable {
+
+    /**
+     * An inner node with up to 4 or up to 16 children, whose bytes are kept in ascending order: the Node4 and Node16 of the adaptive radix tree.
+     */
+    private static final class ArrayNode<K, V> extends Inner<K, V> {
+
+        private final byte[] bytes;
+
+        private final Node<K, V>[] children;
+
+        @SuppressWarnings("unchecked")
+        ArrayNode(final int capacity, final byte[] prefix) {
+            super(prefix);
+            bytes = new byte[capacity];
+            children = new Node[capacity];
+        }
+
+        /**
+         * Copies a node into a node of this type, which must be large enough for its children.
+         */
+        ArrayNode(final int capacity, final Inner<K, V> from) {
+            this(capacity, from.prefix);
+            terminal = from.terminal;
+            for (int b = from.nextByte(-1); b >= 0; b = from.nextByte(b)) {
+                bytes[count] = (byte) b;
+                children[count++] = from.child(b);
+            }
+        }
+
+        @Override
+        Inner<K, V> addChild(final int b, final Node<K, V> child) {
+            if (count == bytes.length) {
+                final Inner<K, V> grown = bytes.length < 16 ? new ArrayNode<>(16, this) : new Node48<>(this);
+                return grown.addChild(b, child);
+            }
+            int i = count;
+            while (i > 0 && (bytes[i - 1] & 0xff) > b) {
+                bytes[i] = bytes[i - 1];
+                children[i] = children[i - 1];
+                i--;
+            }
+            bytes[i] = (byte) b;
+            children[i] = child;
+            count++;
+            return this;
+        }
+
+        @Override
+        Node<K, V> child(final int b) {
+            final int i = indexOf(b);
+            return i >= 0 ? children[i] : null;
+        }
+
+        private int indexOf(final int b) {
+            for (int i = 0; i < count; i++) {
+                final int k = bytes[i] & 0xff;
+                if (k >= b) {
+                    return k == b ? i : -1;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        int nextByte(final int b) {
+            for (int i = 0; i < count; i++) {
+                final int k = bytes[i] & 0xff;
+                if (k > b) {
+                    return k;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        int previousByte(final int b) {
+            for (int i = count - 1; i >= 0; i--) {
+                final int k = bytes[i] & 0xff;
+                if (k < b) {
+                    return k;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Inner<K, V> removeChild(final int b) {
+            final int i = indexOf(b);
+            System.arraycopy(bytes, i + 1, bytes, i, count - i - 1);
+            System.arraycopy(children, i + 1, children, i, count - i - 1);
+            children[--count] = null;
+            return bytes.length > 4 && count <= 3 ? new ArrayNode<>(4, this) : this;
+        }
+
+        @Override
+        void setChild(final int b, final Node<K, V> child) {
+            children[indexOf(b)] = child;
+        }
+    }
+
+    /**
+     * A position in the tree: the inner nodes on the path to a leaf, and the byte of the child taken at each, or -1 where the leaf is the key
+     * ending at the node.
+     */
+    private final class Cursor {
+
+        private int[] bytes = new int[8];
+
+        private int depth;
+
+        @SuppressWarnings("unchecked")
+        private Inner<K, V>[] nodes = new Inner[8];
+
+        /**
+         * Moves to the first leaf under a node, and returns it, or null if the node is null.
+         */
+        Leaf<K, V> first(final Node<K, V> node) {
+            Node<K, V> n = node;
+            while (n instanceof Inner) {
+                final Inner<K, V> inner = (Inner<K, V>) n;
+                if (inner.terminal != null) {
+                    push(inner, -1);
+                    return inner.terminal;
+                }
+                final int b = inner.nextByte(-1);
+                push(inner, b);
+                n = inner.child(b);
+            }
+            return (Leaf<K, V>) n;
+        }
+
+        /**
+         * Moves to the next leaf, and returns it, or null if there is none.
+         */
+        Leaf<K, V> next() {
+            while (depth > 0) {
+                final Inner<K, V> inner = nodes[depth - 1];
+                final int b = inner.nextByte(bytes[depth - 1]);
+                if (b >= 0) {
+                    bytes[depth - 1] = b;
+                    return first(inner.child(b));
+                }
+                nodes[--depth] = null;
+            }
+            return null;
+        }
+
+        private void push(final Inner<K, V> node, final int b) {
+            if (depth == nodes.length) {
+                nodes = Arrays.copyOf(nodes, depth * 2);
+                bytes = Arrays.copyOf(bytes, depth * 2);
+            }
+            nodes[depth] = node;
+            bytes[depth++] = b;
+        }
+
+        /**
+         * Moves to the first leaf whose key is greater than, or equal to if inclusive, a key, and returns it, or null if there is none.
+         */
+        Leaf<K, V> seek(final K key, final boolean inclusive) {
+            Arrays.fill(nodes, 0, depth, null);
+            depth = 0;
+            final int lengthInBits = keyAnalyzer.lengthInBits(key);
+            final int length = byteLength(lengthInBits);
+            Node<K, V> n = root;
+            int d = 0;
+            while (n instanceof Inner) {
+                final Inner<K, V> inner = (Inner<K, V>) n;
+                final byte[] prefix = inner.prefix;
+                for (int i = 0; i < prefix.length; i++) {
+                    if (d + i >= length) {
+                        // the key is a prefix of all the keys under the node
+                        return first(inner);
+                    }
+                    final int b = keyAnalyzer.byteAt(key, d + i, lengthInBits);
+                    if (b != (prefix[i] & 0xff)) {
+                        return b < (prefix[i] & 0xff) ? first(inner) : next();
+                    }
+                }
+                d += prefix.length;
+                if (d == length) {
+                    push(inner, -1);
+                    return inclusive && inner.terminal != null ? inner.terminal : next();
+                }
+                final int b = keyAnalyzer.byteAt(key, d, lengthInBits);
+                push(inner, b);
+                n = inner.child(b);
+                d++;
+                if (n == null) {
+                    return next();
+                }
+            }
+            if (n == null) {
+                return null;
+            }
+            final Leaf<K, V> leaf = (Leaf<K, V>) n;
+            final int c = compareBytes(leaf.key, keyAnalyzer.lengthInBits(leaf.key), key, lengthInBits, d);
+            return c > 0 || c == 0 && inclusive ? leaf : next();
+        }
+    }
+
+    /**
+     * Iterates in order over the leaves of a view.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+        private final Cursor cursor = new Cursor();
+
+        private int expectedModCount = modCount;
+
+        private Leaf<K, V> last;
+
+        private final RangeMap map;
+
+        private Leaf<K, V> next;
+
+        EntryIterator(final RangeMap map) {
+            this.map = map;
+            next = map == null ? cursor.first(root) : map.first(cursor);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = cursor.next();
+            if (next != null && map != null && !map.inRange(next.key)) {
+                next = null;
+            }
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            AdaptiveRadixTrie.this.remove(last.key);
+            expectedModCount = modCount;
+            last = null;
+            // the nodes on the path may have changed
+            if (next != null) {
+                cursor.seek(next.key, true);
+            }
+        }
+    }
+
+    /**
+     * The entries of the trie or of one of its views.
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+        private final RangeMap map;
+
+        EntrySet(final RangeMap map) {
+            this.map = map;
+        }
+
+        @Override
+        public void clear() {
+            if (map == null) {
+                AdaptiveRadixTrie.this.clear();
+            } else {
+                super.clear();
+            }
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            final Leaf<K, V> leaf = getLeaf(entry.getKey());
+            return leaf != null && (map == null || map.inRange(leaf.key)) && Objects.equals(leaf.value, entry.getValue());
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return new EntryIterator(map);
+        }
+
+        @Override
+        public boolean remove(final Object o) {
+            if (!contains(o)) {
+                return false;
+            }
+            AdaptiveRadixTrie.this.remove(((Map.Entry<?, ?>) o).getKey());
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return map == null ? size : map.size();
+        }
+    }
+
+    /**
+     * An inner node, which holds the bytes shared by all the keys under it, the key which ends there, if any, and the children which go on with
+     * each next byte.
+     */
+    private abstract static class Inner<K, V> extends Node<K, V> {
+
+        /** The number of children. */
+        int count;
+
+        /** The bytes after the byte which leads to this node, shared by all the keys under it. */
+        byte[] prefix;
+
+        /** The leaf of the key which ends after the prefix, or null. */
+        Leaf<K, V> terminal;
+
+        Inner(final byte[] prefix) {
+            this.prefix = prefix;
+        }
+
+        /**
+         * Adds a child, for a byte which has none, and returns this node, or a larger copy of it if it is full.
+         */
+        abstract Inner<K, V> addChild(int b, Node<K, V> child);
+
+        /**
+         * Returns the child for a byte, or null.
+         */
+        abstract Node<K, V> child(int b);
+
+        /**
+         * Returns the least byte greater than a byte, which may be -1, which has a child, or -1 if there is none.
+         */
+        abstract int nextByte(int b);
+
+        /**
+         * Returns the greatest byte less than a byte, which may be 256, which has a child, or -1 if there is none.
+         */
+        abstract int previousByte(int b);
+
+        /**
+         * Removes the child of a byte, which must have one, and returns this node, or a smaller copy of it if it has few children left.
+         */
+        abstract Inner<K, V> removeChild(int b);
+
+        /**
+         * Replaces the child of a byte, which must have one.
+         */
+        abstract void setChild(int b, Node<K, V> child);
+    }
+
+    /**
+     * A leaf, which holds one mapping and is the entry returned by the iterators.
+     */
+    private static final class Leaf<K, V> extends Node<K, V> implements Map.Entry<K, V> {
+
+        K key;
+
+        V value;
+
+        Leaf(final K key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+            return Objects.equals(key, other.getKey()) && Objects.equals(value, other.getValue());
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public V setValue(final V value) {
+            final V old = this.value;
+            this.value = value;
+            return old;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * An inner node with up to 48 children, found through an index of all the bytes: the Node48 of the adaptive radix tree.
+     */
+    private static final class Node48<K, V> extends Inner<K, V> {
+
+        private final Node<K, V>[] children;
+
+        /** The index of the child of each byte plus one, or zero if it has none. */
+        private final byte[] index = new byte[256];
+
+        @SuppressWarnings("unchecked")
+        Node48(final Inner<K, V> from) {
+            super(from.prefix);
+            terminal = from.terminal;
+            children = new Node[48];
+            for (int b = from.nextByte(-1); b >= 0; b = from.nextByte(b)) {
+                index[b] = (byte) (count + 1);
+                children[count++] = from.child(b);
+            }
+        }
+
+        @Override
+        Inner<K, V> addChild(final int b, final Node<K, V> child) {
+            if (count == children.length) {
+                return new Node256<>(this).addChild(b, child);
+            }
+            int slot = 0;
+            while (children[slot] != null) {
+                slot++;
+            }
+            children[slot] = child;
+            index[b] = (byte) (slot + 1);
+            count++;
+            return this;
+        }
+
+        @Override
+        Node<K, V> child(final int b) {
+            final int slot = index[b];
+            return slot != 0 ? children[slot - 1] : null;
+        }
+
+        @Override
+        int nextByte(final int b) {
+            for (int i = b + 1; i < 256; i++) {
+                if (index[i] != 0) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        int previousByte(final int b) {
+            for (int i = b - 1; i >= 0; i--) {
+                if (index[i] != 0) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Inner<K, V> removeChild(final int b) {
+            children[index[b] - 1] = null;
+            index[b] = 0;
+            count--;
+            return count <= 12 ? new ArrayNode<>(16, this) : this;
+        }
+
+        @Override
+        void setChild(final int b, final Node<K, V> child) {
+            children[index[b] - 1] = child;
+        }
+    }
+
+    /**
+     * An inner node with an array of 256 children: the Node256 of the adaptive radix tree.
+     */
+    private static final class Node256<K, V> extends Inner<K, V> {
+
+        private final Node<K, V>[] children;
+
+        @SuppressWarnings("unchecked")
+        Node256(final Inner<K, V> from) {
+            super(from.prefix);
+            terminal = from.terminal;
+            children = new Node[256];
+            for (int b = from.nextByte(-1); b >= 0; b = from.nextByte(b)) {
+                children[b] = from.child(b);
+                count++;
+            }
+        }
+
+        @Override
+        Inner<K, V> addChild(final int b, final Node<K, V> child) {
+            children[b] = child;
+            count++;
+            return this;
+        }
+
+        @Override
+        Node<K, V> child(final int b) {
+            return children[b];
+        }
+
+        @Override
+        int nextByte(final int b) {
+            for (int i = b + 1; i < 256; i++) {
+                if (children[i] != null) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        int previousByte(final int b) {
+            for (int i = b - 1; i >= 0; i--) {
+                if (children[i] != null) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Inner<K, V> removeChild(final int b) {
+            children[b] = null;
+            count--;
+            return count <= 36 ? new Node48<>(this) : this;
+        }
+
+        @Override
+        void setChild(final int b, final Node<K, V> child) {
+            children[b] = child;
+        }
+    }
+
+    /**
+     * A node of the tree.
+     */
+    private abstract static class Node<K, V> {
+        // an Inner or a Leaf
+    }
+
+    /**
+     * A live {@link SortedMap} view of the keys which start with a prefix, if any, and lie between two keys, if any.
+     */
+    private final class RangeMap extends AbstractMap<K, V> implements SortedMap<K, V> {
+
+        /** The first key of the range, inclusive, or null. */
+        private final K fromKey;
+
+        /** The prefix of the keys, or null. */
+        private final K prefix;
+
+        /** The last key of the range, exclusive, or null. */
+        private final K toKey;
+
+        RangeMap(final K prefix, final K fromKey, final K toKey) {
+            this.prefix = prefix;
+            this.fromKey = fromKey;
+            this.toKey = toKey;
+        }
+
+        /**
+         * Returns a bound of a sub view, which must lie between the bounds of this view, as {@link java.util.TreeMap} requires.
+         */
+        private K checkInRange(final K bound) {
+            if (fromKey != null && compareKeys(bound, fromKey) < 0 || toKey != null && compareKeys(bound, toKey) > 0) {
+                throw new IllegalArgumentException("Key is out of range: " + bound);
+            }
+            return bound;
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return keyAnalyzer;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            final Leaf<K, V> leaf = getLeaf(key);
+            return leaf != null && inRange(leaf.key);
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new EntrySet(this);
+        }
+
+        /**
+         * Moves a cursor to the first leaf of this view, and returns it, or null if the view is empty.
+         */
+        Leaf<K, V> first(final Cursor cursor) {
+            final Leaf<K, V> leaf;
+            if (prefix != null && (fromKey == null || compareKeys(prefix, fromKey) > 0)) {
+                leaf = cursor.seek(prefix, true);
+            } else if (fromKey != null) {
+                leaf = cursor.seek(fromKey, true);
+            } else {
+                leaf = cursor.first(root);
+            }
+            return leaf != null && inRange(leaf.key) ? leaf : null;
+        }
+
+        @Override
+        public K firstKey() {
+            final Leaf<K, V> leaf = first(new Cursor());
+            if (leaf == null) {
+                throw new NoSuchElementException();
+            }
+            return leaf.key;
+        }
+
+        @Override
+        public V get(final Object key) {
+            final Leaf<K, V> leaf = getLeaf(key);
+            return leaf != null && inRange(leaf.key) ? leaf.value : null;
+        }
+
+        @Override
+        public SortedMap<K, V> headMap(final K toKey) {
+            return new RangeMap(prefix, fromKey, checkInRange(Objects.requireNonNull(toKey, "toKey")));
+        }
+
+        /**
+         * Tests whether a key is in this view.
+         */
+        boolean inRange(final K key) {
+            return (prefix == null || startsWith(key, prefix))
+                    && (fromKey == null || compareKeys(key, fromKey) >= 0)
+                    && (toKey == null || compareKeys(key, toKey) < 0);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return first(new Cursor()) == null;
+        }
+
+        @Override
+        public K lastKey() {
+            Leaf<K, V> leaf = prefix != null ? lastWithPrefix(prefix) : max(root);
+            if (toKey != null && (leaf == null || compareKeys(leaf.key, toKey) >= 0)) {
+                leaf = floor(root, toKey, false);
+            }
+            if (leaf == null || !inRange(leaf.key)) {
+                throw new NoSuchElementException();
+            }
+            return leaf.key;
+        }
+
+        @Override
+        public V put(final K key, final V value) {
+            if (!inRange(Objects.requireNonNull(key, "key"))) {
+                throw new IllegalArgumentException("Key is out of range: " + key);
+            }
+            return AdaptiveRadixTrie.this.put(key, value);
+        }
+
+        @Override
+        public V remove(final Object key) {
+            return containsKey(key) ? AdaptiveRadixTrie.this.remove(key) : null;
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            final Cursor cursor = new Cursor();
+            for (Leaf<K, V> leaf = first(cursor); leaf != null && inRange(leaf.key); leaf = cursor.next()) {
+                size++;
+            }
+            return size;
+        }
+
+        @Override
+        public SortedMap<K, V> subMap(final K fromKey, final K toKey) {
+            if (compareKeys(Objects.requireNonNull(fromKey, "fromKey"), Objects.requireNonNull(toKey, "toKey")) > 0) {
+                throw new IllegalArgumentException("fromKey > toKey");
+            }
+            return new RangeMap(prefix, checkInRange(fromKey), checkInRange(toKey));
+        }
+
+        @Override
+        public SortedMap<K, V> tailMap(final K fromKey) {
+            return new RangeMap(prefix, checkInRange(Objects.requireNonNull(fromKey, "fromKey")), toKey);
+        }
+    }
+
+    /**
+     * An {@link OrderedMapIterator} which finds each next or previous key from the last one.
+     */
+    private final class TrieMapIterator implements OrderedMapIterator<K, V> {
+
+        /** The key before the position of the iterator, or null at the start. */
+        private K before;
+
+        private Leaf<K, V> current;
+
+        private int expectedModCount = modCount;
+
+        private void checkModCount() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public K getKey() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            return current.key;
+        }
+
+        @Override
+        public V getValue() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            return current.value;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextLeaf() != null;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return before != null && floor(root, before, true) != null;
+        }
+
+        @Override
+        public K next() {
+            checkModCount();
+            final Leaf<K, V> leaf = nextLeaf();
+            if (leaf == null) {
+                throw new NoSuchElementException();
+            }
+            before = leaf.key;
+            current = leaf;
+            return leaf.key;
+        }
+
+        private Leaf<K, V> nextLeaf() {
+            return before == null ? new Cursor().first(root) : new Cursor().seek(before, false);
+        }
+
+        @Override
+        public K previous() {
+            checkModCount();
+            final Leaf<K, V> leaf = before == null ? null : floor(root, before, true);
+            if (leaf == null) {
+                throw new NoSuchElementException();
+            }
+            final Leaf<K, V> previous = floor(root, leaf.key, false);
+            before = previous == null ? null : previous.key;
+            current = leaf;
+            return leaf.key;
+        }
+
+        @Override
+        public void remove() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            checkModCount();
+            AdaptiveRadixTrie.this.remove(current.key);
+            expectedModCount = modCount;
+            current = null;
+        }
+
+        @Override
+        public V setValue(final V value) {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            return current.setValue(value);
+        }
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Returns the number of bytes of a key of a given length in bits.
+     */
+    private static int byteLength(final int lengthInBits) {
+        return (lengthInBits + Byte.SIZE - 1) / Byte.SIZE;
+    }
+
+    /**
+     * Returns the leaf of the greatest key under a node, or null if the node is null.
+     */
+    private static <K, V> Leaf<K, V> max(final Node<K, V> node) {
+        Node<K, V> n = node;
+        while (n instanceof Inner) {
+            final Inner<K, V> inner = (Inner<K, V>) n;
+            final int b = inner.previousByte(256);
+            if (b < 0) {
+                return inner.terminal;
+            }
+            n = inner.child(b);
+        }
+        return (Leaf<K, V>) n;
+    }
+
+    /**
+     * The {@link KeyAnalyzer} which reads the bytes of the keys.
+     */
+    private final KeyAnalyzer<? super K> keyAnalyzer;
+
+    /** The number of structural changes, for the fail-fast iterators. */
+    private transient int modCount;
+
+    /** The root of the tree, or null if the trie is empty. */
+    private transient Node<K, V> root;
+
+    /** The number of mappings. */
+    private transient int size;
+
+    /**
+     * Constructs a new empty trie.
+     *
+     * @param keyAnalyzer  the {@link KeyAnalyzer} which reads the bytes of the keys, must not be null
+     * @throws NullPointerException if the key analyzer is null
+     */
+    public AdaptiveRadixTrie(final KeyAnalyzer<? super K> keyAnalyzer) {
+        this.keyAnalyzer = Objects.requireNonNull(keyAnalyzer, "keyAnalyzer");
+    }
+
+    /**
+     * Constructs a new trie holding the mappings of a map.
+     *
+     * @param keyAnalyzer  the {@link KeyAnalyzer} which reads the bytes of the keys, must not be null
+     * @param map  the mappings to copy, must not be null and must not hold null keys
+     * @throws NullPointerException if the key analyzer, the map, or one of its keys is null
+     */
+    public AdaptiveRadixTrie(final KeyAnalyzer<? super K> keyAnalyzer, final Map<? extends K, ? extends V> map) {
+        this(keyAnalyzer);
+        putAll(map);
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Replaces an inner node which has a single child and no key of its own by the child, or which has no children left by the leaf of its key.
+     */
+    private void collapse(final Inner<K, V> node, final Inner<K, V> parent, final int parentByte) {
+        if (node.count == 0) {
+            replace(parent, parentByte, node.terminal);
+        } else if (node.count == 1 && node.terminal == null) {
+            final int b = node.nextByte(-1);
+            final Node<K, V> child = node.child(b);
+            if (child instanceof Inner) {
+                final Inner<K, V> inner = (Inner<K, V>) child;
+                final byte[] prefix = Arrays.copyOf(node.prefix, node.prefix.length + 1 + inner.prefix.length);
+                prefix[node.prefix.length] = (byte) b;
+                System.arraycopy(inner.prefix, 0, prefix, node.prefix.length + 1, inner.prefix.length);
+                inner.prefix = prefix;
+            }
+            replace(parent, parentByte, child);
+        }
+    }
+
+    /**
+     * Compares the bytes of two keys from an index, the bytes before it being equal.
+     */
+    private int compareBytes(final K key, final int lengthInBits, final K other, final int otherLengthInBits, final int from) {
+        final int length = byteLength(lengthInBits);
+        final int otherLength = byteLength(otherLengthInBits);
+        final int common = Math.min(length, otherLength);
+        for (int i = from; i < common; i++) {
+            final int c = keyAnalyzer.byteAt(key, i, lengthInBits) - keyAnalyzer.byteAt(other, i, otherLengthInBits);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(length, otherLength);
+    }
+
+    /**
+     * Compares two keys in the order of the trie.
+     */
+    private int compareKeys(final K key, final K other) {
+        return compareBytes(key, keyAnalyzer.lengthInBits(key), other, keyAnalyzer.lengthInBits(other), 0);
+    }
+
+    /**
+     * Returns the {@link KeyAnalyzer}, whose order is the order of the keys in this trie for the analyzers of
+     * {@link org.apache.commons.collections4.trie.analyzer} with variable length keys.
+     *
+     * @return the key analyzer
+     */
+    @Override
+    public Comparator<? super K> comparator() {
+        return keyAnalyzer;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return getLeaf(key) != null;
+    }
+
+    /**
+     * Copies the bytes of a key from one index to another.
+     */
+    private byte[] copyBytes(final K key, final int lengthInBits, final int from, final int to) {
+        final byte[] bytes = new byte[to - from];
+        for (int i = from; i < to; i++) {
+            bytes[i - from] = (byte) keyAnalyzer.byteAt(key, i, lengthInBits);
+        }
+        return bytes;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySet(null);
+    }
+
+    @Override
+    public K firstKey() {
+        final Leaf<K, V> leaf = new Cursor().first(root);
+        if (leaf == null) {
+            throw new NoSuchElementException();
+        }
+        return leaf.key;
+    }
+
+    /**
+     * Returns the leaf of the greatest key under a node which is less than, or equal to if inclusive, a key, or null if there is none.
+     */
+    private Leaf<K, V> floor(final Node<K, V> node, final K key, final boolean inclusive) {
+        final int lengthInBits = keyAnalyzer.lengthInBits(key);
+        final int length = byteLength(lengthInBits);
+        // the greatest key on the left of the path of the key, if the path goes no further
+        Leaf<K, V> left = null;
+        Node<K, V> n = node;
+        int d = 0;
+        while (n instanceof Inner) {
+            final Inner<K, V> inner = (Inner<K, V>) n;
+            final byte[] prefix = inner.prefix;
+            for (int i = 0; i < prefix.length; i++) {
+                if (d + i >= length) {
+                    return left;
+                }
+                final int b = keyAnalyzer.byteAt(key, d + i, lengthInBits);
+                if (b != (prefix[i] & 0xff)) {
+                    return b < (prefix[i] & 0xff) ? left : max(inner);
+                }
+            }
+            d += prefix.length;
+            if (d == length) {
+                return inclusive && inner.terminal != null ? inner.terminal : left;
+            }
+            final int b = keyAnalyzer.byteAt(key, d, lengthInBits);
+            final int previous = inner.previousByte(b);
+            if (previous >= 0) {
+                left = max(inner.child(previous));
+            } else if (inner.terminal != null) {
+                left = inner.terminal;
+            }
+            n = inner.child(b);
+            d++;
+        }
+        if (n == null) {
+            return left;
+        }
+        final Leaf<K, V> leaf = (Leaf<K, V>) n;
+        final int c = compareBytes(leaf.key, keyAnalyzer.lengthInBits(leaf.key), key, lengthInBits, d);
+        return c < 0 || c == 0 && inclusive ? leaf : left;
+    }
+
+    @Override
+    public V get(final Object key) {
+        final Leaf<K, V> leaf = getLeaf(key);
+        return leaf != null ? leaf.value : null;
+    }
+
+    /**
+     * Returns the leaf of a key, or null if the key is not in the trie.
+     *
+     * @throws ClassCastException if the key is of an incompatible type
+     */
+    private Leaf<K, V> getLeaf(final Object o) {
+        if (o == null) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        final K key = (K) o;
+        final int lengthInBits = keyAnalyzer.lengthInBits(key);
+        final int length = byteLength(lengthInBits);
+        Node<K, V> n = root;
+        int d = 0;
+        while (n instanceof Inner) {
+            final Inner<K, V> inner = (Inner<K, V>) n;
+            final byte[] prefix = inner.prefix;
+            if (d + prefix.length > length) {
+                return null;
+            }
+            for (int i = 0; i < prefix.length; i++) {
+                if (keyAnalyzer.byteAt(key, d + i, lengthInBits) != (prefix[i] & 0xff)) {
+                    return null;
+                }
+            }
+            d += prefix.length;
+            if (d == length) {
+                return inner.terminal;
+            }
+            n = inner.child(keyAnalyzer.byteAt(key, d, lengthInBits));
+            d++;
+        }
+        if (n == null) {
+            return null;
+        }
+        final Leaf<K, V> leaf = (Leaf<K, V>) n;
+        // equal keys are usually equal objects, which String compares fastest
+        return key.equals(leaf.key) || compareBytes(key, lengthInBits, leaf.key, keyAnalyzer.lengthInBits(leaf.key), d) == 0 ? leaf : null;
+    }
+
+    @Override
+    public SortedMap<K, V> headMap(final K toKey) {
+        return new RangeMap(null, null, Objects.requireNonNull(toKey, "toKey"));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public K lastKey() {
+        final Leaf<K, V> leaf = max(root);
+        if (leaf == null) {
+            throw new NoSuchElementException();
+        }
+        return leaf.key;
+    }
+
+    /**
+     * Returns the leaf of the greatest key which starts with a prefix, or null if there is none.
+     */
+    private Leaf<K, V> lastWithPrefix(final K key) {
+        final int lengthInBits = keyAnalyzer.lengthInBits(key);
+        final int length = byteLength(lengthInBits);
+        Node<K, V> n = root;
+        int d = 0;
+        while (n instanceof Inner) {
+            final Inner<K, V> inner = (Inner<K, V>) n;
+            final byte[] prefix = inner.prefix;
+            for (int i = 0; i < prefix.length; i++) {
+                if (d + i >= length) {
+                    return max(inner);
+                }
+                if (keyAnalyzer.byteAt(key, d + i, lengthInBits) != (prefix[i] & 0xff)) {
+                    return null;
+                }
+            }
+            d += prefix.length;
+            if (d >= length) {
+                return max(inner);
+            }
+            n = inner.child(keyAnalyzer.byteAt(key, d, lengthInBits));
+            d++;
+        }
+        return n != null && startsWith(((Leaf<K, V>) n).key, key) ? (Leaf<K, V>) n : null;
+    }
+
+    /**
+     * Returns an {@link OrderedMapIterator} over the mappings, each step of which looks up the next or previous key from the root.
+     *
+     * @return a map iterator
+     */
+    @Override
+    public OrderedMapIterator<K, V> mapIterator() {
+        return new TrieMapIterator();
+    }
+
+    @Override
+    public K nextKey(final K key) {
+        if (getLeaf(Objects.requireNonNull(key, "key")) == null) {
+            return null;
+        }
+        final Leaf<K, V> next = new Cursor().seek(key, false);
+        return next != null ? next.key : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The view is live, finds its first key in O(K) time, where K is the length of the prefix, and counts its keys by going through them.
+     * </p>
+     */
+    @Override
+    public SortedMap<K, V> prefixMap(final K key) {
+        return new RangeMap(Objects.requireNonNull(key, "key"), null, null);
+    }
+
+    @Override
+    public K previousKey(final K key) {
+        if (getLeaf(Objects.requireNonNull(key, "key")) == null) {
+            return null;
+        }
+        final Leaf<K, V> previous = floor(root, key, false);
+        return previous != null ? previous.key : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the key is null
+     */
+    @Override
+    public V put(final K key, final V value) {
+        Objects.requireNonNull(key, "key");
+        final int lengthInBits = keyAnalyzer.lengthInBits(key);
+        final int length = byteLength(lengthInBits);
+        Inner<K, V> parent = null;
+        int parentByte = 0;
+        Node<K, V> n = root;
+        int d = 0;
+        while (n instanceof Inner) {
+            final Inner<K, V> inner = (Inner<K, V>) n;
+            final byte[] prefix = inner.prefix;
+            int p = 0;
+            while (p < prefix.length && d + p < length && keyAnalyzer.byteAt(key, d + p, lengthInBits) == (prefix[p] & 0xff)) {
+                p++;
+            }
+            if (p < prefix.length) {
+                // the key leaves the prefix: a new node takes the shared bytes, over the node and the new leaf
+                final ArrayNode<K, V> split = new ArrayNode<>(4, Arrays.copyOf(prefix, p));
+                inner.prefix = Arrays.copyOfRange(prefix, p + 1, prefix.length);
+                split.addChild(prefix[p] & 0xff, inner);
+                addLeaf(split, key, lengthInBits, d + p, value);
+                replace(parent, parentByte, split);
+                return added();
+            }
+            d += prefix.length;
+            if (d == length) {
+                if (inner.terminal != null) {
+                    return replaceLeaf(inner.terminal, key, value);
+                }
+                inner.terminal = new Leaf<>(key, value);
+                return added();
+            }
+            final int b = keyAnalyzer.byteAt(key, d, lengthInBits);
+            final Node<K, V> child = inner.child(b);
+            if (child == null) {
+                final Inner<K, V> grown = inner.addChild(b, new Leaf<>(key, value));
+                if (grown != inner) {
+                    replace(parent, parentByte, grown);
+                }
+                return added();
+            }
+            parent = inner;
+            parentByte = b;
+            n = child;
+            d++;
+        }
+        if (n == null) {
+            root = new Leaf<>(key, value);
+            return added();
+        }
+        final Leaf<K, V> leaf = (Leaf<K, V>) n;
+        final int leafLengthInBits = keyAnalyzer.lengthInBits(leaf.key);
+        final int leafLength = byteLength(leafLengthInBits);
+        int i = d;
+        while (i < length && i < leafLength && keyAnalyzer.byteAt(key, i, lengthInBits) == keyAnalyzer.byteAt(leaf.key, i, leafLengthInBits)) {
+            i++;
+        }
+        if (i == length && i == leafLength) {
+            return replaceLeaf(leaf, key, value);
+        }
+        // the leaf makes way for a node holding the bytes both keys share, over both leaves
+        final ArrayNode<K, V> inner = new ArrayNode<>(4, copyBytes(key, lengthInBits, d, i));
+        if (i == leafLength) {
+            inner.terminal = leaf;
+        } else {
+            inner.addChild(keyAnalyzer.byteAt(leaf.key, i, leafLengthInBits), leaf);
+        }
+        addLeaf(inner, key, lengthInBits, i, value);
+        replace(parent, parentByte, inner);
+        return added();
+    }
+
+    /**
+     * Adds the leaf of a new key to a node with room for it, under the byte at an index, or as the key of the node if the key ends there.
+     */
+    private void addLeaf(final Inner<K, V> node, final K key, final int lengthInBits, final int index, final V value) {
+        if (index == byteLength(lengthInBits)) {
+            node.terminal = new Leaf<>(key, value);
+        } else {
+            node.addChild(keyAnalyzer.byteAt(key, index, lengthInBits), new Leaf<>(key, value));
+        }
+    }
+
+    /**
+     * Counts a new mapping.
+     *
+     * @return null, the previous value of the key
+     */
+    private V added() {
+        size++;
+        modCount++;
+        return null;
+    }
+
+    @SuppressWarnings("unchecked") // This will fail at runtime if the stream is incorrect
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        final int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            final K k = (K) in.readObject();
+            final V v = (V) in.readObject();
+            put(k, v);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ClassCastException if the key is of an incompatible type
+     */
+    @Override
+    public V remove(final Object o) {
+        if (o == null) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        final K key = (K) o;
+        final int lengthInBits = keyAnalyzer.lengthInBits(key);
+        final int length = byteLength(lengthInBits);
+        Inner<K, V> grandparent = null;
+        int grandparentByte = 0;
+        Inner<K, V> parent = null;
+        int parentByte = 0;
+        Node<K, V> n = root;
+        int d = 0;
+        while (n instanceof Inner) {
+            final Inner<K, V> inner = (Inner<K, V>) n;
+            final byte[] prefix = inner.prefix;
+            if (d + prefix.length > length) {
+                return null;
+            }
+            for (int i = 0; i < prefix.length; i++) {
+                if (keyAnalyzer.byteAt(key, d + i, lengthInBits) != (prefix[i] & 0xff)) {
+                    return null;
+                }
+            }
+            d += prefix.length;
+            if (d == length) {
+                final Leaf<K, V> terminal = inner.terminal;
+                if (terminal == null) {
+                    return null;
+                }
+                inner.terminal = null;
+                collapse(inner, parent, parentByte);
+                return removed(terminal);
+            }
+            final int b = keyAnalyzer.byteAt(key, d, lengthInBits);
+            grandparent = parent;
+            grandparentByte = parentByte;
+            parent = inner;
+            parentByte = b;
+            n = inner.child(b);
+            d++;
+        }
+        if (n == null) {
+            return null;
+        }
+        final Leaf<K, V> leaf = (Leaf<K, V>) n;
+        if (compareBytes(key, lengthInBits, leaf.key, keyAnalyzer.lengthInBits(leaf.key), d) != 0) {
+            return null;
+        }
+        if (parent == null) {
+            root = null;
+        } else {
+            final Inner<K, V> shrunk = parent.removeChild(parentByte);
+            if (shrunk != parent) {
+                replace(grandparent, grandparentByte, shrunk);
+            }
+            collapse(shrunk, grandparent, grandparentByte);
+        }
+        return removed(leaf);
+    }
+
+    /**
+     * Counts a removed mapping.
+     *
+     * @return the value of the mapping
+     */
+    private V removed(final Leaf<K, V> leaf) {
+        size--;
+        modCount++;
+        return leaf.value;
+    }
+
+    /**
+     * Replaces the child of a node, or the root if the node is null.
+     */
+    private void replace(final Inner<K, V> parent, final int b, final Node<K, V> node) {
+        if (parent == null) {
+            root = node;
+        } else {
+            parent.setChild(b, node);
+        }
+    }
+
+    /**
+     * Replaces the key and the value of a leaf, as {@link PatriciaTrie} does.
+     *
+     * @return the previous value
+     */
+    private V replaceLeaf(final Leaf<K, V> leaf, final K key, final V value) {
+        leaf.key = key;
+        return leaf.setValue(value);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Tests whether the bytes of a key start with the bytes of a prefix.
+     */
+    private boolean startsWith(final K key, final K prefix) {
+        final int lengthInBits = keyAnalyzer.lengthInBits(key);
+        final int prefixLengthInBits = keyAnalyzer.lengthInBits(prefix);
+        final int length = byteLength(prefixLengthInBits);
+        if (byteLength(lengthInBits) < length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (keyAnalyzer.byteAt(key, i, lengthInBits) != keyAnalyzer.byteAt(prefix, i, prefixLengthInBits)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public SortedMap<K, V> subMap(final K fromKey, final K toKey) {
+        if (compareKeys(Objects.requireNonNull(fromKey, "fromKey"), Objects.requireNonNull(toKey, "toKey")) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        return new RangeMap(null, fromKey, toKey);
+    }
+
+    @Override
+    public SortedMap<K, V> tailMap(final K fromKey) {
+        return new RangeMap(null, Objects.requireNonNull(fromKey, "fromKey"), null);
+    }
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size);
+        for (final Map.Entry<K, V> entry : entrySet()) {
+            out.writeObject(entry.getKey());
+            out.writeObject(entry.getValue());
+        }
+    }
+}
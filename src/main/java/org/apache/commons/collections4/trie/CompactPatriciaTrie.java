@@ -0,0 +1,620 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import org.apache.commons.collections4.Trie;
+import org.apache.commons.collections4.trie.analyzer.StringKeyAnalyzer;
+
+/**
+ * An immutable PATRICIA {@link Trie} of {@link String} keys, laid out in a few flat arrays instead of a node per key.
+ * <p>
+ * The trie is built in one pass from keys in ascending order with a {@link Builder}, or copied from a map with {@link #copyOf(Map)}. The keys are
+ * cut into blocks of consecutive keys and front coded in a single byte array: each key only stores the number of characters it shares with the
+ * previous key of its block, and the characters which follow, one byte each below {@code 0x80} and up to three otherwise. The first keys of the
+ * blocks are the leaves of a PATRICIA trie, whose branches are stored in preorder as two {@code int} arrays: the bit each branch tests, and the
+ * number of blocks on its left. A lookup walks the bits of the key down these arrays to the block whose first key has the most bits in common with
+ * it, compares that key, walks down again to the block which holds the key, and scans the block. Besides the values, the trie costs about one byte
+ * per key and the characters each key does not share with the previous one, where a {@link PatriciaTrie} allocates an entry, a {@link String} and
+ * its array.
+ * </p>
+ * <p>
+ * The read operations are those of {@link UnmodifiableTrie}: {@link #get(Object)}, {@link #prefixMap(String)} and the sorted navigation
+ * operations take O(K) time, where K is the number of bits of the key, as they scan a block of a bounded number of keys. Keys are ordered by
+ * {@link StringKeyAnalyzer}, and decoded from the start of their block when they are read. All methods which would modify the trie or its views
+ * throw {@link UnsupportedOperationException}.
+ * </p>
+ * <p>
+ * This class is immutable, and thus thread-safe, as long as the values are.
+ * </p>
+ *
+ * @param <V> the type of the values in this map
+ * @since 4.6.0
+ */
+public final class CompactPatriciaTrie<V> extends AbstractIndexedTrie<V> implements Serializable {
+
+    /**
+     * Builds a {@link CompactPatriciaTrie} from keys added in ascending order.
+     *
+     * @param <V> the type of the values in this map
+     */
+    public static class Builder<V> implements Supplier<CompactPatriciaTrie<V>> {
+
+        /** The start of each block in the data. */
+        private int[] blocks = new int[8];
+
+        private byte[] data = new byte[64];
+
+        /** The first bit which differs between the first key of the last block and a key after it. */
+        private int difference = Integer.MAX_VALUE;
+
+        /** The first bit which differs between the first key of each block and that of the next one. */
+        private int[] differences = new int[8];
+
+        private String lastKey;
+
+        /** The number of bytes of the data in use. */
+        private int length;
+
+        private int size;
+
+        private Object[] values = new Object[8];
+
+        private Builder() {
+            // use CompactPatriciaTrie.builder()
+        }
+
+        /**
+         * Adds a mapping, whose key must come after the keys already added.
+         *
+         * @param key  the key, must not be null
+         * @param value  the value, may be null
+         * @return {@code this} instance.
+         * @throws NullPointerException if the key is null
+         * @throws IllegalArgumentException if the key does not come after the last key added, or only differs from it by trailing {@code '\0'}
+         *   characters, which {@link StringKeyAnalyzer} does not tell apart
+         */
+        public Builder<V> add(final String key, final V value) {
+            Objects.requireNonNull(key, "key");
+            final int block = size / KEYS_PER_BLOCK;
+            int shared = 0;
+            if (size > 0) {
+                final int bitIndex = StringKeyAnalyzer.INSTANCE.bitIndex(lastKey, 0, lastKey.length() * StringKeyAnalyzer.LENGTH,
+                        key, 0, key.length() * StringKeyAnalyzer.LENGTH);
+                if (!KeyAnalyzer.isValidBitIndex(bitIndex)) {
+                    throw new IllegalArgumentException("Duplicate key: " + key);
+                }
+                if (lastKey.compareTo(key) > 0) {
+                    throw new IllegalArgumentException("Keys must be added in ascending order: " + key + " after " + lastKey);
+                }
+                // the keys are sorted, so the first keys of two blocks differ at the first bit two adjacent keys between them differ at
+                difference = Math.min(difference, bitIndex);
+                if (size % KEYS_PER_BLOCK == 0) {
+                    if (block > differences.length) {
+                        differences = Arrays.copyOf(differences, differences.length * 2);
+                    }
+                    differences[block - 1] = difference;
+                    difference = Integer.MAX_VALUE;
+                } else {
+                    while (shared < Math.min(lastKey.length(), key.length()) && lastKey.charAt(shared) == key.charAt(shared)) {
+                        shared++;
+                    }
+                }
+            }
+            if (size % KEYS_PER_BLOCK == 0) {
+                if (block == blocks.length) {
+                    blocks = Arrays.copyOf(blocks, block * 2);
+                }
+                blocks[block] = length;
+            }
+            // a header, two lengths of up to five bytes, and up to three bytes per character
+            final int suffix = key.length() - shared;
+            if (length + 11 + 3L * suffix > data.length) {
+                data = Arrays.copyOf(data, (int) Math.max(data.length * 2L, length + 11 + 3L * suffix));
+            }
+            data[length++] = (byte) (Math.min(shared, 15) << 4 | Math.min(suffix, 15));
+            if (shared >= 15) {
+                length = writeVarInt(data, length, shared - 15);
+            }
+            if (suffix >= 15) {
+                length = writeVarInt(data, length, suffix - 15);
+            }
+            for (int i = shared; i < key.length(); i++) {
+                length = writeVarInt(data, length, key.charAt(i));
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+            lastKey = key;
+            return this;
+        }
+
+        /**
+         * Builds a trie of the mappings added so far. The builder can still be used afterwards.
+         *
+         * @return a new trie.
+         */
+        @Override
+        public CompactPatriciaTrie<V> get() {
+            return new CompactPatriciaTrie<>(this);
+        }
+    }
+
+    /**
+     * Decodes the keys of a range one after the other, each from the characters of the previous one, going on from a block to the next.
+     */
+    private final class KeyIterator implements Iterator<String> {
+
+        /** The characters of the key read last. */
+        private char[] chars = new char[16];
+
+        private int next;
+
+        /** The reader, from the block of the first key, once the iterator has started. */
+        private KeyReader reader;
+
+        private final int to;
+
+        KeyIterator(final int from, final int to) {
+            this.next = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < to;
+        }
+
+        @Override
+        public String next() {
+            if (next >= to) {
+                throw new NoSuchElementException();
+            }
+            if (reader == null) {
+                reader = new KeyReader(next / KEYS_PER_BLOCK);
+                for (int i = next - next % KEYS_PER_BLOCK; i < next; i++) {
+                    readKey();
+                }
+            }
+            next++;
+            final int length = readKey();
+            return new String(chars, 0, length);
+        }
+
+        /**
+         * Reads the next key over the characters of the previous one, and returns its length.
+         */
+        private int readKey() {
+            reader.nextKey();
+            final int length = reader.length();
+            if (length > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(length, chars.length * 2));
+            }
+            for (int i = reader.shared; i < length; i++) {
+                chars[i] = reader.nextChar();
+            }
+            return length;
+        }
+    }
+
+    /**
+     * Reads the keys of a block one after the other.
+     * <p>
+     * Each key starts with a header byte, whose high and low four bits are the number of characters it shares with the previous key and the
+     * number of characters which follow, or 15 when the number goes on in a variable length integer. Each character is a variable length
+     * integer too.
+     * </p>
+     */
+    private final class KeyReader {
+
+        /** The position of the next byte to read. */
+        private int position;
+
+        /** The number of characters the key read shares with the previous key. */
+        private int shared;
+
+        /** The number of characters of the key read which are left to read. */
+        private int remaining;
+
+        KeyReader(final int block) {
+            position = blocks[block];
+        }
+
+        /**
+         * Returns the number of characters of the key read.
+         */
+        int length() {
+            return shared + remaining;
+        }
+
+        /**
+         * Reads the next character of the key read.
+         */
+        char nextChar() {
+            remaining--;
+            return (char) readVarInt();
+        }
+
+        /**
+         * Moves on to the next key of the block, skipping the characters of the key read which are left.
+         */
+        void nextKey() {
+            for (; remaining > 0; remaining--) {
+                while (data[position++] < 0) {
+                    // a byte of a character which goes on
+                }
+            }
+            final int header = data[position++] & 0xff;
+            shared = header >>> 4;
+            remaining = header & 15;
+            if (shared == 15) {
+                shared += readVarInt();
+            }
+            if (remaining == 15) {
+                remaining += readVarInt();
+            }
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0;; shift += 7) {
+                final byte b = data[position++];
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    /** The number of keys in a block, which bounds the keys a lookup scans. */
+    private static final int KEYS_PER_BLOCK = 16;
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new {@link Builder}.
+     *
+     * @param <V> the type of the values in this map
+     * @return a new {@link Builder}.
+     */
+    public static <V> Builder<V> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Creates a trie holding the mappings of a map.
+     * <p>
+     * The mappings of a {@link SortedMap} ordered as {@link StringKeyAnalyzer} orders keys, such as a {@link PatriciaTrie}, are added as they are
+     * iterated; the others are sorted first.
+     * </p>
+     *
+     * @param <V> the type of the values in this map
+     * @param map  the mappings, must not be null
+     * @return a new trie.
+     * @throws NullPointerException if the map or one of its keys is null
+     * @throws IllegalArgumentException if two keys only differ by trailing {@code '\0'} characters
+     */
+    public static <V> CompactPatriciaTrie<V> copyOf(final Map<? extends String, ? extends V> map) {
+        Objects.requireNonNull(map, "map");
+        final Builder<V> builder = builder();
+        final boolean sorted = map instanceof SortedMap
+                && (((SortedMap<?, ?>) map).comparator() == null || ((SortedMap<?, ?>) map).comparator() == StringKeyAnalyzer.INSTANCE);
+        for (final Map.Entry<? extends String, ? extends V> entry : (sorted ? map : new TreeMap<>(map)).entrySet()) {
+            builder.add(entry.getKey(), entry.getValue());
+        }
+        return builder.get();
+    }
+
+    /**
+     * Returns the first bit of a character, as {@link StringKeyAnalyzer} numbers them, which is set.
+     */
+    private static int firstBit(final int index, final int c) {
+        return index * StringKeyAnalyzer.LENGTH + Integer.numberOfLeadingZeros(c) - (Integer.SIZE - StringKeyAnalyzer.LENGTH);
+    }
+
+    /**
+     * Lays out the branches of the trie in preorder.
+     * <p>
+     * Each branch lies between the first keys of two adjacent blocks, and tests the first bit which differs between them. The root of the keys of a
+     * range is the branch testing the smallest bit, so the branches form the Cartesian tree of the differences, which is built with a stack.
+     * </p>
+     */
+    private static void layOutBranches(final int[] differences, final int branches, final int[] bitIndexes, final int[] leftSizes) {
+        if (branches == 0) {
+            return;
+        }
+        final int[] lefts = new int[branches];
+        final int[] rights = new int[branches];
+        Arrays.fill(rights, -1);
+        final int[] stack = new int[branches];
+        int top = 0;
+        for (int i = 0; i < branches; i++) {
+            int last = -1;
+            while (top > 0 && differences[stack[top - 1]] > differences[i]) {
+                last = stack[--top];
+            }
+            lefts[i] = last;
+            if (top > 0) {
+                rights[stack[top - 1]] = i;
+            }
+            stack[top++] = i;
+        }
+        // the first key of the subtree of each branch waiting on the stack
+        final int[] firsts = new int[branches];
+        top = 1;
+        int position = 0;
+        while (top > 0) {
+            top--;
+            final int branch = stack[top];
+            final int first = firsts[top];
+            bitIndexes[position] = differences[branch];
+            leftSizes[position++] = branch + 1 - first;
+            if (rights[branch] >= 0) {
+                stack[top] = rights[branch];
+                firsts[top++] = branch + 1;
+            }
+            if (lefts[branch] >= 0) {
+                stack[top] = lefts[branch];
+                firsts[top++] = first;
+            }
+        }
+    }
+
+    /**
+     * Returns the least string greater than all the strings which start with a prefix, or null if there is none.
+     */
+    private static String prefixEnd(final String prefix) {
+        for (int i = prefix.length() - 1; i >= 0; i--) {
+            if (prefix.charAt(i) != Character.MAX_VALUE) {
+                return prefix.substring(0, i) + (char) (prefix.charAt(i) + 1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes a variable length integer, seven bits per byte from the lowest ones, with the high bit set on all the bytes but the last.
+     */
+    private static int writeVarInt(final byte[] data, int position, int value) {
+        while (value >>> 7 != 0) {
+            data[position++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        data[position++] = (byte) value;
+        return position;
+    }
+
+    /** The bit tested by each branch between the first keys of the blocks, in preorder. */
+    private final int[] bitIndexes;
+
+    /** The start of each block in the data. */
+    private final int[] blocks;
+
+    /** The front coded keys. */
+    private final byte[] data;
+
+    /** The number of blocks on the left of each branch, in preorder. */
+    private final int[] leftSizes;
+
+    private final int size;
+
+    private final Object[] values;
+
+    private CompactPatriciaTrie(final Builder<V> builder) {
+        size = builder.size;
+        values = Arrays.copyOf(builder.values, size);
+        data = Arrays.copyOf(builder.data, builder.length);
+        blocks = Arrays.copyOf(builder.blocks, (size + KEYS_PER_BLOCK - 1) / KEYS_PER_BLOCK);
+        final int branches = Math.max(0, blocks.length - 1);
+        bitIndexes = new int[branches];
+        leftSizes = new int[branches];
+        layOutBranches(builder.differences, branches, bitIndexes, leftSizes);
+    }
+
+    /**
+     * Returns the index of the last block whose first key is not greater than the given key, or -1 if there is none.
+     * <p>
+     * The first walk leads to the first key which has the most bits in common with the given key, and the first bit at which they differ tells on
+     * which side of the keys which share that many bits the given key goes, which the second walk finds.
+     * </p>
+     */
+    private int blockOf(final String key) {
+        final int lengthInBits = key.length() * StringKeyAnalyzer.LENGTH;
+        int lo = 0;
+        int hi = blocks.length;
+        int branch = 0;
+        while (hi - lo > 1) {
+            final int leftSize = leftSizes[branch];
+            if (StringKeyAnalyzer.INSTANCE.isBitSet(key, bitIndexes[branch], lengthInBits)) {
+                // the right subtree follows the leftSize - 1 branches of the left one
+                lo += leftSize;
+                branch += leftSize;
+            } else {
+                hi = lo + leftSize;
+                branch++;
+            }
+        }
+        final int candidate = lo;
+        final KeyReader reader = new KeyReader(candidate);
+        reader.nextKey();
+        final int length = reader.length();
+        int index = 0;
+        int c = 0;
+        while (index < Math.min(length, key.length()) && (c = reader.nextChar()) == key.charAt(index)) {
+            index++;
+        }
+        final int difference;
+        final boolean greater;
+        if (index < Math.min(length, key.length())) {
+            difference = firstBit(index, c ^ key.charAt(index));
+            greater = key.charAt(index) > c;
+        } else if (index < key.length()) {
+            while (index < key.length() && key.charAt(index) == 0) {
+                index++;
+            }
+            if (index == key.length()) {
+                // the key only adds '\0' characters to the first key of the candidate, and no other first key goes between them
+                return candidate;
+            }
+            difference = firstBit(index, key.charAt(index));
+            greater = true;
+        } else {
+            while (index < length && (c = reader.nextChar()) == 0) {
+                index++;
+            }
+            if (index == length) {
+                // the key is the first key of the candidate, or only lacks its trailing '\0' characters
+                return length == key.length() ? candidate : candidate - 1;
+            }
+            difference = firstBit(index, c);
+            greater = false;
+        }
+        lo = 0;
+        hi = blocks.length;
+        branch = 0;
+        while (hi - lo > 1 && bitIndexes[branch] < difference) {
+            final int leftSize = leftSizes[branch];
+            if (StringKeyAnalyzer.INSTANCE.isBitSet(key, bitIndexes[branch], lengthInBits)) {
+                lo += leftSize;
+                branch += leftSize;
+            } else {
+                hi = lo + leftSize;
+                branch++;
+            }
+        }
+        // the first keys left agree with the key before the difference, and all differ from it there the same way
+        return greater ? hi - 1 : lo - 1;
+    }
+
+    @Override
+    public boolean containsValue(final Object value) {
+        for (final Object v : values) {
+            if (Objects.equals(v, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    int indexOf(final String key) {
+        final int index = search(key);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * Decodes the key at an index from the start of its block.
+     */
+    @Override
+    String key(final int index) {
+        return new KeyIterator(index, index + 1).next();
+    }
+
+    /**
+     * Decodes the keys of a range one after the other, each from the previous one.
+     */
+    @Override
+    Iterator<String> keys(final int from, final int to) {
+        return new KeyIterator(from, to);
+    }
+
+    @Override
+    int lowerBound(final String key) {
+        final int index = search(key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Returns a view of the keys prefixed by the given key.
+     * <p>
+     * This looks up the prefix, and the least string after all the strings which start with it.
+     * </p>
+     *
+     * @param key  the prefix, must not be null
+     * @return a {@link SortedMap} view of the keys prefixed by the given key
+     * @throws NullPointerException if the key is null
+     */
+    @Override
+    public SortedMap<String, V> prefixMap(final String key) {
+        Objects.requireNonNull(key, "key");
+        final String end = prefixEnd(key);
+        return rangeMap(lowerBound(key), end == null ? size : lowerBound(end));
+    }
+
+    /**
+     * Returns the index of a key, or {@code -(insertion point) - 1} if it is not a key of this trie, as {@link Arrays#binarySearch(int[], int)}
+     * does, in the order of {@link String#compareTo(String)}.
+     * <p>
+     * This finds the block of the key, then scans it, keeping the number of characters the key shares with the previous key read, which is
+     * smaller: a key which shares fewer characters with the previous one is greater than the given key, and one which shares more is smaller.
+     * </p>
+     */
+    private int search(final String key) {
+        final int block = size == 0 ? -1 : blockOf(key);
+        if (block < 0) {
+            return -1;
+        }
+        final KeyReader reader = new KeyReader(block);
+        final int end = Math.min(size, (block + 1) * KEYS_PER_BLOCK);
+        int common = 0;
+        for (int index = block * KEYS_PER_BLOCK; index < end; index++) {
+            reader.nextKey();
+            if (reader.shared < common) {
+                return -index - 1;
+            }
+            if (reader.shared == common) {
+                final int length = reader.length();
+                int cmp = 0;
+                while (common < Math.min(length, key.length()) && (cmp = reader.nextChar() - key.charAt(common)) == 0) {
+                    common++;
+                }
+                if (cmp == 0) {
+                    cmp = length - key.length();
+                }
+                if (cmp == 0) {
+                    return index;
+                }
+                if (cmp > 0) {
+                    return -index - 1;
+                }
+            }
+        }
+        return -end - 1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    V value(final int index) {
+        return (V) values[index];
+    }
+}
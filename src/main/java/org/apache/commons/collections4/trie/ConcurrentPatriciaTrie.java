@@ -0,0 +1,1108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.UnaryOperator;
+
+import org.apache.commons.collections4.OrderedMapIterator;
+import org.apache.commons.collections4.Trie;
+import org.apache.commons.collections4.keyvalue.AbstractMapEntry;
+import org.apache.commons.collections4.keyvalue.UnmodifiableMapEntry;
+
+/**
+ * A thread-safe PATRICIA {@link Trie} whose readers never lock and never wait for writers.
+ * <p>
+ * The trie is a tree of immutable nodes: each branch tests one bit of the keys and knows how many keys it holds, and each leaf holds one mapping. A
+ * writer never changes a node which has been published. It copies the branches on the path to the key it changes, which are about as many as the
+ * bits which tell the key apart from the others, and publishes the new tree by writing a single {@code volatile} reference. Writers are serialized by
+ * a lock, which readers never take, so that a writer costs O(K) time and allocations, where K is the number of bits of the key.
+ * </p>
+ * <p>
+ * A read operation, such as {@link #get(Object)}, {@link #select(Object)} or {@link #prefixMap(Object)}, reads the current tree once and works on
+ * it alone, so it sees either all or none of the changes of each write. The views returned by {@link #prefixMap(Object)} and the sub map methods
+ * are live: each of their operations reads the current tree, and {@link SortedMap#size()} takes O(K) time thanks to the key counts of the branches.
+ * Iterators, including {@link #mapIterator()}, go over the tree which was current when they were created, so they are weakly consistent as the
+ * iterators of {@link java.util.concurrent.ConcurrentSkipListMap} are, but also see a snapshot: they never throw
+ * {@link java.util.ConcurrentModificationException}, never miss a key which was in the trie for the whole iteration, and never see a key twice.
+ * Their {@code remove} and {@code setValue} methods write through to the trie.
+ * </p>
+ * <p>
+ * As in {@link PatriciaTrie}, keys are ordered by their bits, and two keys which the {@link KeyAnalyzer} does not tell apart, such as strings which
+ * only differ by trailing {@code '\0'} characters, share a single mapping. As in the other {@link ConcurrentMap}s, neither keys nor values may be
+ * null.
+ * </p>
+ * <p>
+ * A trie constructed with a value comparator is weighted: each branch also knows the leaf with the greatest value under it, a reference which
+ * fits in the padding of the branches on 64-bit JVMs with compressed references, so that {@link #topPrefixMatches(Object, int)} finds the best
+ * completions of a prefix without going through all of them.
+ * </p>
+ *
+ * @param <K> the type of the keys in this map
+ * @param <V> the type of the values in this map
+ * @since 4.6.0
+ */
+public class ConcurrentPatriciaTrie<K, V> extends AbstractMap<K, V> implements Trie<K, V>, ConcurrentMap<K, V>, Serializable {
+
+    /**
+     * A branch of the tree, which tests one bit of the keys.
+     */
+    private static final class Branch<K, V> extends Node<K, V> {
+
+        /** The leaf with the greatest value under this branch, or null if the trie has no value comparator. */
+        private final Leaf<K, V> best;
+
+        final int bitIndex;
+
+        final Node<K, V> left;
+
+        final Node<K, V> right;
+
+        private final int size;
+
+        Branch(final int bitIndex, final Node<K, V> left, final Node<K, V> right, final Leaf<K, V> best) {
+            this.bitIndex = bitIndex;
+            this.left = left;
+            this.right = right;
+            this.size = left.size() + right.size();
+            this.best = best;
+        }
+
+        @Override
+        Leaf<K, V> best() {
+            return best;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Iterates in order over the leaves of a tree from one index to another.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+        private Leaf<K, V> last;
+
+        private Leaf<K, V> next;
+
+        /** The right subtrees still to visit, the next one on top. */
+        private final ArrayDeque<Node<K, V>> pending = new ArrayDeque<>();
+
+        private int remaining;
+
+        EntryIterator(final Node<K, V> tree, final int from, final int to) {
+            remaining = to - from;
+            if (remaining > 0) {
+                Node<K, V> node = tree;
+                int index = from;
+                while (node instanceof Branch) {
+                    final Branch<K, V> branch = (Branch<K, V>) node;
+                    final int leftSize = branch.left.size();
+                    if (index < leftSize) {
+                        pending.push(branch.right);
+                        node = branch.left;
+                    } else {
+                        index -= leftSize;
+                        node = branch.right;
+                    }
+                }
+                next = (Leaf<K, V>) node;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (remaining <= 0) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            if (--remaining > 0) {
+                Node<K, V> node = pending.pop();
+                while (node instanceof Branch) {
+                    final Branch<K, V> branch = (Branch<K, V>) node;
+                    pending.push(branch.right);
+                    node = branch.left;
+                }
+                next = (Leaf<K, V>) node;
+            }
+            return new WriteThroughEntry(last.key, last.value);
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentPatriciaTrie.this.remove(last.key);
+            last = null;
+        }
+    }
+
+    /**
+     * The entries of a view.
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+        private final RangeMap map;
+
+        EntrySet(final RangeMap map) {
+            this.map = map;
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            final Object value = map.get(entry.getKey());
+            return value != null && value.equals(entry.getValue());
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            final Node<K, V> tree = root;
+            final long range = map.range(tree);
+            return new EntryIterator(tree, (int) (range >>> 32), (int) range);
+        }
+
+        @Override
+        public boolean remove(final Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            return map.containsKey(entry.getKey()) && ConcurrentPatriciaTrie.this.remove(entry.getKey(), entry.getValue());
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+    }
+
+    /**
+     * A leaf of the tree, which holds one mapping.
+     */
+    private static final class Leaf<K, V> extends Node<K, V> {
+
+        final K key;
+
+        final V value;
+
+        Leaf(final K key, final V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        Leaf<K, V> best() {
+            return this;
+        }
+
+        @Override
+        int size() {
+            return 1;
+        }
+    }
+
+    /**
+     * A node of the tree, which is never modified once published.
+     */
+    private abstract static class Node<K, V> {
+
+        /**
+         * Returns the leaf with the greatest value under this node, or null if the trie has no value comparator.
+         */
+        abstract Leaf<K, V> best();
+
+        /**
+         * Returns the number of leaves under this node.
+         */
+        abstract int size();
+    }
+
+    /**
+     * A live {@link SortedMap} view of the keys which start with a prefix, if any, and lie between two keys, if any.
+     */
+    private final class RangeMap extends AbstractMap<K, V> implements SortedMap<K, V> {
+
+        /** The first key of the range, inclusive, or null. */
+        private final K fromKey;
+
+        /** The prefix of the keys, or null. */
+        private final K prefix;
+
+        private final int prefixLengthInBits;
+
+        /** The last key of the range, exclusive, or null. */
+        private final K toKey;
+
+        RangeMap(final K prefix, final K fromKey, final K toKey) {
+            this.prefix = prefix;
+            this.prefixLengthInBits = prefix == null ? 0 : keyAnalyzer.lengthInBits(prefix);
+            this.fromKey = fromKey;
+            this.toKey = toKey;
+        }
+
+        @Override
+        public void clear() {
+            final Iterator<Map.Entry<K, V>> it = entrySet().iterator();
+            while (it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+
+        /**
+         * Returns a bound of a sub view, which must lie between the bounds of this view, as {@link java.util.TreeMap} requires.
+         */
+        private K checkInRange(final K bound) {
+            if (fromKey != null && keyAnalyzer.compare(bound, fromKey) < 0 || toKey != null && keyAnalyzer.compare(bound, toKey) > 0) {
+                throw new IllegalArgumentException("Key is out of range: " + bound);
+            }
+            return bound;
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return keyAnalyzer;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new EntrySet(this);
+        }
+
+        @Override
+        public K firstKey() {
+            final Node<K, V> tree = root;
+            final long range = range(tree);
+            if ((int) (range >>> 32) >= (int) range) {
+                throw new NoSuchElementException();
+            }
+            return leafAt(tree, (int) (range >>> 32)).key;
+        }
+
+        @Override
+        public V get(final Object key) {
+            return inRange(key) ? ConcurrentPatriciaTrie.this.get(key) : null;
+        }
+
+        @Override
+        public SortedMap<K, V> headMap(final K toKey) {
+            return new RangeMap(prefix, fromKey, checkInRange(Objects.requireNonNull(toKey, "toKey")));
+        }
+
+        /**
+         * Tests whether a key, which must not be null, is in this view.
+         */
+        private boolean inRange(final Object key) {
+            @SuppressWarnings("unchecked")
+            final K k = (K) Objects.requireNonNull(key, "key");
+            return (prefix == null || keyAnalyzer.isPrefix(prefix, 0, prefixLengthInBits, k))
+                    && (fromKey == null || keyAnalyzer.compare(k, fromKey) >= 0)
+                    && (toKey == null || keyAnalyzer.compare(k, toKey) < 0);
+        }
+
+        @Override
+        public K lastKey() {
+            final Node<K, V> tree = root;
+            final long range = range(tree);
+            if ((int) (range >>> 32) >= (int) range) {
+                throw new NoSuchElementException();
+            }
+            return leafAt(tree, (int) range - 1).key;
+        }
+
+        @Override
+        public V put(final K key, final V value) {
+            if (!inRange(key)) {
+                throw new IllegalArgumentException("Key is out of range: " + key);
+            }
+            return ConcurrentPatriciaTrie.this.put(key, value);
+        }
+
+        /**
+         * Returns the indices of the first key of this view, in the high 32 bits, and after its last key, in the low 32 bits, in a tree.
+         */
+        long range(final Node<K, V> tree) {
+            if (tree == null) {
+                return 0;
+            }
+            int from = 0;
+            int to = tree.size();
+            if (prefix != null) {
+                // all the keys under the node where the bits of the prefix run out share these bits, once padded with zeros
+                Node<K, V> node = tree;
+                while (node instanceof Branch && ((Branch<K, V>) node).bitIndex < prefixLengthInBits) {
+                    final Branch<K, V> branch = (Branch<K, V>) node;
+                    if (keyAnalyzer.isBitSet(prefix, branch.bitIndex, prefixLengthInBits)) {
+                        from += branch.left.size();
+                        node = branch.right;
+                    } else {
+                        node = branch.left;
+                    }
+                }
+                to = from + node.size();
+                // one key shorter than the prefix may share its bits, padded with zeros, and comes first
+                if (!keyAnalyzer.isPrefix(prefix, 0, prefixLengthInBits, leafAt(node, 0).key)) {
+                    if (node.size() < 2 || !keyAnalyzer.isPrefix(prefix, 0, prefixLengthInBits, leafAt(node, 1).key)) {
+                        return 0;
+                    }
+                    from++;
+                }
+            }
+            if (fromKey != null) {
+                from = Math.max(from, rank(tree, fromKey));
+            }
+            if (toKey != null) {
+                to = Math.min(to, rank(tree, toKey));
+            }
+            return from < to ? (long) from << 32 | to : 0;
+        }
+
+        @Override
+        public V remove(final Object key) {
+            return inRange(key) ? ConcurrentPatriciaTrie.this.remove(key) : null;
+        }
+
+        @Override
+        public int size() {
+            final long range = range(root);
+            return (int) range - (int) (range >>> 32);
+        }
+
+        @Override
+        public SortedMap<K, V> subMap(final K fromKey, final K toKey) {
+            if (keyAnalyzer.compare(Objects.requireNonNull(fromKey, "fromKey"), Objects.requireNonNull(toKey, "toKey")) > 0) {
+                throw new IllegalArgumentException("fromKey > toKey");
+            }
+            return new RangeMap(prefix, checkInRange(fromKey), checkInRange(toKey));
+        }
+
+        @Override
+        public SortedMap<K, V> tailMap(final K fromKey) {
+            return new RangeMap(prefix, checkInRange(Objects.requireNonNull(fromKey, "fromKey")), toKey);
+        }
+    }
+
+    /**
+     * An {@link OrderedMapIterator} over the keys of the tree which was current when it was created.
+     */
+    private final class TrieMapIterator implements OrderedMapIterator<K, V> {
+
+        private Leaf<K, V> current;
+
+        private int next;
+
+        private final Node<K, V> tree = root;
+
+        @Override
+        public K getKey() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            return current.key;
+        }
+
+        @Override
+        public V getValue() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            return current.value;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return tree != null && next < tree.size();
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return next > 0;
+        }
+
+        @Override
+        public K next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = leafAt(tree, next++);
+            return current.key;
+        }
+
+        @Override
+        public K previous() {
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            current = leafAt(tree, --next);
+            return current.key;
+        }
+
+        @Override
+        public void remove() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentPatriciaTrie.this.remove(current.key);
+            current = null;
+        }
+
+        @Override
+        public V setValue(final V value) {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            final V old = current.value;
+            put(current.key, value);
+            current = new Leaf<>(current.key, value);
+            return old;
+        }
+    }
+
+    /**
+     * An entry returned by an iterator, whose {@link #setValue(Object)} puts the new value into the trie.
+     */
+    private final class WriteThroughEntry extends AbstractMapEntry<K, V> {
+
+        WriteThroughEntry(final K key, final V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(final V value) {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Returns the leaf at an index of a tree.
+     */
+    private static <K, V> Leaf<K, V> leafAt(final Node<K, V> tree, final int index) {
+        Node<K, V> node = tree;
+        int i = index;
+        while (node instanceof Branch) {
+            final Branch<K, V> branch = (Branch<K, V>) node;
+            final int leftSize = branch.left.size();
+            if (i < leftSize) {
+                node = branch.left;
+            } else {
+                i -= leftSize;
+                node = branch.right;
+            }
+        }
+        return (Leaf<K, V>) node;
+    }
+
+    /**
+     * The {@link KeyAnalyzer} that's being used to build the trie.
+     */
+    private final KeyAnalyzer<? super K> keyAnalyzer;
+
+    /** Serializes the writers; readers never take it. */
+    private transient Object lock = new Object();
+
+    /** The current tree, null when the trie is empty. */
+    private transient volatile Node<K, V> root;
+
+    /** The order of the values for {@link #topPrefixMatches(Object, int)}, or null. */
+    private final Comparator<? super V> valueComparator;
+
+    /**
+     * Constructs a new empty trie.
+     *
+     * @param keyAnalyzer  the {@link KeyAnalyzer} to use, must not be null
+     * @throws NullPointerException if the key analyzer is null
+     */
+    public ConcurrentPatriciaTrie(final KeyAnalyzer<? super K> keyAnalyzer) {
+        this.keyAnalyzer = Objects.requireNonNull(keyAnalyzer, "keyAnalyzer");
+        this.valueComparator = null;
+    }
+
+    /**
+     * Constructs a new empty weighted trie, whose branches keep track of their greatest value so that {@link #topPrefixMatches(Object, int)} can
+     * find the greatest values under a prefix without going through all of them.
+     *
+     * @param keyAnalyzer  the {@link KeyAnalyzer} to use, must not be null
+     * @param valueComparator  the order of the values, such as their scores, must not be null, and must be serializable for the trie to be
+     * @throws NullPointerException if the key analyzer or the value comparator is null
+     */
+    public ConcurrentPatriciaTrie(final KeyAnalyzer<? super K> keyAnalyzer, final Comparator<? super V> valueComparator) {
+        this.keyAnalyzer = Objects.requireNonNull(keyAnalyzer, "keyAnalyzer");
+        this.valueComparator = Objects.requireNonNull(valueComparator, "valueComparator");
+    }
+
+    /**
+     * Constructs a new trie holding the mappings of a map.
+     *
+     * @param keyAnalyzer  the {@link KeyAnalyzer} to use, must not be null
+     * @param map  the mappings to copy, must not be null and must not hold null keys or values
+     * @throws NullPointerException if the key analyzer, the map, or one of its keys or values is null
+     */
+    public ConcurrentPatriciaTrie(final KeyAnalyzer<? super K> keyAnalyzer, final Map<? extends K, ? extends V> map) {
+        this(keyAnalyzer);
+        putAll(map);
+    }
+
+    private int bitIndex(final K key, final int lengthInBits, final K other) {
+        return keyAnalyzer.bitIndex(key, 0, lengthInBits, other, 0, keyAnalyzer.lengthInBits(other));
+    }
+
+    /**
+     * Returns a new branch, which knows its greatest value if the trie has a value comparator, the one on the left on ties.
+     */
+    private Branch<K, V> branch(final int bitIndex, final Node<K, V> left, final Node<K, V> right) {
+        if (valueComparator == null) {
+            return new Branch<>(bitIndex, left, right, null);
+        }
+        final Leaf<K, V> leftBest = left.best();
+        final Leaf<K, V> rightBest = right.best();
+        return new Branch<>(bitIndex, left, right, valueComparator.compare(rightBest.value, leftBest.value) > 0 ? rightBest : leftBest);
+    }
+
+    /**
+     * Removes all the mappings at once: the iterators and views created before go on reading the former mappings.
+     */
+    @Override
+    public void clear() {
+        synchronized (lock) {
+            root = null;
+        }
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return keyAnalyzer;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Returns a tree where the node on the path of a key at which the bits of the key run out, or the leaf of the key, is changed.
+     *
+     * @param tree  the current tree, not null
+     * @param key  the key whose path to copy
+     * @param lengthInBits  the length of the key
+     * @param bitLimit  the first bit which the branches to copy do not test, or {@link Integer#MAX_VALUE} to copy the path to the leaf
+     * @param change  the function which returns the new node for the old one, or null to remove a leaf
+     * @return the new tree
+     */
+    private Node<K, V> copyPath(final Node<K, V> tree, final K key, final int lengthInBits, final int bitLimit,
+            final UnaryOperator<Node<K, V>> change) {
+        @SuppressWarnings("unchecked")
+        Branch<K, V>[] path = new Branch[16];
+        int depth = 0;
+        Node<K, V> node = tree;
+        while (node instanceof Branch && ((Branch<K, V>) node).bitIndex < bitLimit) {
+            final Branch<K, V> branch = (Branch<K, V>) node;
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, depth * 2);
+            }
+            path[depth++] = branch;
+            node = keyAnalyzer.isBitSet(key, branch.bitIndex, lengthInBits) ? branch.right : branch.left;
+        }
+        node = change.apply(node);
+        while (--depth >= 0) {
+            final Branch<K, V> branch = path[depth];
+            final boolean right = keyAnalyzer.isBitSet(key, branch.bitIndex, lengthInBits);
+            if (node == null) {
+                // the branch over a removed leaf makes way for its other side
+                node = right ? branch.left : branch.right;
+            } else {
+                node = right ? branch(branch.bitIndex, branch.left, node) : branch(branch.bitIndex, node, branch.right);
+            }
+        }
+        return node;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySet(new RangeMap(null, null, null));
+    }
+
+    /**
+     * Returns the leaf of a key in a tree, or null if the key is not there.
+     */
+    private Leaf<K, V> find(final Node<K, V> tree, final K key) {
+        if (tree == null) {
+            return null;
+        }
+        final Leaf<K, V> leaf = leafFor(tree, key, keyAnalyzer.lengthInBits(key));
+        return keyAnalyzer.compare(key, leaf.key) == 0 ? leaf : null;
+    }
+
+    @Override
+    public K firstKey() {
+        final Node<K, V> tree = root;
+        if (tree == null) {
+            throw new NoSuchElementException();
+        }
+        return leafAt(tree, 0).key;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the key is null
+     * @throws ClassCastException if the key is of an incompatible type
+     */
+    @Override
+    public V get(final Object key) {
+        @SuppressWarnings("unchecked")
+        final Leaf<K, V> leaf = find(root, (K) Objects.requireNonNull(key, "key"));
+        return leaf != null ? leaf.value : null;
+    }
+
+    @Override
+    public SortedMap<K, V> headMap(final K toKey) {
+        return new RangeMap(null, null, Objects.requireNonNull(toKey, "toKey"));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    @Override
+    public K lastKey() {
+        final Node<K, V> tree = root;
+        if (tree == null) {
+            throw new NoSuchElementException();
+        }
+        return leafAt(tree, tree.size() - 1).key;
+    }
+
+    /**
+     * Returns the leaf reached by following the bits of a key down a tree, which is the only one which may hold the key.
+     */
+    private Leaf<K, V> leafFor(final Node<K, V> tree, final K key, final int lengthInBits) {
+        Node<K, V> node = tree;
+        while (node instanceof Branch) {
+            final Branch<K, V> branch = (Branch<K, V>) node;
+            node = keyAnalyzer.isBitSet(key, branch.bitIndex, lengthInBits) ? branch.right : branch.left;
+        }
+        return (Leaf<K, V>) node;
+    }
+
+    /**
+     * Returns an {@link OrderedMapIterator} over the mappings of the trie when it is called, whose {@code remove} and {@code setValue} methods
+     * write through to the trie. Each step takes O(K) time.
+     *
+     * @return a map iterator over a snapshot of the trie
+     */
+    @Override
+    public OrderedMapIterator<K, V> mapIterator() {
+        return new TrieMapIterator();
+    }
+
+    @Override
+    public K nextKey(final K key) {
+        Objects.requireNonNull(key, "key");
+        final Node<K, V> tree = root;
+        if (find(tree, key) == null) {
+            return null;
+        }
+        final int index = rank(tree, key) + 1;
+        return index < tree.size() ? leafAt(tree, index).key : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned view is live, and its {@link SortedMap#size()} takes O(K) time.
+     * </p>
+     */
+    @Override
+    public SortedMap<K, V> prefixMap(final K key) {
+        return new RangeMap(Objects.requireNonNull(key, "key"), null, null);
+    }
+
+    @Override
+    public K previousKey(final K key) {
+        Objects.requireNonNull(key, "key");
+        final Node<K, V> tree = root;
+        if (find(tree, key) == null) {
+            return null;
+        }
+        final int index = rank(tree, key) - 1;
+        return index >= 0 ? leafAt(tree, index).key : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the key or the value is null
+     * @throws IllegalArgumentException if the {@link KeyAnalyzer} cannot place the key
+     */
+    @Override
+    public V put(final K key, final V value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        synchronized (lock) {
+            return putLocked(key, value, false);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the key or the value is null
+     * @throws IllegalArgumentException if the {@link KeyAnalyzer} cannot place the key
+     */
+    @Override
+    public V putIfAbsent(final K key, final V value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        synchronized (lock) {
+            return putLocked(key, value, true);
+        }
+    }
+
+    private V putLocked(final K key, final V value, final boolean onlyIfAbsent) {
+        final Node<K, V> tree = root;
+        final Leaf<K, V> leaf = new Leaf<>(key, value);
+        if (tree == null) {
+            root = leaf;
+            return null;
+        }
+        final int lengthInBits = keyAnalyzer.lengthInBits(key);
+        final Leaf<K, V> found = leafFor(tree, key, lengthInBits);
+        final int bitIndex = bitIndex(key, lengthInBits, found.key);
+        if (KeyAnalyzer.isValidBitIndex(bitIndex)) {
+            final boolean right = keyAnalyzer.isBitSet(key, bitIndex, lengthInBits);
+            root = copyPath(tree, key, lengthInBits, bitIndex, node -> right ? branch(bitIndex, node, leaf) : branch(bitIndex, leaf, node));
+            return null;
+        }
+        if (KeyAnalyzer.isOutOfBoundsIndex(bitIndex)) {
+            throw new IllegalArgumentException("Failed to put: " + key + " -> " + value + ", " + bitIndex);
+        }
+        // the bits of the key are those of the key found, so it takes its place
+        final boolean present = keyAnalyzer.compare(key, found.key) == 0;
+        if (onlyIfAbsent && present) {
+            return found.value;
+        }
+        root = copyPath(tree, key, lengthInBits, Integer.MAX_VALUE, node -> leaf);
+        return present || !onlyIfAbsent ? found.value : null;
+    }
+
+    /**
+     * Returns the number of keys of a tree which come before a key.
+     */
+    private int rank(final Node<K, V> tree, final K key) {
+        if (tree == null) {
+            return 0;
+        }
+        final int lengthInBits = keyAnalyzer.lengthInBits(key);
+        final Leaf<K, V> leaf = leafFor(tree, key, lengthInBits);
+        final int bitIndex = bitIndex(key, lengthInBits, leaf.key);
+        final boolean sameBits = !KeyAnalyzer.isValidBitIndex(bitIndex);
+        final int bitLimit = sameBits ? Integer.MAX_VALUE : bitIndex;
+        int lo = 0;
+        Node<K, V> node = tree;
+        while (node instanceof Branch && ((Branch<K, V>) node).bitIndex < bitLimit) {
+            final Branch<K, V> branch = (Branch<K, V>) node;
+            if (keyAnalyzer.isBitSet(key, branch.bitIndex, lengthInBits)) {
+                lo += branch.left.size();
+                node = branch.right;
+            } else {
+                node = branch.left;
+            }
+        }
+        if (sameBits) {
+            return keyAnalyzer.compare(key, leaf.key) > 0 ? lo + 1 : lo;
+        }
+        // the key differs from the whole subtree at the bit, so it comes before or after all of it
+        return keyAnalyzer.isBitSet(key, bitIndex, lengthInBits) ? lo + node.size() : lo;
+    }
+
+    @SuppressWarnings("unchecked") // This will fail at runtime if the stream is incorrect
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        lock = new Object();
+        final int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            final K k = (K) in.readObject();
+            final V v = (V) in.readObject();
+            put(k, v);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the key is null
+     * @throws ClassCastException if the key is of an incompatible type
+     */
+    @Override
+    public V remove(final Object key) {
+        return remove(key, null, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the key is null
+     * @throws ClassCastException if the key is of an incompatible type
+     */
+    @Override
+    public boolean remove(final Object key, final Object value) {
+        return value != null && remove(key, value, true) != null;
+    }
+
+    private V remove(final Object key, final Object value, final boolean matchValue) {
+        @SuppressWarnings("unchecked")
+        final K k = (K) Objects.requireNonNull(key, "key");
+        synchronized (lock) {
+            final Node<K, V> tree = root;
+            final Leaf<K, V> found = find(tree, k);
+            if (found == null || matchValue && !value.equals(found.value)) {
+                return null;
+            }
+            root = copyPath(tree, k, keyAnalyzer.lengthInBits(k), Integer.MAX_VALUE, node -> null);
+            return found.value;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the key or the value is null
+     */
+    @Override
+    public V replace(final K key, final V value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        synchronized (lock) {
+            return replaceLocked(key, null, value);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if the key or one of the values is null
+     */
+    @Override
+    public boolean replace(final K key, final V oldValue, final V newValue) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(oldValue, "oldValue");
+        Objects.requireNonNull(newValue, "newValue");
+        synchronized (lock) {
+            return replaceLocked(key, oldValue, newValue) != null;
+        }
+    }
+
+    private V replaceLocked(final K key, final V oldValue, final V newValue) {
+        final Node<K, V> tree = root;
+        final Leaf<K, V> found = find(tree, key);
+        if (found == null || oldValue != null && !oldValue.equals(found.value)) {
+            return null;
+        }
+        final Leaf<K, V> leaf = new Leaf<>(key, newValue);
+        root = copyPath(tree, key, keyAnalyzer.lengthInBits(key), Integer.MAX_VALUE, node -> leaf);
+        return found.value;
+    }
+
+    /**
+     * Returns the {@link java.util.Map.Entry} whose key is closest in a bitwise XOR metric to the given key, as
+     * {@link AbstractPatriciaTrie#select(Object)} does. This is NOT lexicographic closeness! The entry is a snapshot, which cannot be changed.
+     *
+     * @param key  the key to use in the search
+     * @return the {@link java.util.Map.Entry} whose key is closest in a bitwise XOR metric to the provided key, or null if the trie is empty
+     */
+    public Map.Entry<K, V> select(final K key) {
+        final Node<K, V> tree = root;
+        if (tree == null) {
+            return null;
+        }
+        // all the keys under a branch share the bits it skips, so following the bits of the key picks the smallest XOR at each branch
+        final Leaf<K, V> leaf = leafFor(tree, key, keyAnalyzer.lengthInBits(key));
+        return new UnmodifiableMapEntry<>(leaf.key, leaf.value);
+    }
+
+    /**
+     * Returns the key that is closest in a bitwise XOR metric to the provided key.
+     *
+     * @param key  the key to use in the search
+     * @return the key that is closest in a bitwise XOR metric to the provided key, or null if the trie is empty
+     * @see #select(Object)
+     */
+    public K selectKey(final K key) {
+        final Map.Entry<K, V> entry = select(key);
+        return entry != null ? entry.getKey() : null;
+    }
+
+    /**
+     * Returns the value whose key is closest in a bitwise XOR metric to the provided key.
+     *
+     * @param key  the key to use in the search
+     * @return the value whose key is closest in a bitwise XOR metric to the provided key, or null if the trie is empty
+     * @see #select(Object)
+     */
+    public V selectValue(final K key) {
+        final Map.Entry<K, V> entry = select(key);
+        return entry != null ? entry.getValue() : null;
+    }
+
+    /**
+     * Returns the number of mappings, in constant time.
+     *
+     * @return the number of mappings
+     */
+    @Override
+    public int size() {
+        final Node<K, V> tree = root;
+        return tree == null ? 0 : tree.size();
+    }
+
+    @Override
+    public SortedMap<K, V> subMap(final K fromKey, final K toKey) {
+        Objects.requireNonNull(fromKey, "fromKey");
+        Objects.requireNonNull(toKey, "toKey");
+        if (keyAnalyzer.compare(fromKey, toKey) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        return new RangeMap(null, fromKey, toKey);
+    }
+
+    @Override
+    public SortedMap<K, V> tailMap(final K fromKey) {
+        return new RangeMap(null, Objects.requireNonNull(fromKey, "fromKey"), null);
+    }
+
+    /**
+     * Returns the mappings with the greatest values among the keys which start with a prefix, greatest first, in the order of the value comparator
+     * the trie was constructed with, and of the keys on ties.
+     * <p>
+     * Each branch knows the greatest value under it, so this method goes down the prefix, then from the greatest values to the smaller ones, best
+     * first. Reaching each result queues the branches on its path, so that this takes O(K + count h log(count h)) time, where K is the number of
+     * bits of the prefix and h the height of the subtree of the keys which start with it: it grows with that subtree, but only with its height,
+     * rather than with the number of keys in it. It reads a single snapshot of the trie, without locking.
+     * </p>
+     *
+     * @param prefix  the prefix of the keys, must not be null
+     * @param count  the maximum number of mappings to return
+     * @return up to {@code count} mappings which cannot be changed, the greatest value first
+     * @throws NullPointerException if the prefix is null
+     * @throws IllegalArgumentException if the count is negative
+     * @throws IllegalStateException if the trie was not constructed with a value comparator
+     */
+    public List<Map.Entry<K, V>> topPrefixMatches(final K prefix, final int count) {
+        Objects.requireNonNull(prefix, "prefix");
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative: " + count);
+        }
+        if (valueComparator == null) {
+            throw new IllegalStateException("The trie has no value comparator");
+        }
+        final List<Map.Entry<K, V>> top = new ArrayList<>(Math.min(count, 16));
+        final Node<K, V> tree = root;
+        if (tree == null || count == 0) {
+            return top;
+        }
+        final int lengthInBits = keyAnalyzer.lengthInBits(prefix);
+        Node<K, V> node = tree;
+        while (node instanceof Branch && ((Branch<K, V>) node).bitIndex < lengthInBits) {
+            final Branch<K, V> branch = (Branch<K, V>) node;
+            node = keyAnalyzer.isBitSet(prefix, branch.bitIndex, lengthInBits) ? branch.right : branch.left;
+        }
+        // as in the prefix views, the keys under the node either all start with the prefix but one shorter key which comes first, or none does
+        if (!keyAnalyzer.isPrefix(prefix, 0, lengthInBits, leafAt(node, 0).key)
+                && (node.size() < 2 || !keyAnalyzer.isPrefix(prefix, 0, lengthInBits, leafAt(node, 1).key))) {
+            return top;
+        }
+        final PriorityQueue<Node<K, V>> queue = new PriorityQueue<>((a, b) -> {
+            final int c = valueComparator.compare(b.best().value, a.best().value);
+            return c != 0 ? c : keyAnalyzer.compare(a.best().key, b.best().key);
+        });
+        queue.add(node);
+        while (top.size() < count && !queue.isEmpty()) {
+            final Node<K, V> next = queue.poll();
+            if (next instanceof Branch) {
+                queue.add(((Branch<K, V>) next).left);
+                queue.add(((Branch<K, V>) next).right);
+            } else {
+                final Leaf<K, V> leaf = (Leaf<K, V>) next;
+                if (keyAnalyzer.isPrefix(prefix, 0, lengthInBits, leaf.key)) {
+                    top.add(new UnmodifiableMapEntry<>(leaf.key, leaf.value));
+                }
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Writes a snapshot of the trie.
+     */
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        final Node<K, V> tree = root;
+        final int size = tree == null ? 0 : tree.size();
+        out.writeInt(size);
+        final Iterator<Map.Entry<K, V>> it = new EntryIterator(tree, 0, size);
+        while (it.hasNext()) {
+            final Map.Entry<K, V> entry = it.next();
+            out.writeObject(entry.getKey());
+            out.writeObject(entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import org.apache.commons.collections4.Trie;
+
+/**
+ * Iterates over the mappings of a {@link Trie} whose keys are within an edit distance of a given key, in the order of the keys, such as the
+ * corrections of a misspelled word in a dictionary.
+ * <p>
+ * The iterator walks the keys of the trie as a Levenshtein automaton would walk a trie of characters: it computes one row of the edit distance
+ * table per character of a key, shares the rows of the prefixes common to consecutive keys, and, as soon as the distances of a prefix all exceed
+ * the maximum distance, skips all the keys which start with that prefix with {@link Trie#tailMap(Object)}. Matches are found as
+ * {@link #hasNext()} is called, so that taking the first few corrections does not go through the whole trie. With a small maximum distance, the
+ * iterator only looks at the keys whose prefixes are close to the prefixes of the given key, rather than at all of them.
+ * </p>
+ * <p>
+ * The iterator goes through the live trie, so that changes to the trie while iterating are only partly seen, unless the trie takes snapshots as
+ * {@link ConcurrentPatriciaTrie} does. Keys must be ordered as {@link String#compareTo(String)} orders them, as {@link PatriciaTrie} and the other
+ * tries of this package with {@link String} keys do.
+ * </p>
+ *
+ * @param <V> the type of the values in the trie
+ * @since 4.6.0
+ */
+public final class EditDistanceIterator<V> implements Iterator<Map.Entry<String, V>> {
+
+    /**
+     * Returns an iterator over the mappings whose keys are within a Damerau-Levenshtein distance of a key, where an edit is the insertion,
+     * deletion or substitution of a character, or the transposition of two adjacent characters. This is the optimal string alignment distance,
+     * where no character is edited twice, as spell checkers usually compute it.
+     *
+     * @param <V> the type of the values in the trie
+     * @param trie  the trie to search, must not be null
+     * @param key  the key to look for, must not be null
+     * @param maxDistance  the maximum distance of the keys to return, must not be negative
+     * @return an iterator over the keys within the distance
+     * @throws NullPointerException if the trie or the key is null
+     * @throws IllegalArgumentException if the maximum distance is negative
+     */
+    public static <V> EditDistanceIterator<V> damerauLevenshtein(final Trie<String, V> trie, final String key, final int maxDistance) {
+        return new EditDistanceIterator<>(trie, key, maxDistance, true);
+    }
+
+    /**
+     * Returns an iterator over the mappings whose keys are within a Levenshtein distance of a key, where an edit is the insertion, deletion or
+     * substitution of a character.
+     *
+     * @param <V> the type of the values in the trie
+     * @param trie  the trie to search, must not be null
+     * @param key  the key to look for, must not be null
+     * @param maxDistance  the maximum distance of the keys to return, must not be negative
+     * @return an iterator over the keys within the distance
+     * @throws NullPointerException if the trie or the key is null
+     * @throws IllegalArgumentException if the maximum distance is negative
+     */
+    public static <V> EditDistanceIterator<V> levenshtein(final Trie<String, V> trie, final String key, final int maxDistance) {
+        return new EditDistanceIterator<>(trie, key, maxDistance, false);
+    }
+
+    /** The characters of the current path, the one at depth d at index d - 1. */
+    private char[] chars;
+
+    /** The distance of the last mapping returned, or -1. */
+    private int distance = -1;
+
+    /** The iterator over the keys still to look at, or null once all have been looked at. */
+    private Iterator<Map.Entry<String, V>> iterator;
+
+    private final String key;
+
+    private final int maxDistance;
+
+    /** The next mapping to return, or null if it has not been found yet. */
+    private Map.Entry<String, V> next;
+
+    private int nextDistance;
+
+    /** The rows of the edit distance table, the one of the prefix of length d at index d. */
+    private int[][] rows;
+
+    private final boolean transpositions;
+
+    private final Trie<String, V> trie;
+
+    /** The number of characters of the current path whose rows are up to date. */
+    private int valid;
+
+    private EditDistanceIterator(final Trie<String, V> trie, final String key, final int maxDistance, final boolean transpositions) {
+        this.trie = Objects.requireNonNull(trie, "trie");
+        this.key = Objects.requireNonNull(key, "key");
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("maxDistance must not be negative: " + maxDistance);
+        }
+        this.maxDistance = maxDistance;
+        this.transpositions = transpositions;
+        // the path grows as needed, up to the length of the key plus the maximum distance, past which its distances all exceed the maximum
+        this.chars = new char[16];
+        this.rows = new int[17][];
+        rows[0] = new int[key.length() + 1];
+        for (int j = 0; j <= key.length(); j++) {
+            rows[0][j] = j;
+        }
+        this.iterator = trie.entrySet().iterator();
+    }
+
+    /**
+     * Computes the row of the prefix of the current path of a given length, and returns the least distance in it.
+     */
+    private int computeRow(final int depth) {
+        if (depth == rows.length) {
+            rows = Arrays.copyOf(rows, depth * 2);
+        }
+        int[] row = rows[depth];
+        if (row == null) {
+            row = new int[key.length() + 1];
+            rows[depth] = row;
+        }
+        final int[] previous = rows[depth - 1];
+        final char c = chars[depth - 1];
+        row[0] = depth;
+        int min = depth;
+        for (int j = 1; j <= key.length(); j++) {
+            int d = Math.min(previous[j - 1] + (key.charAt(j - 1) == c ? 0 : 1), Math.min(previous[j], row[j - 1]) + 1);
+            if (transpositions && depth > 1 && j > 1 && key.charAt(j - 1) == chars[depth - 2] && key.charAt(j - 2) == c) {
+                d = Math.min(d, rows[depth - 2][j - 2] + 1);
+            }
+            row[j] = d;
+            min = Math.min(min, d);
+        }
+        return min;
+    }
+
+    /**
+     * Returns the distance between the given key and the key of the last mapping returned by {@link #next()}.
+     *
+     * @return the edit distance of the last key returned
+     * @throws IllegalStateException if {@link #next()} has not been called
+     */
+    public int getDistance() {
+        if (distance < 0) {
+            throw new IllegalStateException();
+        }
+        return distance;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && iterator != null) {
+            if (!iterator.hasNext()) {
+                iterator = null;
+                break;
+            }
+            final Map.Entry<String, V> entry = iterator.next();
+            final String candidate = entry.getKey();
+            int depth = 0;
+            final int shared = Math.min(valid, candidate.length());
+            while (depth < shared && chars[depth] == candidate.charAt(depth)) {
+                depth++;
+            }
+            valid = depth;
+            boolean pruned = false;
+            while (depth < candidate.length()) {
+                if (depth == chars.length) {
+                    chars = Arrays.copyOf(chars, depth * 2);
+                }
+                chars[depth] = candidate.charAt(depth);
+                depth++;
+                if (computeRow(depth) > maxDistance) {
+                    pruned = true;
+                    break;
+                }
+                valid = depth;
+            }
+            if (pruned) {
+                skip(depth);
+            } else if (rows[depth][key.length()] <= maxDistance) {
+                next = entry;
+                nextDistance = rows[depth][key.length()];
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Map.Entry<String, V> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final Map.Entry<String, V> entry = next;
+        distance = nextDistance;
+        next = null;
+        return entry;
+    }
+
+    /**
+     * Goes on with the first key which does not start with the prefix of the current path of a given length.
+     */
+    private void skip(final int prefixLength) {
+        int length = prefixLength;
+        while (length > 0 && chars[length - 1] == Character.MAX_VALUE) {
+            length--;
+        }
+        if (length == 0) {
+            iterator = null;
+            return;
+        }
+        final String successor = new String(chars, 0, length - 1) + (char) (chars[length - 1] + 1);
+        iterator = trie.tailMap(successor).entrySet().iterator();
+    }
+}
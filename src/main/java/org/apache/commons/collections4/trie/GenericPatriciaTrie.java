@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie;
+
+import java.util.Map;
+
+/**
+ * A {@link PatriciaTrie} for keys of any type, analyzed by a given {@link KeyAnalyzer}.
+ * <p>
+ * {@link PatriciaTrie} only holds {@link String} keys. This trie holds the keys its analyzer understands, such as the {@code byte[]}, {@link Integer}
+ * or {@link java.net.InetAddress} keys of the analyzers in {@link org.apache.commons.collections4.trie.analyzer}, without converting them to strings:
+ * </p>
+ *
+ * <pre>
+ * Trie&lt;InetAddress, Route&gt; routes = new GenericPatriciaTrie&lt;&gt;(InetAddressKeyAnalyzer.INSTANCE);
+ * </pre>
+ *
+ * @param <K> the type of the keys in this map
+ * @param <V> the type of the values in this map
+ * @since 4.6.0
+ */
+public class GenericPatriciaTrie<K, V> extends AbstractPatriciaTrie<K, V> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param keyAnalyzer the analyzer of the keys, must not be null
+     * @throws NullPointerException if the analyzer is null
+     */
+    public GenericPatriciaTrie(final KeyAnalyzer<? super K> keyAnalyzer) {
+        super(keyAnalyzer);
+    }
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param keyAnalyzer the analyzer of the keys, must not be null
+     * @param map mappings to be stored in this map.
+     * @throws NullPointerException if the analyzer is null
+     */
+    public GenericPatriciaTrie(final KeyAnalyzer<? super K> keyAnalyzer, final Map<? extends K, ? extends V> map) {
+        super(keyAnalyzer, map);
+    }
+
+}
@@ -115,6 +115,28 @@ public abstract class KeyAnalyzer<K> implements Comparator<K>, Serializable {
      */
     public abstract int bitsPerElement();
 
+    /**
+     * Returns eight bits of a key as an {@code int} between 0 and 255, the bit at {@code index * 8} being the most significant one. The bits at
+     * {@code lengthInBits} and past it are zeros, as {@link #isBitSet(Object, int, int)} reads them.
+     * <p>
+     * This implementation calls {@link #isBitSet(Object, int, int)} for each bit. Subclasses whose keys are made of bytes or characters should
+     * read them directly, for the tries which walk keys a byte at a time, such as {@link AdaptiveRadixTrie}.
+     * </p>
+     *
+     * @param key  the key, not null
+     * @param index  the index of the byte, not negative
+     * @param lengthInBits  the length of the key in bits
+     * @return the byte at the index, unsigned
+     * @since 4.6.0
+     */
+    public int byteAt(final K key, final int index, final int lengthInBits) {
+        int bits = 0;
+        for (int i = index * Byte.SIZE; i < (index + 1) * Byte.SIZE; i++) {
+            bits = bits << 1 | (isBitSet(key, i, lengthInBits) ? 1 : 0);
+        }
+        return bits;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public int compare(final K o1, final K o2) {
@@ -0,0 +1,695 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import org.apache.commons.collections4.Trie;
+import org.apache.commons.collections4.keyvalue.UnmodifiableMapEntry;
+import org.apache.commons.collections4.trie.analyzer.StringKeyAnalyzer;
+
+/**
+ * An immutable PATRICIA {@link Trie} of {@link String} keys which is stored in a file and queried in place, through memory mapping.
+ * <p>
+ * A file is written in one pass from keys in ascending order by a {@link Writer}, or from a map by {@link #write(Path, Map, Function)}; only the
+ * branches along the last key added are kept in memory. {@link #open(Path, Function)} maps a file and reads its footer, which takes the same time
+ * whatever the number of keys, and the operating system then loads the pages as the trie is queried. Values are stored as the bytes returned by
+ * an encoder, and decoded on each access.
+ * </p>
+ * <p>
+ * The read operations are those of {@link UnmodifiableTrie}. {@link #get(Object)}, {@link #prefixMap(String)} and
+ * {@link #longestPrefixOf(String)} walk the branches in O(K) time, where K is the number of bits of the key, testing one bit of the key per branch
+ * as {@link PatriciaTrie} does, and then decode a few keys. The sorted navigation operations do the same, and iteration decodes the entries in key
+ * order. Keys are ordered by {@link StringKeyAnalyzer}.
+ * </p>
+ * <p>
+ * The file holds, one after the other:
+ * </p>
+ * <ol>
+ *   <li>the entries in key order, each being the number of characters of the key, its characters encoded one by one as UTF-8 encodes them, the
+ *   number of bytes of the value plus one, or zero for a null value, and these bytes; the numbers are unsigned variable length integers, seven
+ *   bits per byte, least significant group first;</li>
+ *   <li>padding to a multiple of eight bytes, then the position of each entry, as a {@code long};</li>
+ *   <li>the branches, in the order in which their subtrees end, as four {@code int}s each: the bit it tests, the index of the key on its left, and
+ *   the branches on its left and on its right, or -1 where there is a single key;</li>
+ *   <li>a footer of 40 bytes: a magic number, the version of the format, the number of keys as a {@code long}, the positions of the positions and
+ *   branches sections as {@code long}s, the root branch, or -1, and four bytes of padding.</li>
+ * </ol>
+ * <p>
+ * All numbers are big-endian. The file must not be modified while it is mapped; as Java cannot unmap a file, the mapping is released when the
+ * trie is garbage collected.
+ * </p>
+ * <p>
+ * This class is immutable, and thus thread-safe, as long as the decoder is.
+ * </p>
+ *
+ * @param <V> the type of the values in this map
+ * @since 4.6.0
+ */
+public final class MappedPatriciaTrie<V> extends AbstractIndexedTrie<V> {
+
+    /**
+     * Writes a trie file from keys added in ascending order.
+     * <p>
+     * The entries are written to a temporary file in the same directory as they are added, and the positions and branches to two others, which
+     * are appended when the writer is closed. The file is then moved to its path, replacing any file there. If adding a mapping fails after it
+     * started writing, the writer fails: closing it deletes its temporary files, and leaves any file at the path untouched.
+     * </p>
+     *
+     * @param <V> the type of the values in this map
+     */
+    public static final class Writer<V> implements Closeable {
+
+        private final Path branchesFile;
+
+        private final DataOutputStream branchesOut;
+
+        private int branchCount;
+
+        private boolean closed;
+
+        private final Function<? super V, byte[]> encoder;
+
+        /** Whether adding a mapping failed after it started writing, so that the file must not be completed. */
+        private boolean failed;
+
+        /** The temporary file, moved to the path once complete. */
+        private final Path file;
+
+        private final DataOutputStream out;
+
+        private String lastKey;
+
+        /** The number of bytes written to the file. */
+        private long length;
+
+        private final Path path;
+
+        private final Path positionsFile;
+
+        private final DataOutputStream positionsOut;
+
+        private int size;
+
+        /** The branches along the last key whose subtrees have not ended yet, from the root; the first {@code depth} are used. */
+        private int depth;
+
+        private int[] stackBitIndexes = new int[16];
+
+        private int[] stackIndexes = new int[16];
+
+        private int[] stackLefts = new int[16];
+
+        private int[] stackRights = new int[16];
+
+        private Writer(final Path path, final Function<? super V, byte[]> encoder) throws IOException {
+            this.encoder = Objects.requireNonNull(encoder, "encoder");
+            final Path directory = path.toAbsolutePath().getParent();
+            final String prefix = path.getFileName() + ".";
+            this.path = path;
+            file = Files.createTempFile(directory, prefix, ".tmp");
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+            positionsFile = Files.createTempFile(directory, prefix, ".positions");
+            positionsOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(positionsFile)));
+            branchesFile = Files.createTempFile(directory, prefix, ".branches");
+            branchesOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(branchesFile)));
+        }
+
+        /**
+         * Adds a mapping, whose key must come after the keys already added.
+         *
+         * @param key  the key, must not be null
+         * @param value  the value, may be null
+         * @return {@code this} instance.
+         * @throws NullPointerException if the key is null
+         * @throws IllegalArgumentException if the key does not come after the last key added, or only differs from it by trailing {@code '\0'}
+         *   characters, which {@link StringKeyAnalyzer} does not tell apart
+         * @throws IllegalStateException if the writer is closed, or has failed
+         * @throws IOException if an I/O error occurs, after which the writer has failed
+         */
+        public Writer<V> add(final String key, final V value) throws IOException {
+            Objects.requireNonNull(key, "key");
+            if (closed) {
+                throw new IllegalStateException("The writer is closed");
+            }
+            if (failed) {
+                throw new IllegalStateException("The writer has failed");
+            }
+            int bitIndex = KeyAnalyzer.NULL_BIT_KEY;
+            if (size > 0) {
+                bitIndex = StringKeyAnalyzer.INSTANCE.bitIndex(lastKey, 0, lastKey.length() * StringKeyAnalyzer.LENGTH,
+                        key, 0, key.length() * StringKeyAnalyzer.LENGTH);
+                if (!KeyAnalyzer.isValidBitIndex(bitIndex)) {
+                    throw new IllegalArgumentException("Duplicate key: " + key);
+                }
+                if (lastKey.compareTo(key) > 0) {
+                    throw new IllegalArgumentException("Keys must be added in ascending order: " + key + " after " + lastKey);
+                }
+            }
+            // encode before writing anything, so that an encoder failure leaves the writer as it was
+            final byte[] bytes = value == null ? null : encoder.apply(value);
+            try {
+                if (size > 0) {
+                    addBranch(bitIndex, size - 1);
+                }
+                positionsOut.writeLong(length);
+                writeVarInt(key.length());
+                for (int i = 0; i < key.length(); i++) {
+                    writeChar(key.charAt(i));
+                }
+                if (bytes == null) {
+                    writeVarInt(0);
+                } else {
+                    writeVarInt(bytes.length + 1);
+                    out.write(bytes);
+                    length += bytes.length;
+                }
+            } catch (final IOException | RuntimeException | Error e) {
+                failed = true;
+                throw e;
+            }
+            lastKey = key;
+            size++;
+            return this;
+        }
+
+        /**
+         * Adds the branch between the last key and the new one, ending the subtrees of the branches testing later bits.
+         * <p>
+         * The branches form the Cartesian tree of the bits which differ between adjacent keys, which is built with a stack. The ended subtrees
+         * are the right subtrees of the branches under them, but for the last, which is the left subtree of the new branch.
+         * </p>
+         */
+        private void addBranch(final int bitIndex, final int index) throws IOException {
+            int left = -1;
+            while (depth > 0 && stackBitIndexes[depth - 1] > bitIndex) {
+                final int ended = writeBranch(--depth);
+                if (depth > 0 && stackBitIndexes[depth - 1] > bitIndex) {
+                    stackRights[depth - 1] = ended;
+                } else {
+                    left = ended;
+                }
+            }
+            if (depth == stackBitIndexes.length) {
+                stackBitIndexes = Arrays.copyOf(stackBitIndexes, depth * 2);
+                stackIndexes = Arrays.copyOf(stackIndexes, depth * 2);
+                stackLefts = Arrays.copyOf(stackLefts, depth * 2);
+                stackRights = Arrays.copyOf(stackRights, depth * 2);
+            }
+            stackBitIndexes[depth] = bitIndex;
+            stackIndexes[depth] = index;
+            stackLefts[depth] = left;
+            stackRights[depth++] = -1;
+        }
+
+        /**
+         * Ends the remaining subtrees, appends the positions and the branches, writes the footer and moves the file to its path, unless the
+         * writer has failed. The temporary files are deleted in any case.
+         *
+         * @throws IOException if an I/O error occurs
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            boolean complete = false;
+            try {
+                if (failed) {
+                    return;
+                }
+                int root = -1;
+                while (depth > 0) {
+                    final int ended = writeBranch(--depth);
+                    if (depth > 0) {
+                        stackRights[depth - 1] = ended;
+                    } else {
+                        root = ended;
+                    }
+                }
+                positionsOut.close();
+                branchesOut.close();
+                while (length % Long.BYTES != 0) {
+                    out.write(0);
+                    length++;
+                }
+                final long positions = length;
+                Files.copy(positionsFile, out);
+                final long branches = positions + (long) size * Long.BYTES;
+                Files.copy(branchesFile, out);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(size);
+                out.writeLong(positions);
+                out.writeLong(branches);
+                out.writeInt(root);
+                out.writeInt(0);
+                out.close();
+                try {
+                    Files.move(file, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (final AtomicMoveNotSupportedException e) {
+                    Files.move(file, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+                complete = true;
+            } finally {
+                try {
+                    out.close();
+                    positionsOut.close();
+                    branchesOut.close();
+                } finally {
+                    Files.deleteIfExists(positionsFile);
+                    Files.deleteIfExists(branchesFile);
+                    if (!complete) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Writes a branch of the stack, whose subtree has ended, and returns its number.
+         */
+        private int writeBranch(final int slot) throws IOException {
+            branchesOut.writeInt(stackBitIndexes[slot]);
+            branchesOut.writeInt(stackIndexes[slot]);
+            branchesOut.writeInt(stackLefts[slot]);
+            branchesOut.writeInt(stackRights[slot]);
+            return branchCount++;
+        }
+
+        private void writeChar(final char c) throws IOException {
+            if (c < 0x80) {
+                out.write(c);
+                length++;
+            } else if (c < 0x800) {
+                out.write(0xc0 | c >> 6);
+                out.write(0x80 | c & 0x3f);
+                length += 2;
+            } else {
+                out.write(0xe0 | c >> 12);
+                out.write(0x80 | c >> 6 & 0x3f);
+                out.write(0x80 | c & 0x3f);
+                length += 3;
+            }
+        }
+
+        private void writeVarInt(final int value) throws IOException {
+            int v = value;
+            while ((v & ~0x7f) != 0) {
+                out.write(v & 0x7f | 0x80);
+                length++;
+                v >>>= 7;
+            }
+            out.write(v);
+            length++;
+        }
+    }
+
+    /** The size of the branch records. */
+    private static final int BRANCH_LENGTH = 4 * Integer.BYTES;
+
+    /** The number of bits of the size of the mapped chunks of the file. */
+    private static final int CHUNK_BITS = 30;
+
+    private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+    /** The size of the footer. */
+    private static final int FOOTER_LENGTH = 40;
+
+    /** The magic number at the start of the footer: "PTRI". */
+    private static final int MAGIC = 0x50545249;
+
+    /** The version of the format. */
+    private static final int VERSION = 1;
+
+    /**
+     * Opens a trie file.
+     *
+     * @param <V> the type of the values in this map
+     * @param path  the file, must not be null
+     * @param decoder  the function decoding the bytes of the values, must not be null
+     * @return a new trie
+     * @throws NullPointerException if the path or the decoder is null
+     * @throws IOException if an I/O error occurs, or the file is not a trie file
+     */
+    public static <V> MappedPatriciaTrie<V> open(final Path path, final Function<byte[], ? extends V> decoder) throws IOException {
+        Objects.requireNonNull(decoder, "decoder");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long length = channel.size();
+            if (length < FOOTER_LENGTH) {
+                throw new IOException("Not a trie file: " + path);
+            }
+            // a buffer cannot map more than 2 GiB, so the file is mapped in chunks
+            final ByteBuffer[] chunks = new ByteBuffer[(int) ((length + CHUNK_MASK) >>> CHUNK_BITS)];
+            for (int i = 0; i < chunks.length; i++) {
+                final long start = (long) i << CHUNK_BITS;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(CHUNK_MASK + 1, length - start));
+            }
+            return new MappedPatriciaTrie<>(path, chunks, length, decoder);
+        }
+    }
+
+    /**
+     * Writes a trie file holding the mappings of a map.
+     * <p>
+     * The mappings of a {@link SortedMap} ordered as {@link StringKeyAnalyzer} orders keys, such as a {@link PatriciaTrie}, are written as they are
+     * iterated; the others are sorted first. If writing fails, any file at the path is left untouched.
+     * </p>
+     *
+     * @param <V> the type of the values in this map
+     * @param path  the file, must not be null
+     * @param map  the mappings, must not be null
+     * @param encoder  the function encoding the values to bytes, must not be null
+     * @throws NullPointerException if an argument or one of the keys is null
+     * @throws IllegalArgumentException if two keys only differ by trailing {@code '\0'} characters
+     * @throws IOException if an I/O error occurs
+     */
+    public static <V> void write(final Path path, final Map<? extends String, ? extends V> map, final Function<? super V, byte[]> encoder)
+            throws IOException {
+        Objects.requireNonNull(map, "map");
+        final boolean sorted = map instanceof SortedMap
+                && (((SortedMap<?, ?>) map).comparator() == null || ((SortedMap<?, ?>) map).comparator() == StringKeyAnalyzer.INSTANCE);
+        try (Writer<V> writer = writer(path, encoder)) {
+            try {
+                for (final Map.Entry<? extends String, ? extends V> entry : (sorted ? map : new TreeMap<>(map)).entrySet()) {
+                    writer.add(entry.getKey(), entry.getValue());
+                }
+            } catch (final IOException | RuntimeException | Error e) {
+                // do not complete the file with the mappings written so far
+                writer.failed = true;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Creates a {@link Writer} of a trie file.
+     *
+     * @param <V> the type of the values in this map
+     * @param path  the file, must not be null
+     * @param encoder  the function encoding the values to bytes, must not be null; values encoded to null are read back as null
+     * @return a new {@link Writer}
+     * @throws NullPointerException if the path or the encoder is null
+     * @throws IOException if an I/O error occurs
+     */
+    public static <V> Writer<V> writer(final Path path, final Function<? super V, byte[]> encoder) throws IOException {
+        return new Writer<>(path, encoder);
+    }
+
+    private static int varIntLength(final int value) {
+        return (Integer.SIZE - Integer.numberOfLeadingZeros(value | 1) + 6) / 7;
+    }
+
+    /** The position of the branches. */
+    private final long branches;
+
+    private final ByteBuffer[] chunks;
+
+    private final Function<byte[], ? extends V> decoder;
+
+    /** The position of the positions of the entries. */
+    private final long positions;
+
+    private final int root;
+
+    private final int size;
+
+    private MappedPatriciaTrie(final Path path, final ByteBuffer[] chunks, final long length, final Function<byte[], ? extends V> decoder)
+            throws IOException {
+        this.chunks = chunks;
+        this.decoder = decoder;
+        final long footer = length - FOOTER_LENGTH;
+        if (footer % Long.BYTES != 0 || intAt(footer) != MAGIC) {
+            throw new IOException("Not a trie file: " + path);
+        }
+        if (intAt(footer + 4) != VERSION) {
+            throw new IOException("Unsupported trie file version " + intAt(footer + 4) + ": " + path);
+        }
+        final long count = longAt(footer + 8);
+        positions = longAt(footer + 16);
+        branches = longAt(footer + 24);
+        root = intAt(footer + 32);
+        if (count < 0 || count > Integer.MAX_VALUE || positions + count * Long.BYTES != branches
+                || branches + Math.max(0, count - 1) * BRANCH_LENGTH != footer) {
+            throw new IOException("Corrupt trie file: " + path);
+        }
+        size = (int) count;
+    }
+
+    private byte byteAt(final long position) {
+        return chunks[(int) (position >>> CHUNK_BITS)].get((int) (position & CHUNK_MASK));
+    }
+
+    @Override
+    int indexOf(final String key) {
+        if (size == 0) {
+            return -1;
+        }
+        final int index = (int) (range(key, Integer.MAX_VALUE) >>> Integer.SIZE);
+        return keyLength(index) == key.length() && regionMatches(index, key, key.length()) ? index : -1;
+    }
+
+    private int intAt(final long position) {
+        return chunks[(int) (position >>> CHUNK_BITS)].getInt((int) (position & CHUNK_MASK));
+    }
+
+    @Override
+    String key(final int index) {
+        long position = longAt(positions + (long) index * Long.BYTES);
+        final int length = varIntAt(position);
+        position += varIntLength(length);
+        final char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            final int b = byteAt(position) & 0xff;
+            if (b < 0x80) {
+                chars[i] = (char) b;
+                position++;
+            } else if (b < 0xe0) {
+                chars[i] = (char) ((b & 0x1f) << 6 | byteAt(position + 1) & 0x3f);
+                position += 2;
+            } else {
+                chars[i] = (char) ((b & 0x0f) << 12 | (byteAt(position + 1) & 0x3f) << 6 | byteAt(position + 2) & 0x3f);
+                position += 3;
+            }
+        }
+        return new String(chars);
+    }
+
+    private int keyLength(final int index) {
+        return varIntAt(longAt(positions + (long) index * Long.BYTES));
+    }
+
+    private long longAt(final long position) {
+        return chunks[(int) (position >>> CHUNK_BITS)].getLong((int) (position & CHUNK_MASK));
+    }
+
+    /**
+     * Returns the mapping whose key is the longest prefix of the given key, as {@link AbstractPatriciaTrie#longestPrefixOf(Object)} does.
+     * <p>
+     * This walks the bits of the key down the branches once. A prefix of the key which is not on its path was left on the left at a bit past the
+     * end of the prefix, where the key has a one and the prefix is padded with zeros, so the prefix is the first key of that subtree.
+     * </p>
+     *
+     * @param key  the key to find the longest prefix of, must not be null
+     * @return the mapping whose key is the longest prefix of the given key, or null if no key is a prefix of it
+     * @throws NullPointerException if the key is null
+     */
+    public Map.Entry<String, V> longestPrefixOf(final String key) {
+        Objects.requireNonNull(key, "key");
+        if (size == 0) {
+            return null;
+        }
+        final int lengthInBits = key.length() * StringKeyAnalyzer.LENGTH;
+        // the prefixes are met in key order, which is the order of their lengths
+        int longest = -1;
+        int lo = 0;
+        int branch = root;
+        while (branch >= 0) {
+            final long position = branches + (long) branch * BRANCH_LENGTH;
+            if (StringKeyAnalyzer.INSTANCE.isBitSet(key, intAt(position), lengthInBits)) {
+                longest = isPrefixOf(lo, key) ? lo : longest;
+                lo = intAt(position + 4) + 1;
+                branch = intAt(position + 12);
+            } else {
+                branch = intAt(position + 8);
+            }
+        }
+        longest = isPrefixOf(lo, key) ? lo : longest;
+        return longest >= 0 ? new UnmodifiableMapEntry<>(key(longest), value(longest)) : null;
+    }
+
+    private boolean isPrefixOf(final int index, final String key) {
+        final int length = keyLength(index);
+        return length <= key.length() && regionMatches(index, key, length);
+    }
+
+    /**
+     * Walks the bits of the key down the trie, from its first key to the last one differing from it: the first differing bit tells whether the
+     * key comes before or after the keys which agree with it up to that bit.
+     */
+    @Override
+    int lowerBound(final String key) {
+        if (size == 0) {
+            return 0;
+        }
+        final int lengthInBits = key.length() * StringKeyAnalyzer.LENGTH;
+        final int index = (int) (range(key, Integer.MAX_VALUE) >>> Integer.SIZE);
+        final String found = key(index);
+        final int bitIndex = StringKeyAnalyzer.INSTANCE.bitIndex(key, 0, lengthInBits, found, 0, found.length() * StringKeyAnalyzer.LENGTH);
+        if (!KeyAnalyzer.isValidBitIndex(bitIndex)) {
+            // the keys are equal but for trailing '\0' characters, and no key lies between them
+            return key.length() > found.length() ? index + 1 : index;
+        }
+        final long range = range(key, bitIndex);
+        return StringKeyAnalyzer.INSTANCE.isBitSet(key, bitIndex, lengthInBits) ? (int) range : (int) (range >>> Integer.SIZE);
+    }
+
+    /**
+     * Returns a view of the keys prefixed by the given key.
+     * <p>
+     * This walks the bits of the prefix down the trie, and compares a single key with it.
+     * </p>
+     *
+     * @param key  the prefix, must not be null
+     * @return a {@link SortedMap} view of the keys prefixed by the given key
+     * @throws NullPointerException if the key is null
+     */
+    @Override
+    public SortedMap<String, V> prefixMap(final String key) {
+        Objects.requireNonNull(key, "key");
+        final long range = range(key, key.length() * StringKeyAnalyzer.LENGTH);
+        int lo = (int) (range >>> Integer.SIZE);
+        int hi = (int) range;
+        // the keys left agree on the bits of the prefix; a key shorter than the prefix, padded with zeros, may agree too, and comes first
+        if (lo < hi && keyLength(lo) < key.length()) {
+            lo++;
+        }
+        if (lo == hi || keyLength(lo) < key.length() || !regionMatches(lo, key, key.length())) {
+            lo = lowerBound(key);
+            hi = lo;
+        }
+        return rangeMap(lo, hi);
+    }
+
+    /**
+     * Walks the bits of the key down the branches testing bits before the limit, and returns the range of keys of the subtree reached, as the
+     * first index in the high {@code int} and the index after the last in the low one.
+     */
+    private long range(final String key, final int bitLimit) {
+        final int lengthInBits = key.length() * StringKeyAnalyzer.LENGTH;
+        int lo = 0;
+        int hi = size;
+        int branch = root;
+        while (branch >= 0) {
+            final long position = branches + (long) branch * BRANCH_LENGTH;
+            final int bitIndex = intAt(position);
+            if (bitIndex >= bitLimit) {
+                break;
+            }
+            if (StringKeyAnalyzer.INSTANCE.isBitSet(key, bitIndex, lengthInBits)) {
+                lo = intAt(position + 4) + 1;
+                branch = intAt(position + 12);
+            } else {
+                hi = intAt(position + 4) + 1;
+                branch = intAt(position + 8);
+            }
+        }
+        return (long) lo << Integer.SIZE | hi;
+    }
+
+    /**
+     * Returns whether the first characters of the key at an index are those of the given string.
+     */
+    private boolean regionMatches(final int index, final String s, final int length) {
+        long position = longAt(positions + (long) index * Long.BYTES);
+        position += varIntLength(varIntAt(position));
+        for (int i = 0; i < length; i++) {
+            final int b = byteAt(position) & 0xff;
+            final char c;
+            if (b < 0x80) {
+                c = (char) b;
+                position++;
+            } else if (b < 0xe0) {
+                c = (char) ((b & 0x1f) << 6 | byteAt(position + 1) & 0x3f);
+                position += 2;
+            } else {
+                c = (char) ((b & 0x0f) << 12 | (byteAt(position + 1) & 0x3f) << 6 | byteAt(position + 2) & 0x3f);
+                position += 3;
+            }
+            if (c != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    V value(final int index) {
+        long position = longAt(positions + (long) index * Long.BYTES);
+        final int keyLength = varIntAt(position);
+        position += varIntLength(keyLength);
+        for (int i = 0; i < keyLength; i++) {
+            final int b = byteAt(position) & 0xff;
+            position += b < 0x80 ? 1 : b < 0xe0 ? 2 : 3;
+        }
+        final int length = varIntAt(position) - 1;
+        if (length < 0) {
+            return null;
+        }
+        position += varIntLength(length + 1);
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = byteAt(position + i);
+        }
+        return decoder.apply(bytes);
+    }
+
+    private int varIntAt(final long position) {
+        int value = 0;
+        int shift = 0;
+        long p = position;
+        int b;
+        do {
+            b = byteAt(p++);
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.apache.commons.collections4.trie;
 
+import java.util.Comparator;
 import java.util.Map;
 
 import org.apache.commons.collections4.trie.analyzer.StringKeyAnalyzer;
@@ -72,6 +73,20 @@ public class PatriciaTrie<V> extends AbstractPatriciaTrie<String, V> {
         super(StringKeyAnalyzer.INSTANCE);
     }
 
+    /**
+     * Constructs a new weighted instance, each entry of which keeps the mappings with the greatest values of its subtree, so that
+     * {@link #topPrefixMatches(Object, int)} finds up to {@code cachedMatches} of them for a prefix in O(K + count) time.
+     *
+     * @param valueComparator  the order of the values, such as their scores, must not be null, and must be serializable for the trie to be
+     * @param cachedMatches  the number of greatest values each entry keeps
+     * @throws NullPointerException if the value comparator is null
+     * @throws IllegalArgumentException if the number of cached matches is not positive
+     * @since 4.6.0
+     */
+    public PatriciaTrie(final Comparator<? super V> valueComparator, final int cachedMatches) {
+        super(StringKeyAnalyzer.INSTANCE, valueComparator, cachedMatches);
+    }
+
     /**
      * Constructs a new instance.
      *
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie.analyzer;
+
+import org.apache.commons.collections4.trie.KeyAnalyzer;
+
+/**
+ * A {@link KeyAnalyzer} for {@code byte[]} keys, such as UTF-8 encoded paths or serialized composite keys.
+ * <p>
+ * The bits of a key are the bits of its bytes, most significant bit first, so keys are ordered as unsigned bytes compared lexicographically.
+ * {@link #bitIndex(byte[], int, int, byte[], int, int) bitIndex} compares eight bytes at a time and locates the first different bit with
+ * {@link Long#numberOfLeadingZeros(long)}. As with {@link StringKeyAnalyzer}, a key which only differs from another by trailing zero bytes is the same
+ * key to a trie.
+ * </p>
+ * <p>
+ * This class is stateless. The arrays must not be modified while they are keys of a trie.
+ * </p>
+ *
+ * @since 4.6.0
+ */
+public final class ByteArrayKeyAnalyzer extends KeyAnalyzer<byte[]> {
+
+    private static final long serialVersionUID = 1L;
+
+    /** A singleton instance of {@link ByteArrayKeyAnalyzer}. */
+    public static final ByteArrayKeyAnalyzer INSTANCE = new ByteArrayKeyAnalyzer();
+
+    /** The number of bits per byte. */
+    public static final int LENGTH = Byte.SIZE;
+
+    /**
+     * Returns the first different bit between two byte ranges, padding the shorter range with zeros, as specified by
+     * {@link KeyAnalyzer#bitIndex(Object, int, int, Object, int, int)}.
+     */
+    static int bitIndexInRange(final byte[] key, final int beginIndex1, final int endIndex1,
+                               final byte[] other, final int beginIndex2, final int endIndex2) {
+        final int length1 = endIndex1 - beginIndex1;
+        final int length2 = other == null ? 0 : endIndex2 - beginIndex2;
+        final int common = Math.min(length1, length2);
+        boolean allNull = true;
+        int i = 0;
+        for (; i + Long.BYTES <= common; i += Long.BYTES) {
+            final long k = getLong(key, beginIndex1 + i);
+            final long x = k ^ getLong(other, beginIndex2 + i);
+            if (x != 0) {
+                return i * LENGTH + Long.numberOfLeadingZeros(x);
+            }
+            if (k != 0) {
+                allNull = false;
+            }
+        }
+        final int length = Math.max(length1, length2);
+        for (; i < length; i++) {
+            final int k = i < length1 ? key[beginIndex1 + i] & 0xff : 0;
+            final int f = i < length2 ? other[beginIndex2 + i] & 0xff : 0;
+            if (k != f) {
+                return i * LENGTH + Integer.numberOfLeadingZeros(k ^ f) - (Integer.SIZE - LENGTH);
+            }
+            if (k != 0) {
+                allNull = false;
+            }
+        }
+        return allNull ? NULL_BIT_KEY : EQUAL_BIT_KEY;
+    }
+
+    /**
+     * Checks that the offsets and lengths are at byte boundaries.
+     */
+    static void checkBoundaries(final int offsetInBits, final int lengthInBits) {
+        if (offsetInBits % LENGTH != 0 || lengthInBits % LENGTH != 0) {
+            throw new IllegalArgumentException("The offsets and lengths must be at byte boundaries");
+        }
+    }
+
+    /**
+     * Compares two byte ranges as unsigned bytes, lexicographically.
+     */
+    static int compare(final byte[] a, final int aFrom, final int aTo, final byte[] b, final int bFrom, final int bTo) {
+        final int length = Math.min(aTo - aFrom, bTo - bFrom);
+        for (int i = 0; i < length; i++) {
+            final int cmp = (a[aFrom + i] & 0xff) - (b[bFrom + i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(aTo - aFrom, bTo - bFrom);
+    }
+
+    /**
+     * Reads eight bytes as a big-endian long.
+     */
+    private static long getLong(final byte[] bytes, final int index) {
+        return (bytes[index] & 0xffL) << 56
+                | (bytes[index + 1] & 0xffL) << 48
+                | (bytes[index + 2] & 0xffL) << 40
+                | (bytes[index + 3] & 0xffL) << 32
+                | (bytes[index + 4] & 0xffL) << 24
+                | (bytes[index + 5] & 0xffL) << 16
+                | (bytes[index + 6] & 0xffL) << 8
+                | bytes[index + 7] & 0xffL;
+    }
+
+    /**
+     * Returns whether a bit of a byte array is set.
+     */
+    static boolean isBitSet(final byte[] key, final int bitIndex) {
+        return (key[bitIndex / LENGTH] & 0x80 >>> bitIndex % LENGTH) != 0;
+    }
+
+    /**
+     * Restricted constructor, use {@link #INSTANCE}.
+     */
+    private ByteArrayKeyAnalyzer() {
+        // empty
+    }
+
+    @Override
+    public int bitIndex(final byte[] key, final int offsetInBits, final int lengthInBits,
+                        final byte[] other, final int otherOffsetInBits, final int otherLengthInBits) {
+        checkBoundaries(offsetInBits, lengthInBits);
+        checkBoundaries(otherOffsetInBits, otherLengthInBits);
+        final int beginIndex1 = offsetInBits / LENGTH;
+        final int beginIndex2 = otherOffsetInBits / LENGTH;
+        return bitIndexInRange(key, beginIndex1, beginIndex1 + lengthInBits / LENGTH, other, beginIndex2, beginIndex2 + otherLengthInBits / LENGTH);
+    }
+
+    @Override
+    public int bitsPerElement() {
+        return LENGTH;
+    }
+
+    @Override
+    public int byteAt(final byte[] key, final int index, final int lengthInBits) {
+        final int bitIndex = index * LENGTH;
+        if (key == null || bitIndex >= lengthInBits || index >= key.length) {
+            return 0;
+        }
+        // clears the bits past the length
+        return lengthInBits - bitIndex >= LENGTH ? key[index] & 0xff : key[index] & 0xff << LENGTH - (lengthInBits - bitIndex) & 0xff;
+    }
+
+    @Override
+    public int compare(final byte[] o1, final byte[] o2) {
+        if (o1 == null) {
+            return o2 == null ? 0 : -1;
+        }
+        if (o2 == null) {
+            return 1;
+        }
+        return compare(o1, 0, o1.length, o2, 0, o2.length);
+    }
+
+    @Override
+    public boolean isBitSet(final byte[] key, final int bitIndex, final int lengthInBits) {
+        if (key == null || bitIndex >= lengthInBits || bitIndex >= key.length * LENGTH) {
+            return false;
+        }
+        return isBitSet(key, bitIndex);
+    }
+
+    @Override
+    public boolean isPrefix(final byte[] prefix, final int offsetInBits, final int lengthInBits, final byte[] key) {
+        checkBoundaries(offsetInBits, lengthInBits);
+        final int begin = offsetInBits / LENGTH;
+        final int length = lengthInBits / LENGTH;
+        if (key.length < length) {
+            return false;
+        }
+        return bitIndexInRange(prefix, begin, Math.min(prefix.length, begin + length), key, 0, length) < 0;
+    }
+
+    @Override
+    public int lengthInBits(final byte[] key) {
+        return key != null ? key.length * LENGTH : 0;
+    }
+
+    /**
+     * Returns the singleton instance.
+     *
+     * @return the singleton instance.
+     */
+    private Object readResolve() {
+        return INSTANCE;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie.analyzer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.apache.commons.collections4.trie.KeyAnalyzer;
+
+/**
+ * A {@link KeyAnalyzer} for {@link ByteBuffer} keys, such as slices of a larger buffer holding serialized keys.
+ * <p>
+ * The key is the sequence of bytes between the position and the limit of the buffer, which are read with absolute gets, so analyzing a key never moves
+ * its position. Keys are ordered as {@link ByteArrayKeyAnalyzer} orders the same bytes, that is as unsigned bytes compared lexicographically, whatever the
+ * byte order of the buffer. Buffers backed by an accessible array are analyzed as that array; the others are compared eight bytes at a time with
+ * {@link ByteBuffer#getLong(int)}.
+ * </p>
+ * <p>
+ * This class is stateless. The content, position and limit of the buffers must not be modified while they are keys of a trie.
+ * </p>
+ *
+ * @since 4.6.0
+ */
+public final class ByteBufferKeyAnalyzer extends KeyAnalyzer<ByteBuffer> {
+
+    private static final long serialVersionUID = 1L;
+
+    /** A singleton instance of {@link ByteBufferKeyAnalyzer}. */
+    public static final ByteBufferKeyAnalyzer INSTANCE = new ByteBufferKeyAnalyzer();
+
+    /** The number of bits per byte. */
+    public static final int LENGTH = Byte.SIZE;
+
+    /**
+     * Reads eight bytes at an absolute index as a big-endian long.
+     */
+    private static long getLong(final ByteBuffer buffer, final int index) {
+        final long value = buffer.getLong(index);
+        return buffer.order() == ByteOrder.BIG_ENDIAN ? value : Long.reverseBytes(value);
+    }
+
+    /**
+     * Restricted constructor, use {@link #INSTANCE}.
+     */
+    private ByteBufferKeyAnalyzer() {
+        // empty
+    }
+
+    @Override
+    public int bitIndex(final ByteBuffer key, final int offsetInBits, final int lengthInBits,
+                        final ByteBuffer other, final int otherOffsetInBits, final int otherLengthInBits) {
+        ByteArrayKeyAnalyzer.checkBoundaries(offsetInBits, lengthInBits);
+        ByteArrayKeyAnalyzer.checkBoundaries(otherOffsetInBits, otherLengthInBits);
+        final int beginIndex1 = key.position() + offsetInBits / LENGTH;
+        final int length1 = lengthInBits / LENGTH;
+        if (other == null) {
+            return bitIndexInRange(key, beginIndex1, length1, key, 0, 0);
+        }
+        final int beginIndex2 = other.position() + otherOffsetInBits / LENGTH;
+        final int length2 = otherLengthInBits / LENGTH;
+        if (key.hasArray() && other.hasArray()) {
+            final int begin1 = key.arrayOffset() + beginIndex1;
+            final int begin2 = other.arrayOffset() + beginIndex2;
+            return ByteArrayKeyAnalyzer.bitIndexInRange(key.array(), begin1, begin1 + length1, other.array(), begin2, begin2 + length2);
+        }
+        return bitIndexInRange(key, beginIndex1, length1, other, beginIndex2, length2);
+    }
+
+    private int bitIndexInRange(final ByteBuffer key, final int beginIndex1, final int length1,
+                                final ByteBuffer other, final int beginIndex2, final int length2) {
+        final int common = Math.min(length1, length2);
+        boolean allNull = true;
+        int i = 0;
+        for (; i + Long.BYTES <= common; i += Long.BYTES) {
+            final long k = getLong(key, beginIndex1 + i);
+            final long x = k ^ getLong(other, beginIndex2 + i);
+            if (x != 0) {
+                return i * LENGTH + Long.numberOfLeadingZeros(x);
+            }
+            if (k != 0) {
+                allNull = false;
+            }
+        }
+        final int length = Math.max(length1, length2);
+        for (; i < length; i++) {
+            final int k = i < length1 ? key.get(beginIndex1 + i) & 0xff : 0;
+            final int f = i < length2 ? other.get(beginIndex2 + i) & 0xff : 0;
+            if (k != f) {
+                return i * LENGTH + Integer.numberOfLeadingZeros(k ^ f) - (Integer.SIZE - LENGTH);
+            }
+            if (k != 0) {
+                allNull = false;
+            }
+        }
+        return allNull ? NULL_BIT_KEY : EQUAL_BIT_KEY;
+    }
+
+    @Override
+    public int bitsPerElement() {
+        return LENGTH;
+    }
+
+    @Override
+    public int compare(final ByteBuffer o1, final ByteBuffer o2) {
+        if (o1 == null) {
+            return o2 == null ? 0 : -1;
+        }
+        if (o2 == null) {
+            return 1;
+        }
+        // ByteBuffer.compareTo compares signed bytes, which is not the order of the bits
+        final int length = Math.min(o1.remaining(), o2.remaining());
+        for (int i = 0; i < length; i++) {
+            final int cmp = (o1.get(o1.position() + i) & 0xff) - (o2.get(o2.position() + i) & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(o1.remaining(), o2.remaining());
+    }
+
+    @Override
+    public boolean isBitSet(final ByteBuffer key, final int bitIndex, final int lengthInBits) {
+        if (key == null || bitIndex >= lengthInBits || bitIndex >= key.remaining() * LENGTH) {
+            return false;
+        }
+        return (key.get(key.position() + bitIndex / LENGTH) & 0x80 >>> bitIndex % LENGTH) != 0;
+    }
+
+    @Override
+    public boolean isPrefix(final ByteBuffer prefix, final int offsetInBits, final int lengthInBits, final ByteBuffer key) {
+        ByteArrayKeyAnalyzer.checkBoundaries(offsetInBits, lengthInBits);
+        final int length = lengthInBits / LENGTH;
+        if (key.remaining() < length) {
+            return false;
+        }
+        final int begin = offsetInBits / LENGTH;
+        final int prefixLength = Math.max(0, Math.min(prefix.remaining() - begin, length));
+        return bitIndexInRange(prefix, prefix.position() + begin, prefixLength, key, key.position(), length) < 0;
+    }
+
+    @Override
+    public int lengthInBits(final ByteBuffer key) {
+        return key != null ? key.remaining() * LENGTH : 0;
+    }
+
+    /**
+     * Returns the singleton instance.
+     *
+     * @return the singleton instance.
+     */
+    private Object readResolve() {
+        return INSTANCE;
+    }
+}
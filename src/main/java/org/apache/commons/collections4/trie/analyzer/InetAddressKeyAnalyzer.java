@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie.analyzer;
+
+import java.net.InetAddress;
+
+import org.apache.commons.collections4.trie.KeyAnalyzer;
+
+/**
+ * A {@link KeyAnalyzer} for IPv4 and IPv6 {@link InetAddress} keys, such as the addresses of a routing table.
+ * <p>
+ * Every key is 128 bits long: an IPv6 address is analyzed as its 16 bytes, and an IPv4 address as its IPv4-mapped IPv6 address
+ * {@code ::ffff:a.b.c.d}, so both kinds of addresses can be keys of the same trie without colliding, and the IPv4 addresses sort together. Keys are
+ * ordered as unsigned bytes compared lexicographically, which is the numeric order of the addresses. The bits are compared eight bytes at a time as
+ * by {@link ByteArrayKeyAnalyzer}.
+ * </p>
+ * <p>
+ * This class is stateless.
+ * </p>
+ *
+ * @since 4.6.0
+ */
+public final class InetAddressKeyAnalyzer extends KeyAnalyzer<InetAddress> {
+
+    private static final long serialVersionUID = 1L;
+
+    /** A singleton instance of {@link InetAddressKeyAnalyzer}. */
+    public static final InetAddressKeyAnalyzer INSTANCE = new InetAddressKeyAnalyzer();
+
+    /** The number of bytes of an IPv6 address. */
+    private static final int IPV6_BYTES = 16;
+
+    /** The number of bytes set to {@code 0xff} just before the IPv4 address of an IPv4-mapped IPv6 address. */
+    private static final int IPV4_MAPPED_PREFIX_BYTES = 2;
+
+    /** The number of bits per key. */
+    public static final int LENGTH = IPV6_BYTES * Byte.SIZE;
+
+    /**
+     * Returns the 16 bytes of an address, mapping IPv4 addresses into the IPv6 address space.
+     */
+    private static byte[] toBytes(final InetAddress address) {
+        final byte[] bytes = address.getAddress();
+        if (bytes.length == IPV6_BYTES) {
+            return bytes;
+        }
+        final byte[] mapped = new byte[IPV6_BYTES];
+        mapped[10] = (byte) 0xff;
+        mapped[11] = (byte) 0xff;
+        System.arraycopy(bytes, 0, mapped, IPV6_BYTES - bytes.length, bytes.length);
+        return mapped;
+    }
+
+    /**
+     * Restricted constructor, use {@link #INSTANCE}.
+     */
+    private InetAddressKeyAnalyzer() {
+        // empty
+    }
+
+    @Override
+    public int bitIndex(final InetAddress key, final int offsetInBits, final int lengthInBits,
+                        final InetAddress other, final int otherOffsetInBits, final int otherLengthInBits) {
+        ByteArrayKeyAnalyzer.checkBoundaries(offsetInBits, lengthInBits);
+        ByteArrayKeyAnalyzer.checkBoundaries(otherOffsetInBits, otherLengthInBits);
+        final int begin1 = offsetInBits / Byte.SIZE;
+        final int end1 = Math.min(IPV6_BYTES, begin1 + lengthInBits / Byte.SIZE);
+        if (other == null) {
+            return ByteArrayKeyAnalyzer.bitIndexInRange(toBytes(key), begin1, end1, null, 0, 0);
+        }
+        final int begin2 = otherOffsetInBits / Byte.SIZE;
+        final int end2 = Math.min(IPV6_BYTES, begin2 + otherLengthInBits / Byte.SIZE);
+        return ByteArrayKeyAnalyzer.bitIndexInRange(toBytes(key), begin1, end1, toBytes(other), begin2, end2);
+    }
+
+    @Override
+    public int bitsPerElement() {
+        return Byte.SIZE;
+    }
+
+    @Override
+    public int compare(final InetAddress o1, final InetAddress o2) {
+        if (o1 == null) {
+            return o2 == null ? 0 : -1;
+        }
+        if (o2 == null) {
+            return 1;
+        }
+        return ByteArrayKeyAnalyzer.compare(toBytes(o1), 0, IPV6_BYTES, toBytes(o2), 0, IPV6_BYTES);
+    }
+
+    @Override
+    public boolean isBitSet(final InetAddress key, final int bitIndex, final int lengthInBits) {
+        if (key == null || bitIndex >= lengthInBits || bitIndex >= LENGTH) {
+            return false;
+        }
+        // read the bit without mapping an IPv4 address into a new array, as the trie tests a bit at every node it visits
+        final byte[] bytes = key.getAddress();
+        final int index = bitIndex / Byte.SIZE - (IPV6_BYTES - bytes.length);
+        final int b = index >= 0 ? bytes[index] : index >= -IPV4_MAPPED_PREFIX_BYTES ? 0xff : 0;
+        return (b & 0x80 >>> bitIndex % Byte.SIZE) != 0;
+    }
+
+    @Override
+    public boolean isPrefix(final InetAddress prefix, final int offsetInBits, final int lengthInBits, final InetAddress key) {
+        ByteArrayKeyAnalyzer.checkBoundaries(offsetInBits, lengthInBits);
+        final int begin = offsetInBits / Byte.SIZE;
+        final int length = Math.min(IPV6_BYTES, lengthInBits / Byte.SIZE);
+        return ByteArrayKeyAnalyzer.bitIndexInRange(toBytes(prefix), begin, Math.min(IPV6_BYTES, begin + length), toBytes(key), 0, length) < 0;
+    }
+
+    @Override
+    public int lengthInBits(final InetAddress key) {
+        return key != null ? LENGTH : 0;
+    }
+
+    /**
+     * Returns the singleton instance.
+     *
+     * @return the singleton instance.
+     */
+    private Object readResolve() {
+        return INSTANCE;
+    }
+}
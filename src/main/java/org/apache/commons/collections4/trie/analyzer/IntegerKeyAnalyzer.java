@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie.analyzer;
+
+import org.apache.commons.collections4.trie.KeyAnalyzer;
+
+/**
+ * A {@link KeyAnalyzer} for {@link Integer} keys.
+ * <p>
+ * Every key is 32 bits long. The sign bit is flipped, so that the order of the bits is the numeric order of the keys, and
+ * {@link Integer#MIN_VALUE} is the key whose bits are all zero. The first different bit between two keys is found with a single XOR and
+ * {@link Integer#numberOfLeadingZeros(int)}.
+ * </p>
+ * <p>
+ * This class is stateless.
+ * </p>
+ *
+ * @since 4.6.0
+ */
+public final class IntegerKeyAnalyzer extends KeyAnalyzer<Integer> {
+
+    private static final long serialVersionUID = 1L;
+
+    /** A singleton instance of {@link IntegerKeyAnalyzer}. */
+    public static final IntegerKeyAnalyzer INSTANCE = new IntegerKeyAnalyzer();
+
+    /** The number of bits per key. */
+    public static final int LENGTH = Integer.SIZE;
+
+    /**
+     * Returns the bits of a key from the given offset for the given length, aligned to the most significant bit and followed by zeros.
+     */
+    private static int bits(final Integer key, final int offsetInBits, final int lengthInBits) {
+        if (key == null || lengthInBits <= 0 || offsetInBits >= LENGTH) {
+            return 0;
+        }
+        final int bits = (key.intValue() ^ Integer.MIN_VALUE) << offsetInBits;
+        return lengthInBits >= LENGTH ? bits : bits & ~(-1 >>> lengthInBits);
+    }
+
+    /**
+     * Restricted constructor, use {@link #INSTANCE}.
+     */
+    private IntegerKeyAnalyzer() {
+        // empty
+    }
+
+    @Override
+    public int bitIndex(final Integer key, final int offsetInBits, final int lengthInBits,
+                        final Integer other, final int otherOffsetInBits, final int otherLengthInBits) {
+        final int k = bits(key, offsetInBits, lengthInBits);
+        final int x = k ^ bits(other, otherOffsetInBits, otherLengthInBits);
+        if (x != 0) {
+            return Integer.numberOfLeadingZeros(x);
+        }
+        return k == 0 ? NULL_BIT_KEY : EQUAL_BIT_KEY;
+    }
+
+    @Override
+    public int bitsPerElement() {
+        return LENGTH;
+    }
+
+    @Override
+    public boolean isBitSet(final Integer key, final int bitIndex, final int lengthInBits) {
+        if (key == null || bitIndex >= lengthInBits || bitIndex >= LENGTH) {
+            return false;
+        }
+        return (key.intValue() ^ Integer.MIN_VALUE) << bitIndex < 0;
+    }
+
+    @Override
+    public boolean isPrefix(final Integer prefix, final int offsetInBits, final int lengthInBits, final Integer key) {
+        return bits(prefix, offsetInBits, lengthInBits) == bits(key, 0, lengthInBits);
+    }
+
+    @Override
+    public int lengthInBits(final Integer key) {
+        return key != null ? LENGTH : 0;
+    }
+
+    /**
+     * Returns the singleton instance.
+     *
+     * @return the singleton instance.
+     */
+    private Object readResolve() {
+        return INSTANCE;
+    }
+}
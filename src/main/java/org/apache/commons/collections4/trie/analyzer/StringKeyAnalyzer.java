@@ -58,8 +58,6 @@ public class StringKeyAnalyzer extends KeyAnalyzer<String> {
     public int bitIndex(final String key, final int offsetInBits, final int lengthInBits,
                         final String other, final int otherOffsetInBits, final int otherLengthInBits) {
 
-        boolean allNull = true;
-
         if (offsetInBits % LENGTH != 0 || otherOffsetInBits % LENGTH != 0
                 || lengthInBits % LENGTH != 0 || otherLengthInBits % LENGTH != 0) {
             throw new IllegalArgumentException("The offsets and lengths must be at Character boundaries");
@@ -68,49 +66,47 @@ public class StringKeyAnalyzer extends KeyAnalyzer<String> {
         final int beginIndex1 = offsetInBits / LENGTH;
         final int beginIndex2 = otherOffsetInBits / LENGTH;
 
-        final int endIndex1 = beginIndex1 + lengthInBits / LENGTH;
-        final int endIndex2 = beginIndex2 + otherLengthInBits / LENGTH;
-
-        final int length = Math.max(endIndex1, endIndex2);
-
-        // Look at each character, and if they're different
-        // then figure out which bit makes the difference
-        // and return it.
-        char k = 0;
-        char f = 0;
-        for (int i = 0; i < length; i++) {
-            final int index1 = beginIndex1 + i;
-            final int index2 = beginIndex2 + i;
-
-            if (index1 >= endIndex1) {
-                k = 0;
-            } else {
-                k = key.charAt(index1);
-            }
-
-            if (other == null || index2 >= endIndex2) {
-                f = 0;
-            } else {
-                f = other.charAt(index2);
+        final int length1 = lengthInBits / LENGTH;
+        final int length2 = other == null ? 0 : otherLengthInBits / LENGTH;
+
+        final int common = Math.min(length1, length2);
+
+        // Skip the characters both keys share in a tight loop; equal keys,
+        // the comparison ending every successful lookup, are compared by
+        // String.equals, which the JVM vectorizes.
+        int i = 0;
+        if (common > 0 && beginIndex1 == 0 && beginIndex2 == 0
+                && key.length() == length1 && other.length() == length2 && key.equals(other)) {
+            i = common;
+        } else {
+            while (i < common && key.charAt(beginIndex1 + i) == other.charAt(beginIndex2 + i)) {
+                i++;
             }
+        }
 
-            if (k != f) {
-                final int x = k ^ f;
-                return i * LENGTH + Integer.numberOfLeadingZeros(x) - LENGTH;
-            }
+        if (i < common) {
+            final int x = key.charAt(beginIndex1 + i) ^ other.charAt(beginIndex2 + i);
+            return i * LENGTH + Integer.numberOfLeadingZeros(x) - LENGTH;
+        }
 
-            if (k != 0) {
-                allNull = false;
+        // The longer key differs from the zero padding of the shorter
+        // one at its first character which isn't zero.
+        final String longer = length1 > length2 ? key : other;
+        final int beginIndex = length1 > length2 ? beginIndex1 : beginIndex2;
+        for (; i < Math.max(length1, length2); i++) {
+            final char c = longer.charAt(beginIndex + i);
+            if (c != 0) {
+                return i * LENGTH + Integer.numberOfLeadingZeros(c) - LENGTH;
             }
         }
 
-        // All bits are 0
-        if (allNull) {
-            return NULL_BIT_KEY;
+        // Both keys are equal; check if all bits are 0
+        for (i = 0; i < common; i++) {
+            if (key.charAt(beginIndex1 + i) != 0) {
+                return EQUAL_BIT_KEY;
+            }
         }
-
-        // Both keys are equal
-        return EQUAL_BIT_KEY;
+        return NULL_BIT_KEY;
     }
 
     @Override
@@ -118,6 +114,18 @@ public class StringKeyAnalyzer extends KeyAnalyzer<String> {
         return LENGTH;
     }
 
+    @Override
+    public int byteAt(final String key, final int index, final int lengthInBits) {
+        final int bitIndex = index * Byte.SIZE;
+        if (key == null || bitIndex >= lengthInBits) {
+            return 0;
+        }
+        final char c = key.charAt(bitIndex / LENGTH);
+        final int bits = bitIndex % LENGTH == 0 ? c >>> Byte.SIZE : c & 0xff;
+        // clears the bits past the length
+        return lengthInBits - bitIndex >= Byte.SIZE ? bits : bits & 0xff << Byte.SIZE - (lengthInBits - bitIndex) & 0xff;
+    }
+
     @Override
     public boolean isBitSet(final String key, final int bitIndex, final int lengthInBits) {
         if (key == null || bitIndex >= lengthInBits) {
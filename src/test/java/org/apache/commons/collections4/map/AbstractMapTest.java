@@ -778,6 +778,19 @@ public abstract class AbstractMapTest<M extends Map<K, V>, K, V> extends Abstrac
         return false;
     }
 
+    /**
+     * Returns true if the maps produced by {@link #makeObject()} and {@link #makeFullMap()} return the key instances which were put, rather than
+     * equal copies.
+     * <p>
+     * Default implementation returns true. Override if your map class stores its keys in another form.
+     * </p>
+     *
+     * @return true by default.
+     */
+    public boolean isKeyIdentityPreserved() {
+        return true;
+    }
+
     // tests begin here. Each test adds a little bit of tested functionality.
     // Many methods assume previous methods passed. That is, they do not
     // exhaustively recheck things that have already been checked in a previous
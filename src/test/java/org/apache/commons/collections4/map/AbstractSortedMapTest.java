@@ -16,6 +16,7 @@
  */
 package org.apache.commons.collections4.map;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -276,6 +277,11 @@ public abstract class AbstractSortedMapTest<K, V> extends AbstractMapTest<Sorted
             return main.isAllowNullValuePut();
         }
 
+        @Override
+        public boolean isKeyIdentityPreserved() {
+            return main.isKeyIdentityPreserved();
+        }
+
         @Override
         public boolean isPutAddSupported() {
             return main.isPutAddSupported();
@@ -405,7 +411,11 @@ public abstract class AbstractSortedMapTest<K, V> extends AbstractMapTest<Sorted
     @Test
     void testFirstKey() {
         final SortedMap<K, V> sm = makeFullMap();
-        assertSame(sm.keySet().iterator().next(), sm.firstKey());
+        if (isKeyIdentityPreserved()) {
+            assertSame(sm.keySet().iterator().next(), sm.firstKey());
+        } else {
+            assertEquals(sm.keySet().iterator().next(), sm.firstKey());
+        }
     }
 
     @Test
@@ -415,7 +425,11 @@ public abstract class AbstractSortedMapTest<K, V> extends AbstractMapTest<Sorted
         for (final K k : sm.keySet()) {
             obj = k;
         }
-        assertSame(obj, sm.lastKey());
+        if (isKeyIdentityPreserved()) {
+            assertSame(obj, sm.lastKey());
+        } else {
+            assertEquals(obj, sm.lastKey());
+        }
     }
 
 }
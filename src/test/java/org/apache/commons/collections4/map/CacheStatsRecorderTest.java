@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.collections4.map.CacheStats.EvictionCause;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link CacheStatsRecorder} and {@link CacheStats}.
+ */
+class CacheStatsRecorderTest {
+
+    @Test
+    void testConcurrentRecording() throws Exception {
+        final CacheStatsRecorder recorder = new CacheStatsRecorder();
+        final int threads = 8;
+        final int events = 10_000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < events; j++) {
+                        recorder.recordHit();
+                        recorder.recordEviction(EvictionCause.SIZE);
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        final CacheStats stats = recorder.snapshot();
+        assertEquals(threads * events, stats.hitCount());
+        assertEquals(threads * events, stats.evictionCount(EvictionCause.SIZE));
+    }
+
+    @Test
+    void testEmptySnapshot() {
+        final CacheStats stats = new CacheStatsRecorder().snapshot();
+        assertEquals(0, stats.requestCount());
+        assertEquals(1.0, stats.hitRate());
+        assertEquals(0.0, stats.missRate());
+        assertEquals(0.0, stats.averageLoadPenalty());
+        assertEquals(0, stats.evictionCount());
+        assertEquals(new CacheStatsRecorder().snapshot(), stats);
+    }
+
+    @Test
+    void testMinus() {
+        final CacheStatsRecorder recorder = new CacheStatsRecorder();
+        recorder.recordHit();
+        recorder.recordEviction(EvictionCause.EXPIRED);
+        final CacheStats before = recorder.snapshot();
+        recorder.recordHit();
+        recorder.recordMiss();
+        recorder.recordEvictions(EvictionCause.COLLECTED, 3);
+        final CacheStats delta = recorder.snapshot().minus(before);
+        assertEquals(1, delta.hitCount());
+        assertEquals(1, delta.missCount());
+        assertEquals(0, delta.evictionCount(EvictionCause.EXPIRED));
+        assertEquals(3, delta.reclaimedCount());
+    }
+
+    @Test
+    void testSnapshot() {
+        final CacheStatsRecorder recorder = new CacheStatsRecorder();
+        recorder.recordHit();
+        recorder.recordHit();
+        recorder.recordHit();
+        recorder.recordMiss();
+        recorder.recordLoadSuccess(100);
+        recorder.recordLoadFailure(200);
+        recorder.recordEviction(EvictionCause.SIZE);
+        recorder.recordEvictions(EvictionCause.EXPIRED, 2);
+        recorder.recordEvictions(EvictionCause.COLLECTED, 0);
+        final CacheStats stats = recorder.snapshot();
+        assertEquals(3, stats.hitCount());
+        assertEquals(1, stats.missCount());
+        assertEquals(4, stats.requestCount());
+        assertEquals(0.75, stats.hitRate());
+        assertEquals(0.25, stats.missRate());
+        assertEquals(1, stats.loadSuccessCount());
+        assertEquals(1, stats.loadFailureCount());
+        assertEquals(2, stats.loadCount());
+        assertEquals(300, stats.totalLoadTime());
+        assertEquals(150.0, stats.averageLoadPenalty());
+        assertEquals(1, stats.evictionCount(EvictionCause.SIZE));
+        assertEquals(2, stats.evictionCount(EvictionCause.EXPIRED));
+        assertEquals(0, stats.reclaimedCount());
+        assertEquals(3, stats.evictionCount());
+        assertEquals(stats, recorder.snapshot());
+        assertEquals(stats.hashCode(), recorder.snapshot().hashCode());
+
+        recorder.reset();
+        assertNotEquals(stats, recorder.snapshot());
+        assertEquals(new CacheStatsRecorder().snapshot(), recorder.snapshot());
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link CaseInsensitiveHashedMap} implementation.
+ *
+ * @param <K> the key type.
+ * @param <V> the value type.
+ */
+public class CaseInsensitiveHashedMapTest<K, V> extends AbstractIterableMapTest<K, V> {
+
+//    void testCreate() throws Exception {
+//        resetEmpty();
+//        writeExternalFormToDisk((java.io.Serializable) map,
+//                "src/test/resources/org/apache/commons/collections4/data/test/CaseInsensitiveHashedMap.emptyCollection.version4.6.obj");
+//        resetFull();
+//        writeExternalFormToDisk((java.io.Serializable) map,
+//                "src/test/resources/org/apache/commons/collections4/data/test/CaseInsensitiveHashedMap.fullCollection.version4.6.obj");
+//    }
+
+    @Override
+    public String getCompatibilityVersion() {
+        return "4.6"; // CaseInsensitiveHashedMap has been added in version 4.6
+    }
+
+    @Override
+    public CaseInsensitiveHashedMap<K, V> makeObject() {
+        return new CaseInsensitiveHashedMap<>();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCaseInsensitive() {
+        final Map<K, V> map = makeObject();
+        map.put((K) "One", (V) "One");
+        map.put((K) "Two", (V) "Two");
+        assertEquals("One", map.get("one"));
+        assertEquals("One", map.get("oNe"));
+        map.put((K) "two", (V) "Three");
+        assertEquals("Three", map.get("Two"));
+        assertTrue(map.containsKey("ONE"));
+        assertFalse(map.containsKey("On"));
+        assertEquals("One", map.remove("ONE"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void testCharSequenceKeys() {
+        final CaseInsensitiveHashedMap<CharSequence, String> map = new CaseInsensitiveHashedMap<>();
+        map.put("Accept", "text/html");
+        assertEquals("text/html", map.get(new StringBuilder("ACCEPT")));
+        assertTrue(map.containsKey(new StringBuilder("accept")));
+        assertFalse(map.containsKey(new StringBuilder("accepts")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testClone() {
+        final CaseInsensitiveHashedMap<K, V> map = new CaseInsensitiveHashedMap<>(10);
+        map.put((K) "One", (V) "1");
+        final CaseInsensitiveHashedMap<K, V> cloned = map.clone();
+        assertEquals(map.size(), cloned.size());
+        assertSame(map.get("one"), cloned.get("ONE"));
+    }
+
+    @Test
+    void testFoldingMatchesCaseInsensitiveMap() {
+        final CaseInsensitiveMap<String, Integer> reference = new CaseInsensitiveMap<>();
+        final CaseInsensitiveHashedMap<String, Integer> map = new CaseInsensitiveHashedMap<>();
+        for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+            final String key = String.valueOf((char) c);
+            reference.put(key, Integer.valueOf(c));
+            map.put(key, Integer.valueOf(c));
+        }
+        assertEquals(reference.size(), map.size());
+        for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+            final String key = String.valueOf((char) c);
+            assertEquals(reference.get(key), map.get(key), key);
+        }
+    }
+
+    @Test
+    void testLocaleIndependence() {
+        final Locale orig = Locale.getDefault();
+
+        final Locale[] locales = { Locale.ENGLISH, new Locale("tr", StringUtils.EMPTY, StringUtils.EMPTY), Locale.getDefault() };
+
+        final String[][] data = {
+            { "i", "I" },
+            { "\u03C2", "\u03C3" },
+            { "\u03A3", "\u03C2" },
+            { "\u03A3", "\u03C3" },
+        };
+
+        try {
+            for (final Locale locale : locales) {
+                Locale.setDefault(locale);
+                for (int j = 0; j < data.length; j++) {
+                    assertTrue(data[j][0].equalsIgnoreCase(data[j][1]), "Test data corrupt: " + j);
+                    final CaseInsensitiveHashedMap<String, String> map = new CaseInsensitiveHashedMap<>();
+                    map.put(data[j][0], "value");
+                    assertEquals("value", map.get(data[j][1]), Locale.getDefault() + ": " + j);
+                }
+            }
+        } finally {
+            Locale.setDefault(orig);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testNullHandling() {
+        final Map<K, V> map = makeObject();
+        map.put((K) "One", (V) "One");
+        map.put((K) "Two", (V) "Two");
+        map.put(null, (V) "Three");
+        assertEquals("Three", map.get(null));
+        map.put(null, (V) "Four");
+        assertEquals("Four", map.get(null));
+        final Set<K> keys = map.keySet();
+        assertTrue(keys.contains("one"));
+        assertTrue(keys.contains("two"));
+        assertTrue(keys.contains(null));
+        assertEquals(3, keys.size());
+    }
+
+    @Test
+    void testPreservesKeyCase() {
+        final CaseInsensitiveHashedMap<String, String> map = new CaseInsensitiveHashedMap<>();
+        map.put("Content-Type", "text/plain");
+        map.put("content-type", "text/html");
+        map.put("X-Request-ID", "1");
+        assertEquals(2, map.size());
+        assertEquals(new HashSet<>(Arrays.asList("Content-Type", "X-Request-ID")), new HashSet<>(map.keySet()));
+        assertEquals("text/html", map.get("CONTENT-TYPE"));
+    }
+
+    @Test
+    void testPutAll() {
+        final Map<Object, String> map = new LinkedHashMap<>();
+        map.put("One", "One");
+        map.put("Two", "Two");
+        map.put("one", "Three");
+        map.put(null, "Four");
+        map.put(Integer.valueOf(20), "Five");
+        final Map<Object, String> caseInsensitiveMap = new CaseInsensitiveHashedMap<>(map);
+        assertEquals(4, caseInsensitiveMap.size()); // ones collapsed
+        final Set<Object> keys = caseInsensitiveMap.keySet();
+        assertTrue(keys.contains("One"));
+        assertTrue(keys.contains("Two"));
+        assertTrue(keys.contains(null));
+        assertTrue(keys.contains(Integer.valueOf(20)));
+        assertEquals(4, keys.size());
+        assertEquals("Three", caseInsensitiveMap.get("ONE"));
+        assertEquals("Five", caseInsensitiveMap.get("20"));
+        assertEquals("Four", caseInsensitiveMap.get(null));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the lookups of {@link CaseInsensitiveMap} and {@link CaseInsensitiveHashedMap} on a map of HTTP headers.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark -Dbenchmark=CaseInsensitiveMapBenchmark}, and add {@code -prof gc} to the JMH
+ * arguments to see the allocation rate.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CaseInsensitiveMapBenchmark {
+
+    private static final String[] HEADERS = { "Accept", "Accept-Encoding", "Accept-Language", "Authorization", "Cache-Control",
+        "Connection", "Content-Length", "Content-Type", "Cookie", "Host", "If-Modified-Since", "If-None-Match", "Origin",
+        "Pragma", "Referer", "User-Agent", "X-Forwarded-For", "X-Forwarded-Proto", "X-Request-ID", "X-Requested-With" };
+
+    @Param({ "CaseInsensitiveMap", "CaseInsensitiveHashedMap" })
+    public String implementation;
+
+    private Map<String, String> map;
+
+    private String[] lookups;
+
+    private String[] misses;
+
+    @Benchmark
+    public void containsKeyMiss(final Blackhole blackhole) {
+        for (final String key : misses) {
+            blackhole.consume(map.containsKey(key));
+        }
+    }
+
+    @Benchmark
+    public void getHit(final Blackhole blackhole) {
+        for (final String key : lookups) {
+            blackhole.consume(map.get(key));
+        }
+    }
+
+    @Benchmark
+    public void put(final Blackhole blackhole) {
+        for (final String key : lookups) {
+            blackhole.consume(map.put(key, key));
+        }
+    }
+
+    @Setup
+    public void setup() {
+        map = "CaseInsensitiveMap".equals(implementation) ? new CaseInsensitiveMap<>() : new CaseInsensitiveHashedMap<>();
+        lookups = new String[HEADERS.length];
+        misses = new String[HEADERS.length];
+        for (int i = 0; i < HEADERS.length; i++) {
+            map.put(HEADERS[i], HEADERS[i]);
+            // lookups use a different case than the stored keys, as parsed headers do
+            lookups[i] = i % 2 == 0 ? HEADERS[i].toLowerCase(Locale.ROOT) : HEADERS[i].toUpperCase(Locale.ROOT);
+            misses[i] = "X-Missing-" + HEADERS[i];
+        }
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Map;
+
+import org.apache.commons.collections4.MapIterator;
+import org.apache.commons.collections4.keyvalue.MultiKey;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests.
+ *
+ * @param <K> the key type.
+ * @param <V> the value type.
+ */
+public class CompactMultiKeyMapTest<K, V> extends AbstractIterableMapTest<MultiKey<? extends K>, V> {
+
+    static final Integer I1 = Integer.valueOf(1);
+    static final Integer I2 = Integer.valueOf(2);
+    static final Integer I3 = Integer.valueOf(3);
+    static final Integer I4 = Integer.valueOf(4);
+    static final Integer I5 = Integer.valueOf(5);
+    static final Integer I6 = Integer.valueOf(6);
+    static final Integer I7 = Integer.valueOf(7);
+    static final Integer I8 = Integer.valueOf(8);
+
+    @Override
+    public String getCompatibilityVersion() {
+        // CompactMultiKeyMap has been added in version 4.6
+        return "4.6";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompactMultiKeyMap<K, V> getMap() {
+        return (CompactMultiKeyMap<K, V>) super.getMap();
+    }
+
+    @SuppressWarnings("unchecked")
+    private MultiKey<K>[] getMultiKeyKeys() {
+        return new MultiKey[] {
+            new MultiKey<>(I1, I2),
+            new MultiKey<>(I2, I3),
+            new MultiKey<>(I3, I4),
+            new MultiKey<>(I1, I1, I2),
+            new MultiKey<>(I2, I3, I4),
+            new MultiKey<>(I3, I7, I6),
+            new MultiKey<>(I1, I1, I2, I3),
+            new MultiKey<>(I2, I4, I5, I6),
+            new MultiKey<>(I3, I6, I7, I8),
+            new MultiKey<>(I1, I1, I2, I3, I4),
+            new MultiKey<>(I2, I3, I4, I5, I6),
+            new MultiKey<>(I3, I5, I6, I7, I8),
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V[] getNewSampleValues() {
+        return (V[]) new Object[] {
+            "1a", "1b", "1c",
+            "2d", "2e", "2f",
+            "3g", "3h", "3i",
+            "4j", "4k", "4l",
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public MultiKey<K>[] getOtherKeys() {
+        return new MultiKey[] {
+            new MultiKey<>(I1, I7),
+            new MultiKey<>(I1, I8),
+            new MultiKey<>(I2, I4),
+            new MultiKey<>(I2, I5),
+        };
+    }
+
+    @Override
+    public MultiKey<K>[] getSampleKeys() {
+        return getMultiKeyKeys();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V[] getSampleValues() {
+        return (V[]) new Object[] {
+            "2A", "2B", "2C",
+            "3D", "3E", "3F",
+            "4G", "4H", "4I",
+            "5J", "5K", "5L",
+        };
+    }
+
+    @Override
+    public boolean isAllowNullKey() {
+        return false;
+    }
+
+    @Override
+    public CompactMultiKeyMap<K, V> makeObject() {
+        return new CompactMultiKeyMap<>();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testClone() {
+        final CompactMultiKeyMap<K, V> map = new CompactMultiKeyMap<>();
+        map.put(new MultiKey<>((K) I1, (K) I2), (V) "1-2");
+        final Map<MultiKey<? extends K>, V> cloned = map.clone();
+        assertEquals(map.size(), cloned.size());
+        assertSame(map.get(new MultiKey<>((K) I1, (K) I2)), cloned.get(new MultiKey<>((K) I1, (K) I2)));
+    }
+
+//    void testCreate() throws Exception {
+//        resetEmpty();
+//        writeExternalFormToDisk(
+//            (java.io.Serializable) map,
+//            "src/test/resources/data/test/CompactMultiKeyMap.emptyCollection.version4.6.obj");
+//        resetFull();
+//        writeExternalFormToDisk(
+//            (java.io.Serializable) map,
+//            "src/test/resources/data/test/CompactMultiKeyMap.fullCollection.version4.6.obj");
+//    }
+
+    @Test
+    void testInvalidKeySize() {
+        final CompactMultiKeyMap<Integer, String> map = new CompactMultiKeyMap<>();
+        assertThrows(IllegalArgumentException.class, () -> map.put(new MultiKey<>(new Integer[] { I1 }), "1"));
+        assertThrows(IllegalArgumentException.class, () -> map.put(new MultiKey<>(new Integer[] { I1, I2, I3, I4, I5, I6 }), "6"));
+        assertTrue(map.isEmpty());
+        assertNull(map.get(new MultiKey<>(new Integer[] { I1 })));
+        assertFalse(map.containsKey(new MultiKey<>(new Integer[] { I1, I2, I3, I4, I5, I6 })));
+        assertNull(map.remove(new MultiKey<>(new Integer[] { I1 })));
+    }
+
+    @Test
+    void testKeysCreatedOnDemand() {
+        final CompactMultiKeyMap<Integer, String> map = new CompactMultiKeyMap<>();
+        map.put(I1, I2, I3, "1-2-3");
+        final Map.Entry<MultiKey<? extends Integer>, String> entry = map.entrySet().iterator().next();
+        final MultiKey<? extends Integer> key = entry.getKey();
+        assertEquals(new MultiKey<>(I1, I2, I3), key);
+        assertEquals(key, entry.getKey());
+        assertNotSame(key, entry.getKey());
+        assertEquals(key.hashCode() ^ "1-2-3".hashCode(), entry.hashCode());
+        assertEquals(new MultiKey<>(I1, I2, I3), map.keySet().iterator().next());
+        assertEquals(new MultiKey<>(I1, I2, I3), map.mapIterator().next());
+    }
+
+    @Test
+    void testKeyOrderMatters() {
+        final CompactMultiKeyMap<Integer, String> map = new CompactMultiKeyMap<>();
+        map.put(I1, I2, "1-2");
+        map.put(I2, I1, "2-1");
+        assertEquals(2, map.size());
+        assertEquals("1-2", map.get(I1, I2));
+        assertEquals("2-1", map.get(I2, I1));
+        assertNotEquals(map.hash(I1, I2), map.hash(I2, I1));
+        assertNull(map.get(I1, I2, null));
+    }
+
+    @Test
+    void testMultiKeyContainsKey() {
+        resetFull();
+        final CompactMultiKeyMap<K, V> multimap = getMap();
+        final MultiKey<K>[] keys = getMultiKeyKeys();
+
+        for (final MultiKey<K> key : keys) {
+            switch (key.size()) {
+            case 2:
+                assertTrue(multimap.containsKey(key.getKey(0), key.getKey(1)));
+                assertFalse(multimap.containsKey(null, key.getKey(1)));
+                assertFalse(multimap.containsKey(key.getKey(0), null));
+                assertFalse(multimap.containsKey(key.getKey(0), key.getKey(1), null));
+                break;
+            case 3:
+                assertTrue(multimap.containsKey(key.getKey(0), key.getKey(1), key.getKey(2)));
+                assertFalse(multimap.containsKey(key.getKey(0), key.getKey(1), null));
+                assertFalse(multimap.containsKey(key.getKey(0), key.getKey(1), key.getKey(2), null));
+                break;
+            case 4:
+                assertTrue(multimap.containsKey(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3)));
+                assertFalse(multimap.containsKey(key.getKey(0), key.getKey(1), key.getKey(2), null));
+                assertFalse(multimap.containsKey(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3), null));
+                break;
+            case 5:
+                assertTrue(multimap.containsKey(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3), key.getKey(4)));
+                assertFalse(multimap.containsKey(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3), null));
+                assertFalse(multimap.containsKey(null, null, null, null, null));
+                break;
+            default:
+                fail("Invalid key size");
+            }
+            assertTrue(multimap.containsKey(key));
+        }
+    }
+
+    @Test
+    void testMultiKeyGet() {
+        resetFull();
+        final CompactMultiKeyMap<K, V> multimap = getMap();
+        final MultiKey<K>[] keys = getMultiKeyKeys();
+        final V[] values = getSampleValues();
+
+        for (int i = 0; i < keys.length; i++) {
+            final MultiKey<K> key = keys[i];
+            final V value = values[i];
+
+            switch (key.size()) {
+            case 2:
+                assertEquals(value, multimap.get(key.getKey(0), key.getKey(1)));
+                assertNull(multimap.get(null, key.getKey(1)));
+                assertNull(multimap.get(key.getKey(0), key.getKey(1), null));
+                break;
+            case 3:
+                assertEquals(value, multimap.get(key.getKey(0), key.getKey(1), key.getKey(2)));
+                assertNull(multimap.get(null, key.getKey(1), key.getKey(2)));
+                assertNull(multimap.get(key.getKey(0), key.getKey(1), key.getKey(2), null));
+                break;
+            case 4:
+                assertEquals(value, multimap.get(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3)));
+                assertNull(multimap.get(null, key.getKey(1), key.getKey(2), key.getKey(3)));
+                assertNull(multimap.get(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3), null));
+                break;
+            case 5:
+                assertEquals(value, multimap.get(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3), key.getKey(4)));
+                assertNull(multimap.get(null, key.getKey(1), key.getKey(2), key.getKey(3), key.getKey(4)));
+                break;
+            default:
+                fail("Invalid key size");
+            }
+            assertEquals(value, multimap.get(key));
+        }
+    }
+
+    @Test
+    void testMultiKeyPutWithNullKey() {
+        final CompactMultiKeyMap<String, String> map = new CompactMultiKeyMap<>();
+        map.put("a", null, "value1");
+        map.put("b", null, "value2");
+        map.put("c", null, "value3");
+        map.put("a", "z",  "value4");
+        map.put("a", null, "value5");
+        map.put(null, "a", "value6");
+        map.put(null, null, "value7");
+
+        assertEquals(6, map.size());
+        assertEquals("value5", map.get("a", null));
+        assertEquals("value4", map.get("a", "z"));
+        assertEquals("value6", map.get(null, "a"));
+        assertEquals("value7", map.get(new MultiKey<>(null, null)));
+    }
+
+    @Test
+    void testMultiKeyRemove() {
+        final MultiKey<K>[] keys = getMultiKeyKeys();
+        final V[] values = getSampleValues();
+
+        for (int i = 0; i < keys.length; i++) {
+            resetFull();
+            final CompactMultiKeyMap<K, V> multimap = getMap();
+            final int size = multimap.size();
+
+            final MultiKey<K> key = keys[i];
+            final V value = values[i];
+
+            switch (key.size()) {
+            case 2:
+                assertEquals(value, multimap.removeMultiKey(key.getKey(0), key.getKey(1)));
+                assertNull(multimap.removeMultiKey(key.getKey(0), key.getKey(1)));
+                break;
+            case 3:
+                assertEquals(value, multimap.removeMultiKey(key.getKey(0), key.getKey(1), key.getKey(2)));
+                assertNull(multimap.removeMultiKey(key.getKey(0), key.getKey(1), key.getKey(2)));
+                break;
+            case 4:
+                assertEquals(value, multimap.removeMultiKey(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3)));
+                assertNull(multimap.removeMultiKey(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3)));
+                break;
+            case 5:
+                assertEquals(value, multimap.removeMultiKey(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3), key.getKey(4)));
+                assertNull(multimap.removeMultiKey(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3), key.getKey(4)));
+                break;
+            default:
+                fail("Invalid key size");
+            }
+            assertFalse(multimap.containsKey(key));
+            assertEquals(size - 1, multimap.size());
+        }
+    }
+
+    @Test
+    void testMultiKeyRemoveAll1() {
+        resetFull();
+        final CompactMultiKeyMap<K, V> multimap = getMap();
+        assertEquals(12, multimap.size());
+
+        assertTrue(multimap.removeAll(I1));
+        assertEquals(8, multimap.size());
+        for (final MapIterator<MultiKey<? extends K>, V> it = multimap.mapIterator(); it.hasNext();) {
+            final MultiKey<? extends K> key = it.next();
+            assertFalse(I1.equals(key.getKey(0)));
+        }
+        assertFalse(multimap.removeAll(I1));
+        assertFalse(multimap.removeAll(new Object()));
+    }
+
+    @Test
+    void testMultiKeyRemoveAll2() {
+        resetFull();
+        final CompactMultiKeyMap<K, V> multimap = getMap();
+
+        assertTrue(multimap.removeAll(I2, I3));
+        assertEquals(9, multimap.size());
+        for (final MapIterator<MultiKey<? extends K>, V> it = multimap.mapIterator(); it.hasNext();) {
+            final MultiKey<? extends K> key = it.next();
+            assertFalse(I2.equals(key.getKey(0)) && I3.equals(key.getKey(1)));
+        }
+    }
+
+    @Test
+    void testMultiKeyRemoveAll3() {
+        resetFull();
+        final CompactMultiKeyMap<K, V> multimap = getMap();
+
+        assertTrue(multimap.removeAll(I1, I1, I2));
+        assertEquals(9, multimap.size());
+        for (final MapIterator<MultiKey<? extends K>, V> it = multimap.mapIterator(); it.hasNext();) {
+            final MultiKey<? extends K> key = it.next();
+            assertFalse(I1.equals(key.getKey(0)) && I1.equals(key.getKey(1)) && I2.equals(key.getKey(2)));
+        }
+    }
+
+    @Test
+    void testMultiKeyRemoveAll4() {
+        resetFull();
+        final CompactMultiKeyMap<K, V> multimap = getMap();
+
+        assertTrue(multimap.removeAll(I1, I1, I2, I3));
+        assertEquals(10, multimap.size());
+        for (final MapIterator<MultiKey<? extends K>, V> it = multimap.mapIterator(); it.hasNext();) {
+            final MultiKey<? extends K> key = it.next();
+            assertFalse(I1.equals(key.getKey(0)) && I1.equals(key.getKey(1)) && I2.equals(key.getKey(2)) && key.size() >= 4 && I3.equals(key.getKey(3)));
+        }
+    }
+
+    @Test
+    void testMultiKeyRemoveAllManyEntries() {
+        final CompactMultiKeyMap<Integer, Integer> map = new CompactMultiKeyMap<>();
+        for (int i = 0; i < 1000; i++) {
+            map.put(i % 10, i, i);
+        }
+        assertTrue(map.removeAll(3));
+        assertEquals(900, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 10 != 3, map.containsKey(i % 10, i));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testNullHandling() {
+        resetFull();
+        assertNull(map.get(null));
+        assertFalse(map.containsKey(null));
+        assertFalse(map.containsValue(null));
+        assertNull(map.remove(null));
+        assertFalse(map.entrySet().contains(null));
+
+        assertThrows(NullPointerException.class, () -> map.put(null, null));
+
+        assertNull(map.put(new MultiKey<>(null, null), null));
+
+        assertThrows(NullPointerException.class, () -> map.put(null, (V) new Object()));
+    }
+
+}
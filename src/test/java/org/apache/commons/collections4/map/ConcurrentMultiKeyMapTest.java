@@ -0,0 +1,433 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.collections4.collection.AbstractCollectionTest;
+import org.apache.commons.collections4.keyvalue.MultiKey;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests.
+ *
+ * @param <K> the key type.
+ * @param <V> the value type.
+ */
+public class ConcurrentMultiKeyMapTest<K, V> extends AbstractMapTest<ConcurrentMultiKeyMap<K, V>, MultiKey<? extends K>, V> {
+
+    static final Integer I1 = Integer.valueOf(1);
+    static final Integer I2 = Integer.valueOf(2);
+    static final Integer I3 = Integer.valueOf(3);
+    static final Integer I4 = Integer.valueOf(4);
+    static final Integer I5 = Integer.valueOf(5);
+    static final Integer I6 = Integer.valueOf(6);
+    static final Integer I7 = Integer.valueOf(7);
+    static final Integer I8 = Integer.valueOf(8);
+
+//    void testCreate() throws Exception {
+//        writeExternalFormToDisk((java.io.Serializable) makeObject(),
+//                "src/test/resources/org/apache/commons/collections4/data/test/ConcurrentMultiKeyMap.emptyCollection.version4.6.obj");
+//
+//        writeExternalFormToDisk((java.io.Serializable) makeFullMap(),
+//                "src/test/resources/org/apache/commons/collections4/data/test/ConcurrentMultiKeyMap.fullCollection.version4.6.obj");
+//    }
+
+    @Override
+    public String getCompatibilityVersion() {
+        return "4.6"; // ConcurrentMultiKeyMap has been added in version 4.6
+    }
+
+    @Override
+    protected int getIterationBehaviour() {
+        return AbstractCollectionTest.UNORDERED;
+    }
+
+    @SuppressWarnings("unchecked")
+    private MultiKey<K>[] getMultiKeyKeys() {
+        return new MultiKey[] {
+            new MultiKey<>(I1, I2),
+            new MultiKey<>(I2, I3),
+            new MultiKey<>(I3, I4),
+            new MultiKey<>(I1, I1, I2),
+            new MultiKey<>(I2, I3, I4),
+            new MultiKey<>(I3, I7, I6),
+            new MultiKey<>(I1, I1, I2, I3),
+            new MultiKey<>(I2, I4, I5, I6),
+            new MultiKey<>(I3, I6, I7, I8),
+            new MultiKey<>(I1, I1, I2, I3, I4),
+            new MultiKey<>(I2, I3, I4, I5, I6),
+            new MultiKey<>(I3, I5, I6, I7, I8),
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V[] getNewSampleValues() {
+        return (V[]) new Object[] {
+            "1a", "1b", "1c",
+            "2d", "2e", "2f",
+            "3g", "3h", "3i",
+            "4j", "4k", "4l",
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public MultiKey<K>[] getOtherKeys() {
+        return new MultiKey[] {
+            new MultiKey<>(I1, I7),
+            new MultiKey<>(I1, I8),
+            new MultiKey<>(I2, I4),
+            new MultiKey<>(I2, I5),
+        };
+    }
+
+    @Override
+    public MultiKey<K>[] getSampleKeys() {
+        return getMultiKeyKeys();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V[] getSampleValues() {
+        return (V[]) new Object[] {
+            "2A", "2B", "2C",
+            "3D", "3E", "3F",
+            "4G", "4H", "4I",
+            "5J", "5K", "5L",
+        };
+    }
+
+    @Override
+    public boolean isAllowNullKey() {
+        return false;
+    }
+
+    @Override
+    public boolean isAllowNullValueGet() {
+        return false;
+    }
+
+    @Override
+    public boolean isAllowNullValuePut() {
+        return false;
+    }
+
+    @Override
+    public boolean isFailFastExpected() {
+        return false;
+    }
+
+    @Override
+    public ConcurrentMultiKeyMap<K, V> makeObject() {
+        return new ConcurrentMultiKeyMap<>();
+    }
+
+    @Test
+    void testConcurrentRemoveAllDoesNotBlockReaders() throws Exception {
+        final ConcurrentMultiKeyMap<Integer, Integer> map = new ConcurrentMultiKeyMap<>();
+        final int tenants = 8;
+        final int rows = 2000;
+        for (int tenant = 0; tenant < tenants; tenant++) {
+            for (int row = 0; row < rows; row++) {
+                map.put(tenant, row, row);
+            }
+        }
+        final AtomicBoolean done = new AtomicBoolean();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Integer>> readers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                readers.add(executor.submit(() -> {
+                    start.await();
+                    int errors = 0;
+                    do {
+                        // tenant 1 is never removed and must always be visible
+                        for (int row = 0; row < rows; row++) {
+                            final Integer value = map.get(1, row);
+                            if (value == null || value.intValue() != row) {
+                                errors++;
+                            }
+                        }
+                    } while (!done.get());
+                    return errors;
+                }));
+            }
+            final Future<?> writer = executor.submit(() -> {
+                start.await();
+                for (int tenant = 2; tenant < tenants; tenant++) {
+                    assertTrue(map.removeAll(tenant));
+                }
+                return null;
+            });
+            start.countDown();
+            writer.get();
+            done.set(true);
+            for (final Future<Integer> reader : readers) {
+                assertEquals(0, reader.get().intValue());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2 * rows, map.size());
+        assertFalse(map.containsKey(2, 0));
+        assertTrue(map.containsKey(0, rows - 1));
+    }
+
+    @Test
+    void testConcurrentPuts() throws Exception {
+        final ConcurrentMultiKeyMap<Integer, Integer> map = new ConcurrentMultiKeyMap<>(0, 0.75f, 4);
+        final int threads = 8;
+        final int count = 5000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < count; i++) {
+                        map.put(thread, i, i, thread);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * count, map.size());
+        for (int t = 0; t < threads; t++) {
+            for (int i = 0; i < count; i++) {
+                assertEquals(Integer.valueOf(t), map.get(t, i, i));
+            }
+        }
+    }
+
+    @Test
+    void testConstructors() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentMultiKeyMap<>(-1));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentMultiKeyMap<>(16, 0f, 16));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentMultiKeyMap<>(16, 0.75f, 0));
+        assertThrows(NullPointerException.class, () -> new ConcurrentMultiKeyMap<>(null));
+    }
+
+    @Test
+    void testInvalidKeySize() {
+        final ConcurrentMultiKeyMap<Integer, String> map = new ConcurrentMultiKeyMap<>();
+        assertThrows(IllegalArgumentException.class, () -> map.put(new MultiKey<>(new Integer[] { I1 }), "1"));
+        assertThrows(IllegalArgumentException.class, () -> map.put(new MultiKey<>(new Integer[] { I1, I2, I3, I4, I5, I6 }), "6"));
+        assertTrue(map.isEmpty());
+        assertNull(map.get(new MultiKey<>(new Integer[] { I1 })));
+        assertNull(map.remove(new MultiKey<>(new Integer[] { I1 })));
+    }
+
+    @Test
+    void testIteratorRemove() {
+        final ConcurrentMultiKeyMap<Integer, String> map = new ConcurrentMultiKeyMap<>();
+        map.put(I1, I2, "1-2");
+        map.put(I1, I2, I3, "1-2-3");
+        map.put(I2, I3, I4, I5, I6, "2-3-4-5-6");
+        for (final Iterator<MultiKey<? extends Integer>> it = map.keySet().iterator(); it.hasNext();) {
+            if (it.next().size() != 3) {
+                it.remove();
+            }
+        }
+        assertEquals(1, map.size());
+        assertEquals("1-2-3", map.get(I1, I2, I3));
+    }
+
+    @Test
+    void testMultiKeyGetAndContainsKey() {
+        resetFull();
+        final ConcurrentMultiKeyMap<K, V> multimap = getMap();
+        final MultiKey<K>[] keys = getMultiKeyKeys();
+        final V[] values = getSampleValues();
+
+        for (int i = 0; i < keys.length; i++) {
+            final MultiKey<K> key = keys[i];
+            final V value = values[i];
+
+            switch (key.size()) {
+            case 2:
+                assertEquals(value, multimap.get(key.getKey(0), key.getKey(1)));
+                assertTrue(multimap.containsKey(key.getKey(0), key.getKey(1)));
+                assertFalse(multimap.containsKey(key.getKey(0), key.getKey(1), null));
+                break;
+            case 3:
+                assertEquals(value, multimap.get(key.getKey(0), key.getKey(1), key.getKey(2)));
+                assertTrue(multimap.containsKey(key.getKey(0), key.getKey(1), key.getKey(2)));
+                assertFalse(multimap.containsKey(key.getKey(0), key.getKey(1), key.getKey(2), null));
+                break;
+            case 4:
+                assertEquals(value, multimap.get(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3)));
+                assertTrue(multimap.containsKey(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3)));
+                assertFalse(multimap.containsKey(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3), null));
+                break;
+            case 5:
+                assertEquals(value, multimap.get(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3), key.getKey(4)));
+                assertTrue(multimap.containsKey(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3), key.getKey(4)));
+                assertFalse(multimap.containsKey(null, key.getKey(1), key.getKey(2), key.getKey(3), key.getKey(4)));
+                break;
+            default:
+                fail("Invalid key size");
+            }
+            assertEquals(value, multimap.get(key));
+        }
+    }
+
+    @Test
+    void testMultiKeyPutAndRemove() {
+        final MultiKey<K>[] keys = getMultiKeyKeys();
+        final V[] values = getSampleValues();
+
+        for (int i = 0; i < keys.length; i++) {
+            final ConcurrentMultiKeyMap<K, V> multimap = new ConcurrentMultiKeyMap<>();
+            final MultiKey<K> key = keys[i];
+            final V value = values[i];
+
+            switch (key.size()) {
+            case 2:
+                assertNull(multimap.put(key.getKey(0), key.getKey(1), value));
+                assertEquals(value, multimap.put(key.getKey(0), key.getKey(1), value));
+                assertEquals(value, multimap.removeMultiKey(key.getKey(0), key.getKey(1)));
+                break;
+            case 3:
+                assertNull(multimap.put(key.getKey(0), key.getKey(1), key.getKey(2), value));
+                assertEquals(value, multimap.put(key.getKey(0), key.getKey(1), key.getKey(2), value));
+                assertEquals(value, multimap.removeMultiKey(key.getKey(0), key.getKey(1), key.getKey(2)));
+                break;
+            case 4:
+                assertNull(multimap.put(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3), value));
+                assertEquals(value, multimap.put(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3), value));
+                assertEquals(value, multimap.removeMultiKey(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3)));
+                break;
+            case 5:
+                assertNull(multimap.put(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3), key.getKey(4), value));
+                assertEquals(value, multimap.put(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3), key.getKey(4), value));
+                assertEquals(value, multimap.removeMultiKey(key.getKey(0), key.getKey(1), key.getKey(2), key.getKey(3), key.getKey(4)));
+                break;
+            default:
+                fail("Invalid key size");
+            }
+            assertTrue(multimap.isEmpty());
+            assertNull(multimap.put(key, value));
+            assertEquals(1, multimap.size());
+            assertTrue(multimap.containsKey(key));
+        }
+    }
+
+    @Test
+    void testMultiKeyPutWithNullKey() {
+        final ConcurrentMultiKeyMap<String, String> map = new ConcurrentMultiKeyMap<>();
+        map.put("a", null, "value1");
+        map.put("b", null, "value2");
+        map.put("a", "z", "value4");
+        map.put("a", null, "value5");
+        map.put(null, null, "value7");
+
+        assertEquals(4, map.size());
+        assertEquals("value5", map.get("a", null));
+        assertEquals("value4", map.get("a", "z"));
+        assertEquals("value7", map.get(new MultiKey<>(null, null)));
+        assertThrows(NullPointerException.class, () -> map.put("a", "b", null));
+    }
+
+    @Test
+    void testMultiKeyRemoveAll() {
+        resetFull();
+        final ConcurrentMultiKeyMap<K, V> multimap = getMap();
+        assertEquals(12, multimap.size());
+
+        assertTrue(multimap.removeAll(I1, I1, I2, I3));
+        assertEquals(10, multimap.size());
+        assertTrue(multimap.removeAll(I1, I1, I2));
+        assertEquals(9, multimap.size());
+        assertTrue(multimap.removeAll(I2, I3));
+        assertEquals(6, multimap.size());
+        assertTrue(multimap.removeAll(I1));
+        assertEquals(5, multimap.size());
+        assertFalse(multimap.removeAll(I1));
+        for (final MultiKey<? extends K> key : multimap.keySet()) {
+            assertFalse(I1.equals(key.getKey(0)));
+            assertFalse(I2.equals(key.getKey(0)) && I3.equals(key.getKey(1)));
+        }
+    }
+
+    @Test
+    void testMultiKeyRemoveAllManyEntries() {
+        final ConcurrentMultiKeyMap<Integer, Integer> map = new ConcurrentMultiKeyMap<>();
+        for (int i = 0; i < 1000; i++) {
+            map.put(i % 10, i, i);
+        }
+        assertTrue(map.removeAll(3));
+        assertEquals(900, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 10 != 3, map.containsKey(i % 10, i));
+        }
+    }
+
+    @Test
+    void testPutIfAbsentAndReplace() {
+        final ConcurrentMultiKeyMap<Integer, String> map = new ConcurrentMultiKeyMap<>();
+        final MultiKey<Integer> key = new MultiKey<>(I1, I2, I3);
+        assertNull(map.putIfAbsent(key, "a"));
+        assertEquals("a", map.putIfAbsent(key, "b"));
+        assertEquals("a", map.replace(key, "c"));
+        assertFalse(map.replace(key, "a", "d"));
+        assertTrue(map.replace(key, "c", "d"));
+        assertEquals("d", map.get(I1, I2, I3));
+        assertNull(map.replace(new MultiKey<>(I1, I2), "e"));
+        assertFalse(map.remove(key, "c"));
+        assertTrue(map.remove(key, "d"));
+        assertEquals("f", map.computeIfAbsent(key, k -> "f"));
+        assertEquals("f", map.get(I1, I2, I3));
+    }
+
+    @Test
+    void testSerializationRoundTrip() throws Exception {
+        final ConcurrentMultiKeyMap<Integer, String> map = new ConcurrentMultiKeyMap<>();
+        map.put(I1, I2, "1-2");
+        map.put(I1, null, I3, "1-null-3");
+        @SuppressWarnings("unchecked")
+        final Map<MultiKey<? extends Integer>, String> copy = (Map<MultiKey<? extends Integer>, String>) serializeDeserialize(map);
+        assertEquals(map, copy);
+        assertEquals("1-null-3", ((ConcurrentMultiKeyMap<Integer, String>) copy).get(I1, null, I3));
+    }
+
+}
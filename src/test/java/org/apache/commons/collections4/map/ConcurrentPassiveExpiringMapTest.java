@@ -0,0 +1,323 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.collections4.collection.AbstractCollectionTest;
+import org.apache.commons.collections4.map.PassiveExpiringMap.ExpirationPolicy;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests.
+ *
+ * @param <K> the key type.
+ * @param <V> the value type.
+ */
+public class ConcurrentPassiveExpiringMapTest<K, V> extends AbstractMapTest<ConcurrentPassiveExpiringMap<K, V>, K, V> {
+
+    private static final class TestExpirationPolicy
+        implements ExpirationPolicy<Integer, String> {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public long expirationTime(final Integer key, final String value) {
+            // odd keys expire immediately, even keys never expire
+            if (key.intValue() % 2 == 0) {
+                return -1;
+            }
+
+            return 0;
+        }
+    }
+
+//    void testCreate() throws Exception {
+//        writeExternalFormToDisk((java.io.Serializable) makeObject(),
+//                "src/test/resources/org/apache/commons/collections4/data/test/ConcurrentPassiveExpiringMap.emptyCollection.version4.6.obj");
+//
+//        writeExternalFormToDisk((java.io.Serializable) makeFullMap(),
+//                "src/test/resources/org/apache/commons/collections4/data/test/ConcurrentPassiveExpiringMap.fullCollection.version4.6.obj");
+//    }
+
+    @Override
+    public String getCompatibilityVersion() {
+        return "4.6"; // ConcurrentPassiveExpiringMap has been added in version 4.6
+    }
+
+    @Override
+    protected int getIterationBehaviour() {
+        return AbstractCollectionTest.UNORDERED;
+    }
+
+    @Override
+    public boolean isAllowNullKey() {
+        return false;
+    }
+
+    @Override
+    public boolean isAllowNullValueGet() {
+        return false;
+    }
+
+    @Override
+    public boolean isAllowNullValuePut() {
+        return false;
+    }
+
+    @Override
+    public boolean isFailFastExpected() {
+        return false;
+    }
+
+    @Override
+    public ConcurrentPassiveExpiringMap<K, V> makeObject() {
+        return new ConcurrentPassiveExpiringMap<>();
+    }
+
+    private ConcurrentMap<Integer, String> makeTestMap() {
+        final ConcurrentMap<Integer, String> m =
+                new ConcurrentPassiveExpiringMap<>(new TestExpirationPolicy());
+        m.put(Integer.valueOf(1), "one");
+        m.put(Integer.valueOf(2), "two");
+        m.put(Integer.valueOf(3), "three");
+        m.put(Integer.valueOf(4), "four");
+        m.put(Integer.valueOf(5), "five");
+        m.put(Integer.valueOf(6), "six");
+        return m;
+    }
+
+    @Test
+    void testComputeIfAbsent() {
+        final ConcurrentMap<Integer, String> m = makeTestMap();
+        // expired mappings are recomputed
+        assertEquals("ONE", m.computeIfAbsent(Integer.valueOf(1), k -> "ONE"));
+        // live mappings are kept
+        assertEquals("two", m.computeIfAbsent(Integer.valueOf(2), k -> "TWO"));
+        assertEquals("eight", m.computeIfAbsent(Integer.valueOf(8), k -> "eight"));
+        assertEquals("eight", m.get(Integer.valueOf(8)));
+        assertNull(m.computeIfAbsent(Integer.valueOf(10), k -> null));
+        assertFalse(m.containsKey(Integer.valueOf(10)));
+    }
+
+    @Test
+    void testComputeIfAbsentIsAtomic() throws Exception {
+        final ConcurrentPassiveExpiringMap<String, Integer> m = new ConcurrentPassiveExpiringMap<>(1, TimeUnit.HOURS);
+        final AtomicInteger calls = new AtomicInteger();
+        final int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return m.computeIfAbsent("key", k -> calls.incrementAndGet());
+                }));
+            }
+            start.countDown();
+            for (final Future<Integer> future : futures) {
+                assertEquals(Integer.valueOf(1), future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testComputeIfPresent() {
+        final ConcurrentMap<Integer, String> m = makeTestMap();
+        assertNull(m.computeIfPresent(Integer.valueOf(1), (k, v) -> "ONE"));
+        assertEquals("TWO", m.computeIfPresent(Integer.valueOf(2), (k, v) -> "TWO"));
+        assertNull(m.computeIfPresent(Integer.valueOf(4), (k, v) -> null));
+        assertFalse(m.containsKey(Integer.valueOf(4)));
+    }
+
+    @Test
+    void testConstructors() {
+        assertThrows(NullPointerException.class, () -> {
+            final ExpirationPolicy<String, String> policy = null;
+            new ConcurrentPassiveExpiringMap<>(policy);
+        });
+        assertThrows(NullPointerException.class, () -> {
+            final TimeUnit unit = null;
+            new ConcurrentPassiveExpiringMap<String, String>(10L, unit);
+        });
+        assertThrows(NullPointerException.class, () -> {
+            final Map<Integer, String> map = null;
+            new ConcurrentPassiveExpiringMap<>(new TestExpirationPolicy(), map);
+        });
+    }
+
+    @Test
+    void testContainsKey() {
+        final Map<Integer, String> m = makeTestMap();
+        assertFalse(m.containsKey(Integer.valueOf(1)));
+        assertFalse(m.containsKey(Integer.valueOf(3)));
+        assertFalse(m.containsKey(Integer.valueOf(5)));
+        assertTrue(m.containsKey(Integer.valueOf(2)));
+        assertTrue(m.containsKey(Integer.valueOf(4)));
+        assertTrue(m.containsKey(Integer.valueOf(6)));
+    }
+
+    @Test
+    void testContainsValue() {
+        final Map<Integer, String> m = makeTestMap();
+        assertFalse(m.containsValue("one"));
+        assertFalse(m.containsValue("three"));
+        assertFalse(m.containsValue("five"));
+        assertTrue(m.containsValue("two"));
+        assertTrue(m.containsValue("four"));
+        assertTrue(m.containsValue("six"));
+    }
+
+    @Test
+    void testEntrySet() {
+        final Map<Integer, String> m = makeTestMap();
+        assertEquals(3, m.entrySet().size());
+        int count = 0;
+        for (final Map.Entry<Integer, String> entry : m.entrySet()) {
+            assertEquals(0, entry.getKey().intValue() % 2);
+            count++;
+        }
+        assertEquals(3, count);
+    }
+
+    @Test
+    void testEntrySetIteratorRemoveKeepsNewerValue() {
+        final ConcurrentPassiveExpiringMap<Integer, String> m = new ConcurrentPassiveExpiringMap<>();
+        m.put(1, "one");
+        m.put(2, "two");
+        Iterator<Map.Entry<Integer, String>> it = m.entrySet().iterator();
+        final Map.Entry<Integer, String> entry = it.next();
+        // as another thread would, after the entry was iterated
+        m.put(entry.getKey(), "new");
+        it.remove();
+        assertEquals("new", m.get(entry.getKey()));
+        assertEquals(2, m.size());
+        it = m.entrySet().iterator();
+        it.next().setValue("set");
+        it.remove();
+        assertEquals(1, m.size());
+    }
+
+    @Test
+    void testExpiration() throws InterruptedException {
+        validateExpiration(new ConcurrentPassiveExpiringMap<>(500), 500);
+        validateExpiration(new ConcurrentPassiveExpiringMap<>(1, TimeUnit.SECONDS), 1000);
+    }
+
+    @Test
+    void testGet() {
+        final Map<Integer, String> m = makeTestMap();
+        assertNull(m.get(Integer.valueOf(1)));
+        assertEquals("two", m.get(Integer.valueOf(2)));
+        assertNull(m.get(Integer.valueOf(3)));
+        assertEquals("four", m.get(Integer.valueOf(4)));
+        assertNull(m.get(Integer.valueOf(5)));
+        assertEquals("six", m.get(Integer.valueOf(6)));
+    }
+
+    @Test
+    void testIsEmpty() {
+        ConcurrentMap<Integer, String> m = makeTestMap();
+        assertFalse(m.isEmpty());
+
+        // remove just evens
+        m = makeTestMap();
+        m.remove(Integer.valueOf(2));
+        m.remove(Integer.valueOf(4));
+        m.remove(Integer.valueOf(6));
+        assertTrue(m.isEmpty());
+    }
+
+    @Test
+    void testPut() {
+        final Map<Integer, String> m = makeTestMap();
+        assertNull(m.put(Integer.valueOf(1), "ONE"));
+        assertEquals("two", m.put(Integer.valueOf(2), "TWO"));
+        assertNull(m.put(Integer.valueOf(3), "THREE"));
+        assertEquals("four", m.put(Integer.valueOf(4), "FOUR"));
+        assertNull(m.put(Integer.valueOf(5), "FIVE"));
+        assertEquals("six", m.put(Integer.valueOf(6), "SIX"));
+    }
+
+    @Test
+    void testPutIfAbsent() {
+        final ConcurrentMap<Integer, String> m = makeTestMap();
+        // expired mappings are replaced
+        assertNull(m.putIfAbsent(Integer.valueOf(1), "ONE"));
+        assertEquals("two", m.putIfAbsent(Integer.valueOf(2), "TWO"));
+        assertEquals("two", m.get(Integer.valueOf(2)));
+        assertNull(m.putIfAbsent(Integer.valueOf(8), "eight"));
+        assertEquals("eight", m.get(Integer.valueOf(8)));
+    }
+
+    @Test
+    void testRemoveAndReplace() {
+        final ConcurrentMap<Integer, String> m = makeTestMap();
+        assertFalse(m.remove(Integer.valueOf(1), "one"));
+        assertFalse(m.remove(Integer.valueOf(2), "TWO"));
+        assertTrue(m.remove(Integer.valueOf(2), "two"));
+        assertNull(m.replace(Integer.valueOf(3), "THREE"));
+        assertEquals("four", m.replace(Integer.valueOf(4), "FOUR"));
+        assertFalse(m.replace(Integer.valueOf(6), "SIX", "six"));
+        assertTrue(m.replace(Integer.valueOf(6), "six", "SIX"));
+        assertEquals("SIX", m.get(Integer.valueOf(6)));
+    }
+
+    @Test
+    void testSize() {
+        final Map<Integer, String> m = makeTestMap();
+        assertEquals(3, m.size());
+    }
+
+    @Test
+    void testZeroTimeToLive() {
+        // item should not be available
+        final ConcurrentPassiveExpiringMap<String, String> m = new ConcurrentPassiveExpiringMap<>(0L);
+        m.put("a", "b");
+        assertNull(m.get("a"));
+        assertNull(m.putIfAbsent("a", "c"));
+    }
+
+    private void validateExpiration(final Map<String, String> map, final long timeout) throws InterruptedException {
+        map.put("a", "b");
+        assertNotNull(map.get("a"));
+        Thread.sleep(2 * timeout);
+        assertNull(map.get("a"));
+    }
+
+}
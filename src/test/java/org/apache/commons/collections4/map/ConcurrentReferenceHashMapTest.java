@@ -17,12 +17,22 @@
 
 package org.apache.commons.collections4.map;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.collections4.map.ConcurrentReferenceHashMap.Option;
 import org.apache.commons.collections4.map.ConcurrentReferenceHashMap.ReferenceType;
@@ -52,4 +62,129 @@ class ConcurrentReferenceHashMapTest {
         assertFalse(map.containsKey(2));
 
     }
+
+    @Test
+    void testComputeIfAbsentFailure() {
+        final ConcurrentReferenceHashMap<String, String> map = ConcurrentReferenceHashMap.<String, String>builder().get();
+        assertNull(map.computeIfAbsent("a", k -> null));
+        assertFalse(map.containsKey("a"));
+        assertThrows(IllegalArgumentException.class, () -> map.computeIfAbsent("a", k -> {
+            throw new IllegalArgumentException();
+        }));
+        assertFalse(map.containsKey("a"));
+        assertTrue(map.isEmpty());
+        assertEquals("A", map.computeIfAbsent("a", k -> "A"));
+        assertEquals(1, map.size());
+        assertThrows(IllegalStateException.class, () -> map.computeIfAbsent("b", k -> map.computeIfAbsent("b", k2 -> "B")));
+        assertFalse(map.containsKey("b"));
+    }
+
+    @Test
+    void testComputeIfAbsentLoadsOutsideSegmentLock() throws Exception {
+        // a single segment, so a loader holding the segment lock would block every other operation
+        final ConcurrentReferenceHashMap<String, String> map = ConcurrentReferenceHashMap.<String, String>builder()
+                .setConcurrencyLevel(1)
+                .get();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<String> loader = executor.submit(() -> map.computeIfAbsent("slow", k -> {
+                calls.incrementAndGet();
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "loaded";
+            }));
+            assertTrue(loading.await(1, TimeUnit.MINUTES));
+            // the key being loaded is absent, and the rest of the segment is available
+            assertNull(map.get("slow"));
+            assertFalse(map.containsKey("slow"));
+            assertTrue(map.isEmpty());
+            assertEquals("fast", map.computeIfAbsent("fast", k -> "fast"));
+            assertEquals(1, map.size());
+            assertEquals("{fast=fast}", map.toString());
+            final Future<String> waiter = executor.submit(() -> map.computeIfAbsent("slow", k -> {
+                calls.incrementAndGet();
+                return "other";
+            }));
+            release.countDown();
+            assertEquals("loaded", loader.get(1, TimeUnit.MINUTES));
+            assertEquals("loaded", waiter.get(1, TimeUnit.MINUTES));
+            assertEquals(1, calls.get());
+            assertEquals(2, map.size());
+            assertEquals("loaded", map.get("slow"));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testComputeIfAbsentPutWhileLoading() {
+        final ConcurrentReferenceHashMap<String, String> map = ConcurrentReferenceHashMap.<String, String>builder().get();
+        assertEquals("put", map.computeIfAbsent("a", k -> {
+            assertNull(map.put("a", "put"));
+            return "loaded";
+        }));
+        assertEquals("put", map.get("a"));
+        assertEquals(1, map.size());
+        assertNull(map.computeIfAbsent("b", k -> {
+            map.clear();
+            return null;
+        }));
+        assertTrue(map.isEmpty());
+        assertEquals("loaded", map.computeIfAbsent("c", k -> {
+            map.clear();
+            return "loaded";
+        }));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void testStatsRecorder() {
+        final CacheStatsRecorder recorder = new CacheStatsRecorder();
+        final ConcurrentReferenceHashMap<Object, String> map = ConcurrentReferenceHashMap.<Object, String>builder()
+                .setStatsRecorder(recorder)
+                .get();
+        assertSame(recorder, map.getStatsRecorder());
+        final Object kept = new Object();
+        map.put(kept, "kept");
+        map.put(new Object(), "collected");
+        assertEquals("kept", map.get(kept));
+        assertNull(map.get(new Object()));
+        int iterations = 0;
+        while (recorder.snapshot().reclaimedCount() == 0) {
+            assertTrue(iterations++ < 50, "Max iterations reached before resource released.");
+            System.gc();
+            map.purgeStaleEntries();
+        }
+        final CacheStats stats = recorder.snapshot();
+        assertEquals(1, stats.hitCount());
+        assertEquals(1, stats.missCount());
+        assertEquals(1, stats.reclaimedCount());
+        assertEquals(1, map.size());
+        assertTrue(map.containsKey(kept));
+    }
+
+    @Test
+    void testStatsRecorderCountsLoads() {
+        final CacheStatsRecorder recorder = new CacheStatsRecorder();
+        final ConcurrentReferenceHashMap<String, String> map = ConcurrentReferenceHashMap.<String, String>builder()
+                .setStatsRecorder(recorder)
+                .get();
+        assertEquals("A", map.computeIfAbsent("a", k -> "A"));
+        // a load which completes normally succeeds, whether or not it finds a value
+        assertNull(map.computeIfAbsent("b", k -> null));
+        assertThrows(IllegalArgumentException.class, () -> map.computeIfAbsent("c", k -> {
+            throw new IllegalArgumentException();
+        }));
+        final CacheStats stats = recorder.snapshot();
+        assertEquals(2, stats.loadSuccessCount());
+        assertEquals(1, stats.loadFailureCount());
+    }
 }
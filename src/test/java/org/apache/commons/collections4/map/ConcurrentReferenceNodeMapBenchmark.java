@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link ConcurrentReferenceNodeMap} with the segmented {@link ConcurrentReferenceHashMap} under contention from 32 and 64 threads.
+ * <p>
+ * The {@code get} benchmarks only read, the {@code mixed} benchmarks replace one value in ten lookups, and the {@code grow} benchmarks insert into a map
+ * which starts empty at a small capacity in every iteration, so most of their time is spent resizing. Both maps use the default weak keys, which the key
+ * array keeps reachable.
+ * </p>
+ * <p>
+ * Run with {@code mvn test -Pbenchmark -Dbenchmark=ConcurrentReferenceNodeMapBenchmark}.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConcurrentReferenceNodeMapBenchmark {
+
+    private static final int GROW_INITIAL_CAPACITY = 16;
+
+    @Param({ "ConcurrentReferenceHashMap", "ConcurrentReferenceNodeMap" })
+    public String implementation;
+
+    @Param({ "65536" })
+    public int keyCount;
+
+    private Integer[] keys;
+
+    private ConcurrentMap<Integer, Integer> map;
+
+    private ConcurrentMap<Integer, Integer> growing;
+
+    @Benchmark
+    @Threads(32)
+    public Integer get32() {
+        return get();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Integer get64() {
+        return get();
+    }
+
+    private Integer get() {
+        return map.get(keys[ThreadLocalRandom.current().nextInt(keyCount)]);
+    }
+
+    private Integer grow() {
+        final Integer key = keys[ThreadLocalRandom.current().nextInt(keyCount)];
+        return growing.putIfAbsent(key, key);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Integer grow32() {
+        return grow();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Integer grow64() {
+        return grow();
+    }
+
+    private Integer mixed() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final Integer key = keys[random.nextInt(keyCount)];
+        if (random.nextInt(10) == 0) {
+            return map.put(key, key);
+        }
+        return map.get(key);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public Integer mixed32() {
+        return mixed();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Integer mixed64() {
+        return mixed();
+    }
+
+    private ConcurrentMap<Integer, Integer> newMap(final int initialCapacity) {
+        if ("ConcurrentReferenceHashMap".equals(implementation)) {
+            return ConcurrentReferenceHashMap.<Integer, Integer>builder().setInitialCapacity(initialCapacity).get();
+        }
+        return ConcurrentReferenceNodeMap.<Integer, Integer>builder().setInitialCapacity(initialCapacity).get();
+    }
+
+    @Setup
+    public void setup() {
+        keys = new Integer[keyCount];
+        map = newMap(keyCount);
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = i;
+            map.put(keys[i], keys[i]);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setupIteration() {
+        growing = newMap(GROW_INITIAL_CAPACITY);
+    }
+}
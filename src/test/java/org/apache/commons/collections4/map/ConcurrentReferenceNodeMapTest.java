@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.collection.AbstractCollectionTest;
+import org.apache.commons.collections4.map.ConcurrentReferenceHashMap.Option;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link ConcurrentReferenceNodeMap} with weak keys and strong values.
+ *
+ * @param <K> the key type.
+ * @param <V> the value type.
+ */
+public class ConcurrentReferenceNodeMapTest<K, V> extends AbstractMapTest<ConcurrentReferenceNodeMap<K, V>, K, V> {
+
+    private static final int THREADS = 8;
+
+    @Override
+    public String getCompatibilityVersion() {
+        // ConcurrentReferenceNodeMap has been added in version 4.6
+        return "4.6";
+    }
+
+    @Override
+    protected int getIterationBehaviour() {
+        return AbstractCollectionTest.UNORDERED;
+    }
+
+    @Override
+    public boolean isAllowNullKey() {
+        return false;
+    }
+
+    @Override
+    public boolean isAllowNullValueGet() {
+        return false;
+    }
+
+    @Override
+    public boolean isAllowNullValuePut() {
+        return false;
+    }
+
+    @Override
+    public boolean isFailFastExpected() {
+        return false;
+    }
+
+    @Override
+    public boolean isTestSerialization() {
+        return false;
+    }
+
+    @Override
+    public ConcurrentReferenceNodeMap<K, V> makeObject() {
+        return ConcurrentReferenceNodeMap.<K, V>builder().get();
+    }
+
+    @Test
+    void testBuilderAll() {
+        final Map<Integer, String> source = new HashMap<>();
+        source.put(1, "1");
+        // @formatter:off
+        final Map<Integer, String> map = ConcurrentReferenceNodeMap.<Integer, String>builder()
+                .setConcurrencyLevel(4)
+                .setInitialCapacity(32)
+                .setLoadFactor(0.5f)
+                .softKeys()
+                .weakValues()
+                .setOptions(EnumSet.of(Option.IDENTITY_COMPARISONS))
+                .setSourceMap(source)
+                .get();
+        // @formatter:on
+        source.put(2, "2");
+        assertTrue(map.containsKey(1));
+        assertFalse(map.containsKey(2));
+        assertThrows(IllegalArgumentException.class, () -> ConcurrentReferenceNodeMap.builder().setInitialCapacity(-1).get());
+        assertThrows(IllegalArgumentException.class, () -> ConcurrentReferenceNodeMap.builder().setLoadFactor(0f).get());
+        assertThrows(IllegalArgumentException.class, () -> ConcurrentReferenceNodeMap.builder().setConcurrencyLevel(0).get());
+    }
+
+    @Test
+    void testConcurrentInsertionsDuringResize() throws Exception {
+        final ConcurrentReferenceNodeMap<Integer, Integer> map = ConcurrentReferenceNodeMap.<Integer, Integer>builder()
+                .strongKeys()
+                .setInitialCapacity(1)
+                .get();
+        final int perThread = 5_000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int base = t * perThread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = base; i < base + perThread; i++) {
+                        assertNull(map.putIfAbsent(i, i));
+                        // every completed insertion stays visible while other threads resize the table
+                        assertEquals(i, map.get(i));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (final Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(THREADS * perThread, map.size());
+        final Set<Integer> keys = new HashSet<>(map.keySet());
+        assertEquals(THREADS * perThread, keys.size());
+        for (int i = 0; i < THREADS * perThread; i++) {
+            assertEquals(i, map.get(i));
+        }
+    }
+
+    @Test
+    void testConcurrentUpdatesOfSharedKeys() throws Exception {
+        final ConcurrentReferenceNodeMap<Integer, Integer> map = ConcurrentReferenceNodeMap.<Integer, Integer>builder()
+                .strongKeys()
+                .get();
+        final int keys = 64;
+        final int rounds = 2_000;
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int r = 0; r < rounds; r++) {
+                        for (int k = 0; k < keys; k++) {
+                            map.merge(k, 1, Integer::sum);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(keys, map.size());
+        for (int k = 0; k < keys; k++) {
+            assertEquals(THREADS * rounds, map.get(k));
+        }
+    }
+
+    @Test
+    void testIteratorSeesMappingsAcrossResize() {
+        final ConcurrentReferenceNodeMap<Integer, Integer> map = ConcurrentReferenceNodeMap.<Integer, Integer>builder()
+                .strongKeys()
+                .setInitialCapacity(1)
+                .get();
+        for (int i = 0; i < 100; i++) {
+            map.put(i, i);
+        }
+        final Set<Integer> seen = new HashSet<>();
+        final Iterator<Integer> it = map.keySet().iterator();
+        while (it.hasNext()) {
+            final Integer key = it.next();
+            assertTrue(seen.add(key));
+            if (key < 1_000) {
+                // grow the table under the iterator, which may or may not see the new mappings
+                map.put(1_000 + key, key);
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            assertTrue(seen.contains(i));
+        }
+        assertEquals(200, map.size());
+    }
+
+    @Test
+    void testPurgeStaleEntries() {
+        final CacheStatsRecorder recorder = new CacheStatsRecorder();
+        final ConcurrentReferenceNodeMap<Object, String> map = ConcurrentReferenceNodeMap.<Object, String>builder()
+                .setStatsRecorder(recorder)
+                .get();
+        assertSame(recorder, map.getStatsRecorder());
+        final Object kept = new Object();
+        map.put(kept, "kept");
+        for (int i = 0; i < 100; i++) {
+            map.put(new Object(), "collected");
+        }
+        assertEquals("kept", map.get(kept));
+        assertNull(map.get(new Object()));
+        int iterations = 0;
+        while (map.size() > 1) {
+            assertTrue(iterations++ < 50, "Max iterations reached before resource released.");
+            System.gc();
+            map.purgeStaleEntries();
+        }
+        final CacheStats stats = recorder.snapshot();
+        assertEquals(1, stats.hitCount());
+        assertEquals(1, stats.missCount());
+        assertEquals(100, stats.reclaimedCount());
+        assertEquals(1, map.size());
+        assertTrue(map.containsKey(kept));
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link FlatArrayMap} with {@link Flat3Map}, {@link HashedMap} and {@link HashMap} on small attribute maps.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark -Dbenchmark=FlatArrayMapBenchmark}, and add {@code -prof gc} to the JMH
+ * arguments to see the allocation rate of building the maps.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FlatArrayMapBenchmark {
+
+    @Param({ "HashMap", "HashedMap", "Flat3Map", "FlatArrayMap8", "FlatArrayMap16" })
+    public String implementation;
+
+    @Param({ "4", "8", "12" })
+    public int size;
+
+    private Map<String, String> map;
+
+    private String[] keys;
+
+    private String[] lookups;
+
+    private String[] misses;
+
+    @Benchmark
+    public Map<String, String> build() {
+        final Map<String, String> result = newMap();
+        for (final String key : keys) {
+            result.put(key, key);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public void getHit(final Blackhole blackhole) {
+        for (final String key : lookups) {
+            blackhole.consume(map.get(key));
+        }
+    }
+
+    @Benchmark
+    public void getMiss(final Blackhole blackhole) {
+        for (final String key : misses) {
+            blackhole.consume(map.get(key));
+        }
+    }
+
+    @Benchmark
+    public void iterate(final Blackhole blackhole) {
+        for (final Map.Entry<String, String> entry : map.entrySet()) {
+            blackhole.consume(entry.getValue());
+        }
+    }
+
+    private Map<String, String> newMap() {
+        switch (implementation) {
+        case "HashMap":
+            return new HashMap<>();
+        case "HashedMap":
+            return new HashedMap<>();
+        case "Flat3Map":
+            return new Flat3Map<>();
+        case "FlatArrayMap8":
+            return new FlatArrayMap<>(8);
+        default:
+            return new FlatArrayMap<>(16);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        keys = new String[size];
+        lookups = new String[size];
+        misses = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = "attribute." + i;
+            // lookups use equal but distinct strings, as parsed request attributes do
+            lookups[i] = new String(keys[i]);
+            misses[i] = "missing." + i;
+        }
+        map = build();
+    }
+}
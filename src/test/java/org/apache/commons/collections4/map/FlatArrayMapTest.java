@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.commons.collections4.MapIterator;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link FlatArrayMap}.
+ * <p>
+ * The sample mappings fit the default inline capacity, so the full map is tested in flat mode
+ * and the tests adding further mappings cover the switch to delegate mode.
+ * </p>
+ *
+ * @param <K> the key type.
+ * @param <V> the value type.
+ */
+public class FlatArrayMapTest<K, V> extends AbstractIterableMapTest<K, V> {
+
+    /** The indexes of the default sample mappings kept, including the null key and the null and duplicate values. */
+    private static final int[] SAMPLES = { 0, 1, 2, 3, 4, 15, 16, 17 };
+
+    @SuppressWarnings("unchecked")
+    private static <T> T[] samples(final T[] all) {
+        final Object[] result = new Object[SAMPLES.length];
+        for (int i = 0; i < SAMPLES.length; i++) {
+            result[i] = all[SAMPLES[i]];
+        }
+        return (T[]) result;
+    }
+
+    @Override
+    public String getCompatibilityVersion() {
+        // FlatArrayMap has been added in version 4.6
+        return "4.6";
+    }
+
+    @Override
+    public V[] getNewSampleValues() {
+        return samples(super.getNewSampleValues());
+    }
+
+    @Override
+    public K[] getSampleKeys() {
+        return samples(super.getSampleKeys());
+    }
+
+    @Override
+    public V[] getSampleValues() {
+        return samples(super.getSampleValues());
+    }
+
+    @Override
+    public FlatArrayMap<K, V> makeObject() {
+        return new FlatArrayMap<>();
+    }
+
+//    void testCreate() throws Exception {
+//        resetEmpty();
+//        writeExternalFormToDisk(
+//            (java.io.Serializable) map,
+//            "src/test/resources/org/apache/commons/collections4/data/test/FlatArrayMap.emptyCollection.version4.6.obj");
+//        resetFull();
+//        writeExternalFormToDisk(
+//            (java.io.Serializable) map,
+//            "src/test/resources/org/apache/commons/collections4/data/test/FlatArrayMap.fullCollection.version4.6.obj");
+//    }
+
+    @Test
+    void testClearSwitchesBackToFlatMode() {
+        final FlatArrayMap<Integer, String> map = new FlatArrayMap<>(4);
+        for (int i = 0; i < 5; i++) {
+            map.put(i, "v" + i);
+        }
+        assertFalse(map.mapIterator() instanceof FlatArrayMap.FlatMapIterator);
+        map.clear();
+        assertTrue(map.isEmpty());
+        map.put(1, "one");
+        assertInstanceOf(FlatArrayMap.FlatMapIterator.class, map.mapIterator());
+        assertEquals("{1=one}", map.toString());
+    }
+
+    @Test
+    void testClone() {
+        final FlatArrayMap<Integer, String> map = new FlatArrayMap<>();
+        map.put(1, "one");
+        map.put(2, "two");
+        final FlatArrayMap<Integer, String> cloned = map.clone();
+        cloned.put(3, "three");
+        cloned.remove(1);
+        assertEquals(2, map.size());
+        assertEquals("one", map.get(1));
+        assertFalse(map.containsKey(3));
+        assertEquals(2, cloned.size());
+        assertEquals(map.getInlineCapacity(), cloned.getInlineCapacity());
+    }
+
+    @Test
+    void testConstructors() {
+        assertEquals(8, new FlatArrayMap<>().getInlineCapacity());
+        assertEquals(16, new FlatArrayMap<>(16).getInlineCapacity());
+        assertThrows(IllegalArgumentException.class, () -> new FlatArrayMap<>(0));
+        assertThrows(IllegalArgumentException.class, () -> new FlatArrayMap<>(17));
+        assertThrows(NullPointerException.class, () -> new FlatArrayMap<>(null));
+        final Map<String, String> source = new HashMap<>();
+        source.put("a", "1");
+        source.put("b", "2");
+        assertEquals(source, new FlatArrayMap<>(source));
+    }
+
+    @Test
+    void testEntryFollowsMovedMapping() {
+        final FlatArrayMap<String, String> map = new FlatArrayMap<>();
+        map.put("a", "1");
+        map.put("b", "2");
+        map.put("c", "3");
+        final Iterator<Map.Entry<String, String>> it = map.entrySet().iterator();
+        final Map.Entry<String, String> first = it.next();
+        final Map.Entry<String, String> second = it.next();
+        final Map.Entry<String, String> third = it.next();
+        // removing the first mapping moves the last one into its slot
+        map.remove(first.getKey());
+        assertEquals("3", third.getValue());
+        assertEquals("3", third.setValue("30"));
+        assertEquals("30", map.get("c"));
+        assertEquals("2", second.getValue());
+        map.remove("b");
+        assertThrows(IllegalStateException.class, second::getValue);
+    }
+
+    @Test
+    void testFlatModeUpToInlineCapacity() {
+        final FlatArrayMap<Integer, Integer> map = new FlatArrayMap<>(16);
+        for (int i = 0; i < 16; i++) {
+            assertNull(map.put(i, i));
+        }
+        assertInstanceOf(FlatArrayMap.FlatMapIterator.class, map.mapIterator());
+        for (int i = 0; i < 16; i++) {
+            assertEquals(i, map.get(i));
+            assertEquals(i, map.put(i, -i));
+        }
+        map.put(16, 16);
+        assertFalse(map.mapIterator() instanceof FlatArrayMap.FlatMapIterator);
+        assertEquals(17, map.size());
+        for (int i = 0; i < 16; i++) {
+            assertEquals(-i, map.get(i));
+        }
+    }
+
+    @Test
+    void testMapIteratorRemoveVisitsMovedMapping() {
+        final FlatArrayMap<Integer, Integer> map = new FlatArrayMap<>();
+        for (int i = 0; i < 6; i++) {
+            map.put(i, i);
+        }
+        int visited = 0;
+        for (final MapIterator<Integer, Integer> it = map.mapIterator(); it.hasNext();) {
+            final int key = it.next();
+            visited++;
+            if (key % 2 == 0) {
+                it.remove();
+            } else {
+                it.setValue(key * 10);
+            }
+        }
+        assertEquals(6, visited);
+        assertEquals(3, map.size());
+        assertEquals(10, map.get(1));
+        assertEquals(30, map.get(3));
+        assertEquals(50, map.get(5));
+    }
+
+    @Test
+    void testPutAllBeyondInlineCapacity() {
+        final Map<Integer, Integer> source = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            source.put(i, i);
+        }
+        final FlatArrayMap<Integer, Integer> map = new FlatArrayMap<>();
+        map.put(-1, -1);
+        map.putAll(source);
+        assertEquals(11, map.size());
+        assertEquals(-1, map.get(-1));
+        assertEquals(9, map.get(9));
+    }
+
+}
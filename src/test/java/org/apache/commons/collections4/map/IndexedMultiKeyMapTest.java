@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Iterator;
+
+import org.apache.commons.collections4.MapIterator;
+import org.apache.commons.collections4.keyvalue.MultiKey;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the {@link MultiKeyMapTest} tests against a {@link MultiKeyMap} indexed by the first key.
+ *
+ * @param <K> the key type.
+ * @param <V> the value type.
+ */
+public class IndexedMultiKeyMapTest<K, V> extends MultiKeyMapTest<K, V> {
+
+    private static int count(final MapIterator<?, ?> it) {
+        int count = 0;
+        while (it.hasNext()) {
+            it.next();
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public MultiKeyMap<K, V> makeObject() {
+        return MultiKeyMap.indexedMultiKeyMap(new HashedMap<>());
+    }
+
+    @Test
+    void testCloneRebuildsIndex() {
+        final MultiKeyMap<Integer, String> map = MultiKeyMap.indexedMultiKeyMap(new HashedMap<>());
+        map.put(I1, I2, "1-2");
+        map.put(I1, I3, "1-3");
+        map.put(I2, I3, "2-3");
+        final MultiKeyMap<Integer, String> cloned = map.clone();
+        assertEquals(map, cloned);
+        cloned.put(I1, I4, "1-4");
+        assertTrue(cloned.removeAll(I2));
+        assertEquals(3, count(cloned.mapIterator(I1)));
+        assertEquals(2, count(map.mapIterator(I1)));
+        assertEquals(3, map.size());
+        assertTrue(map.removeAll(I1));
+        assertEquals(1, map.size());
+        assertEquals(3, cloned.size());
+        assertEquals(3, count(cloned.mapIterator(I1)));
+    }
+
+    @Test
+    void testIndexedMultiKeyMapNonEmptyMap() {
+        final HashedMap<MultiKey<? extends Integer>, String> map = new HashedMap<>();
+        map.put(new MultiKey<>(I1, I2), "1-2");
+        assertThrows(IllegalArgumentException.class, () -> MultiKeyMap.indexedMultiKeyMap(map));
+        assertThrows(NullPointerException.class, () -> MultiKeyMap.indexedMultiKeyMap(null));
+    }
+
+    @Test
+    void testLRUEvictionsArePruned() {
+        final MultiKeyMap<Integer, String> map = MultiKeyMap.indexedMultiKeyMap(new LRUMap<>(2));
+        for (int i = 0; i < 1000; i++) {
+            map.put(I1, i, "1-" + i);
+        }
+        assertEquals(2, map.size());
+        assertEquals(2, count(map.mapIterator(I1)));
+        assertTrue(map.removeAll(I1));
+        assertTrue(map.isEmpty());
+        assertFalse(map.removeAll(I1));
+    }
+
+    @Test
+    void testRemoveAllAfterViewRemoval() {
+        final MultiKeyMap<Integer, String> map = MultiKeyMap.indexedMultiKeyMap(new HashedMap<>());
+        map.put(I1, I2, "1-2");
+        map.put(I1, I3, "1-3");
+        map.put(I2, I3, "2-3");
+        final Iterator<MultiKey<? extends Integer>> it = map.keySet().iterator();
+        while (it.hasNext()) {
+            if (I1.equals(it.next().getKey(0))) {
+                it.remove();
+            }
+        }
+        // the index still holds the removed keys, which must not count as removals
+        assertFalse(map.removeAll(I1));
+        assertEquals(0, count(map.mapIterator(I1)));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void testRemoveMultiKeyUpdatesIndex() {
+        final MultiKeyMap<Integer, String> map = MultiKeyMap.indexedMultiKeyMap(new HashedMap<>());
+        map.put(I1, I2, "1-2");
+        map.put(I1, I2, I3, "1-2-3");
+        map.put(new MultiKey<>(I1, I3), "1-3");
+        assertEquals(3, count(map.mapIterator(I1)));
+        map.removeMultiKey(I1, I2);
+        map.remove(new MultiKey<>(I1, I3));
+        assertEquals(1, count(map.mapIterator(I1)));
+        map.clear();
+        assertEquals(0, count(map.mapIterator(I1)));
+        map.put(I1, I4, "1-4");
+        assertEquals(1, count(map.mapIterator(I1)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSerializationRebuildsIndex() throws Exception {
+        final MultiKeyMap<Integer, String> map = MultiKeyMap.indexedMultiKeyMap(new HashedMap<>());
+        map.put(I1, I2, "1-2");
+        map.put(I1, I3, "1-3");
+        map.put(I2, I3, "2-3");
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(map);
+        }
+        final MultiKeyMap<Integer, String> copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (MultiKeyMap<Integer, String>) in.readObject();
+        }
+        assertEquals(map, copy);
+        assertEquals(2, count(copy.mapIterator(I1)));
+        assertTrue(copy.removeAll(I1, I3));
+        assertEquals(2, copy.size());
+        assertEquals(1, count(copy.mapIterator(I1)));
+    }
+
+}
@@ -26,6 +26,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -574,6 +575,110 @@ public class LRUMapTest<K, V> extends AbstractOrderedMapTest<K, V> {
         assertSame(list.get(0), it.next());
     }
 
+    @Test
+    void testStatsRecorder() {
+        final LRUMap<String, String> map = new LRUMap<>(2);
+        assertNull(map.getStatsRecorder());
+        final CacheStatsRecorder recorder = new CacheStatsRecorder();
+        map.setStatsRecorder(recorder);
+        map.put("a", "A");
+        map.put("b", "B");
+        assertEquals("A", map.get("a"));
+        assertEquals("B", map.get("b", false));
+        assertNull(map.get("c"));
+        // evicts "a"
+        map.put("c", "C");
+        map.remove("b");
+        final CacheStats stats = recorder.snapshot();
+        assertEquals(2, stats.hitCount());
+        assertEquals(1, stats.missCount());
+        assertEquals(1, stats.evictionCount(CacheStats.EvictionCause.SIZE));
+        assertEquals(1, stats.evictionCount());
+    }
+
+    @Test
+    void testWeighted() {
+        final LRUMap<String, String> map = new LRUMap<>(10, (key, value) -> value.length());
+        assertEquals(10, map.maxWeight());
+        map.put("a", "aaaa");
+        map.put("b", "bbbb");
+        assertEquals(8, map.totalWeight());
+        assertFalse(map.isFull());
+        // evicts "a"
+        map.put("c", "ccc");
+        assertEquals(Arrays.asList("b", "c"), new ArrayList<>(map.keySet()));
+        assertEquals(7, map.totalWeight());
+        map.get("b");
+        // evicts "c", the least recently used
+        map.put("d", "ddddd");
+        assertEquals(Arrays.asList("b", "d"), new ArrayList<>(map.keySet()));
+        assertEquals(9, map.totalWeight());
+        // a heavier value evicts as many entries as needed
+        map.put("d", "dddddddd");
+        assertEquals(Arrays.asList("d"), new ArrayList<>(map.keySet()));
+        assertEquals(8, map.totalWeight());
+        map.entrySet().iterator().next().setValue("dd");
+        assertEquals(2, map.totalWeight());
+        map.remove("d");
+        assertEquals(0, map.totalWeight());
+        // a mapping heavier than the maximum is not kept
+        map.put("e", "e");
+        map.put("f", "fffffffffff");
+        assertTrue(map.isEmpty());
+        assertEquals(0, map.totalWeight());
+        map.put("g", "gggggggggg");
+        assertTrue(map.isFull());
+        map.clear();
+        assertEquals(0, map.totalWeight());
+    }
+
+    @Test
+    void testWeightedCloneAndSerialization() throws Exception {
+        final LRUMap<String, String> map = new LRUMap<>(10, (key, value) -> value.length());
+        map.put("a", "aaa");
+        map.put("b", "bbb");
+        final LRUMap<String, String> cloned = map.clone();
+        assertEquals(6, cloned.totalWeight());
+        @SuppressWarnings("unchecked")
+        final LRUMap<String, String> copy = (LRUMap<String, String>) serializeDeserialize(map);
+        assertEquals(map, copy);
+        assertEquals(6, copy.totalWeight());
+        assertEquals(10, copy.maxWeight());
+        copy.put("c", "cccccc");
+        assertEquals(Arrays.asList("b", "c"), new ArrayList<>(copy.keySet()));
+    }
+
+    @Test
+    void testWeightedCountMode() {
+        final LRUMap<String, String> map = new LRUMap<>(3);
+        map.put("a", "a");
+        map.put("b", "b");
+        assertEquals(3, map.maxWeight());
+        assertEquals(2, map.totalWeight());
+        assertThrows(IllegalArgumentException.class, () -> new LRUMap<String, String>(0, (key, value) -> 1));
+        assertThrows(NullPointerException.class, () -> new LRUMap<String, String>(10, (LRUMap.Weigher<String, String>) null));
+        final LRUMap<String, String> negative = new LRUMap<>(10, (key, value) -> -1);
+        assertThrows(IllegalArgumentException.class, () -> negative.put("a", "a"));
+    }
+
+    @Test
+    void testWeightedRemoveLRU() {
+        final LRUMap<String, String> map = new LRUMap<String, String>(10, (key, value) -> value.length(), true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeLRU(final LinkEntry<String, String> entry) {
+                return !entry.getKey().startsWith("keep");
+            }
+        };
+        map.put("keep", "kkkk");
+        map.put("a", "aaaa");
+        // scans past the entry that must be kept
+        map.put("b", "bbbb");
+        assertEquals(Arrays.asList("keep", "b"), new ArrayList<>(map.keySet()));
+        assertEquals(8, map.totalWeight());
+    }
+
     @Test
     void testSynchronizedRemoveFromEntrySet() throws InterruptedException {
 
@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.collections4.Transformer;
+import org.apache.commons.collections4.collection.AbstractCollectionTest;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link LoadingMap}.
+ *
+ * @param <K> the key type.
+ * @param <V> the value type.
+ */
+public class LoadingMapTest<K, V> extends AbstractMapTest<LoadingMap<K, V>, K, V> {
+
+    @Override
+    protected int getIterationBehaviour() {
+        return AbstractCollectionTest.UNORDERED;
+    }
+
+    @Override
+    public boolean isTestSerialization() {
+        return false;
+    }
+
+    @Override
+    public LoadingMap<K, V> makeObject() {
+        return LoadingMap.loadingMap(new HashMap<>(), key -> null);
+    }
+
+    @Test
+    void testBuilderRequiresMapAndLoader() {
+        assertThrows(NullPointerException.class, () -> LoadingMap.builder().setLoader(key -> key).get());
+        assertThrows(NullPointerException.class, () -> LoadingMap.builder().setMap(new HashMap<>()).get());
+    }
+
+    @Test
+    void testGetAllBatchesMisses() {
+        final List<Collection<String>> batches = new ArrayList<>();
+        final Transformer<Collection<String>, Map<String, String>> bulkLoader = keys -> {
+            batches.add(new ArrayList<>(keys));
+            final Map<String, String> values = new HashMap<>();
+            for (final String key : keys) {
+                if (!key.startsWith("missing")) {
+                    values.put(key, key.toUpperCase());
+                }
+            }
+            return values;
+        };
+        final LoadingMap<String, String> map = LoadingMap.<String, String>builder()
+                .setMap(new LRUMap<>(10))
+                .setLoader(key -> {
+                    throw new AssertionError("single loads are not expected");
+                })
+                .setBulkLoader(bulkLoader)
+                .get();
+        map.put("a", "cached");
+
+        final Map<String, String> result = map.getAll(Arrays.asList("c", "a", "b", "missing", "c"));
+        assertEquals(Arrays.asList("c", "a", "b"), new ArrayList<>(result.keySet()));
+        assertEquals("cached", result.get("a"));
+        assertEquals("B", result.get("b"));
+        assertEquals(1, batches.size());
+        assertEquals(Arrays.asList("c", "b", "missing"), batches.get(0));
+        assertEquals("C", map.get("c"));
+        assertFalse(map.containsKey("missing"));
+    }
+
+    @Test
+    void testGetAllWithoutBulkLoader() {
+        final LoadingMap<String, Integer> map = LoadingMap.loadingMap(new HashMap<>(), String::length);
+        final Map<String, Integer> result = map.getAll(Arrays.asList("a", "bb", "ccc"));
+        assertEquals(3, result.size());
+        assertEquals(Integer.valueOf(2), result.get("bb"));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    void testLoadsMissingValues() {
+        final AtomicInteger calls = new AtomicInteger();
+        final LoadingMap<String, Integer> map = LoadingMap.loadingMap(new LRUMap<>(2), key -> {
+            calls.incrementAndGet();
+            return key.length();
+        });
+        assertEquals(Integer.valueOf(1), map.get("a"));
+        assertEquals(Integer.valueOf(2), map.get("bb"));
+        assertEquals(Integer.valueOf(1), map.get("a"));
+        assertEquals(2, calls.get());
+        // evicts "bb"
+        assertEquals(Integer.valueOf(3), map.get("ccc"));
+        assertFalse(map.containsKey("bb"));
+        assertEquals(Integer.valueOf(2), map.get("bb"));
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    void testLoaderExceptionIsPropagated() {
+        final LoadingMap<String, String> map = LoadingMap.loadingMap(new HashMap<>(), key -> {
+            throw new IllegalStateException(key);
+        });
+        assertThrows(IllegalStateException.class, () -> map.get("a"));
+        assertFalse(map.containsKey("a"));
+    }
+
+    @Test
+    void testLoadDoesNotOverwriteConcurrentWrites() {
+        final AtomicReference<LoadingMap<String, String>> self = new AtomicReference<>();
+        // the loader writes its own key, as another thread would while it runs
+        final LoadingMap<String, String> map = LoadingMap.loadingMap(new HashMap<>(), key -> {
+            if (key.startsWith("put")) {
+                self.get().put(key, "put");
+            } else {
+                self.get().remove(key);
+            }
+            return "loaded";
+        });
+        self.set(map);
+        assertEquals("loaded", map.get("put"));
+        assertEquals("put", map.get("put"));
+        assertEquals("loaded", map.get("removed"));
+        assertFalse(map.containsKey("removed"));
+    }
+
+    @Test
+    void testNullIsNotStored() {
+        final LoadingMap<String, String> map = LoadingMap.loadingMap(new HashMap<>(), key -> null);
+        assertNull(map.get("a"));
+        assertFalse(map.containsKey("a"));
+    }
+
+    @Test
+    void testRefreshAhead() {
+        final AtomicInteger version = new AtomicInteger();
+        final List<Runnable> refreshes = new ArrayList<>();
+        final LoadingMap<String, String> map = LoadingMap.<String, String>builder()
+                .setMap(new PassiveExpiringMap<>(1, TimeUnit.HOURS))
+                .setLoader(key -> key + version.incrementAndGet())
+                .setRefreshAfter(0, TimeUnit.MILLISECONDS)
+                .setRefreshExecutor(refreshes::add)
+                .get();
+        assertEquals("a1", map.get("a"));
+        // the hit returns the current value and schedules a single refresh
+        assertEquals("a1", map.get("a"));
+        assertEquals("a1", map.get("a"));
+        assertEquals(1, refreshes.size());
+        refreshes.remove(0).run();
+        assertEquals("a2", map.get("a"));
+    }
+
+    @Test
+    void testRecursiveLoadFails() {
+        final AtomicReference<LoadingMap<String, String>> self = new AtomicReference<>();
+        final LoadingMap<String, String> map = LoadingMap.loadingMap(new HashMap<>(), key -> "b".equals(key) ? "B" : self.get().get(key));
+        self.set(map);
+        assertThrows(IllegalStateException.class, () -> map.get("a"));
+        assertThrows(IllegalStateException.class, () -> map.getAll(Arrays.asList("a", "b")));
+        // loading other keys is allowed
+        final LoadingMap<String, String> nested = LoadingMap.loadingMap(new HashMap<>(), key -> "b".equals(key) ? "B" : self.get().get("b"));
+        self.set(nested);
+        assertEquals("B", nested.get("a"));
+        assertFalse(map.containsKey("a"));
+    }
+
+    @Test
+    void testRefreshAfterConcurrentWrite() {
+        final List<Runnable> refreshes = new ArrayList<>();
+        final LoadingMap<String, String> map = LoadingMap.<String, String>builder()
+                .setMap(new HashMap<>())
+                .setLoader(key -> "loaded")
+                .setRefreshAfter(0, TimeUnit.MILLISECONDS)
+                .setRefreshExecutor(refreshes::add)
+                .get();
+        map.put("a", "put");
+        assertEquals("put", map.get("a"));
+        assertEquals(1, refreshes.size());
+        map.put("a", "newer");
+        refreshes.remove(0).run();
+        assertEquals("newer", map.get("a"));
+    }
+
+    @Test
+    void testStatsRecorder() {
+        final CacheStatsRecorder recorder = new CacheStatsRecorder();
+        final LoadingMap<String, Integer> map = LoadingMap.<String, Integer>builder()
+                .setMap(new HashMap<>())
+                .setLoader(key -> {
+                    if (key.isEmpty()) {
+                        throw new IllegalArgumentException();
+                    }
+                    return key.length();
+                })
+                .setStatsRecorder(recorder)
+                .get();
+        assertEquals(Integer.valueOf(1), map.get("a"));
+        assertEquals(Integer.valueOf(1), map.get("a"));
+        assertThrows(IllegalArgumentException.class, () -> map.get(""));
+        map.getAll(Arrays.asList("a", "bb"));
+        final CacheStats stats = recorder.snapshot();
+        assertEquals(2, stats.hitCount());
+        assertEquals(3, stats.missCount());
+        assertEquals(2, stats.loadSuccessCount());
+        assertEquals(1, stats.loadFailureCount());
+        assertTrue(stats.totalLoadTime() >= 0);
+    }
+
+    @Test
+    void testSingleFlight() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final LoadingMap<String, Integer> map = LoadingMap.loadingMap(new LRUMap<>(10), key -> {
+            calls.incrementAndGet();
+            loading.countDown();
+            try {
+                release.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return key.length();
+        });
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            final List<Future<Integer>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> map.get("key")));
+            assertTrue(loading.await(10, TimeUnit.SECONDS));
+            for (int i = 1; i < threads; i++) {
+                futures.add(executor.submit(() -> map.get("key")));
+            }
+            // unrelated keys are not blocked by the load in progress
+            assertNull(executor.submit(() -> map.put("other", 5)).get(10, TimeUnit.SECONDS));
+            release.countDown();
+            for (final Future<Integer> future : futures) {
+                assertEquals(Integer.valueOf(3), future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, calls.get());
+    }
+}
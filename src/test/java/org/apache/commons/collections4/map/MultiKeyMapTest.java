@@ -18,6 +18,7 @@ package org.apache.commons.collections4.map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -25,6 +26,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.collections4.MapIterator;
@@ -422,6 +424,37 @@ public class MultiKeyMapTest<K, V> extends AbstractIterableMapTest<MultiKey<? ex
         }
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMapIteratorFirstKey() {
+        resetFull();
+        final MultiKeyMap<K, V> multimap = getMap();
+        int count = 0;
+        for (final MapIterator<MultiKey<? extends K>, V> it = multimap.mapIterator(I2); it.hasNext();) {
+            final MultiKey<? extends K> key = it.next();
+            assertEquals(I2, key.getKey(0));
+            assertSame(multimap.get(key), it.getValue());
+            count++;
+        }
+        assertEquals(4, count);
+        assertFalse(multimap.mapIterator(I8).hasNext());
+
+        final MapIterator<MultiKey<? extends K>, V> it = multimap.mapIterator(I3);
+        assertThrows(IllegalStateException.class, it::remove);
+        final MultiKey<? extends K> first = it.next();
+        assertNotNull(it.setValue((V) "updated"));
+        assertEquals("updated", multimap.get(first));
+        it.remove();
+        assertThrows(IllegalStateException.class, it::getValue);
+        assertFalse(multimap.containsKey(first));
+        // mappings removed while iterating are skipped
+        assertEquals(I3, it.next().getKey(0));
+        multimap.removeAll(I3);
+        assertFalse(it.hasNext());
+        assertThrows(NoSuchElementException.class, it::next);
+        assertEquals(8, multimap.size());
+    }
+
     @Test
     void testMultiKeyRemoveAll1() {
         resetFull();
@@ -23,6 +23,7 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -228,12 +229,46 @@ public class PassiveExpiringMapTest<K, V> extends AbstractMapTest<PassiveExpirin
         assertEquals("six", m.put(Integer.valueOf(6), "SIX"));
     }
 
+    @Test
+    void testSerializationKeepsExpirationTimes() throws Exception {
+        final long expirationTime = System.currentTimeMillis() + 500;
+        final PassiveExpiringMap<String, String> m = new PassiveExpiringMap<>((key, value) -> "b".equals(value) ? expirationTime : -1L);
+        m.put("a", "b");
+        m.put("c", "d");
+        @SuppressWarnings("unchecked")
+        final PassiveExpiringMap<String, String> copy = (PassiveExpiringMap<String, String>) serializeDeserialize(m);
+        assertEquals("b", copy.get("a"));
+        Thread.sleep(1000);
+        assertNull(copy.get("a"));
+        assertEquals("d", copy.get("c"));
+        assertEquals(1, copy.size());
+    }
+
     @Test
     void testSize() {
         final Map<Integer, String> m = makeTestMap();
         assertEquals(3, m.size());
     }
 
+    @Test
+    void testStatsRecorder() {
+        final PassiveExpiringMap<Integer, String> decorated = new PassiveExpiringMap<>(new TestExpirationPolicy(), new HashMap<>());
+        decorated.putAll(makeDecoratedTestMap());
+        for (final Map<Integer, String> m : Arrays.asList(makeTestMap(), decorated)) {
+            final PassiveExpiringMap<Integer, String> map = (PassiveExpiringMap<Integer, String>) m;
+            final CacheStatsRecorder recorder = new CacheStatsRecorder();
+            map.setStatsRecorder(recorder);
+            assertNull(map.get(Integer.valueOf(1)));
+            assertEquals("two", map.get(Integer.valueOf(2)));
+            assertNull(map.get(Integer.valueOf(8)));
+            assertEquals(3, map.size());
+            final CacheStats stats = recorder.snapshot();
+            assertEquals(1, stats.hitCount());
+            assertEquals(2, stats.missCount());
+            assertEquals(3, stats.evictionCount(CacheStats.EvictionCause.EXPIRED));
+        }
+    }
+
     @Test
     void testValues() {
         final Map<Integer, String> m = makeTestMap();
@@ -25,6 +25,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
 import java.util.Iterator;
 import java.util.Map;
@@ -303,6 +304,29 @@ public class ReferenceIdentityMapTest<K, V> extends AbstractIterableMapTest<K, V
         assertThrows(NullPointerException.class, () -> getMap().put(null, (V) new Object()));
     }
 
+    @Test
+    void testPurgeCount() {
+        final ReferenceIdentityMap<String, String> map = new ReferenceIdentityMap<>(ReferenceStrength.HARD, ReferenceStrength.SOFT);
+        map.put("a", "1");
+        map.put("b", "2");
+        map.put("c", "3");
+        assertEquals(0, map.getPurgeCount());
+        // simulate the collection of all the values, clearing them as the collector does, which enqueue() only does since Java 9
+        for (final AbstractHashedMap.HashEntry<String, String> head : map.data) {
+            for (AbstractHashedMap.HashEntry<String, String> entry = head; entry != null; entry = entry.next) {
+                final Reference<?> reference = (Reference<?>) entry.value;
+                reference.clear();
+                reference.enqueue();
+            }
+        }
+        map.setPurgeBatchSize(1);
+        assertEquals(2, map.size());
+        assertNull(map.get("a"));
+        map.setPurgeBatchSize(0);
+        assertTrue(map.isEmpty());
+        assertEquals(3, map.getPurgeCount());
+    }
+
     /** Tests whether purge values setting works */
     @Test
     void testPurgeValues() throws Exception {
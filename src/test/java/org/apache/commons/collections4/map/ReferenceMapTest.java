@@ -30,6 +30,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -343,6 +344,58 @@ public class ReferenceMapTest<K, V> extends AbstractIterableMapTest<K, V> {
         assertThrows(NullPointerException.class, () -> map.put(null, (V) new Object()));
     }
 
+    @Test
+    void testStatsRecorder() {
+        final ReferenceMap<Object, String> map = new ReferenceMap<>(ReferenceStrength.WEAK, ReferenceStrength.HARD);
+        final CacheStatsRecorder recorder = new CacheStatsRecorder();
+        map.setStatsRecorder(recorder);
+        final Object kept = new Object();
+        map.put(kept, "kept");
+        map.put(new Object(), "collected");
+        assertEquals("kept", map.get(kept));
+        assertNull(map.get(new Object()));
+        int iterations = 0;
+        while (recorder.snapshot().reclaimedCount() == 0) {
+            assertTrue(iterations++ < 50, "Max iterations reached before resource released.");
+            System.gc();
+            map.size();
+        }
+        final CacheStats stats = recorder.snapshot();
+        assertEquals(1, stats.hitCount());
+        assertEquals(1, stats.missCount());
+        assertEquals(1, stats.reclaimedCount());
+        assertEquals(1, map.size());
+        assertTrue(map.containsKey(kept));
+    }
+
+    @Test
+    void testPurgeBatchSize() {
+        final ReferenceMap<Integer, String> map = new ReferenceMap<>(ReferenceStrength.WEAK, ReferenceStrength.HARD);
+        for (int i = 0; i < 10; i++) {
+            map.put(i, "v" + i);
+        }
+        assertThrows(IllegalArgumentException.class, () -> map.setPurgeBatchSize(-1));
+        map.setPurgeBatchSize(3);
+        assertEquals(3, map.getPurgeBatchSize());
+        // simulate the collection of all the keys, clearing them as the collector does, which enqueue() only does since Java 9
+        for (final HashEntry<Integer, String> head : map.data) {
+            for (HashEntry<Integer, String> entry = head; entry != null; entry = entry.next) {
+                final Reference<?> reference = (Reference<?>) entry.key;
+                reference.clear();
+                reference.enqueue();
+            }
+        }
+        assertEquals(7, map.size());
+        assertEquals(4, map.size());
+        assertEquals(6, map.getPurgeCount());
+        assertNull(map.get(9));
+        assertEquals(9, map.getPurgeCount());
+        assertEquals(1, map.purgeStaleMappings(Integer.MAX_VALUE));
+        assertEquals(0, map.purgeStaleMappings(Integer.MAX_VALUE));
+        assertEquals(10, map.getPurgeCount());
+        assertTrue(map.isEmpty());
+    }
+
     /** Tests whether purge values setting works */
     @Test
     void testPurgeValues() throws Exception {
@@ -21,6 +21,13 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
 import org.junit.jupiter.api.Test;
 
 /**
@@ -85,4 +92,51 @@ public class StaticBucketMapTest<K, V> extends AbstractIterableMapTest<K, V> {
         }
     }
 
+    @Test
+    void testParallelStreamOverBuckets() {
+        for (final boolean weaklyConsistent : new boolean[] { false, true }) {
+            final StaticBucketMap<Integer, Integer> map = new StaticBucketMap<>(64, weaklyConsistent);
+            for (int i = 0; i < 1_000; i++) {
+                map.put(i, i * 2);
+            }
+            assertEquals(499_500L, map.keySet().parallelStream().mapToLong(Integer::longValue).sum());
+            assertEquals(999_000L, map.values().parallelStream().mapToLong(Integer::longValue).sum());
+            assertEquals(1_000, map.entrySet().parallelStream().filter(e -> e.getValue() == e.getKey() * 2).count());
+            final Spliterator<Integer> spliterator = map.keySet().spliterator();
+            assertTrue(spliterator.hasCharacteristics(Spliterator.CONCURRENT | Spliterator.DISTINCT));
+            assertEquals(1_000, spliterator.estimateSize());
+            final Spliterator<Integer> suffix = spliterator.trySplit();
+            assertEquals(500, spliterator.estimateSize());
+            final Set<Integer> keys = new HashSet<>();
+            spliterator.forEachRemaining(k -> assertTrue(keys.add(k)));
+            suffix.forEachRemaining(k -> assertTrue(keys.add(k)));
+            assertEquals(map.keySet(), keys);
+        }
+    }
+
+    @Test
+    void testWeaklyConsistentIteratorToleratesUpdates() {
+        final StaticBucketMap<Integer, Integer> map = new StaticBucketMap<>(17, true);
+        for (int i = 0; i < 200; i++) {
+            map.put(i, i);
+        }
+        final Set<Integer> seen = new HashSet<>();
+        final Iterator<Map.Entry<Integer, Integer>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<Integer, Integer> entry = it.next();
+            final int key = entry.getKey();
+            assertTrue(seen.add(key));
+            if (key < 200) {
+                // unlink the mapping under the iterator and add new ones, which may or may not be seen
+                map.remove(key);
+                map.put(1_000 + key, key);
+            }
+        }
+        for (int i = 0; i < 200; i++) {
+            assertTrue(seen.contains(i));
+        }
+        assertEquals(200, map.size());
+        assertEquals(map.keySet(), map.keySet().stream().filter(k -> k >= 1_000).collect(Collectors.toSet()));
+    }
+
 }
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link StripedBucketMap}.
+ *
+ * @param <K> the key type.
+ * @param <V> the value type.
+ */
+public class StripedBucketMapTest<K, V> extends AbstractIterableMapTest<K, V> {
+
+    private static final int THREADS = 8;
+
+    @Override
+    public String getCompatibilityVersion() {
+        // StripedBucketMap has been added in version 4.6
+        return "4.6";
+    }
+
+    @Override
+    public boolean isFailFastExpected() {
+        return false;
+    }
+
+    @Override
+    public StripedBucketMap<K, V> makeObject() {
+        return new StripedBucketMap<>(1, 4);
+    }
+
+    @Test
+    void testAtomicBlocksWriters() throws Exception {
+        final StripedBucketMap<Integer, Integer> map = new StripedBucketMap<>();
+        final CountDownLatch inside = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Thread owner = new Thread(() -> map.atomic(() -> {
+                inside.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            owner.start();
+            assertTrue(inside.await(1, TimeUnit.MINUTES));
+            final Future<Integer> put = executor.submit(() -> map.put(1, 1));
+            Thread.sleep(50);
+            assertFalse(put.isDone());
+            release.countDown();
+            assertNull(put.get(1, TimeUnit.MINUTES));
+            owner.join();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, map.get(1));
+        assertThrows(NullPointerException.class, () -> map.atomic(null));
+    }
+
+    @Test
+    void testConcurrentInsertionsDuringResize() throws Exception {
+        final StripedBucketMap<Integer, Integer> map = new StripedBucketMap<>(1, 4);
+        final int perThread = 5_000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int base = t * perThread;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = base; i < base + perThread; i++) {
+                        assertNull(map.put(i, i));
+                        // every completed insertion stays visible while another thread grows the table
+                        assertEquals(i, map.get(i));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (final Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(THREADS * perThread, map.size());
+        // the size is only checked when a chain grows, so the last insertions may leave the map a little past its load factor
+        assertTrue(map.capacity() >= THREADS * perThread);
+        final Set<Integer> keys = new HashSet<>(map.keySet());
+        assertEquals(THREADS * perThread, keys.size());
+        for (int i = 0; i < THREADS * perThread; i++) {
+            assertEquals(i, map.get(i));
+        }
+    }
+
+    @Test
+    void testConstructorArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new StripedBucketMap<>(-1));
+        assertThrows(IllegalArgumentException.class, () -> new StripedBucketMap<>(16, 0));
+        // the table never has fewer buckets than stripes
+        assertEquals(64, new StripedBucketMap<>(0, 50).capacity());
+        assertEquals(32, new StripedBucketMap<>(16, 1).capacity());
+    }
+
+    @Test
+    void testGrowsWithMappings() {
+        final StripedBucketMap<Integer, String> map = new StripedBucketMap<>(1, 2);
+        assertEquals(2, map.capacity());
+        for (int i = 0; i < 1_000; i++) {
+            map.put(i, String.valueOf(i));
+        }
+        assertEquals(2048, map.capacity());
+        assertEquals(1_000, map.size());
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(String.valueOf(i), map.get(i));
+        }
+        map.put(null, "null");
+        map.put(-1, null);
+        assertEquals("null", map.get(null));
+        assertTrue(map.containsKey(-1));
+        assertTrue(map.containsValue(null));
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertEquals(2048, map.capacity());
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.Trie;
+import org.apache.commons.collections4.trie.analyzer.ByteArrayKeyAnalyzer;
+import org.apache.commons.collections4.trie.analyzer.StringKeyAnalyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@code put}, {@code get} and {@code prefixMap} of an {@link AdaptiveRadixTrie} against a {@link PatriciaTrie}, with {@link String} keys
+ * from a dictionary of words which share many prefixes, and with random {@code byte[]} keys of 16 bytes, such as identifiers or hashes.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark -Dbenchmark=AdaptiveRadixTrieBenchmark}.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AdaptiveRadixTrieBenchmark {
+
+    private static final String[] SYLLABLES = { "an", "ber", "con", "de", "ex", "for", "gra", "in", "ment", "ni", "of", "pre", "qui", "re", "sta",
+        "tion", "un", "ver", "with", "zo" };
+
+    /** The number of keys looked up, inserted or used as prefixes per invocation. */
+    private static final int BATCH = 1_024;
+
+    @Param({ "string", "binary" })
+    public String keys;
+
+    @Param({ "PatriciaTrie", "AdaptiveRadixTrie" })
+    public String type;
+
+    @Param({ "200000" })
+    public int words;
+
+    private Object[] lookups;
+
+    private Object[] prefixes;
+
+    private Trie<Object, Integer> trie;
+
+    @Benchmark
+    public void get(final Blackhole blackhole) {
+        for (final Object key : lookups) {
+            blackhole.consume(trie.get(key));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Trie<Object, Integer> newTrie() {
+        final KeyAnalyzer<Object> keyAnalyzer = (KeyAnalyzer<Object>) (KeyAnalyzer<?>) ("string".equals(keys) ? StringKeyAnalyzer.INSTANCE : ByteArrayKeyAnalyzer.INSTANCE);
+        return "PatriciaTrie".equals(type) ? new GenericPatriciaTrie<>(keyAnalyzer) : new AdaptiveRadixTrie<>(keyAnalyzer);
+    }
+
+    @Benchmark
+    public void prefixMap(final Blackhole blackhole) {
+        for (final Object prefix : prefixes) {
+            final SortedMap<Object, Integer> view = trie.prefixMap(prefix);
+            blackhole.consume(view.isEmpty() ? null : view.firstKey());
+        }
+    }
+
+    @Benchmark
+    public void put(final Blackhole blackhole) {
+        for (final Object key : lookups) {
+            // replaces the value, after walking to the key as an insertion does
+            blackhole.consume(trie.put(key, 0));
+        }
+    }
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        final Object[] dictionary = new Object[words];
+        trie = newTrie();
+        for (int i = 0; i < words; i++) {
+            if ("string".equals(keys)) {
+                final StringBuilder word = new StringBuilder();
+                final int syllables = 2 + random.nextInt(5);
+                for (int s = 0; s < syllables; s++) {
+                    word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+                }
+                dictionary[i] = word.toString();
+            } else {
+                final byte[] bytes = new byte[16];
+                random.nextBytes(bytes);
+                dictionary[i] = bytes;
+            }
+            trie.put(dictionary[i], i);
+        }
+        lookups = new Object[BATCH];
+        prefixes = new Object[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            final Object found = dictionary[random.nextInt(words)];
+            // equal but distinct keys, as looked up keys usually are
+            if (found instanceof String) {
+                lookups[i] = new String((String) found);
+                prefixes[i] = ((String) found).substring(0, 1 + random.nextInt(((String) found).length()));
+            } else {
+                lookups[i] = ((byte[]) found).clone();
+                prefixes[i] = Arrays.copyOf((byte[]) found, 1 + random.nextInt(4));
+            }
+        }
+    }
+}
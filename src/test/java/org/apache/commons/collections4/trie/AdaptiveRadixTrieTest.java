@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.commons.collections4.OrderedMapIterator;
+import org.apache.commons.collections4.map.AbstractSortedMapTest;
+import org.apache.commons.collections4.trie.analyzer.ByteArrayKeyAnalyzer;
+import org.apache.commons.collections4.trie.analyzer.StringKeyAnalyzer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link AdaptiveRadixTrie}.
+ *
+ * @param <V> the value type.
+ */
+public class AdaptiveRadixTrieTest<V> extends AbstractSortedMapTest<String, V> {
+
+    /**
+     * Returns a random key, over a small alphabet so that many keys share prefixes, or over a few hundred characters so that nodes have
+     * enough children to grow to each node type.
+     */
+    private static String randomKey(final Random random, final boolean wide) {
+        final String alphabet = "\0@ABCDHP`Ā";
+        final char[] chars = new char[random.nextInt(wide ? 4 : 7)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = wide ? (char) (0x20 + random.nextInt(0x160)) : alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public String getCompatibilityVersion() {
+        // AdaptiveRadixTrie has been added in version 4.6
+        return "4.6";
+    }
+
+    @Override
+    public AdaptiveRadixTrie<String, V> makeObject() {
+        return new AdaptiveRadixTrie<>(StringKeyAnalyzer.INSTANCE);
+    }
+
+    @Test
+    void testByteArrayKeys() {
+        final Random random = new Random(23);
+        final NavigableMap<byte[], Integer> expected = new TreeMap<>(ByteArrayKeyAnalyzer.INSTANCE);
+        final AdaptiveRadixTrie<byte[], Integer> trie = new AdaptiveRadixTrie<>(ByteArrayKeyAnalyzer.INSTANCE);
+        for (int i = 0; i < 5000; i++) {
+            final byte[] key = new byte[random.nextInt(4)];
+            for (int j = 0; j < key.length; j++) {
+                key[j] = (byte) (random.nextInt(3) == 0 ? random.nextInt(256) : random.nextInt(3));
+            }
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), trie.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), trie.put(key, i));
+            }
+            assertEquals(expected.size(), trie.size());
+        }
+        final List<byte[]> keys = new ArrayList<>(trie.keySet());
+        assertEquals(expected.size(), keys.size());
+        int i = 0;
+        for (final byte[] key : expected.keySet()) {
+            assertArrayEquals(key, keys.get(i++));
+        }
+        final byte[] prefix = { 1 };
+        assertEquals(expected.subMap(prefix, new byte[] { 2 }).size(), trie.prefixMap(prefix).size());
+        // keys which only differ by trailing zeros are different keys
+        trie.clear();
+        trie.put(new byte[] { 0 }, 1);
+        trie.put(new byte[] { 0, 0 }, 2);
+        assertEquals(2, trie.size());
+        assertEquals(1, trie.get(new byte[] { 0 }));
+        assertFalse(trie.containsKey(new byte[] { 0, 0, 0 }));
+    }
+
+    @Test
+    void testMatchesTreeMap() {
+        final Random random = new Random(19);
+        for (int round = 0; round < 40; round++) {
+            final boolean wide = round % 2 == 1;
+            final TreeMap<String, Integer> expected = new TreeMap<>();
+            final AdaptiveRadixTrie<String, Integer> trie = new AdaptiveRadixTrie<>(StringKeyAnalyzer.INSTANCE);
+            final int size = random.nextInt(wide ? 3000 : 300);
+            for (int i = 0; i < size; i++) {
+                final String key = randomKey(random, wide);
+                if (random.nextInt(4) == 0) {
+                    assertEquals(expected.remove(key), trie.remove(key), key);
+                } else {
+                    assertEquals(expected.put(key, i), trie.put(key, i), key);
+                }
+            }
+            assertEquals(expected, trie);
+            assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(trie.keySet()));
+            for (int i = 0; i < 100; i++) {
+                final String key = randomKey(random, wide);
+                assertEquals(expected.get(key), trie.get(key), key);
+                assertEquals(expected.containsKey(key), trie.containsKey(key), key);
+                assertEquals(expected.containsKey(key) ? expected.higherKey(key) : null, trie.nextKey(key), key);
+                assertEquals(expected.containsKey(key) ? expected.lowerKey(key) : null, trie.previousKey(key), key);
+                final SortedMap<String, Integer> prefixMap = trie.prefixMap(key);
+                final SortedMap<String, Integer> expectedPrefixMap = expected.subMap(key, key + Character.MAX_VALUE);
+                assertEquals(new ArrayList<>(expectedPrefixMap.keySet()), new ArrayList<>(prefixMap.keySet()), key);
+                assertEquals(expectedPrefixMap.size(), prefixMap.size(), key);
+                if (!expectedPrefixMap.isEmpty()) {
+                    assertEquals(expectedPrefixMap.lastKey(), prefixMap.lastKey(), key);
+                }
+                assertEquals(new ArrayList<>(expected.headMap(key).keySet()), new ArrayList<>(trie.headMap(key).keySet()), key);
+                assertEquals(new ArrayList<>(expected.tailMap(key).keySet()), new ArrayList<>(trie.tailMap(key).keySet()), key);
+                assertEquals(expected.tailMap(key).size(), trie.tailMap(key).size(), key);
+                if (!expected.headMap(key).isEmpty()) {
+                    assertEquals(expected.headMap(key).lastKey(), trie.headMap(key).lastKey(), key);
+                }
+            }
+            final List<String> keys = new ArrayList<>(expected.keySet());
+            for (final Iterator<String> it = trie.keySet().iterator(); it.hasNext();) {
+                if (random.nextBoolean()) {
+                    it.next();
+                    it.remove();
+                    keys.remove(0);
+                } else {
+                    assertEquals(keys.remove(0), it.next());
+                }
+            }
+            assertTrue(keys.isEmpty());
+        }
+    }
+
+    @Test
+    void testMapIterator() {
+        final AdaptiveRadixTrie<String, Integer> trie = new AdaptiveRadixTrie<>(StringKeyAnalyzer.INSTANCE);
+        trie.put("Anael", 1);
+        trie.put("Analu", 2);
+        trie.put("Anna", 3);
+        final OrderedMapIterator<String, Integer> it = trie.mapIterator();
+        assertFalse(it.hasPrevious());
+        assertEquals("Anael", it.next());
+        assertEquals("Analu", it.next());
+        it.remove();
+        assertEquals("Anna", it.next());
+        assertEquals(3, it.setValue(4));
+        assertFalse(it.hasNext());
+        assertEquals("Anna", it.previous());
+        assertEquals("Anael", it.previous());
+        assertFalse(it.hasPrevious());
+        assertEquals(Arrays.asList("Anael", "Anna"), new ArrayList<>(trie.keySet()));
+        assertEquals(4, trie.get("Anna"));
+    }
+
+    @Test
+    void testPrefixMapIsLive() {
+        final AdaptiveRadixTrie<String, Integer> trie = new AdaptiveRadixTrie<>(StringKeyAnalyzer.INSTANCE);
+        trie.put("Anna", 1);
+        final SortedMap<String, Integer> prefixMap = trie.prefixMap("And");
+        assertTrue(prefixMap.isEmpty());
+        trie.put("Andrea", 2);
+        trie.put("And", 3);
+        assertEquals(2, prefixMap.size());
+        assertEquals("And", prefixMap.firstKey());
+        assertEquals("Andrea", prefixMap.lastKey());
+        prefixMap.put("Andreas", 4);
+        assertEquals(4, trie.get("Andreas"));
+        assertThrows(IllegalArgumentException.class, () -> prefixMap.put("Anael", 5));
+        assertNull(prefixMap.get("Anna"));
+        assertEquals(Arrays.asList("Andrea", "Andreas"), new ArrayList<>(prefixMap.tailMap("Andrea").keySet()));
+        prefixMap.clear();
+        assertEquals(Arrays.asList("Anna"), new ArrayList<>(trie.keySet()));
+    }
+
+    @Test
+    void testTrailingZeros() {
+        final AdaptiveRadixTrie<String, Integer> trie = new AdaptiveRadixTrie<>(StringKeyAnalyzer.INSTANCE);
+        trie.put("a", 1);
+        trie.put("a\0", 2);
+        trie.put("a\0\0", 3);
+        assertEquals(3, trie.size());
+        assertEquals(Arrays.asList("a", "a\0", "a\0\0"), new ArrayList<>(trie.keySet()));
+        assertEquals(2, trie.remove("a\0"));
+        assertEquals(1, trie.get("a"));
+        assertEquals(3, trie.get("a\0\0"));
+        assertThrows(NullPointerException.class, () -> trie.put(null, 4));
+        for (final Map.Entry<String, Integer> entry : trie.entrySet()) {
+            entry.setValue(entry.getValue() * 10);
+        }
+        assertEquals(30, trie.get("a\0\0"));
+    }
+
+}
@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.commons.collections4.OrderedMapIterator;
+import org.apache.commons.collections4.Trie;
+import org.apache.commons.collections4.Unmodifiable;
+import org.apache.commons.collections4.map.AbstractSortedMapTest;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link CompactPatriciaTrie}.
+ *
+ * @param <V> the value type.
+ */
+public class CompactPatriciaTrieTest<V> extends AbstractSortedMapTest<String, V> {
+
+    /**
+     * Returns a random key over a small alphabet, so that many keys share prefixes, with a few characters outside ISO-8859-1 if asked to.
+     */
+    private static String randomKey(final Random random, final boolean latin1) {
+        final String alphabet = latin1 ? "@ABCDHP`é" : "@ABCDHP`éĀ中";
+        final char[] chars = new char[random.nextInt(7)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public String getCompatibilityVersion() {
+        // CompactPatriciaTrie has been added in version 4.6
+        return "4.6";
+    }
+
+    /**
+     * The keys are copied into a single array of characters.
+     */
+    @Override
+    public boolean isKeyIdentityPreserved() {
+        return false;
+    }
+
+    @Override
+    public boolean isPutAddSupported() {
+        return false;
+    }
+
+    @Override
+    public boolean isPutChangeSupported() {
+        return false;
+    }
+
+    @Override
+    public boolean isRemoveSupported() {
+        return false;
+    }
+
+    @Override
+    public Trie<String, V> makeFullMap() {
+        final Trie<String, V> m = new PatriciaTrie<>();
+        addSampleMappings(m);
+        return CompactPatriciaTrie.copyOf(m);
+    }
+
+    @Override
+    public Trie<String, V> makeObject() {
+        return CompactPatriciaTrie.<V>builder().get();
+    }
+
+    @Test
+    void testBuilderRejectsKeysOutOfOrder() {
+        final CompactPatriciaTrie.Builder<Integer> builder = CompactPatriciaTrie.builder();
+        builder.add("", 0).add("And", 1).add("Andrea", 2);
+        assertThrows(IllegalArgumentException.class, () -> builder.add("Andrea", 3));
+        assertThrows(IllegalArgumentException.class, () -> builder.add("Andrea\0", 3));
+        assertThrows(IllegalArgumentException.class, () -> builder.add("Anael", 3));
+        assertThrows(NullPointerException.class, () -> builder.add(null, 3));
+        builder.add("Andreas", 3);
+        final CompactPatriciaTrie<Integer> trie = builder.get();
+        assertEquals(Arrays.asList("", "And", "Andrea", "Andreas"), new ArrayList<>(trie.keySet()));
+        // the builder can go on after building a trie
+        builder.add("Andres", 4);
+        assertEquals(4, trie.size());
+        assertEquals(5, builder.get().size());
+    }
+
+    @Test
+    void testCopyOfSortsKeys() {
+        final Map<String, Integer> map = new HashMap<>();
+        map.put("Anna", 1);
+        map.put("Anael", 2);
+        map.put("Analu", 3);
+        map.put("Andreas", 4);
+        final CompactPatriciaTrie<Integer> trie = CompactPatriciaTrie.copyOf(map);
+        assertEquals(Arrays.asList("Anael", "Analu", "Andreas", "Anna"), new ArrayList<>(trie.keySet()));
+        assertEquals(map, trie);
+        assertThrows(NullPointerException.class, () -> CompactPatriciaTrie.copyOf(null));
+    }
+
+    @Test
+    void testLongKeys() {
+        final Random random = new Random(13);
+        final PatriciaTrie<Integer> expected = new PatriciaTrie<>();
+        // more than 15 characters shared with the previous key or following it take longer lengths
+        final String prefix = "Andreas-Andrea-Andres-";
+        for (int i = 0; i < 500; i++) {
+            expected.put(prefix.substring(0, random.nextInt(prefix.length() + 1)) + randomKey(random, false) + randomKey(random, false)
+                    + randomKey(random, false), i);
+        }
+        final CompactPatriciaTrie<Integer> trie = CompactPatriciaTrie.copyOf(expected);
+        assertEquals(expected, trie);
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(trie.keySet()));
+        for (final String key : expected.keySet()) {
+            for (int length = 0; length <= key.length(); length += 5) {
+                final String start = key.substring(0, length);
+                assertEquals(new ArrayList<>(expected.prefixMap(start).keySet()), new ArrayList<>(trie.prefixMap(start).keySet()), start);
+            }
+            assertEquals(expected.nextKey(key), trie.nextKey(key), key);
+            assertEquals(expected.previousKey(key), trie.previousKey(key), key);
+        }
+        final OrderedMapIterator<String, Integer> it = trie.mapIterator();
+        for (final String key : expected.keySet()) {
+            assertEquals(key, it.next());
+            assertEquals(key, it.getKey());
+        }
+        assertEquals(expected.lastKey(), it.previous());
+    }
+
+    @Test
+    void testMapIterator() {
+        final PatriciaTrie<Integer> source = new PatriciaTrie<>();
+        source.put("Anna", 1);
+        source.put("Anael", 2);
+        source.put("Analu", 3);
+        final OrderedMapIterator<String, Integer> it = CompactPatriciaTrie.copyOf(source).mapIterator();
+        assertThrows(IllegalStateException.class, it::getKey);
+        assertFalse(it.hasPrevious());
+        assertEquals("Anael", it.next());
+        assertEquals(2, it.getValue());
+        assertEquals("Analu", it.next());
+        assertEquals("Anna", it.next());
+        assertFalse(it.hasNext());
+        assertEquals("Anna", it.previous());
+        assertEquals(1, it.getValue());
+        assertThrows(UnsupportedOperationException.class, () -> it.setValue(4));
+        assertThrows(UnsupportedOperationException.class, it::remove);
+    }
+
+    @Test
+    void testMatchesPatriciaTrie() {
+        final Random random = new Random(11);
+        for (int round = 0; round < 40; round++) {
+            final PatriciaTrie<Integer> expected = new PatriciaTrie<>();
+            final int size = random.nextInt(300);
+            final boolean latin1 = round % 2 == 0;
+            for (int i = 0; i < size; i++) {
+                final String key = randomKey(random, latin1);
+                // PatriciaTrie does not tell apart keys which only differ by trailing '\0', so no key ends with one here
+                expected.put(key, i);
+            }
+            final CompactPatriciaTrie<Integer> trie = CompactPatriciaTrie.copyOf(expected);
+            assertEquals(expected, trie);
+            assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(trie.keySet()));
+            for (int i = 0; i < 100; i++) {
+                final String key = randomKey(random, false);
+                assertEquals(expected.get(key), trie.get(key), key);
+                assertEquals(expected.nextKey(key), trie.nextKey(key), key);
+                assertEquals(expected.previousKey(key), trie.previousKey(key), key);
+                assertEquals(new ArrayList<>(expected.prefixMap(key).keySet()), new ArrayList<>(trie.prefixMap(key).keySet()), key);
+                assertEquals(new ArrayList<>(expected.headMap(key).keySet()), new ArrayList<>(trie.headMap(key).keySet()), key);
+                assertEquals(new ArrayList<>(expected.tailMap(key).keySet()), new ArrayList<>(trie.tailMap(key).keySet()), key);
+            }
+        }
+    }
+
+    @Test
+    void testPrefixMap() {
+        final CompactPatriciaTrie<Integer> trie = CompactPatriciaTrie.<Integer>builder()
+                .add("Anael", 2)
+                .add("Analu", 3)
+                .add("Anatole", 7)
+                .add("And", 0)
+                .add("Andrea", 5)
+                .add("Andreas", 4)
+                .add("Andres", 6)
+                .add("Anna", 1)
+                .get();
+        assertEquals(Arrays.asList("Andrea", "Andreas", "Andres"), new ArrayList<>(trie.prefixMap("Andr").keySet()));
+        assertEquals(Arrays.asList("And", "Andrea", "Andreas", "Andres"), new ArrayList<>(trie.prefixMap("And").keySet()));
+        assertEquals(Arrays.asList(0, 5, 4, 6), new ArrayList<>(trie.prefixMap("And").values()));
+        assertEquals("Andres", trie.prefixMap("And").lastKey());
+        assertEquals(Arrays.asList("Andreas", "Andres"), new ArrayList<>(trie.prefixMap("And").tailMap("Andreas").keySet()));
+        assertEquals(8, trie.prefixMap("").size());
+        assertTrue(trie.prefixMap("Andy").isEmpty());
+        assertTrue(trie.prefixMap("B").isEmpty());
+        assertNull(trie.prefixMap("And").get("Anna"));
+        assertThrows(UnsupportedOperationException.class, () -> trie.prefixMap("And").put("Andy", 8));
+        assertThrows(UnsupportedOperationException.class, () -> trie.prefixMap("And").clear());
+        assertThrows(NullPointerException.class, () -> trie.prefixMap(null));
+    }
+
+    @Test
+    void testUnmodifiable() {
+        assertTrue(makeObject() instanceof Unmodifiable);
+        assertTrue(makeFullMap() instanceof Unmodifiable);
+    }
+
+}
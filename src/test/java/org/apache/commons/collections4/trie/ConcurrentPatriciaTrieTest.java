@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.collections4.OrderedMapIterator;
+import org.apache.commons.collections4.map.AbstractSortedMapTest;
+import org.apache.commons.collections4.trie.analyzer.StringKeyAnalyzer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link ConcurrentPatriciaTrie}.
+ *
+ * @param <V> the value type.
+ */
+public class ConcurrentPatriciaTrieTest<V> extends AbstractSortedMapTest<String, V> {
+
+    /**
+     * Returns a random key over a small alphabet, so that many keys share prefixes.
+     */
+    private static List<String> keys(final List<Map.Entry<String, Integer>> entries) {
+        final List<String> keys = new ArrayList<>();
+        entries.forEach(entry -> keys.add(entry.getKey()));
+        return keys;
+    }
+
+    private static String randomKey(final Random random) {
+        final String alphabet = "@ABCDHP`";
+        final char[] chars = new char[random.nextInt(7)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public String getCompatibilityVersion() {
+        // ConcurrentPatriciaTrie has been added in version 4.6
+        return "4.6";
+    }
+
+    @Override
+    public boolean isAllowNullValue() {
+        return false;
+    }
+
+    /**
+     * Iterators go over a snapshot.
+     */
+    @Override
+    public boolean isFailFastExpected() {
+        return false;
+    }
+
+    @Override
+    public ConcurrentPatriciaTrie<String, V> makeObject() {
+        return new ConcurrentPatriciaTrie<>(StringKeyAnalyzer.INSTANCE);
+    }
+
+    @Test
+    void testAtomicOperations() {
+        final ConcurrentPatriciaTrie<String, Integer> trie = new ConcurrentPatriciaTrie<>(StringKeyAnalyzer.INSTANCE);
+        assertNull(trie.putIfAbsent("Anna", 1));
+        assertEquals(1, trie.putIfAbsent("Anna", 2));
+        assertNull(trie.replace("Anael", 3));
+        assertFalse(trie.containsKey("Anael"));
+        assertEquals(1, trie.replace("Anna", 3));
+        assertFalse(trie.replace("Anna", 1, 4));
+        assertTrue(trie.replace("Anna", 3, 4));
+        assertFalse(trie.remove("Anna", 3));
+        assertTrue(trie.remove("Anna", 4));
+        assertTrue(trie.isEmpty());
+        assertEquals(5, trie.computeIfAbsent("Andrea", key -> 5));
+        assertEquals(6, trie.merge("Andrea", 1, Integer::sum));
+        assertThrows(NullPointerException.class, () -> trie.put("Andreas", null));
+        assertThrows(NullPointerException.class, () -> trie.put(null, 1));
+        assertThrows(NullPointerException.class, () -> trie.get(null));
+    }
+
+    @Test
+    void testIteratorsSeeSnapshot() {
+        final ConcurrentPatriciaTrie<String, Integer> trie = new ConcurrentPatriciaTrie<>(StringKeyAnalyzer.INSTANCE);
+        trie.put("Anael", 1);
+        trie.put("Analu", 2);
+        trie.put("Anna", 3);
+        final Iterator<Map.Entry<String, Integer>> it = trie.prefixMap("An").entrySet().iterator();
+        final OrderedMapIterator<String, Integer> mapIt = trie.mapIterator();
+        trie.put("Andrea", 4);
+        trie.remove("Anna");
+        final List<String> keys = new ArrayList<>();
+        it.forEachRemaining(entry -> keys.add(entry.getKey()));
+        assertEquals(Arrays.asList("Anael", "Analu", "Anna"), keys);
+        assertEquals("Anael", mapIt.next());
+        assertEquals(1, mapIt.setValue(5));
+        assertEquals(5, trie.get("Anael"));
+        assertEquals("Analu", mapIt.next());
+        mapIt.remove();
+        assertEquals("Anna", mapIt.next());
+        assertFalse(mapIt.hasNext());
+        assertEquals(Arrays.asList("Anael", "Andrea"), new ArrayList<>(trie.keySet()));
+    }
+
+    @Test
+    void testMatchesPatriciaTrie() {
+        final Random random = new Random(17);
+        for (int round = 0; round < 30; round++) {
+            final PatriciaTrie<Integer> expected = new PatriciaTrie<>();
+            final ConcurrentPatriciaTrie<String, Integer> trie = new ConcurrentPatriciaTrie<>(StringKeyAnalyzer.INSTANCE);
+            final int size = random.nextInt(300);
+            for (int i = 0; i < size; i++) {
+                final String key = randomKey(random);
+                if (random.nextInt(4) == 0) {
+                    assertEquals(expected.remove(key), trie.remove(key), key);
+                } else {
+                    assertEquals(expected.put(key, i), trie.put(key, i), key);
+                }
+            }
+            assertEquals(expected, trie);
+            assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(trie.keySet()));
+            for (int i = 0; i < 100; i++) {
+                final String key = randomKey(random);
+                assertEquals(expected.get(key), trie.get(key), key);
+                assertEquals(expected.nextKey(key), trie.nextKey(key), key);
+                assertEquals(expected.previousKey(key), trie.previousKey(key), key);
+                assertEquals(expected.select(key), trie.select(key), key);
+                final SortedMap<String, Integer> prefixMap = trie.prefixMap(key);
+                assertEquals(new ArrayList<>(expected.prefixMap(key).keySet()), new ArrayList<>(prefixMap.keySet()), key);
+                assertEquals(expected.prefixMap(key).size(), prefixMap.size(), key);
+                assertEquals(new ArrayList<>(expected.headMap(key).keySet()), new ArrayList<>(trie.headMap(key).keySet()), key);
+                assertEquals(new ArrayList<>(expected.tailMap(key).keySet()), new ArrayList<>(trie.tailMap(key).keySet()), key);
+                assertEquals(expected.tailMap(key).size(), trie.tailMap(key).size(), key);
+            }
+        }
+    }
+
+    @Test
+    void testPrefixMapIsLive() {
+        final ConcurrentPatriciaTrie<String, Integer> trie = new ConcurrentPatriciaTrie<>(StringKeyAnalyzer.INSTANCE);
+        trie.put("Anna", 1);
+        final SortedMap<String, Integer> prefixMap = trie.prefixMap("And");
+        assertTrue(prefixMap.isEmpty());
+        trie.put("Andrea", 2);
+        trie.put("And", 3);
+        assertEquals(2, prefixMap.size());
+        assertEquals("And", prefixMap.firstKey());
+        assertEquals("Andrea", prefixMap.lastKey());
+        prefixMap.put("Andreas", 4);
+        assertEquals(4, trie.get("Andreas"));
+        assertThrows(IllegalArgumentException.class, () -> prefixMap.put("Anael", 5));
+        assertNull(prefixMap.get("Anna"));
+        assertEquals(Arrays.asList("Andrea", "Andreas"), new ArrayList<>(prefixMap.tailMap("Andrea").keySet()));
+        prefixMap.clear();
+        assertEquals(Arrays.asList("Anna"), new ArrayList<>(trie.keySet()));
+    }
+
+    /**
+     * The writer slides a window of keys by adding a key after the last one and removing the first one, so that each tree it publishes holds
+     * {@code window} or {@code window + 1} consecutive keys. Iterators which would see the live trie rather than a snapshot would see more keys.
+     */
+    @Test
+    void testReadersSeeSnapshots() throws Exception {
+        final int window = 100;
+        final ConcurrentPatriciaTrie<String, Integer> trie = new ConcurrentPatriciaTrie<>(StringKeyAnalyzer.INSTANCE);
+        for (int i = 0; i < window; i++) {
+            trie.put(String.format("k%06d", i), i);
+        }
+        final AtomicBoolean done = new AtomicBoolean();
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final List<Future<Integer>> readers = new ArrayList<>();
+            for (int r = 0; r < 2; r++) {
+                readers.add(executor.submit(() -> {
+                    int snapshots = 0;
+                    while (!done.get()) {
+                        int count = 0;
+                        int last = -1;
+                        for (final Map.Entry<String, Integer> entry : trie.prefixMap("k").entrySet()) {
+                            assertTrue(last < 0 || entry.getValue() == last + 1, entry.getKey());
+                            assertEquals(Integer.parseInt(entry.getKey().substring(1)), entry.getValue());
+                            last = entry.getValue();
+                            count++;
+                        }
+                        assertTrue(count == window || count == window + 1, Integer.toString(count));
+                        snapshots++;
+                    }
+                    return snapshots;
+                }));
+            }
+            for (int i = window; i < 50000; i++) {
+                trie.put(String.format("k%06d", i), i);
+                trie.remove(String.format("k%06d", i - window));
+            }
+            done.set(true);
+            for (final Future<Integer> reader : readers) {
+                assertTrue(reader.get(30, TimeUnit.SECONDS) > 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSelect() {
+        final ConcurrentPatriciaTrie<String, Integer> trie = new ConcurrentPatriciaTrie<>(StringKeyAnalyzer.INSTANCE);
+        assertNull(trie.select("D"));
+        trie.put("H", 1);
+        trie.put("L", 2);
+        // 'D' is closer to 'L' than to 'H' by XOR
+        assertEquals("L", trie.selectKey("D"));
+        assertEquals(2, trie.selectValue("D"));
+        assertThrows(UnsupportedOperationException.class, () -> trie.select("D").setValue(3));
+    }
+
+    @Test
+    void testTopPrefixMatches() {
+        final ConcurrentPatriciaTrie<String, Integer> trie = new ConcurrentPatriciaTrie<>(StringKeyAnalyzer.INSTANCE, Comparator.naturalOrder());
+        trie.put("And", 3);
+        trie.put("Anael", 2);
+        trie.put("Andrea", 9);
+        trie.put("Andreas", 4);
+        trie.put("Andres", 9);
+        trie.put("Anna", 8);
+        assertEquals(Arrays.asList("Andrea", "Andres", "Andreas"), keys(trie.topPrefixMatches("And", 3)));
+        assertEquals(Arrays.asList("Andrea", "Andres", "Anna", "Andreas", "And", "Anael"), keys(trie.topPrefixMatches("", 10)));
+        assertEquals(Arrays.asList("Andres"), keys(trie.topPrefixMatches("Andres", 10)));
+        assertTrue(trie.topPrefixMatches("Andy", 10).isEmpty());
+        assertTrue(trie.topPrefixMatches("And", 0).isEmpty());
+        trie.put("Andrea", 1);
+        trie.remove("Andres");
+        assertEquals(Arrays.asList("Andreas", "And"), keys(trie.topPrefixMatches("And", 2)));
+        assertThrows(IllegalArgumentException.class, () -> trie.topPrefixMatches("And", -1));
+        assertThrows(NullPointerException.class, () -> trie.topPrefixMatches(null, 1));
+        assertThrows(IllegalStateException.class, () -> new ConcurrentPatriciaTrie<String, Integer>(StringKeyAnalyzer.INSTANCE).topPrefixMatches("", 1));
+    }
+
+    @Test
+    void testTopPrefixMatchesMatchSortedPrefixMap() {
+        final Random random = new Random(23);
+        final ConcurrentPatriciaTrie<String, Integer> trie = new ConcurrentPatriciaTrie<>(StringKeyAnalyzer.INSTANCE, Comparator.naturalOrder());
+        for (int i = 0; i < 3000; i++) {
+            final String key = randomKey(random);
+            if (random.nextInt(4) == 0) {
+                trie.remove(key);
+            } else {
+                trie.put(key, random.nextInt(50));
+            }
+            final String prefix = randomKey(random);
+            final String shortPrefix = prefix.substring(0, Math.min(prefix.length(), random.nextInt(3)));
+            final int count = random.nextInt(10);
+            final List<Map.Entry<String, Integer>> expected = new ArrayList<>(trie.prefixMap(shortPrefix).entrySet());
+            // the sort is stable, so the keys come in order on ties
+            expected.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+            assertEquals(expected.subList(0, Math.min(count, expected.size())), trie.topPrefixMatches(shortPrefix, count), shortPrefix);
+        }
+    }
+
+}
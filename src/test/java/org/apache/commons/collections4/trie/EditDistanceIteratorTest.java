@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.apache.commons.collections4.Trie;
+import org.apache.commons.collections4.trie.analyzer.StringKeyAnalyzer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link EditDistanceIterator}.
+ */
+public class EditDistanceIteratorTest {
+
+    /**
+     * Returns the optimal string alignment distance between two strings, or their Levenshtein distance without transpositions.
+     */
+    private static int distance(final String a, final String b, final boolean transpositions) {
+        final int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            for (int j = 0; j <= b.length(); j++) {
+                if (i == 0 || j == 0) {
+                    d[i][j] = i + j;
+                    continue;
+                }
+                d[i][j] = Math.min(d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1), Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+                if (transpositions && i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    private static List<String> keys(final EditDistanceIterator<?> it) {
+        final List<String> keys = new ArrayList<>();
+        it.forEachRemaining(entry -> keys.add(entry.getKey()));
+        return keys;
+    }
+
+    private static String randomKey(final Random random) {
+        final String alphabet = "abcd\uffff";
+        final char[] chars = new char[random.nextInt(8)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(chars);
+    }
+
+    private static Trie<String, Integer> words() {
+        final Trie<String, Integer> trie = new PatriciaTrie<>();
+        for (final String word : Arrays.asList("", "a", "cat", "cart", "cast", "chat", "coat", "act", "tac", "cats", "dog", "scat")) {
+            trie.put(word, word.length());
+        }
+        return trie;
+    }
+
+    @Test
+    void testDamerauLevenshtein() {
+        assertEquals(Arrays.asList("act", "cart", "cast", "cat", "cats", "chat", "coat", "scat"), keys(EditDistanceIterator.damerauLevenshtein(words(), "cat", 1)));
+        assertEquals(Arrays.asList("act", "cat"), keys(EditDistanceIterator.damerauLevenshtein(words(), "act", 1)));
+    }
+
+    @Test
+    void testDistances() {
+        final EditDistanceIterator<Integer> it = EditDistanceIterator.levenshtein(words(), "cta", 2);
+        assertThrows(IllegalStateException.class, it::getDistance);
+        assertTrue(it.hasNext());
+        assertTrue(it.hasNext());
+        final Map.Entry<String, Integer> first = it.next();
+        assertEquals("a", first.getKey());
+        assertEquals(2, it.getDistance());
+        assertEquals("act", it.next().getKey());
+        assertEquals(2, it.getDistance());
+        assertEquals("cat", it.next().getKey());
+        assertEquals(2, it.getDistance());
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(NullPointerException.class, () -> EditDistanceIterator.levenshtein(null, "cat", 1));
+        assertThrows(NullPointerException.class, () -> EditDistanceIterator.levenshtein(words(), null, 1));
+        assertThrows(IllegalArgumentException.class, () -> EditDistanceIterator.levenshtein(words(), "cat", -1));
+    }
+
+    @Test
+    void testLevenshtein() {
+        assertEquals(Arrays.asList("cart", "cast", "cat", "cats", "chat", "coat", "scat"), keys(EditDistanceIterator.levenshtein(words(), "cat", 1)));
+        assertEquals(Arrays.asList("cat"), keys(EditDistanceIterator.levenshtein(words(), "cat", 0)));
+        assertEquals(Arrays.asList("", "a"), keys(EditDistanceIterator.levenshtein(words(), "", 1)));
+        final EditDistanceIterator<Integer> it = EditDistanceIterator.levenshtein(words(), "zebra", 1);
+        assertFalse(it.hasNext());
+        assertThrows(NoSuchElementException.class, it::next);
+    }
+
+    @Test
+    void testMatchesBruteForce() {
+        final Random random = new Random(29);
+        for (int round = 0; round < 40; round++) {
+            final Trie<String, Integer> trie = round % 2 == 0 ? new PatriciaTrie<>() : new ConcurrentPatriciaTrie<>(StringKeyAnalyzer.INSTANCE);
+            final int size = random.nextInt(300);
+            for (int i = 0; i < size; i++) {
+                trie.put(randomKey(random), i);
+            }
+            for (int i = 0; i < 20; i++) {
+                final String key = randomKey(random);
+                final int maxDistance = random.nextInt(4);
+                for (final boolean transpositions : new boolean[] { false, true }) {
+                    final List<String> expected = new ArrayList<>();
+                    for (final String candidate : trie.keySet()) {
+                        if (distance(key, candidate, transpositions) <= maxDistance) {
+                            expected.add(candidate);
+                        }
+                    }
+                    final EditDistanceIterator<Integer> it = transpositions ? EditDistanceIterator.damerauLevenshtein(trie, key, maxDistance)
+                            : EditDistanceIterator.levenshtein(trie, key, maxDistance);
+                    final List<String> actual = new ArrayList<>();
+                    while (it.hasNext()) {
+                        actual.add(it.next().getKey());
+                        assertEquals(distance(key, actual.get(actual.size() - 1), transpositions), it.getDistance());
+                    }
+                    assertEquals(expected, actual, key + " " + maxDistance);
+                }
+            }
+        }
+    }
+
+}
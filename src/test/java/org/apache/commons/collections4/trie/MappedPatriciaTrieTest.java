@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.apache.commons.collections4.Trie;
+import org.apache.commons.collections4.map.AbstractSortedMapTest;
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link MappedPatriciaTrie}.
+ *
+ * @param <V> the value type.
+ */
+public class MappedPatriciaTrieTest<V> extends AbstractSortedMapTest<String, V> {
+
+    private static <V> Trie<String, V> mapped(final Map<String, ? extends V> map) {
+        try {
+            final Path path = Files.createTempFile("MappedPatriciaTrieTest", ".trie");
+            path.toFile().deleteOnExit();
+            MappedPatriciaTrie.write(path, map, value -> SerializationUtils.serialize((Serializable) value));
+            return MappedPatriciaTrie.open(path, SerializationUtils::<V>deserialize);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns a random key over a small alphabet, so that many keys share prefixes, with characters encoded on one to three bytes.
+     */
+    private static String randomKey(final Random random) {
+        final String alphabet = "@ABCDHP`éĀ中";
+        final char[] chars = new char[random.nextInt(7)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(chars);
+    }
+
+    @TempDir
+    Path tempDir;
+
+    @Override
+    public String getCompatibilityVersion() {
+        // MappedPatriciaTrie has been added in version 4.6
+        return "4.6";
+    }
+
+    /**
+     * The keys and values are decoded from the file.
+     */
+    @Override
+    public boolean isKeyIdentityPreserved() {
+        return false;
+    }
+
+    @Override
+    public boolean isPutAddSupported() {
+        return false;
+    }
+
+    @Override
+    public boolean isPutChangeSupported() {
+        return false;
+    }
+
+    @Override
+    public boolean isRemoveSupported() {
+        return false;
+    }
+
+    @Override
+    public Trie<String, V> makeFullMap() {
+        final Trie<String, V> m = new PatriciaTrie<>();
+        addSampleMappings(m);
+        return mapped(m);
+    }
+
+    @Override
+    public Trie<String, V> makeObject() {
+        return mapped(new PatriciaTrie<>());
+    }
+
+    @Test
+    void testLongestPrefixOf() throws IOException {
+        final Path path = tempDir.resolve("paths.trie");
+        try (MappedPatriciaTrie.Writer<String> writer = MappedPatriciaTrie.writer(path, value -> value.getBytes(StandardCharsets.UTF_8))) {
+            writer.add("/", "root").add("/usr", "usr").add("/usr/local", "local").add("/var", null);
+        }
+        final MappedPatriciaTrie<String> trie = MappedPatriciaTrie.open(path, bytes -> new String(bytes, StandardCharsets.UTF_8));
+        assertEquals("usr", trie.longestPrefixOf("/usr/lib").getValue());
+        assertEquals("/usr/local", trie.longestPrefixOf("/usr/local/bin").getKey());
+        assertEquals("/usr/local", trie.longestPrefixOf("/usr/local").getKey());
+        assertEquals("/", trie.longestPrefixOf("/u").getKey());
+        assertNull(trie.longestPrefixOf("/var/log").getValue());
+        assertNull(trie.longestPrefixOf("usr"));
+        assertThrows(NullPointerException.class, () -> trie.longestPrefixOf(null));
+    }
+
+    @Test
+    void testMatchesPatriciaTrie() throws IOException {
+        final Random random = new Random(13);
+        for (int round = 0; round < 30; round++) {
+            final PatriciaTrie<Integer> expected = new PatriciaTrie<>();
+            final int size = random.nextInt(300);
+            for (int i = 0; i < size; i++) {
+                expected.put(randomKey(random), random.nextInt(10) == 0 ? null : i);
+            }
+            final Path path = tempDir.resolve("trie" + round);
+            MappedPatriciaTrie.write(path, expected, value -> new byte[] { (byte) (value >>> 8), (byte) (int) value });
+            final MappedPatriciaTrie<Integer> trie = MappedPatriciaTrie.open(path, bytes -> (bytes[0] & 0xff) << 8 | bytes[1] & 0xff);
+            assertEquals(expected, trie);
+            assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(trie.keySet()));
+            for (int i = 0; i < 100; i++) {
+                final String key = randomKey(random);
+                assertEquals(expected.get(key), trie.get(key), key);
+                assertEquals(expected.containsKey(key), trie.containsKey(key), key);
+                assertEquals(expected.nextKey(key), trie.nextKey(key), key);
+                assertEquals(expected.previousKey(key), trie.previousKey(key), key);
+                final Map.Entry<String, Integer> longest = expected.longestPrefixOf(key);
+                assertEquals(longest, trie.longestPrefixOf(key), key);
+                assertEquals(new ArrayList<>(expected.prefixMap(key).keySet()), new ArrayList<>(trie.prefixMap(key).keySet()), key);
+                assertEquals(new ArrayList<>(expected.headMap(key).keySet()), new ArrayList<>(trie.headMap(key).keySet()), key);
+                assertEquals(new ArrayList<>(expected.tailMap(key).keySet()), new ArrayList<>(trie.tailMap(key).keySet()), key);
+            }
+        }
+    }
+
+    @Test
+    void testOpenRejectsOtherFiles() throws IOException {
+        final Path path = tempDir.resolve("other");
+        Files.write(path, new byte[100]);
+        assertThrows(IOException.class, () -> MappedPatriciaTrie.open(path, bytes -> bytes));
+        Files.write(path, new byte[10]);
+        assertThrows(IOException.class, () -> MappedPatriciaTrie.open(path, bytes -> bytes));
+    }
+
+    @Test
+    void testWriteFailureKeepsPreviousFile() throws IOException {
+        final Path path = tempDir.resolve("names.trie");
+        final PatriciaTrie<String> map = new PatriciaTrie<>();
+        map.put("Anna", "1");
+        MappedPatriciaTrie.write(path, map, value -> value.getBytes(StandardCharsets.UTF_8));
+        map.put("Andrea", "2");
+        map.put("Anael", "3");
+        assertThrows(IllegalArgumentException.class, () -> MappedPatriciaTrie.write(path, map, value -> {
+            if ("2".equals(value)) {
+                throw new IllegalArgumentException(value);
+            }
+            return value.getBytes(StandardCharsets.UTF_8);
+        }));
+        final MappedPatriciaTrie<String> trie = MappedPatriciaTrie.open(path, bytes -> new String(bytes, StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList("Anna"), new ArrayList<>(trie.keySet()));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void testWriterKeepsStateAfterEncoderFailure() throws IOException {
+        final Path path = tempDir.resolve("names.trie");
+        try (MappedPatriciaTrie.Writer<String> writer = MappedPatriciaTrie.writer(path, value -> {
+            if (value.isEmpty()) {
+                throw new IllegalArgumentException();
+            }
+            return value.getBytes(StandardCharsets.UTF_8);
+        })) {
+            writer.add("And", "1");
+            assertThrows(IllegalArgumentException.class, () -> writer.add("Andrea", ""));
+            writer.add("Andrea", "2").add("Anna", "3");
+        }
+        final MappedPatriciaTrie<String> trie = MappedPatriciaTrie.open(path, bytes -> new String(bytes, StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList("And", "Andrea", "Anna"), new ArrayList<>(trie.keySet()));
+        assertEquals("2", trie.get("Andrea"));
+    }
+
+    @Test
+    void testWriterRejectsKeysOutOfOrder() throws IOException {
+        final Path path = tempDir.resolve("names.trie");
+        try (MappedPatriciaTrie.Writer<byte[]> writer = MappedPatriciaTrie.writer(path, value -> value)) {
+            writer.add("", new byte[0]).add("And", new byte[] { 1 }).add("Andrea", new byte[] { 2 });
+            assertThrows(IllegalArgumentException.class, () -> writer.add("Andrea", null));
+            assertThrows(IllegalArgumentException.class, () -> writer.add("Andrea\0", null));
+            assertThrows(IllegalArgumentException.class, () -> writer.add("Anael", null));
+            assertThrows(NullPointerException.class, () -> writer.add(null, null));
+            writer.add("Andreas", new byte[] { 3 });
+            writer.close();
+            assertThrows(IllegalStateException.class, () -> writer.add("Andres", null));
+        }
+        final MappedPatriciaTrie<byte[]> trie = MappedPatriciaTrie.open(path, bytes -> bytes);
+        assertEquals(Arrays.asList("", "And", "Andrea", "Andreas"), new ArrayList<>(trie.keySet()));
+        assertEquals(2, trie.get("Andrea")[0]);
+        // the temporary files are gone
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+}
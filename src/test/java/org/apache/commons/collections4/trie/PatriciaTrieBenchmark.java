@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie;
+
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections4.Trie;
+import org.apache.commons.collections4.trie.analyzer.StringKeyAnalyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@code put}, {@code get}, {@code prefixMap} and the size of prefix views of a {@link PatriciaTrie} holding a dictionary of words which
+ * share many prefixes, with {@link StringKeyAnalyzer} and with the character by character comparison of version 4.5. The {@code bitIndex}
+ * benchmark isolates the comparison.
+ * <p>
+ * Run with {@code mvn test -Pbenchmark -Dbenchmark=PatriciaTrieBenchmark}.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PatriciaTrieBenchmark {
+
+    /**
+     * The {@link StringKeyAnalyzer} of version 4.5, which compares one character at a time.
+     */
+    static final class CharKeyAnalyzer extends KeyAnalyzer<String> {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public int bitIndex(final String key, final int offsetInBits, final int lengthInBits,
+                            final String other, final int otherOffsetInBits, final int otherLengthInBits) {
+            boolean allNull = true;
+            final int beginIndex1 = offsetInBits / Character.SIZE;
+            final int beginIndex2 = otherOffsetInBits / Character.SIZE;
+            final int endIndex1 = beginIndex1 + lengthInBits / Character.SIZE;
+            final int endIndex2 = beginIndex2 + otherLengthInBits / Character.SIZE;
+            final int length = Math.max(endIndex1, endIndex2);
+            for (int i = 0; i < length; i++) {
+                final int index1 = beginIndex1 + i;
+                final int index2 = beginIndex2 + i;
+                final char k = index1 >= endIndex1 ? 0 : key.charAt(index1);
+                final char f = other == null || index2 >= endIndex2 ? 0 : other.charAt(index2);
+                if (k != f) {
+                    return i * Character.SIZE + Integer.numberOfLeadingZeros(k ^ f) - Character.SIZE;
+                }
+                if (k != 0) {
+                    allNull = false;
+                }
+            }
+            return allNull ? NULL_BIT_KEY : EQUAL_BIT_KEY;
+        }
+
+        @Override
+        public int bitsPerElement() {
+            return StringKeyAnalyzer.INSTANCE.bitsPerElement();
+        }
+
+        @Override
+        public boolean isBitSet(final String key, final int bitIndex, final int lengthInBits) {
+            return StringKeyAnalyzer.INSTANCE.isBitSet(key, bitIndex, lengthInBits);
+        }
+
+        @Override
+        public boolean isPrefix(final String prefix, final int offsetInBits, final int lengthInBits, final String key) {
+            return StringKeyAnalyzer.INSTANCE.isPrefix(prefix, offsetInBits, lengthInBits, key);
+        }
+
+        @Override
+        public int lengthInBits(final String key) {
+            return StringKeyAnalyzer.INSTANCE.lengthInBits(key);
+        }
+    }
+
+    private static final String[] SYLLABLES = { "an", "ber", "con", "de", "ex", "for", "gra", "in", "ment", "ni", "of", "pre", "qui", "re", "sta",
+        "tion", "un", "ver", "with", "zo" };
+
+    /** The number of keys looked up, inserted or used as prefixes per invocation. */
+    private static final int BATCH = 1_024;
+
+    @Param({ "StringKeyAnalyzer", "CharKeyAnalyzer" })
+    public String analyzer;
+
+    @Param({ "200000" })
+    public int words;
+
+    private KeyAnalyzer<String> keyAnalyzer;
+
+    private String[] dictionary;
+
+    private String[] found;
+
+    private String[] lookups;
+
+    private String[] prefixes;
+
+    private Trie<String, Integer> trie;
+
+    /**
+     * Compares each looked up key with the equal key found in the trie, which is the comparison ending every successful {@code get}.
+     */
+    @Benchmark
+    public void bitIndex(final Blackhole blackhole) {
+        for (int i = 0; i < BATCH; i++) {
+            final String key = lookups[i];
+            final String other = found[i];
+            blackhole.consume(keyAnalyzer.bitIndex(key, 0, key.length() * Character.SIZE, other, 0, other.length() * Character.SIZE));
+        }
+    }
+
+    @Benchmark
+    public void get(final Blackhole blackhole) {
+        for (final String key : lookups) {
+            blackhole.consume(trie.get(key));
+        }
+    }
+
+    private Trie<String, Integer> newTrie() {
+        return "StringKeyAnalyzer".equals(analyzer) ? new PatriciaTrie<>() : new GenericPatriciaTrie<>(keyAnalyzer);
+    }
+
+    @Benchmark
+    public void prefixMap(final Blackhole blackhole) {
+        for (final String prefix : prefixes) {
+            final SortedMap<String, Integer> view = trie.prefixMap(prefix);
+            blackhole.consume(view.isEmpty() ? null : view.firstKey());
+        }
+    }
+
+    /**
+     * Counts the keys of each prefix view, which are many for short prefixes.
+     */
+    @Benchmark
+    public void prefixMapSize(final Blackhole blackhole) {
+        for (final String prefix : prefixes) {
+            blackhole.consume(trie.prefixMap(prefix).size());
+        }
+    }
+
+    @Benchmark
+    public void put(final Blackhole blackhole) {
+        for (final String key : lookups) {
+            // replaces the value, after walking to the key as an insertion does
+            blackhole.consume(trie.put(key, key.length()));
+        }
+    }
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        keyAnalyzer = "StringKeyAnalyzer".equals(analyzer) ? StringKeyAnalyzer.INSTANCE : new CharKeyAnalyzer();
+        dictionary = new String[words];
+        trie = newTrie();
+        for (int i = 0; i < words; i++) {
+            final StringBuilder word = new StringBuilder();
+            final int syllables = 2 + random.nextInt(5);
+            for (int s = 0; s < syllables; s++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            dictionary[i] = word.toString();
+            trie.put(dictionary[i], i);
+        }
+        lookups = new String[BATCH];
+        found = new String[BATCH];
+        prefixes = new String[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            found[i] = dictionary[random.nextInt(words)];
+            // equal but distinct strings, as looked up keys usually are
+            lookups[i] = new String(found[i]);
+            prefixes[i] = lookups[i].substring(0, 1 + random.nextInt(lookups[i].length()));
+        }
+    }
+}
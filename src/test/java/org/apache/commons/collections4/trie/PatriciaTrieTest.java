@@ -26,11 +26,14 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Random;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.concurrent.CyclicBarrier;
@@ -188,6 +191,31 @@ public class PatriciaTrieTest<V> extends AbstractSortedMapTest<String, V> {
         assertNull(headMap.get("ge"));
     }
 
+    @Test
+    void testLongestPrefixOf() {
+        final PatriciaTrie<Integer> trie = new PatriciaTrie<>();
+        assertNull(trie.longestPrefixOf("/usr/lib"));
+        trie.put("/", 1);
+        trie.put("/usr", 2);
+        trie.put("/usr/local", 3);
+        trie.put("/var", 4);
+        assertEquals("/usr", trie.longestPrefixOf("/usr/lib").getKey());
+        assertEquals("/usr/local", trie.longestPrefixOf("/usr/local/bin").getKey());
+        assertEquals("/usr/local", trie.longestPrefixOf("/usr/local").getKey());
+        assertEquals("/", trie.longestPrefixOf("/u").getKey());
+        assertNull(trie.longestPrefixOf("usr"));
+        assertNull(trie.longestPrefixOf(""));
+        trie.put("", 0);
+        assertEquals("", trie.longestPrefixOf("usr").getKey());
+        assertEquals("", trie.longestPrefixOf("").getKey());
+
+        final Map.Entry<String, Integer> entry = trie.longestPrefixOf("/var/log");
+        assertEquals(4, entry.getValue());
+        entry.setValue(5);
+        assertEquals(5, trie.get("/var"));
+        assertThrows(NullPointerException.class, () -> trie.longestPrefixOf(null));
+    }
+
     @Test
     void testPrefixMap() {
         final PatriciaTrie<String> trie = new PatriciaTrie<>();
@@ -564,6 +592,129 @@ public class PatriciaTrieTest<V> extends AbstractSortedMapTest<String, V> {
         assertTrue(trie.prefixMap(prefixString).containsKey(longerString));
     }
 
+    @Test
+    void testPrefixMapSizesMatchIteration() {
+        final Random random = new Random(11);
+        for (int round = 0; round < 30; round++) {
+            final PatriciaTrie<Integer> trie = new PatriciaTrie<>();
+            final List<SortedMap<String, Integer>> views = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                views.add(trie.prefixMap("@ABCDHP`".charAt(random.nextInt(8)) + randomKey(random)));
+            }
+            final int operations = random.nextInt(300);
+            for (int i = 0; i < operations; i++) {
+                // the empty key, which the root holds, comes and goes
+                final String key = random.nextInt(20) == 0 ? StringUtils.EMPTY : randomKey(random);
+                if (random.nextInt(3) == 0) {
+                    trie.remove(key);
+                } else {
+                    trie.put(key, i);
+                }
+                final SortedMap<String, Integer> view = views.get(random.nextInt(views.size()));
+                final List<String> keys = new ArrayList<>(view.keySet());
+                assertEquals(keys.size(), view.size(), keys::toString);
+                assertEquals(keys.isEmpty(), view.isEmpty());
+                if (!keys.isEmpty()) {
+                    assertEquals(keys.get(0), view.firstKey());
+                    assertEquals(keys.get(keys.size() - 1), view.lastKey());
+                }
+            }
+            for (final SortedMap<String, Integer> view : views) {
+                int expected = 0;
+                for (final String key : trie.keySet()) {
+                    if (view.containsKey(key)) {
+                        expected++;
+                    }
+                }
+                assertEquals(expected, view.size());
+            }
+        }
+    }
+
+    @Test
+    void testPrefixesOf() {
+        final PatriciaTrie<Integer> trie = new PatriciaTrie<>();
+        assertTrue(trie.prefixesOf("Andreas").isEmpty());
+        trie.put("A", 1);
+        trie.put("And", 2);
+        trie.put("Andrea", 3);
+        trie.put("Andreas", 4);
+        trie.put("Andres", 5);
+        trie.put("Anna", 6);
+        trie.put("B", 7);
+        assertEquals(Arrays.asList("A", "And", "Andrea", "Andreas"), keys(trie.prefixesOf("Andreas")));
+        assertEquals(Arrays.asList("A", "And", "Andrea"), keys(trie.prefixesOf("Andreanne")));
+        assertEquals(Arrays.asList("A", "And"), keys(trie.prefixesOf("Andr")));
+        assertEquals(Arrays.asList("A"), keys(trie.prefixesOf("An")));
+        assertEquals(Arrays.asList("B"), keys(trie.prefixesOf("Bob")));
+        assertTrue(trie.prefixesOf("C").isEmpty());
+        assertThrows(NullPointerException.class, () -> trie.prefixesOf(null));
+    }
+
+    @Test
+    void testPrefixesOfMatchesEveryPrefix() {
+        final Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            final PatriciaTrie<Integer> trie = new PatriciaTrie<>();
+            // a small alphabet with characters differing in one bit, so that many keys are prefixes of others
+            final int size = random.nextInt(200);
+            for (int i = 0; i < size; i++) {
+                // removals rewire the trie, which must keep the smallest entry of each subtree
+                if (random.nextInt(3) == 0) {
+                    trie.remove(randomKey(random));
+                } else {
+                    trie.put(randomKey(random), i);
+                }
+            }
+            final List<String> queries = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                queries.add(randomKey(random));
+            }
+            // the keys and their extensions, whose prefixes are off their paths wherever they turn right
+            for (final String key : trie.keySet()) {
+                queries.add(key);
+                queries.add(key + randomKey(random));
+            }
+            for (final String key : queries) {
+                final List<String> expected = new ArrayList<>();
+                for (final String candidate : trie.keySet()) {
+                    if (key.startsWith(candidate)) {
+                        expected.add(candidate);
+                    }
+                }
+                assertEquals(expected, keys(trie.prefixesOf(key)), key);
+                final Map.Entry<String, Integer> longest = trie.longestPrefixOf(key);
+                assertEquals(expected.isEmpty() ? null : expected.get(expected.size() - 1), longest == null ? null : longest.getKey(), key);
+            }
+        }
+    }
+
+    private static List<String> keys(final List<Map.Entry<String, Integer>> entries) {
+        final List<String> keys = new ArrayList<>();
+        for (final Map.Entry<String, Integer> entry : entries) {
+            keys.add(entry.getKey());
+        }
+        return keys;
+    }
+
+    private static String randomKey(final Random random) {
+        final char[] chars = new char[random.nextInt(6)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = "@ABCDHP`".charAt(random.nextInt(8));
+        }
+        return new String(chars);
+    }
+
+    @Test
+    void testPutEmptyKeyAfterRemovingInternalEntry() {
+        final PatriciaTrie<Integer> trie = new PatriciaTrie<>();
+        trie.put("H", 1);
+        trie.put("H`", 2);
+        trie.remove("H");
+        trie.put(StringUtils.EMPTY, 3);
+        assertEquals(Arrays.asList(StringUtils.EMPTY, "H`"), new ArrayList<>(trie.keySet()));
+    }
+
     @Test
     void testSubmap() {
         final PatriciaTrie<String> trie = new PatriciaTrie<>();
@@ -668,6 +819,64 @@ public class PatriciaTrieTest<V> extends AbstractSortedMapTest<String, V> {
         assertEquals("ge", tailMap.get("ge"));
     }
 
+    @Test
+    void testTopPrefixMatches() {
+        final PatriciaTrie<Integer> trie = new PatriciaTrie<>(Comparator.naturalOrder(), 2);
+        trie.put("And", 3);
+        trie.put("Anael", 2);
+        trie.put("Andrea", 9);
+        trie.put("Andreas", 4);
+        trie.put("Andres", 9);
+        trie.put("Anna", 8);
+        assertEquals(Arrays.asList("Andrea", "Andres"), keys(trie.topPrefixMatches("And", 2)));
+        assertEquals(Arrays.asList("Andrea", "Andres", "Andreas"), keys(trie.topPrefixMatches("And", 3)));
+        assertEquals(Arrays.asList("Andrea", "Andres", "Anna", "Andreas", "And", "Anael"), keys(trie.topPrefixMatches("", 10)));
+        assertEquals(Arrays.asList("Andres"), keys(trie.topPrefixMatches("Andres", 10)));
+        assertTrue(trie.topPrefixMatches("Andy", 10).isEmpty());
+        assertTrue(trie.topPrefixMatches("And", 0).isEmpty());
+        trie.put("Andrea", 1);
+        trie.remove("Andres");
+        assertEquals(Arrays.asList("Andreas", "And"), keys(trie.topPrefixMatches("And", 2)));
+        trie.topPrefixMatches("And", 1).get(0).setValue(0);
+        assertEquals(Arrays.asList("And", "Andrea"), keys(trie.topPrefixMatches("And", 2)));
+        assertThrows(IllegalArgumentException.class, () -> trie.topPrefixMatches("And", -1));
+        assertThrows(NullPointerException.class, () -> trie.topPrefixMatches(null, 1));
+        assertThrows(IllegalStateException.class, () -> new PatriciaTrie<Integer>().topPrefixMatches("", 1));
+        assertThrows(IllegalArgumentException.class, () -> new PatriciaTrie<Integer>(Comparator.naturalOrder(), 0));
+        assertThrows(NullPointerException.class, () -> new PatriciaTrie<Integer>(null, 1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testTopPrefixMatchesMatchSortedPrefixMap() throws Exception {
+        final Random random = new Random(23);
+        PatriciaTrie<Integer> trie = new PatriciaTrie<>(Comparator.naturalOrder(), 3);
+        for (int i = 0; i < 5000; i++) {
+            final String key = randomKey(random);
+            final int op = random.nextInt(10);
+            if (op < 2) {
+                trie.remove(key);
+            } else if (op < 3) {
+                // values set through the views update the greatest values too
+                for (final Map.Entry<String, Integer> entry : trie.prefixMap(key).entrySet()) {
+                    entry.setValue(random.nextInt(50));
+                }
+            } else if (op < 4 && i % 1000 == 0) {
+                trie = (PatriciaTrie<Integer>) serializeDeserialize(trie);
+            } else {
+                trie.put(key, random.nextInt(50));
+            }
+            final String prefix = randomKey(random);
+            final String shortPrefix = prefix.substring(0, Math.min(prefix.length(), random.nextInt(3)));
+            // beyond the cached values, the greatest ones are searched for
+            final int count = random.nextInt(10);
+            final List<Map.Entry<String, Integer>> expected = new ArrayList<>(trie.prefixMap(shortPrefix).entrySet());
+            // the sort is stable, so the keys come in order on ties
+            expected.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+            assertEquals(expected.subList(0, Math.min(count, expected.size())), trie.topPrefixMatches(shortPrefix, count), shortPrefix);
+        }
+    }
+
 //    void testCreate() throws Exception {
 //        resetEmpty();
 //        writeExternalFormToDisk(
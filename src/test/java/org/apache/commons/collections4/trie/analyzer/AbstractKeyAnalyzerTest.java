@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie.analyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.commons.collections4.Trie;
+import org.apache.commons.collections4.trie.GenericPatriciaTrie;
+import org.apache.commons.collections4.trie.KeyAnalyzer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks a {@link KeyAnalyzer} against a bit by bit reference, and against its own ordering in a trie.
+ *
+ * @param <K> the key type.
+ */
+public abstract class AbstractKeyAnalyzerTest<K> {
+
+    private static final int PAIRS = 5_000;
+
+    private static final int TRIE_SIZE = 1_000;
+
+    /**
+     * Returns the analyzer under test.
+     *
+     * @return the analyzer under test.
+     */
+    protected abstract KeyAnalyzer<K> analyzer();
+
+    /**
+     * Returns whether the analyzer deserializes as its singleton instance.
+     *
+     * @return whether the analyzer deserializes as its singleton instance.
+     */
+    protected boolean isSerializedAsSingleton() {
+        return true;
+    }
+
+    /**
+     * Returns a random key. Keys should often share prefixes, and must not be equal to another key padded with zero bits.
+     *
+     * @param random the source of randomness.
+     * @return a random key.
+     */
+    protected abstract K randomKey(Random random);
+
+    private int referenceBitIndex(final K key, final K other) {
+        final KeyAnalyzer<K> analyzer = analyzer();
+        final int keyLength = analyzer.lengthInBits(key);
+        final int otherLength = analyzer.lengthInBits(other);
+        boolean allNull = true;
+        for (int i = 0; i < Math.max(keyLength, otherLength); i++) {
+            final boolean a = analyzer.isBitSet(key, i, keyLength);
+            if (a != analyzer.isBitSet(other, i, otherLength)) {
+                return i;
+            }
+            if (a) {
+                allNull = false;
+            }
+        }
+        return allNull ? KeyAnalyzer.NULL_BIT_KEY : KeyAnalyzer.EQUAL_BIT_KEY;
+    }
+
+    @Test
+    void testBitIndexMatchesBitwiseReference() {
+        final KeyAnalyzer<K> analyzer = analyzer();
+        final Random random = new Random(42);
+        for (int i = 0; i < PAIRS; i++) {
+            final K key = randomKey(random);
+            final K other = i % 10 == 0 ? key : randomKey(random);
+            final int expected = referenceBitIndex(key, other);
+            assertEquals(expected, analyzer.bitIndex(key, 0, analyzer.lengthInBits(key), other, 0, analyzer.lengthInBits(other)));
+            // the first different bit decides the order of the keys
+            if (expected >= 0) {
+                assertEquals(analyzer.isBitSet(key, expected, analyzer.lengthInBits(key)), analyzer.compare(key, other) > 0);
+            }
+            assertTrue(analyzer.isPrefix(key, 0, analyzer.lengthInBits(key), key));
+        }
+    }
+
+    @Test
+    void testSerialization() throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(analyzer());
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            final Object copy = in.readObject();
+            assertSame(analyzer().getClass(), copy.getClass());
+            if (isSerializedAsSingleton()) {
+                assertSame(analyzer(), copy);
+            }
+        }
+    }
+
+    @Test
+    void testTrieOrderMatchesComparator() {
+        final Random random = new Random(7);
+        final Trie<K, Integer> trie = new GenericPatriciaTrie<>(analyzer());
+        final TreeMap<K, Integer> expected = new TreeMap<>(analyzer());
+        for (int i = 0; i < TRIE_SIZE; i++) {
+            final K key = randomKey(random);
+            assertEquals(expected.put(key, i), trie.put(key, i));
+        }
+        assertEquals(expected.size(), trie.size());
+        final List<K> keys = new ArrayList<>(trie.keySet());
+        final Iterator<Map.Entry<K, Integer>> it = expected.entrySet().iterator();
+        for (final K key : keys) {
+            final Map.Entry<K, Integer> entry = it.next();
+            assertEquals(0, analyzer().compare(entry.getKey(), key));
+            assertEquals(entry.getValue(), trie.get(entry.getKey()));
+        }
+        assertEquals(0, analyzer().compare(expected.firstKey(), trie.firstKey()));
+        assertEquals(0, analyzer().compare(expected.lastKey(), trie.lastKey()));
+    }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie.analyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.collections4.Trie;
+import org.apache.commons.collections4.trie.GenericPatriciaTrie;
+import org.apache.commons.collections4.trie.KeyAnalyzer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link ByteArrayKeyAnalyzer}.
+ */
+public class ByteArrayKeyAnalyzerTest extends AbstractKeyAnalyzerTest<byte[]> {
+
+    static byte[] randomBytes(final Random random) {
+        // a small alphabet and lengths around the word size give long common prefixes
+        final byte[] bytes = new byte[random.nextInt(20)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (random.nextBoolean() ? 0x61 : 0x80 | random.nextInt(4));
+        }
+        return bytes;
+    }
+
+    private static byte[] utf8(final String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected KeyAnalyzer<byte[]> analyzer() {
+        return ByteArrayKeyAnalyzer.INSTANCE;
+    }
+
+    @Override
+    protected byte[] randomKey(final Random random) {
+        return randomBytes(random);
+    }
+
+    @Test
+    void testBitIndexOffsets() {
+        final KeyAnalyzer<byte[]> analyzer = analyzer();
+        final byte[] key = utf8("/usr/local/bin");
+        assertEquals(KeyAnalyzer.EQUAL_BIT_KEY, analyzer.bitIndex(key, 32, 48, utf8("/local"), 0, 48));
+        // '/' is 0x2f and '0' is 0x30
+        assertEquals(6 * 8 + 3, analyzer.bitIndex(key, 32, 56, utf8("/local0"), 0, 56));
+        assertEquals(KeyAnalyzer.NULL_BIT_KEY, analyzer.bitIndex(new byte[16], 0, 128, null, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> analyzer.bitIndex(key, 3, 8, key, 0, 8));
+    }
+
+    @Test
+    void testPrefixMap() {
+        final Trie<byte[], String> trie = new GenericPatriciaTrie<>(analyzer());
+        for (final String path : new String[] { "/usr", "/usr/bin", "/usr/local/bin", "/usr/local/lib", "/var/log" }) {
+            trie.put(utf8(path), path);
+        }
+        final List<String> values = new ArrayList<>(trie.prefixMap(utf8("/usr/local")).values());
+        assertEquals(2, values.size());
+        assertEquals("/usr/local/bin", values.get(0));
+        assertEquals("/usr/local/lib", values.get(1));
+        assertEquals(4, trie.prefixMap(utf8("/usr")).size());
+    }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie.analyzer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.apache.commons.collections4.trie.KeyAnalyzer;
+
+/**
+ * Tests {@link ByteBufferKeyAnalyzer} with heap, direct, read-only and little-endian slices.
+ */
+public class ByteBufferKeyAnalyzerTest extends AbstractKeyAnalyzerTest<ByteBuffer> {
+
+    @Override
+    protected KeyAnalyzer<ByteBuffer> analyzer() {
+        return ByteBufferKeyAnalyzer.INSTANCE;
+    }
+
+    @Override
+    protected ByteBuffer randomKey(final Random random) {
+        final byte[] bytes = ByteArrayKeyAnalyzerTest.randomBytes(random);
+        // surround the key with other bytes, so that its position and limit matter
+        final ByteBuffer buffer = random.nextBoolean() ? ByteBuffer.allocate(bytes.length + 6) : ByteBuffer.allocateDirect(bytes.length + 6);
+        buffer.put(new byte[] { 1, 2, 3 }).put(bytes).put(new byte[] { 4, 5, 6 });
+        buffer.position(3).limit(3 + bytes.length);
+        final ByteBuffer key = random.nextBoolean() ? buffer.asReadOnlyBuffer() : buffer;
+        return random.nextBoolean() ? key.order(ByteOrder.LITTLE_ENDIAN) : key;
+    }
+
+}
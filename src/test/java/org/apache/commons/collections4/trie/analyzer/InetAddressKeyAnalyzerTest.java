@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie.analyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.collections4.Trie;
+import org.apache.commons.collections4.trie.GenericPatriciaTrie;
+import org.apache.commons.collections4.trie.KeyAnalyzer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link InetAddressKeyAnalyzer} with IPv4 and IPv6 addresses.
+ */
+public class InetAddressKeyAnalyzerTest extends AbstractKeyAnalyzerTest<InetAddress> {
+
+    private static InetAddress address(final String literal) throws UnknownHostException {
+        // literals are parsed without a name lookup
+        return InetAddress.getByName(literal);
+    }
+
+    @Override
+    protected KeyAnalyzer<InetAddress> analyzer() {
+        return InetAddressKeyAnalyzer.INSTANCE;
+    }
+
+    @Override
+    protected InetAddress randomKey(final Random random) {
+        final byte[] bytes = new byte[random.nextBoolean() ? 4 : 16];
+        bytes[0] = (byte) (random.nextBoolean() ? 10 : 0xfe);
+        for (int i = 1; i < bytes.length; i++) {
+            bytes[i] = (byte) random.nextInt(i < 3 ? 2 : 256);
+        }
+        try {
+            return InetAddress.getByAddress(bytes);
+        } catch (final UnknownHostException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void testMixedAddressFamilies() throws UnknownHostException {
+        final Trie<InetAddress, String> trie = new GenericPatriciaTrie<>(analyzer());
+        for (final String literal : new String[] { "10.0.0.1", "192.168.1.1", "::1", "2001:db8::1", "10.0.0.0", "fe80::1" }) {
+            trie.put(address(literal), literal);
+        }
+        // IPv4 addresses sort as their IPv4-mapped IPv6 addresses, between ::1 and 2001:db8::1
+        final List<String> expected = Arrays.asList("::1", "10.0.0.0", "10.0.0.1", "192.168.1.1", "2001:db8::1", "fe80::1");
+        assertEquals(expected, new ArrayList<>(trie.values()));
+        assertEquals("192.168.1.1", trie.get(address("::ffff:192.168.1.1")));
+        // an IPv4 address is not an IPv6 address sharing its leading bytes
+        assertEquals(null, trie.get(address("c0a8:101::")));
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie.analyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.apache.commons.collections4.trie.KeyAnalyzer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link IntegerKeyAnalyzer}.
+ */
+public class IntegerKeyAnalyzerTest extends AbstractKeyAnalyzerTest<Integer> {
+
+    @Override
+    protected KeyAnalyzer<Integer> analyzer() {
+        return IntegerKeyAnalyzer.INSTANCE;
+    }
+
+    @Override
+    protected Integer randomKey(final Random random) {
+        switch (random.nextInt(4)) {
+        case 0:
+            return random.nextInt();
+        case 1:
+            return random.nextInt(64) - 32;
+        case 2:
+            return Integer.MIN_VALUE + random.nextInt(4);
+        default:
+            return Integer.MAX_VALUE - random.nextInt(4);
+        }
+    }
+
+    @Test
+    void testWindows() {
+        final KeyAnalyzer<Integer> analyzer = analyzer();
+        // -1 and 0 only differ in the flipped sign bit
+        assertEquals(0, analyzer.bitIndex(-1, 0, 32, 0, 0, 32));
+        assertEquals(KeyAnalyzer.EQUAL_BIT_KEY, analyzer.bitIndex(-1, 1, 31, Integer.MAX_VALUE, 1, 31));
+        assertEquals(KeyAnalyzer.NULL_BIT_KEY, analyzer.bitIndex(Integer.MIN_VALUE, 0, 32, null, 0, 0));
+        assertTrue(analyzer.isPrefix(0x1234_0000, 0, 16, 0x1234_5678));
+        assertFalse(analyzer.isPrefix(0x1234_0000, 0, 17, 0x1234_8000));
+    }
+
+}
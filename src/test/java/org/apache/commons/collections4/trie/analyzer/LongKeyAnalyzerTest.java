@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie.analyzer;
+
+import java.util.Random;
+
+import org.apache.commons.collections4.trie.KeyAnalyzer;
+
+/**
+ * Tests {@link LongKeyAnalyzer}.
+ */
+public class LongKeyAnalyzerTest extends AbstractKeyAnalyzerTest<Long> {
+
+    @Override
+    protected KeyAnalyzer<Long> analyzer() {
+        return LongKeyAnalyzer.INSTANCE;
+    }
+
+    @Override
+    protected Long randomKey(final Random random) {
+        switch (random.nextInt(4)) {
+        case 0:
+            return random.nextLong();
+        case 1:
+            return (long) random.nextInt(64) - 32;
+        case 2:
+            return Long.MIN_VALUE + random.nextInt(4);
+        default:
+            return (long) random.nextInt() << 32;
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.collections4.trie.analyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.apache.commons.collections4.trie.KeyAnalyzer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link StringKeyAnalyzer}.
+ */
+public class StringKeyAnalyzerTest extends AbstractKeyAnalyzerTest<String> {
+
+    private static final char[] ALPHABET = { '\0', 'a', 'b', 'é', '耀' };
+
+    @Override
+    protected KeyAnalyzer<String> analyzer() {
+        return StringKeyAnalyzer.INSTANCE;
+    }
+
+    @Override
+    protected boolean isSerializedAsSingleton() {
+        return false;
+    }
+
+    @Override
+    protected String randomKey(final Random random) {
+        final StringBuilder builder = new StringBuilder();
+        final int length = random.nextInt(12);
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+        }
+        // a trailing zero character would make the key equal to the key without it
+        if (length > 0 && builder.charAt(length - 1) == '\0') {
+            builder.setCharAt(length - 1, 'z');
+        }
+        return builder.toString();
+    }
+
+    @Test
+    void testBitIndexOffsetsAndZeros() {
+        final KeyAnalyzer<String> analyzer = analyzer();
+        assertEquals(KeyAnalyzer.EQUAL_BIT_KEY, analyzer.bitIndex("xxabc", 32, 48, "abc", 0, 48));
+        assertEquals(2 * 16 + 15, analyzer.bitIndex("xxabc", 32, 48, "abb", 0, 48));
+        assertEquals(KeyAnalyzer.NULL_BIT_KEY, analyzer.bitIndex("\0\0", 0, 32, "", 0, 0));
+        assertEquals(KeyAnalyzer.NULL_BIT_KEY, analyzer.bitIndex("", 0, 0, null, 0, 0));
+        assertEquals(KeyAnalyzer.EQUAL_BIT_KEY, analyzer.bitIndex("a\0", 0, 32, "a", 0, 16));
+        assertEquals(16 + 15, analyzer.bitIndex("a", 0, 16, "a\1", 0, 32));
+    }
+
+}